@@ -27,6 +27,13 @@ public class CommandLineOptions {
 	public int timeoutMin = DEFAULT_TIMEOUT;
 	public int max_update_tran_sec = 0;
 	public int max_writes_per_tran = 0;
+	public boolean group_commit = false;
+	public boolean large_files = false;
+	public int load_threads = 0;
+	public boolean prefix_compress = false;
+	public boolean virtual_threads = false;
+	public int request_threads = 0;
+	public int request_limit = 0;
 	public boolean unattended = false;
 	public String asof = null;
 
@@ -102,6 +109,20 @@ public class CommandLineOptions {
 				max_update_tran_sec = getIntArg();
 			else if (arg.equals("-mw"))
 				max_writes_per_tran = getIntArg();
+			else if (arg.equals("-gc"))
+				group_commit = true;
+			else if (arg.equals("-large"))
+				large_files = true;
+			else if (arg.equals("-lt"))
+				load_threads = getIntArg();
+			else if (arg.equals("-pc"))
+				prefix_compress = true;
+			else if (arg.equals("-vt"))
+				virtual_threads = true;
+			else if (arg.equals("-rt"))
+				request_threads = getIntArg();
+			else if (arg.equals("-rl"))
+				request_limit = getIntArg();
 			else if (arg.equals("-unattended") || arg.equals("-u"))
 				unattended = true;
 			else
@@ -173,6 +194,10 @@ public class CommandLineOptions {
 				&& action != Action.CLIENT)
 			error("port should only be specifed with -server or -client, not "
 					+ action);
+		else if (virtual_threads && request_threads != 0)
+			error("can't have both -vt and -rt");
+		else if (request_threads < 0 || request_limit < 0)
+			error("invalid request threads or limit");
 	}
 
 	private void remainder() {
@@ -195,6 +220,12 @@ public class CommandLineOptions {
 				sb.append(" port=" + serverPort);
 			if (remainder != "")
 				sb.append(" rest: ").append(remainder);
+			if (virtual_threads)
+				sb.append(" virtual_threads");
+			if (request_threads != 0)
+				sb.append(" request_threads=" + request_threads);
+			if (request_limit != 0)
+				sb.append(" request_limit=" + request_limit);
 		}
 		if (timeoutMin != DEFAULT_TIMEOUT)
 			sb.append(" timeout=" + timeoutMin);
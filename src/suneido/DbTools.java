@@ -84,7 +84,7 @@ public class DbTools {
 		try (Database db = Dbpkg.create(tempfile);
 				FileInputStream fin = new FileInputStream(filename)) {
 			Stopwatch sw = Stopwatch.createStarted();
-			int n = Dbpkg.loadDatabase(db, fin.getChannel());
+			int n = Dbpkg.loadDatabase(db, fin.getChannel(), printObserver);
 			System.out.println("loaded " + n + " tables from " + filename +
 					" in " + sw);
 		} catch (Exception e) {
@@ -131,12 +131,17 @@ public class HttpServerMonitor {
 			Joiner.on(", ").appendTo(sb, conns);
 			sb.append("</p>\r\n");
 
+			sb.append("<p>Requests: ")
+					.append(Suneido.server.requestExecutor())
+					.append("</p>\r\n");
+
 			sb.append("<p>Threads: (")
 					.append(Suneido.threadGroup.activeCount())
 					.append(") ")
 					.append(Arrays.asList(SuThread.list()).stream()
 						.map(Thread::getName)
 						.filter(s -> ! s.contains("-connection-") &&
+								! s.contains("DbmsServer-pool-") &&
 								! s.contains("-thread-pool"))
 						.sorted()
 						.collect(Collectors.joining(", ")))
@@ -12,6 +12,7 @@ import static suneido.util.Verify.verify;
 
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import com.google.common.collect.Iterables;
@@ -32,6 +33,12 @@ import suneido.util.Util;
 /**
  * Suneido's primary container type.
  * Combines an extendible array plus a hash map.
+ * <p>
+ * Objects are normally confined to one thread and are not locked.
+ * {@link #setReadonly} objects can be read without locking.
+ * Objects that are shared between threads must be {@link #setConcurrent}
+ * (e.g. Suneido global members and values captured by Thread)
+ * which uses a lock, the same as synchronized methods did previously.
  */
 public class SuObject extends SuValue
 		implements Comparable<SuObject>, Iterable<Object>, Showable {
@@ -39,6 +46,9 @@ public class SuObject extends SuValue
 	private final Map<Object,Object> map;
 	protected Object defval = null;
 	private boolean readonly = false;
+	private boolean concurrent = false;
+	/** null if not concurrent or if readonly and lockFreeReadonly */
+	private volatile ReentrantLock lock = null;
 	public final static SuObject EMPTY = empty();
 
 	@SuppressWarnings("serial")
@@ -106,31 +116,72 @@ public class SuObject extends SuValue
 		return new SuObject(Lists.newArrayList(values));
 	}
 
-	public synchronized Object vecGet(int i) {
-		return vec.get(i);
+	public Object vecGet(int i) {
+		var lk = lock();
+		try {
+			return vec.get(i);
+		} finally {
+			unlock(lk);
+		}
 	}
 	/** WARNING: does not handle migration */
-	public synchronized Object vecSet(int i, Object value) {
-		return vec.set(i, value);
+	public Object vecSet(int i, Object value) {
+		var lk = lock();
+		try {
+			if (lk != null)
+				makeConcurrent(value);
+			return vec.set(i, value);
+		} finally {
+			unlock(lk);
+		}
 	}
-	public synchronized Object mapGet(Object key) {
-		return map.get(key);
+	public Object mapGet(Object key) {
+		var lk = lock();
+		try {
+			return map.get(key);
+		} finally {
+			unlock(lk);
+		}
 	}
-	public synchronized Set<Map.Entry<Object, Object>> mapEntrySet() {
-		return map.entrySet();
+	public Set<Map.Entry<Object, Object>> mapEntrySet() {
+		var lk = lock();
+		try {
+			return map.entrySet();
+		} finally {
+			unlock(lk);
+		}
 	}
-	public synchronized Set<Object> mapKeySet() {
-		return map.keySet();
+	public Set<Object> mapKeySet() {
+		var lk = lock();
+		try {
+			return map.keySet();
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void add(Object value) {
-		checkReadonly();
-		vec.add(value);
-		migrate();
+	public void add(Object value) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (lk != null)
+				makeConcurrent(value);
+			vec.add(value);
+			migrate();
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void addAll(Iterable<?> iterable) {
-		Iterables.addAll(vec, iterable);
+	public void addAll(Iterable<?> iterable) {
+		var lk = lock();
+		try {
+			Iterables.addAll(vec, iterable);
+			if (lk != null)
+				shareValues();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private void checkReadonly() {
@@ -144,45 +195,83 @@ public class SuObject extends SuValue
 			vec.add(x);
 	}
 
-	public synchronized void insert(int at, Object value) {
-		checkReadonly();
-		if (0 <= at && at <= vec.size()) {
-			vec.add(at, value);
-			migrate();
-		} else
-			put(at, value);
+	public void insert(int at, Object value) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (0 <= at && at <= vec.size()) {
+				if (lk != null)
+					makeConcurrent(value);
+				vec.add(at, value);
+				migrate();
+			} else
+				put(at, value);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void merge(SuObject c) {
-		vec.addAll(c.vec);
-		map.putAll(c.map);
-		migrate();
+	public void merge(SuObject c) {
+		var lk = lock();
+		try {
+			vec.addAll(c.vec);
+			map.putAll(c.map);
+			migrate();
+			if (lk != null)
+				shareValues();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized void put(Object key, Object value) {
-		preset(key, value);
+	public void put(Object key, Object value) {
+		var lk = lock();
+		try {
+			preset(key, value);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void preset(Object key, Object value) {
-		checkReadonly();
-		int i = intOrMin(key);
-		if (0 <= i && i < vec.size())
-			vec.set(i, value);
-		else if (i == vec.size())
-			add(value);
-		else
-			map.put(key, value);
+	public void preset(Object key, Object value) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (lk != null)
+				makeConcurrent(value);
+			int i = intOrMin(key);
+			if (0 <= i && i < vec.size())
+				vec.set(i, value);
+			else if (i == vec.size())
+				add(value);
+			else
+				map.put(key, value);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	/** used by CallRule, bypasses readonly */
 	public void putMap(Object key, Object value) {
-		map.put(key, value);
+		var lk = lock();
+		try {
+			if (lk != null)
+				makeConcurrent(value);
+			map.put(key, value);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized Object get(Object key) {
-		return getDefault(key, defval);
+	public Object get(Object key) {
+		var lk = lock();
+		try {
+			return getDefault(key, defval);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	/**
@@ -190,15 +279,25 @@ public class SuObject extends SuValue
 	 * @see #getDefault(int, Object)
 	 * @see #getIfPresent(int)
 	 */
-	public synchronized Object get(int at) {
-		return getDefault(at, defval);
+	public Object get(int at) {
+		var lk = lock();
+		try {
+			return getDefault(at, defval);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	private synchronized Object getDefault(Object key, Object defval) {
-		Object x = getIfPresent(key);
-		if (x != null)
-			return x;
-		return defaultValue(key, defval);
+	private Object getDefault(Object key, Object defval) {
+		var lk = lock();
+		try {
+			Object x = getIfPresent(key);
+			if (x != null)
+				return x;
+			return defaultValue(key, defval);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	protected Object defaultValue(Object key, Object defval) {
@@ -220,22 +319,32 @@ public class SuObject extends SuValue
 	 * @see #get(int)
 	 * @see #getIfPresent(int)
 	 */
-	public synchronized Object getDefault(int at, Object defval) {
-		Object x = getIfPresent(at);
-		if (x != null)
-			return x;
-		if (defval instanceof SuObject) {
-			x = new SuObject((SuObject) defval);
-			if (! readonly)
-				insert(at, x);
-			return x;
+	public Object getDefault(int at, Object defval) {
+		var lk = lock();
+		try {
+			Object x = getIfPresent(at);
+			if (x != null)
+				return x;
+			if (defval instanceof SuObject) {
+				x = new SuObject((SuObject) defval);
+				if (! readonly)
+					insert(at, x);
+				return x;
+			}
+			return defval;
+		} finally {
+			unlock(lk);
 		}
-		return defval;
 	}
 
-	public synchronized Object getIfPresent(Object key) {
-		int i = intOrMin(key);
-		return (0 <= i && i < vec.size()) ? vec.get(i) : map.get(key);
+	public Object getIfPresent(Object key) {
+		var lk = lock();
+		try {
+			int i = intOrMin(key);
+			return (0 <= i && i < vec.size()) ? vec.get(i) : map.get(key);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	/**
@@ -243,44 +352,72 @@ public class SuObject extends SuValue
 	 * @see #get(int)
 	 * @see #getDefault(int, Object)
 	 */
-	public synchronized Object getIfPresent(int at) {
-		synchronized (vec) {
+	public Object getIfPresent(int at) {
+		var lk = lock();
+		try {
 			if (0 <= at && at < vec.size())
 				return vec.get(at);
+			return map.isEmpty() ? null : map.get(at);
+		} finally {
+			unlock(lk);
 		}
-		return map.isEmpty() ? null : map.get(at);
 	}
 
 	@Override
-	public synchronized Object rangeTo(int i, int j) {
-		int size = vec.size();
-		int f = Range.prepFrom(i, size);
-		int t = Range.prepTo(f, j, size);
-		return subList(f, t);
+	public Object rangeTo(int i, int j) {
+		var lk = lock();
+		try {
+			int size = vec.size();
+			int f = Range.prepFrom(i, size);
+			int t = Range.prepTo(f, j, size);
+			return subList(f, t);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized Object rangeLen(int i, int n) {
-		int size = vec.size();
-		int f = Range.prepFrom(i, size);
-		int t = f + Range.prepLen(n, size - f);
-		return subList(f, t);
+	public Object rangeLen(int i, int n) {
+		var lk = lock();
+		try {
+			int size = vec.size();
+			int f = Range.prepFrom(i, size);
+			int t = f + Range.prepLen(n, size - f);
+			return subList(f, t);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized boolean containsKey(Object key) {
-		int i = intOrMin(key);
-		return (0 <= i && i < vec.size()) || map.containsKey(key);
+	public boolean containsKey(Object key) {
+		var lk = lock();
+		try {
+			int i = intOrMin(key);
+			return (0 <= i && i < vec.size()) || map.containsKey(key);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized int size() {
-		return vec.size() + map.size();
+	public int size() {
+		var lk = lock();
+		try {
+			return vec.size() + map.size();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized String toString() {
-		StringBuilder sb = new StringBuilder();
-		rString(sb, new InProgress());
-		return sb.toString();
+	public String toString() {
+		var lk = lock();
+		try {
+			StringBuilder sb = new StringBuilder();
+			rString(sb, new InProgress());
+			return sb.toString();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	public void rString(StringBuilder sb, InProgress inProgress) {
@@ -372,31 +509,41 @@ public class SuObject extends SuValue
 	}
 
 	@Override
-	public synchronized int hashCode() {
-		int h = hashCodeContrib();
-		// The nice thing about vectors: they have a canonical ordering, so
-		// we know we can satisfy the hashCode() contract by just looking at
-		// an arbitrary number of elements.
-		if (vec.size() > 0) {
-			h = 31 * h + Ops.hashCodeContrib(vec.get(0));
-			if (vec.size() > 1)
-				h = 31 * h + Ops.hashCodeContrib(vec.get(1));
-		}
-		if (map.size() <= 5) {
-			// The nasty thing about hash maps: no canonical ordering.
-			// If we look at any members, we have to look at all of them.
-			for (Map.Entry<Object, Object> entry : map.entrySet()) {
-				h = 31 * h + Ops.hashCodeContrib(entry.getKey())
-						^ Ops.hashCodeContrib(entry.getValue());
+	public int hashCode() {
+		var lk = lock();
+		try {
+			int h = hashCodeContrib();
+			// The nice thing about vectors: they have a canonical ordering, so
+			// we know we can satisfy the hashCode() contract by just looking at
+			// an arbitrary number of elements.
+			if (vec.size() > 0) {
+				h = 31 * h + Ops.hashCodeContrib(vec.get(0));
+				if (vec.size() > 1)
+					h = 31 * h + Ops.hashCodeContrib(vec.get(1));
 			}
+			if (map.size() <= 5) {
+				// The nasty thing about hash maps: no canonical ordering.
+				// If we look at any members, we have to look at all of them.
+				for (Map.Entry<Object, Object> entry : map.entrySet()) {
+					h = 31 * h + Ops.hashCodeContrib(entry.getKey())
+							^ Ops.hashCodeContrib(entry.getValue());
+				}
+			}
+			return h;
+		} finally {
+			unlock(lk);
 		}
-		return h;
 	}
 
 	@Override
-	public synchronized int hashCodeContrib() {
-		return 31 * 31 * vec.size() + 31 * map.size()
-				+ SuObject.class.hashCode();
+	public int hashCodeContrib() {
+		var lk = lock();
+		try {
+			return 31 * 31 * vec.size() + 31 * map.size()
+					+ SuObject.class.hashCode();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	/**
@@ -418,10 +565,15 @@ public class SuObject extends SuValue
 	}
 
 	@Override
-	public synchronized boolean equals(Object value) {
-		if (value == this)
-			return true;
-		return equals2(this, value, null);
+	public boolean equals(Object value) {
+		var lk = lock();
+		try {
+			if (value == this)
+				return true;
+			return equals2(this, value, null);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	// avoid infinite recursion from self-reference
@@ -450,7 +602,7 @@ public class SuObject extends SuValue
 	}
 
 	// public since also called by SuInstance.equals2
-	public synchronized static boolean equals3(Object x, Object y, PairStack stack) {
+	public static boolean equals3(Object x, Object y, PairStack stack) {
 		if (x == y)
 			return true;
 		if (x instanceof SuInstance && y instanceof SuInstance)
@@ -460,10 +612,15 @@ public class SuObject extends SuValue
 	}
 
 	@Override
-	public synchronized int compareTo(SuObject that) {
-		if (this == that)
-			return 0;
-		return compare2(that, new PairStack());
+	public int compareTo(SuObject that) {
+		var lk = lock();
+		try {
+			if (this == that)
+				return 0;
+			return compare2(that, new PairStack());
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private int compare2(SuObject that, PairStack stack) {
@@ -487,74 +644,114 @@ public class SuObject extends SuValue
 		return (cy == null) ? Ops.cmp(x, y) : cx.compare2(cy, stack);
 	}
 
-	public synchronized boolean delete(Object key) {
-		checkReadonly();
-		if (null != map.remove(key))
-			return true;
-		int i = intOrMin(key);
-		if (0 <= i && i < vec.size()) {
-			vec.remove(i);
-			return true;
-		} else
-			return false;
+	public boolean delete(Object key) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (null != map.remove(key))
+				return true;
+			int i = intOrMin(key);
+			if (0 <= i && i < vec.size()) {
+				vec.remove(i);
+				return true;
+			} else
+				return false;
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized boolean erase(Object key) {
-		checkReadonly();
-		if (null != map.remove(key))
+	public boolean erase(Object key) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (null != map.remove(key))
+				return true;
+			int i = intOrMin(key);
+			if (i < 0 || vec.size() <= i)
+				return false;
+			// migrate from vec to map
+			for (int j = vec.size() - 1; j > i; --j) {
+				map.put(j, vec.get(j));
+				vec.remove(j);
+			}
+			vec.remove(i);
 			return true;
-		int i = intOrMin(key);
-		if (i < 0 || vec.size() <= i)
-			return false;
-		// migrate from vec to map
-		for (int j = vec.size() - 1; j > i; --j) {
-			map.put(j, vec.get(j));
-			vec.remove(j);
+		} finally {
+			unlock(lk);
 		}
-		vec.remove(i);
-		return true;
 	}
 
-	public synchronized void deleteAll() {
-		checkReadonly();
-		vec.clear();
-		map.clear();
+	public void deleteAll() {
+		var lk = lock();
+		try {
+			checkReadonly();
+			vec.clear();
+			map.clear();
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized Object popFirst() {
-		checkReadonly();
-		return vec.isEmpty() ? null : vec.remove(0);
+	public Object popFirst() {
+		var lk = lock();
+		try {
+			checkReadonly();
+			return vec.isEmpty() ? null : vec.remove(0);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized Object popLast() {
-		checkReadonly();
-		return vec.isEmpty() ? null : vec.remove(vec.size() - 1);
+	public Object popLast() {
+		var lk = lock();
+		try {
+			checkReadonly();
+			return vec.isEmpty() ? null : vec.remove(vec.size() - 1);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized int vecSize() {
-		return vec.size();
+	public int vecSize() {
+		var lk = lock();
+		try {
+			return vec.size();
+		} finally {
+			unlock(lk);
+		}
 	}
-	public synchronized int mapSize() {
-		return map.size();
+	public int mapSize() {
+		var lk = lock();
+		try {
+			return map.size();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized int packSize(int nest) {
-		checkNest(++nest);
-		int ps = 1;
-		if (size() == 0)
-			return ps;
+	public int packSize(int nest) {
+		var lk = lock();
+		try {
+			checkNest(++nest);
+			int ps = 1;
+			if (size() == 0)
+				return ps;
 
-		ps += varintSize(vec.size()); // vec size
-		for (Object x : vec)
-			ps += packSizeValue(x, nest);
+			ps += varintSize(vec.size()); // vec size
+			for (Object x : vec)
+				ps += packSizeValue(x, nest);
 
-		ps += varintSize(map.size());
-		for (Map.Entry<Object, Object> e : map.entrySet())
-			ps += packSizeValue(e.getKey(), nest) +
-					packSizeValue(e.getValue(), nest);
+			ps += varintSize(map.size());
+			for (Map.Entry<Object, Object> e : map.entrySet())
+				ps += packSizeValue(e.getKey(), nest) +
+						packSizeValue(e.getValue(), nest);
 
-		return ps;
+			return ps;
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private static int packSizeValue(Object x, int nest) {
@@ -571,8 +768,13 @@ public class SuObject extends SuValue
 	}
 
 	@Override
-	public synchronized void pack(ByteBuffer buf) {
-		pack(buf, Pack.Tag.OBJECT);
+	public void pack(ByteBuffer buf) {
+		var lk = lock();
+		try {
+			pack(buf, Pack.Tag.OBJECT);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	protected void pack(ByteBuffer buf, byte tag) {
@@ -623,51 +825,154 @@ public class SuObject extends SuValue
 		return Pack.unpack(buf2);
 	}
 
-	public synchronized SuObject setReadonly() {
-		if (readonly)
+	public SuObject setReadonly() {
+		var lk = lock();
+		try {
+			if (readonly)
+				return this;
+			readonly = true;
+			// recurse
+			for (Object x : vec)
+				if (x instanceof SuObject)
+					((SuObject) x).setReadonly();
+			for (Object x : map.values())
+				if (x instanceof SuObject)
+					((SuObject) x).setReadonly();
+		} finally {
+			unlock(lk);
+		}
+		if (lockFreeReadonly())
+			lock = null; // volatile write publishes the final contents
+		return this;
+	}
+
+	/**
+	 * Whether readonly objects can be read without locking.
+	 * Derived classes that modify themselves on reads should return false.
+	 */
+	protected boolean lockFreeReadonly() {
+		return true;
+	}
+
+	/**
+	 * Switch to locking, for objects that are shared between threads.
+	 * Contained objects, and objects later put into this one,
+	 * are also made concurrent.
+	 * <p>
+	 * Must be called by the thread that owns the object,
+	 * before it is shared.
+	 */
+	public SuObject setConcurrent() {
+		if (concurrent)
 			return this;
-		readonly = true;
-		// recurse
+		concurrent = true;
+		if (! readonly || ! lockFreeReadonly())
+			lock = new ReentrantLock();
+		shareValues();
+		return this;
+	}
+
+	/**
+	 * Makes a value that is being shared between threads concurrent.
+	 * Handles objects, class instances, and callables that have a self.
+	 * @see #setConcurrent()
+	 */
+	public static void makeConcurrent(Object x) {
+		if (x instanceof SuObject)
+			((SuObject) x).setConcurrent();
+		else if (x instanceof SuInstance)
+			((SuInstance) x).setConcurrent();
+		else if (x instanceof SuClosure)
+			((SuClosure) x).setConcurrent();
+		else if (x instanceof SuBoundMethod)
+			makeConcurrent(((SuBoundMethod) x).instance);
+	}
+
+	private void shareValues() {
 		for (Object x : vec)
-			if (x instanceof SuObject)
-				((SuObject) x).setReadonly();
+			makeConcurrent(x);
 		for (Object x : map.values())
-			if (x instanceof SuObject)
-				((SuObject) x).setReadonly();
-		return this;
+			makeConcurrent(x);
+		makeConcurrent(defval);
 	}
 
-	public synchronized boolean getReadonly() {
-		return readonly;
+	public boolean isConcurrent() {
+		return concurrent;
 	}
 
-	public synchronized Object slice(int i) {
-		SuObject c = new SuObject();
-		c.vec.addAll(vec.subList(i, vec.size()));
-		c.map.putAll(map);
-		return c;
+	/**
+	 * Locks if concurrent.
+	 * Usage: var lk = lock(); try { ... } finally { unlock(lk); }
+	 * @return The lock to pass to unlock, or null if not locking
+	 */
+	protected final ReentrantLock lock() {
+		ReentrantLock lk = lock;
+		if (lk != null)
+			lk.lock();
+		return lk;
+	}
+
+	protected static void unlock(ReentrantLock lk) {
+		if (lk != null)
+			lk.unlock();
+	}
+
+	public boolean getReadonly() {
+		var lk = lock();
+		try {
+			return readonly;
+		} finally {
+			unlock(lk);
+		}
+	}
+
+	public Object slice(int i) {
+		var lk = lock();
+		try {
+			SuObject c = new SuObject();
+			c.vec.addAll(vec.subList(i, vec.size()));
+			c.map.putAll(map);
+			return c;
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	public enum IterWhich { LIST, NAMED, ALL }
 
 	@Override
-	public synchronized Iterator<Object> iterator() {
-		return iterator(IterWhich.ALL, IterResult.VALUE);
+	public Iterator<Object> iterator() {
+		var lk = lock();
+		try {
+			return iterator(IterWhich.ALL, IterResult.VALUE);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@SuppressWarnings("unchecked")
-	public synchronized Iterator<Object> iterator(IterWhich iterWhich, IterResult iterResult) {
-		return new Iter(
-				iterWhich == IterWhich.NAMED ? nullIter : vec.iterator(),
-				iterWhich == IterWhich.LIST ? nullIter : map.entrySet().iterator(),
-				iterResult);
+	public Iterator<Object> iterator(IterWhich iterWhich, IterResult iterResult) {
+		var lk = lock();
+		try {
+			return new Iter(
+					iterWhich == IterWhich.NAMED ? nullIter : vec.iterator(),
+					iterWhich == IterWhich.LIST ? nullIter : map.entrySet().iterator(),
+					iterResult);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized Iterable<Object> iterable(IterWhich iterWhich, IterResult iterResult) {
-		if (iterWhich == IterWhich.ALL && iterResult == IterResult.VALUE)
-			return this;
-		else
-			return new IterableAdapter(iterWhich, iterResult);
+	public Iterable<Object> iterable(IterWhich iterWhich, IterResult iterResult) {
+		var lk = lock();
+		try {
+			if (iterWhich == IterWhich.ALL && iterResult == IterResult.VALUE)
+				return this;
+			else
+				return new IterableAdapter(iterWhich, iterResult);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private class IterableAdapter implements Iterable<Object> {
@@ -739,74 +1044,111 @@ public class SuObject extends SuValue
 		}
 	}
 
-	public synchronized Object find(Object value) {
-		for (int i = 0; i < vec.size(); ++i)
-			if (Ops.is_(value, vec.get(i)))
-				return i;
-		for (Map.Entry<Object, Object> e : map.entrySet())
-			if (Ops.is_(value, e.getValue()))
-				return e.getKey();
-		return null;
+	public Object find(Object value) {
+		var lk = lock();
+		try {
+			for (int i = 0; i < vec.size(); ++i)
+				if (Ops.is_(value, vec.get(i)))
+					return i;
+			for (Map.Entry<Object, Object> e : map.entrySet())
+				if (Ops.is_(value, e.getValue()))
+					return e.getKey();
+			return null;
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void reverse() {
-		checkReadonly();
-		Collections.reverse(vec);
+	public void reverse() {
+		var lk = lock();
+		try {
+			checkReadonly();
+			Collections.reverse(vec);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void sort(final Object fn) {
-		checkReadonly();
-		if (fn == Boolean.FALSE)
-			Collections.sort(vec, Ops.comp);
-		else
-			Collections.sort(vec, (Object x, Object y) ->
-					Ops.call(fn, x, y) == Boolean.TRUE ? -1
-							: Ops.call(fn, y, x) == Boolean.TRUE ? 1 : 0);
+	public void sort(final Object fn) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (fn == Boolean.FALSE)
+				Collections.sort(vec, Ops.comp);
+			else
+				Collections.sort(vec, (Object x, Object y) ->
+						Ops.call(fn, x, y) == Boolean.TRUE ? -1
+								: Ops.call(fn, y, x) == Boolean.TRUE ? 1 : 0);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void unique() {
-		int dst = 1;
-		for (int src = 1; src < vec.size(); ++src) {
-			if (Ops.is_(vec.get(src), vec.get(src - 1)))
-				continue;
-			if (dst < src)
-				vec.set(dst, vec.get(src));
-			++dst;
+	public void unique() {
+		var lk = lock();
+		try {
+			int dst = 1;
+			for (int src = 1; src < vec.size(); ++src) {
+				if (Ops.is_(vec.get(src), vec.get(src - 1)))
+					continue;
+				if (dst < src)
+					vec.set(dst, vec.get(src));
+				++dst;
+			}
+			while (vec.size() > dst)
+				vec.remove(vec.size() - 1);
+		} finally {
+			unlock(lk);
 		}
-		while (vec.size() > dst)
-			vec.remove(vec.size() - 1);
 	}
 
-	public synchronized int binarySearch(Object value, final Object fn) {
-		if (fn == Boolean.FALSE)
-			return Util.lowerBound(vec, value, Ops.comp);
-		else
-			return Util.lowerBound(vec, value, (Object x, Object y) ->
-					Ops.call(fn, x, y) == Boolean.TRUE ? -1 : 1);
+	public int binarySearch(Object value, final Object fn) {
+		var lk = lock();
+		try {
+			if (fn == Boolean.FALSE)
+				return Util.lowerBound(vec, value, Ops.comp);
+			else
+				return Util.lowerBound(vec, value, (Object x, Object y) ->
+						Ops.call(fn, x, y) == Boolean.TRUE ? -1 : 1);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized Record toDbRecord(Header hdr) {
-		RecordBuilder rec = new RecordBuilder();
-		Object x;
-		String ts = hdr.timestamp_field();
-		Object tsval = null;
-		for (String f : hdr.output_fldsyms())
-			if (f == "-")
-				rec.addMin();
-			else if (f.equals(ts))
-				rec.add(tsval = TheDbms.dbms().tstamp());
-			else if (null != (x = get(f)))
-				rec.add(x);
-			else
-				rec.addMin();
-		if (tsval != null && ! getReadonly())
-			put(ts, tsval);
-		return rec.build();
+	public Record toDbRecord(Header hdr) {
+		var lk = lock();
+		try {
+			RecordBuilder rec = new RecordBuilder();
+			Object x;
+			String ts = hdr.timestamp_field();
+			Object tsval = null;
+			for (String f : hdr.output_fldsyms())
+				if (f == "-")
+					rec.addMin();
+				else if (f.equals(ts))
+					rec.add(tsval = TheDbms.dbms().tstamp());
+				else if (null != (x = get(f)))
+					rec.add(x);
+				else
+					rec.addMin();
+			if (tsval != null && ! getReadonly())
+				put(ts, tsval);
+			return rec.build();
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void setDefault(Object value) {
-		checkReadonly();
-		defval = value;
+	public void setDefault(Object value) {
+		var lk = lock();
+		try {
+			checkReadonly();
+			if (lk != null)
+				makeConcurrent(value);
+			defval = value;
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
@@ -819,8 +1161,13 @@ public class SuObject extends SuValue
 		return "Object";
 	}
 
-	public synchronized boolean isEmpty() {
-		return vec.isEmpty() && map.isEmpty();
+	public boolean isEmpty() {
+		var lk = lock();
+		try {
+			return vec.isEmpty() && map.isEmpty();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
@@ -828,8 +1175,13 @@ public class SuObject extends SuValue
 		return ObjectMethods.lookup(method);
 	}
 
-	public synchronized SuObject subList(int from, int to) {
-		return new SuObject(new ArrayList<>(vec.subList(from, to)));
+	public SuObject subList(int from, int to) {
+		var lk = lock();
+		try {
+			return new SuObject(new ArrayList<>(vec.subList(from, to)));
+		} finally {
+			unlock(lk);
+		}
 	}
 
 }
@@ -99,12 +99,17 @@ public class SuRecord extends SuObject {
 			addField(field, rec.getRaw(i++));
 	}
 
-	public synchronized void clear() {
-		super.deleteAll();
-		hdr = null;
-		tran = null;
-		recadr = 0;
-		status = Status.NEW;
+	public void clear() {
+		var lk = lock();
+		try {
+			super.deleteAll();
+			hdr = null;
+			tran = null;
+			recadr = 0;
+			status = Status.NEW;
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private void addField(String field, ByteBuffer buf) {
@@ -144,8 +149,13 @@ public class SuRecord extends SuObject {
 	}
 
 	@Override
-	public synchronized void pack(ByteBuffer buf) {
-		super.pack(buf, Pack.Tag.RECORD);
+	public void pack(ByteBuffer buf) {
+		var lk = lock();
+		try {
+			super.pack(buf, Pack.Tag.RECORD);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	public static Object unpack(ByteBuffer buf) {
@@ -153,34 +163,49 @@ public class SuRecord extends SuObject {
 	}
 
 	@Override
-	public synchronized void put(Object key, Object value) {
-		invalid.remove(key); // before get
-		Object old = containsKey(key) ? super.get(key) : null;
-		super.put(key, value);
-		if (old != null && old.equals(value))
-			return;
-		invalidateDependents(key);
-		callObservers(key);
+	public void put(Object key, Object value) {
+		var lk = lock();
+		try {
+			invalid.remove(key); // before get
+			Object old = containsKey(key) ? super.get(key) : null;
+			super.put(key, value);
+			if (old != null && old.equals(value))
+				return;
+			invalidateDependents(key);
+			callObservers(key);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
-	public synchronized boolean delete(Object key) {
-		boolean result = super.delete(key);
-		if (result) {
-			invalidateDependents(key);
-			callObservers(key);
+	public boolean delete(Object key) {
+		var lk = lock();
+		try {
+			boolean result = super.delete(key);
+			if (result) {
+				invalidateDependents(key);
+				callObservers(key);
+			}
+			return result;
+		} finally {
+			unlock(lk);
 		}
-		return result;
 	}
 
 	@Override
-	public synchronized boolean erase(Object key) {
-		boolean result = super.erase(key);
-		if (result) {
-			invalidateDependents(key);
-			callObservers(key);
+	public boolean erase(Object key) {
+		var lk = lock();
+		try {
+			boolean result = super.erase(key);
+			if (result) {
+				invalidateDependents(key);
+				callObservers(key);
+			}
+			return result;
+		} finally {
+			unlock(lk);
 		}
-		return result;
 	}
 
 	private void invalidateDependents(Object key) {
@@ -197,9 +222,14 @@ public class SuRecord extends SuObject {
 	}
 
 	/** called by Suneido record.Invalidate */
-	public synchronized void invalidate(Object member) {
-		invalidate1(member);
-		callObservers(member);
+	public void invalidate(Object member) {
+		var lk = lock();
+		try {
+			invalidate1(member);
+			callObservers(member);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
@@ -209,7 +239,8 @@ public class SuRecord extends SuObject {
 
 	public Object getDef(Object key, Object def) {
 		Object result;
-		synchronized (this) {
+		var lk = lock();
+		try {
 			RuleContext.Rule ar = RuleContext.top();
 			if (ar != null && ar.rec == this && !ar.member.equals(key))
 				addDependency(ar.member, key);
@@ -220,14 +251,19 @@ public class SuRecord extends SuObject {
 			Object x = getIfSpecial(key);
 			if (x != null)
 				return x;
+		} finally {
+			unlock(lk);
 		}
 		Object x = callRule(key);
-		synchronized (this) {
+		lk = lock();
+		try {
 			if (x != null)
 				result = x;
 			else if (result == null)
 				result = defaultValue(key, def);
 			return result;
+		} finally {
+			unlock(lk);
 		}
 	}
 
@@ -236,6 +272,12 @@ public class SuRecord extends SuObject {
 		return new SuRecord(this);
 	}
 
+	/** rules and dependencies are updated by reads, even if readonly */
+	@Override
+	protected boolean lockFreeReadonly() {
+		return false;
+	}
+
 	private Object getIfSpecial(Object key) {
 		if (key instanceof String && isSpecialField((String) key)) {
 			String base = Util.beforeLast((String) key, "_");
@@ -289,29 +331,34 @@ public class SuRecord extends SuObject {
 	}
 
 	@Override
-	public synchronized Record toDbRecord(Header hdr) {
-		List<String> fldsyms = hdr.output_fldsyms();
-		Map<Object, Set<Object>> deps = getDeps(hdr, fldsyms);
-		// PERF don't add trailing empty fields
-
-		RecordBuilder rb = new RecordBuilder();
-		Object x;
-		String ts = hdr.timestamp_field();
-		Object tsval = null;
-		for (String f : fldsyms)
-			if (f == null)
-				rb.addMin();
-			else if (f.equals(ts))
-				rb.add(tsval = TheDbms.dbms().tstamp());
-			else if (deps.containsKey(f))
-				rb.add(commaJoiner.join(deps.get(f)));
-			else if (null != (x = get(f)))
-				rb.add(x);
-			else
-				rb.addMin();
-		if (tsval != null && ! getReadonly())
-			super.put(ts, tsval);
-		return rb.build();
+	public Record toDbRecord(Header hdr) {
+		var lk = lock();
+		try {
+			List<String> fldsyms = hdr.output_fldsyms();
+			Map<Object, Set<Object>> deps = getDeps(hdr, fldsyms);
+			// PERF don't add trailing empty fields
+
+			RecordBuilder rb = new RecordBuilder();
+			Object x;
+			String ts = hdr.timestamp_field();
+			Object tsval = null;
+			for (String f : fldsyms)
+				if (f == null)
+					rb.addMin();
+				else if (f.equals(ts))
+					rb.add(tsval = TheDbms.dbms().tstamp());
+				else if (deps.containsKey(f))
+					rb.add(commaJoiner.join(deps.get(f)));
+				else if (null != (x = get(f)))
+					rb.add(x);
+				else
+					rb.addMin();
+			if (tsval != null && ! getReadonly())
+				super.put(ts, tsval);
+			return rb.build();
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private Map<Object, Set<Object>> getDeps(Header hdr, List<String> fldsyms) {
@@ -333,16 +380,26 @@ public class SuRecord extends SuObject {
 		return deps;
 	}
 
-	public synchronized void update(SuObject ob) {
-		ck_modify("Update");
-		Record newrec = ob.toDbRecord(hdr);
-		recadr = tran.getTransaction().update(recadr, newrec);
-		verify(recadr != 0);
+	public void update(SuObject ob) {
+		var lk = lock();
+		try {
+			ck_modify("Update");
+			Record newrec = ob.toDbRecord(hdr);
+			recadr = tran.getTransaction().update(recadr, newrec);
+			verify(recadr != 0);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void delete() {
-		ck_modify("Delete");
-		tran.getTransaction().erase(recadr);
+	public void delete() {
+		var lk = lock();
+		try {
+			ck_modify("Delete");
+			tran.getTransaction().erase(recadr);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private void ck_modify(String op) {
@@ -362,20 +419,40 @@ public class SuRecord extends SuObject {
 		return "Record";
 	}
 
-	public synchronized boolean isNew() {
-		return status == Status.NEW;
+	public boolean isNew() {
+		var lk = lock();
+		try {
+			return status == Status.NEW;
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized SuTransaction getTransaction() {
-		return tran;
+	public SuTransaction getTransaction() {
+		var lk = lock();
+		try {
+			return tran;
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void addObserver(Object observer) {
-		observers.add(observer);
+	public void addObserver(Object observer) {
+		var lk = lock();
+		try {
+			observers.add(observer);
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void removeObserver(Object observer) {
-		observers.remove(observer);
+	public void removeObserver(Object observer) {
+		var lk = lock();
+		try {
+			observers.remove(observer);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	private static class ActiveObserver {
@@ -411,15 +488,20 @@ public class SuRecord extends SuObject {
 	 * Calls observers for the specified field,
 	 * and then for any other invalidated fields.
 	 */
-	public synchronized void callObservers(Object member) {
-		callObservers2(member);
-		// can't iterate normally because of potential concurrent modification
-		while (! invalidated.isEmpty()) {
-			Iterator<Object> iter = invalidated.iterator();
-			Object m = iter.next();
-			iter.remove();
-			if (! m.equals(member))
-				callObservers2(m);
+	public void callObservers(Object member) {
+		var lk = lock();
+		try {
+			callObservers2(member);
+			// can't iterate normally because of potential concurrent modification
+			while (! invalidated.isEmpty()) {
+				Iterator<Object> iter = invalidated.iterator();
+				Object m = iter.next();
+				iter.remove();
+				if (! m.equals(member))
+					callObservers2(m);
+			}
+		} finally {
+			unlock(lk);
 		}
 	}
 
@@ -446,17 +528,27 @@ public class SuRecord extends SuObject {
 		}
 	}
 
-	public synchronized String getdeps(String field) {
-		CommaStringBuilder deps = new CommaStringBuilder();
-		for (Object key : dependencies.keySet())
-			if (dependencies.get(key).contains(field))
-				deps.add(key);
-		return deps.toString();
+	public String getdeps(String field) {
+		var lk = lock();
+		try {
+			CommaStringBuilder deps = new CommaStringBuilder();
+			for (Object key : dependencies.keySet())
+				if (dependencies.get(key).contains(field))
+					deps.add(key);
+			return deps.toString();
+		} finally {
+			unlock(lk);
+		}
 	}
 
-	public synchronized void setdeps(String field, String deps) {
-		for (String d : Util.commaSplitter(deps))
-			addDependency(field, d);
+	public void setdeps(String field, String deps) {
+		var lk = lock();
+		try {
+			for (String d : Util.commaSplitter(deps))
+				addDependency(field, d);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 	@Override
@@ -467,8 +559,13 @@ public class SuRecord extends SuObject {
 		return super.lookup(method);
 	}
 
-	public synchronized void attachRule(String field, Object rule) {
-		attachedRules.put(field, rule);
+	public void attachRule(String field, Object rule) {
+		var lk = lock();
+		try {
+			attachedRules.put(field, rule);
+		} finally {
+			unlock(lk);
+		}
 	}
 
 }
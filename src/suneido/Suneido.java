@@ -22,6 +22,7 @@ import suneido.database.immudb.Database;
 import suneido.database.immudb.Dbpkg;
 import suneido.database.immudb.Dump;
 import suneido.database.server.DbmsServer;
+import suneido.database.server.RequestExecutor;
 import suneido.database.server.Timestamp;
 import suneido.runtime.ContextLayered;
 import suneido.runtime.Contexts;
@@ -60,6 +61,14 @@ public class Suneido {
 			Dbpkg.setOption("max_update_tran_sec", cmdlineoptions.max_update_tran_sec);
 		if (cmdlineoptions.max_writes_per_tran != 0)
 			Dbpkg.setOption("max_writes_per_tran", cmdlineoptions.max_writes_per_tran);
+		if (cmdlineoptions.group_commit)
+			Dbpkg.setOption("group_commit", true);
+		if (cmdlineoptions.large_files)
+			Dbpkg.setOption("large_files", true);
+		if (cmdlineoptions.load_threads > 0)
+			Dbpkg.setOption("load_threads", cmdlineoptions.load_threads);
+		if (cmdlineoptions.prefix_compress)
+			Dbpkg.setOption("prefix_compress", true);
 		try {
 			doAction();
 		} catch (Throwable e) {
@@ -145,7 +154,7 @@ public class Suneido {
 		scheduleAtFixedRate(Deadlock::check, 5, TimeUnit.MINUTES);
 		HttpServerMonitor.run(cmdlineoptions.serverPort + 1);
 		openDbms();
-		server = new DbmsServer(cmdlineoptions.timeoutMin);
+		server = new DbmsServer(cmdlineoptions.timeoutMin, requestExecutor());
 		server.open(cmdlineoptions.serverPort);
 		try {
 			Compiler.eval("Init()");
@@ -157,6 +166,15 @@ public class Suneido {
 		server.serve();
 	}
 
+	private static RequestExecutor requestExecutor() {
+		int limit = cmdlineoptions.request_limit;
+		if (cmdlineoptions.virtual_threads)
+			return RequestExecutor.virtual(limit);
+		if (cmdlineoptions.request_threads > 0)
+			return RequestExecutor.pool(cmdlineoptions.request_threads, limit);
+		return RequestExecutor.perConnection(limit);
+	}
+
 	private static Database db;
 
 	public static void openDbms() {
@@ -204,6 +222,13 @@ public class Suneido {
 		System.out.println("-t[ime]o[ut] #            time out in minutes for idle clients (default is 240)");
 		System.out.println("-ut #                     set max update tran duration in seconds (default 10)");
 		System.out.println("-mw #                     set max writes per update transaction (default 10000)");
+		System.out.println("-gc                       group concurrent update transaction commits");
+		System.out.println("-large                    create new databases in the large (v4) format");
+		System.out.println("-lt #                     load using # threads to build indexes");
+		System.out.println("-pc                       write btree nodes with prefix compressed keys");
+		System.out.println("-vt                       run server requests on virtual threads");
+		System.out.println("-rt #                     run server requests on a pool of # threads");
+		System.out.println("-rl #                     limit running plus queued server requests");
 		System.out.println("-u[nattended]             redirect stdout and stderr to output.log and error.log");
 		System.out.println("-dbdump                   output database structure (for debugging)");
 		System.out.println("-h[elp] or -?             print this message");
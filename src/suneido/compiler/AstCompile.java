@@ -737,8 +737,8 @@ public class AstCompile {
 			break;
 		case BINARYOP:
 			expression(cg, ast.second());
-			expression(cg, ast.third());
-			cg.binaryOp(ast.first().token, option == ExprOption.INTBOOL);
+			binaryOp(cg, ast.first().token, ast.third(),
+					option == ExprOption.INTBOOL);
 			if (option == ExprOption.INTBOOL
 					&& ast.first().token.resultType == TokenResultType.B)
 				resultType = ExprType.INTBOOL;
@@ -755,8 +755,7 @@ public class AstCompile {
 			ref = lvalue(cg, ast.second());
 			cg.dupLvalue(ref);
 			load(cg, ref);
-			expression(cg, ast.third());
-			cg.binaryOp(ast.first().token, false);
+			binaryOp(cg, ast.first().token, ast.third(), false);
 			if (option != ExprOption.POP)
 				cg.dupUnderLvalue(ref);
 			store(cg, ref);
@@ -818,6 +817,22 @@ public class AstCompile {
 		return resultType;
 	}
 
+	/**
+	 * Left hand side should already be on the stack.
+	 * An integer constant right hand side is passed unboxed
+	 * to the ...Int methods in Ops, which check for int left hand sides first.
+	 */
+	private void binaryOp(ClassGen cg, Token op, AstNode rhs, boolean intBool) {
+		if (rhs.token == Token.VALUE && rhs.value instanceof Integer &&
+				ClassGen.intBinaryOp(op)) {
+			cg.iconst((Integer) rhs.value);
+			cg.binaryOpInt(op, intBool);
+		} else {
+			expression(cg, rhs);
+			cg.binaryOp(op, intBool);
+		}
+	}
+
 	private void identifier(ClassGen cg, AstNode ast, ExprOption option) {
 		putLineNumber(cg, ast);
 		String name = ast.strval();
@@ -919,14 +934,17 @@ public class AstCompile {
 		if (fn.token == Token.MEMBER) {
 			if ("New".equals(fn.strval()))
 				throw new SuException("can't explicitly call New method");
-			member(cg, fn);
 			if (args.token != Token.AT
 					&& args.children.size() <= MAX_DIRECT_ARGS
 					&& !hasNamed(args)) {
+				expression(cg, fn.first());
+				putLineNumber(cg, fn);
 				directArguments(cg, args);
 				putLineNumber(cg, ast);
-				cg.invokeMethod(args.children.size());
+				cg.invokeMethod(privatizeRef(fn.first(), fn.strval()),
+						args.children.size());
 			} else {
+				member(cg, fn);
 				callArguments(cg, args);
 				putLineNumber(cg, ast);
 				cg.invokeMethod();
@@ -7,6 +7,9 @@ package suneido.compiler;
 import static org.objectweb.asm.Opcodes.*;
 
 import java.io.PrintWriter;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
@@ -137,7 +140,7 @@ public class ClassGen {
 		if (pw != null)
 			cv = new TraceClassVisitor(cw, pw);
 		cv = new CheckClassAdapter(cv, false);
-		cv.visit(V1_5, ACC_PUBLIC + ACC_SUPER, className, null, base, null);
+		cv.visit(V1_8, ACC_PUBLIC + ACC_SUPER, className, null, base, null);
 		cv.visitSource(sourceFile, null);
 		return cv;
 	}
@@ -290,6 +293,28 @@ public class ClassGen {
 				"(Ljava/lang/Object;Ljava/lang/Object;)" + op.resultType.type, false);
 	}
 
+	/** right hand side is an int constant, see {@link #intBinaryOp(Token)} */
+	void binaryOpInt(Token op, boolean intBool) {
+		if (intBool && op.resultType == TokenResultType.B)
+			op = op.other;
+		String method = op.method.endsWith("_")
+				? op.method.replace("_", "Int_") // e.g. ltInt_
+				: op.method + "Int"; // e.g. addInt
+		mv.visitMethodInsn(INVOKESTATIC, OPS_INTERNAL_NAME, method,
+				"(Ljava/lang/Object;I)" + op.resultType.type, false);
+	}
+
+	/** Ops has ...Int versions with an int right hand side for these */
+	static boolean intBinaryOp(Token op) {
+		switch (op) {
+		case IS: case ISNT: case LT: case LTE: case GT: case GTE:
+		case ADD: case SUB: case MUL: case ADDEQ: case SUBEQ: case MULEQ:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	void rangeTo() {
 		mv.visitMethodInsn(INVOKESTATIC, OPS_INTERNAL_NAME, "rangeTo",
 				"(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;)"
@@ -468,6 +493,24 @@ public class ClassGen {
 			false);
 	}
 
+	/**
+	 * Method call with a constant name, via invokedynamic
+	 * so the call site can cache the lookup.
+	 * @see MethodCallSite
+	 */
+	void invokeMethod(String method, int nargs) {
+		mv.visitInvokeDynamicInsn("invoke",
+				"(Ljava/lang/Object;" + directArgs[nargs] + ")Ljava/lang/Object;",
+				METHOD_CALL_SITE, method);
+	}
+
+	private static final Handle METHOD_CALL_SITE = new Handle(H_INVOKESTATIC,
+			Type.getInternalName(MethodCallSite.class), "bootstrap",
+			MethodType.methodType(CallSite.class, MethodHandles.Lookup.class,
+					String.class, MethodType.class, String.class)
+					.toMethodDescriptorString(),
+			false);
+
 	private static final int MAX_DIRECT_ARGS = 11;
 	private static final String[] directArgs = new String[MAX_DIRECT_ARGS];
 	static {
@@ -175,4 +175,9 @@ public abstract class Generator<T> {
 
 	public abstract T value(Object value);
 
+	/** A ? placeholder, only used by queries */
+	public T parameter() {
+		return null;
+	}
+
 }
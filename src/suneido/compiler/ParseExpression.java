@@ -298,6 +298,10 @@ public class ParseExpression<T, G extends Generator<T>> extends Parse<T, G> {
 			}
 		case IDENTIFIER:
 			return primaryIdentifier();
+		case Q_MARK:
+			if (! inQuery)
+				syntaxError();
+			return matchReturn(generator.parameter());
 		default:
 			syntaxError();
 			return null; // unreachable
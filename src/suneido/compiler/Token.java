@@ -55,7 +55,7 @@ public enum Token {
 	IN("in"), THIS("this"),
 
 	// for queries
-	ALTER("alter"), AVERAGE("average", SUMOP), BY("by"),
+	ALTER("alter"), ANALYZE("analyze"), AVERAGE("average", SUMOP), BY("by"),
 	CASCADE("cascade"), COUNT("count", SUMOP), CREATE("create"),
 	DELETE("delete"), DROP("drop"), ENSURE("ensure"),
 	EXTEND("extend"), HISTORY("history"), INDEX("index"),
@@ -10,28 +10,34 @@ import static suneido.database.immudb.Dbpkg.MIN_RECORD;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
 
+import suneido.runtime.Pack;
 import suneido.util.NotThreadSafe;
 
 /**
  * Append-only immutable btrees.
  * <p>
- * Note: remove does not merge nodes. The tree will stay balanced in terms of nodes
- * but not necessarily in terms of keys. But the number of tree levels will never
- * shrink unless all the keys are deleted. This is based on the assumption that
- * adds are much more common than removes. Since nodes are variable size
- * small nodes do not waste much space. And compacting the database will rebuild
- * btrees anyway.
+ * Remove merges a child node that becomes underfull
+ * with a sibling if the result will not be too full,
+ * and the tree levels shrink when the root has a single child.
+ * This keeps tables with a lot of delete/insert churn (e.g. queues)
+ * from accumulating nearly empty nodes.
+ * There is no redistribution between siblings that are too big to merge.
+ * Since nodes are variable size small nodes do not waste much space.
+ * And compacting the database will rebuild btrees anyway.
  *
  * @see BtreeNode, BtreeDbNode, BtreeMemNode
  */
 @NotThreadSafe
 class Btree implements TranIndex {
-	protected int splitSize() { return 20; } // overridden by tests
+	static final int MAX_NODE_SIZE = 20;
+	protected int splitSize() { return MAX_NODE_SIZE; } // overridden by tests
 	final Tran tran;
 	int treeLevels;
 	int nnodes;
@@ -235,11 +241,45 @@ class Btree implements TranIndex {
 		 * this simplifies add duplicate check and allows optimized update
 		 */
 		BtreeTreeKey treeKey = max
-			? new BtreeTreeKey(splitKey.key, IntRefs.MAXADR, 0, right)
+			? new BtreeTreeKey(separator(left.last().key, right.first().key),
+					IntRefs.MAXADR, 0, right)
 			: new BtreeTreeKey(splitKey.key, splitKey.adr(), 0, right);
 		return new Split(left, treeKey);
 	}
 
+	/**
+	 * Used for leaf split keys (with MAXADR) by split and BtreeBuilder.
+	 * Only string fields are truncated within the field
+	 * since a prefix of other packed values is not a valid value.
+	 * @return The shortest prefix of hi that is greater than lo
+	 * and less than hi, or else lo
+	 */
+	static Record separator(Record lo, Record hi) {
+		assert lo.compareTo(hi) < 0;
+		int n = Math.min(lo.size(), hi.size());
+		int i = 0;
+		while (i < n && lo.getRaw(i).equals(hi.getRaw(i)))
+			++i;
+		RecordBuilder rb = new RecordBuilder().addPrefix(hi, i);
+		ByteBuffer buf = hi.fieldBuffer(i);
+		int off = hi.fieldOffset(i);
+		int len = hi.fieldLength(i);
+		int keep = len;
+		if (i < lo.size() && len > 1 && buf.get(off) == Pack.Tag.STRING) {
+			ByteBuffer lobuf = lo.fieldBuffer(i);
+			int lopos = lo.fieldOffset(i);
+			int n2 = Math.min(len, lo.fieldLength(i));
+			int d = 0;
+			while (d < n2 && buf.get(off + d) == lobuf.get(lopos + d))
+				++d;
+			if (d > 0) // else not both strings
+				keep = d + 1;
+		}
+		rb.add(buf.slice(off, keep));
+		Record sep = rb.bufRec();
+		return sep.compareTo(hi) < 0 ? sep : lo;
+	}
+
 	private static boolean areUnique(BtreeKey last, BtreeKey first) {
 		return ! last.key.equals(first.key);
 	}
@@ -268,8 +308,7 @@ class Btree implements TranIndex {
 	/**
 	 * Remove a key from the btree.
 	 * <p>
-	 * Does <u>not</u> merge nodes.
-	 * Tree levels will only shrink when the <u>last</u> key is removed.
+	 * Underfull nodes are merged with a sibling (see merge)
 	 * @return false if the key was not found
 	 */
 	@Override
@@ -286,6 +325,11 @@ class Btree implements TranIndex {
 			totalSize = 0;
 			nnodes = 1;
 		} else {
+			while (result.isTree() && result.size() == 1) {
+				result = childNode(result, 0);
+				--treeLevels;
+				--nnodes;
+			}
 			rootNode = result;
 		}
 		++modified;
@@ -307,11 +351,37 @@ class Btree implements TranIndex {
 		if (result.isEmpty()) {
 			--nnodes;
 			node = node.without(i).minimizeLeftMost();
-		} else
+		} else if (result.size() <= splitSize() / 4 && node.size() > 1)
+			node = merge(node, i, result);
+		else
 			node = pathCopy(node, i, result);
 		return node;
 	}
 
+	/**
+	 * Merge an underfull child with its right sibling
+	 * (or left sibling if it is the last child)
+	 * if the result is at most 3/4 full, so a few adds won't split it again.
+	 * The parent may in turn become underfull and be merged by its parent.
+	 */
+	private BtreeNode merge(BtreeNode node, int i, BtreeNode child) {
+		int left = (i + 1 < node.size()) ? i : i - 1;
+		BtreeNode leftNode = (left == i) ? child : childNode(node, left);
+		BtreeNode rightNode = (left == i) ? childNode(node, i + 1) : child;
+		if (leftNode.size() + rightNode.size() > splitSize() * 3 / 4)
+			return pathCopy(node, i, child);
+		BtreeNode merged = leftNode;
+		for (int j = 0; j < rightNode.size(); ++j) {
+			BtreeKey key = rightNode.get(j);
+			if (j == 0 && rightNode.isTree())
+				// restore the minimized leftmost key from the parent
+				key = ((BtreeTreeKey) key).withKey(node.get(left + 1));
+			merged = merged.with(key);
+		}
+		--nnodes;
+		return node.without(left + 1).withUpdate(left, merged);
+	}
+
 	private static BtreeNode removeFromLeaf(BtreeNode node, BtreeKey key) {
 		return node.without(key);
 	}
@@ -343,6 +413,57 @@ class Btree implements TranIndex {
 		return new Iter((Iter) iter);
 	}
 
+	/**
+	 * Splits the btree into up to n ranges of roughly equal size
+	 * by descending until there are at least n nodes at a level.
+	 * The ranges are bounded by BtreeKey (key and address)
+	 * so duplicate keys do not overlap.
+	 * <p>
+	 * Used by parallel queries.
+	 * The iterators may be used by different threads
+	 * as long as the btree is not modified.
+	 *
+	 * @return Iterators over consecutive ranges, in order.
+	 */
+	List<IndexIter> split(int n) {
+		List<BtreeKey> bounds = new ArrayList<>();
+		if (! isEmpty()) {
+			List<BtreeNode> nodes = List.of(rootNode);
+			int level = treeLevels;
+			for (; level > 0 && nodes.size() < n; --level) {
+				List<BtreeNode> children = new ArrayList<>();
+				for (BtreeNode node : nodes)
+					for (int i = 0; i < node.size(); ++i)
+						children.add(childNode(node, i));
+				nodes = children;
+			}
+			int nr = Math.min(n, nodes.size());
+			for (int i = 1; i < nr; ++i) {
+				BtreeKey key = firstKey(nodes.get(i * nodes.size() / nr), level);
+				// can't end the previous range just before an address of 0
+				if (key != null && key.adr() != 0)
+					bounds.add(key);
+			}
+		}
+		List<IndexIter> iters = new ArrayList<>();
+		BtreeKey from = new BtreeKey(MIN_RECORD);
+		for (BtreeKey b : bounds) {
+			iters.add(new Iter(from, new BtreeKey(b.key, b.adr() - 1),
+					null, null, true));
+			from = b;
+		}
+		iters.add(new Iter(from, new BtreeKey(MAX_RECORD, IntRefs.MAXADR),
+				null, null, true));
+		return iters;
+	}
+
+	/** @return The first leaf key under node, or null if the leaf is empty */
+	private BtreeKey firstKey(BtreeNode node, int level) {
+		for (; level > 0; --level)
+			node = childNode(node, 0);
+		return node.isEmpty() ? null : node.get(0);
+	}
+
 	/**
 	 * Note: Iterators "stick" when they hit eof().
 	 */
@@ -600,7 +721,7 @@ class Btree implements TranIndex {
 	}
 
 	static BtreeNode nodeAt(Storage stor, int level, int adr) {
-		return new BtreeDbNode(level, stor.buffer(adr), adr);
+		return BtreeDbNode.from(level, stor.buffer(adr), adr);
 	}
 
 	void freeze() {
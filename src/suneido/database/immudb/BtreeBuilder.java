@@ -0,0 +1,162 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import suneido.util.NotThreadSafe;
+
+/**
+ * Builds a btree bottom-up from keys added in sorted order.
+ * Nodes are written to storage as soon as they are full,
+ * in the same format as {@link BtreeDbNode} (or {@link BtreePrefixNode}),
+ * so only one partial node per tree level is held in memory.
+ * <p>
+ * The resulting tree is the same shape that {@link Btree} produces
+ * when keys are added in order, i.e. split keys for leaves
+ * have their data address set to MAXADR when the keys differ
+ * (and are shortened by Btree.separator),
+ * and the leftmost key of each tree node is minimal.
+ * <p>
+ * Used via {@link BulkTransaction} by {@link DbLoad}
+ * and therefore also by {@link DbCompact} and {@link DbRebuild}.
+ * The storage must be within a {@link Persist}.
+ * <p>
+ * Each builder is only used by one thread, but if concurrent is set
+ * several builders can write to the same storage at once
+ * (see {@link DbLoadParallel}).
+ */
+@NotThreadSafe
+class BtreeBuilder {
+	/** Set by Dbpkg.setOption("btree_fill") as a percentage */
+	static float FILL = 1.0f;
+	private final Storage stor;
+	private final int nodeSize;
+	private boolean concurrent = false;
+	/** the node being filled for each level, leaves are level 0 */
+	private final List<Level> levels = new ArrayList<>();
+	private BtreeKey prev = null;
+	private int nnodes = 0;
+	private int totalSize = 0;
+
+	BtreeBuilder(Storage stor) {
+		this(stor, FILL);
+	}
+
+	/**
+	 * @param fill The fraction of the maximum node size to fill nodes to.
+	 * Full nodes (1.0) are the most compact,
+	 * lower values leave room for later additions without splitting.
+	 */
+	BtreeBuilder(Storage stor, float fill) {
+		this(stor, nodeSize(fill));
+	}
+
+	BtreeBuilder(Storage stor, int nodeSize) {
+		assert 2 <= nodeSize && nodeSize <= Btree.MAX_NODE_SIZE;
+		this.stor = stor;
+		this.nodeSize = nodeSize;
+	}
+
+	/** Allocate with {@link Storage#allocShared} */
+	BtreeBuilder concurrent() {
+		concurrent = true;
+		return this;
+	}
+
+	private static int nodeSize(float fill) {
+		int n = Math.round(Btree.MAX_NODE_SIZE * fill);
+		return Math.max(2, Math.min(n, Btree.MAX_NODE_SIZE));
+	}
+
+	private static class Level {
+		final List<BtreeKey> keys = new ArrayList<>();
+		/** the key in the parent pointing to this node, null if minimal */
+		BtreeKey sep;
+	}
+
+	/** Keys must be added in order, and must be unique */
+	void add(BtreeKey key) {
+		assert prev == null || prev.compareTo(key) < 0
+				: "BtreeBuilder keys must be added in order";
+		Level leaf = level(0);
+		if (leaf.keys.size() >= nodeSize) {
+			flush(0);
+			// see Btree split
+			leaf.sep = prev.key.equals(key.key) ? prev
+					: new BtreeKey(Btree.separator(prev.key, key.key), IntRefs.MAXADR);
+		}
+		leaf.keys.add(key);
+		totalSize += key.keySize();
+		prev = key;
+	}
+
+	private void addTree(int level, BtreeTreeKey key) {
+		Level lev = level(level);
+		if (lev.keys.size() >= nodeSize) {
+			flush(level);
+			lev.sep = key;
+		}
+		lev.keys.add(lev.keys.isEmpty() ? key.minimize() : key);
+	}
+
+	private Level level(int level) {
+		if (level >= levels.size())
+			levels.add(new Level());
+		return levels.get(level);
+	}
+
+	/** write the node for level and add a key for it to the parent */
+	private void flush(int level) {
+		Level lev = levels.get(level);
+		int adr = store(level, lev.keys);
+		lev.keys.clear();
+		BtreeKey sep = lev.sep;
+		addTree(level + 1, (sep == null)
+				? new BtreeTreeKey(Record.EMPTY, 0, adr)
+				: new BtreeTreeKey(sep.key, sep.adr(), adr));
+	}
+
+	/** @return The address of the stored node */
+	private int store(int level, List<BtreeKey> keys) {
+		++nnodes;
+		if (BtreePrefixNode.ENABLED)
+			return BtreePrefixNode.store(stor, level, keys, concurrent);
+		TIntArrayList lens = new TIntArrayList(keys.size());
+		int datasize = 0;
+		for (BtreeKey key : keys) {
+			int len = key.packSize();
+			lens.add(len);
+			datasize += len;
+		}
+		int length = ArrayRecord.length(keys.size(), datasize);
+		int adr = concurrent ? stor.allocShared(length) : stor.alloc(length);
+		ByteBuffer buf = stor.buffer(adr);
+		ArrayRecord.packHeader(buf, length, lens);
+		for (int i = keys.size() - 1; i >= 0; --i)
+			keys.get(i).pack(buf);
+		return adr;
+	}
+
+	/**
+	 * Write the remaining partial nodes.
+	 * The builder should not be used after this.
+	 */
+	BtreeInfo finish() {
+		if (prev == null) // no keys
+			return new BtreeInfo(0, BtreeNode.emptyLeaf(), 0, 1, 0);
+		int level = 0;
+		for (; level < levels.size() - 1; ++level)
+			flush(level); // may add levels
+		int root = store(level, levels.get(level).keys);
+		BtreeNode rootNode = Btree.nodeAt(stor, level, root);
+		return new BtreeInfo(root, rootNode, level, nnodes, totalSize);
+	}
+
+}
@@ -13,9 +13,11 @@ import java.nio.ByteBuffer;
  * A {@link BtreeNode} wrapping a ByteBuffer from the database.
  * "updating" a BtreeDbNode produces a {@link BtreeMemNode}
  * Immutable except for refs.
+ * Nodes in the prefix compressed format are {@link BtreePrefixNode}
  */
 class BtreeDbNode extends BtreeNode {
-	final Record rec;
+	/** null for BtreePrefixNode */
+	private final Record rec;
 	private SoftReference<BtreeDbNode>[] refs = null; // cache child nodes
 
 	BtreeDbNode(int level, ByteBuffer buf, int adr) {
@@ -23,6 +25,19 @@ class BtreeDbNode extends BtreeNode {
 		rec = Record.from(adr, buf, 0);
 	}
 
+	/** used by BtreePrefixNode */
+	protected BtreeDbNode(int level) {
+		super(level);
+		rec = null;
+	}
+
+	/** @return A BtreeDbNode or BtreePrefixNode depending on the format */
+	static BtreeDbNode from(int level, ByteBuffer buf, int adr) {
+		return BtreePrefixNode.isPrefixNode(buf)
+				? new BtreePrefixNode(level, buf, adr)
+				: new BtreeDbNode(level, buf, adr);
+	}
+
 	@Override
 	BtreeKey get(int i) {
 		checkElementIndex(i, rec.size());
@@ -33,6 +48,25 @@ class BtreeDbNode extends BtreeNode {
 				: BtreeTreeKey.unpack(buf, pos, ref(i));
 	}
 
+	/** overridden by BtreePrefixNode to avoid unpacking the key */
+	int childAddress(int i) {
+		return ((BtreeTreeKey) get(i)).childAddress();
+	}
+
+	/** Used by BtreeMemNode.pack */
+	int packSize(int i) {
+		return rec.fieldLength(i);
+	}
+
+	/** Used by BtreeMemNode.pack, copies the packed key */
+	void pack(ByteBuffer buf, int i) {
+		int len = rec.fieldLength(i);
+		int off = rec.fieldOffset(i);
+		ByteBuffer src = rec.fieldBuffer(i);
+		for (int j = 0; j < len; ++j)
+			buf.put(src.get(off + j));
+	}
+
 	protected BtreeDbNode ref(int i) {
 		return refs == null || refs[i] == null ? null : refs[i].get();
 	}
@@ -102,10 +136,10 @@ class BtreeDbNode extends BtreeNode {
 		BtreeDbNode ref = ref(i);
 		if (ref != null)
 			return ref;
-		int childAdr = ((BtreeTreeKey) get(i)).childAddress();
+		int childAdr = childAddress(i);
 		BtreeDbNode child = (BtreeDbNode) Btree.nodeAt(stor, level - 1, childAdr);
 		if (refs == null)
-			refs = new SoftReference[rec.size()];
+			refs = new SoftReference[size()];
 		refs[i]  = new SoftReference<>(child); // cache
 		return child;
 	}
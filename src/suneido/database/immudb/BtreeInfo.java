@@ -36,6 +36,15 @@ class BtreeInfo {
 		this(root, null, treeLevels, nnodes, totalSize);
 	}
 
+	/**
+	 * @return The average fraction of MAX_NODE_SIZE used per node.
+	 * Every node except the root has a key in its parent
+	 * so the total number of keys is nkeys + nnodes - 1
+	 */
+	float fill(int nkeys) {
+		return (float) (nkeys + nnodes - 1) / (nnodes * Btree.MAX_NODE_SIZE);
+	}
+
 	@Override
 	public boolean equals(Object other) {
 		throw new UnsupportedOperationException();
@@ -255,10 +255,13 @@ class BtreeMemNode extends BtreeNode {
 	BtreeDbNode store(Storage stor) {
 		if (isTree())
 			storeChildren(stor);
-		address = stor.alloc(length());
-		ByteBuffer buf = stor.buffer(address);
-		pack(buf);
-		BtreeDbNode node = new BtreeDbNode(level, buf, address);
+		if (BtreePrefixNode.ENABLED)
+			address = BtreePrefixNode.store(stor, level, keys());
+		else {
+			address = stor.alloc(length());
+			pack(stor.buffer(address));
+		}
+		BtreeDbNode node = BtreeDbNode.from(level, stor.buffer(address), address);
 		assert node.address() == address;
 		return node;
 	}
@@ -274,6 +277,13 @@ class BtreeMemNode extends BtreeNode {
 		}
 	}
 
+	private List<BtreeKey> keys() {
+		List<BtreeKey> keys = new ArrayList<>(size());
+		for (int i = 0; i < size(); ++i)
+			keys.add(get(i));
+		return keys;
+	}
+
 	int length() {
 		int datasize = 0;
 		for (int i = 0; i < size(); ++i)
@@ -284,7 +294,7 @@ class BtreeMemNode extends BtreeNode {
 	private int length(int i) {
 		int idx = index.get(i);
 		return idx >= 0
-				? dbnode.rec.fieldLength(idx)
+				? dbnode.packSize(idx)
 				: added.get(-idx - 1).packSize();
 	}
 
@@ -305,13 +315,8 @@ class BtreeMemNode extends BtreeNode {
 		int idx = index.get(i);
 		if (idx < 0)
 			added.get(-idx - 1).pack(buf);
-		else {
-			int len = dbnode.rec.fieldLength(idx);
-			int off = dbnode.rec.fieldOffset(idx);
-			ByteBuffer src = dbnode.rec.fieldBuffer(idx);
-			for (int j = 0; j < len; ++j)
-				buf.put(src.get(off + j));
-		}
+		else
+			dbnode.pack(buf, idx);
 	}
 
 	@Override
@@ -0,0 +1,309 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link BtreeDbNode} stored with prefix compressed keys.
+ * Written instead of the plain record format when ENABLED.
+ * Both formats can be read, so existing databases do not need converting.
+ * <p>
+ * Each key is converted to a flat byte string by {@link KeyEncoding}
+ * followed by the data address (big endian)
+ * so it compares the same as {@link BtreeKey#compareTo}.
+ * <p>
+ * Keys are front coded, i.e. stored as the length shared with the previous key
+ * plus the remaining suffix. Every RESTART keys the whole key is stored,
+ * so lowerBound can binary search the restart keys
+ * and then only scan the keys in one interval,
+ * comparing bytes rather than unpacking records.
+ * <p>
+ * Format:
+ * <pre>
+ * byte   FORMAT
+ * short  number of keys
+ * short  number of restarts
+ * int[]  restart offsets
+ * keys   varint shared, varint suffix length, suffix, [int child address]
+ * </pre>
+ * The first byte of the record format is never FORMAT
+ * (it is either 0 for empty or has the mode in the top two bits)
+ */
+class BtreePrefixNode extends BtreeDbNode {
+	/** Set by Dbpkg.setOption("prefix_compress") */
+	static boolean ENABLED = false;
+	static final byte FORMAT = 1;
+	static final int RESTART = 4;
+	private static final int HEADER = 5;
+	private final ByteBuffer buf;
+	private final int adr;
+	private final int nkeys;
+	private final int nrestarts;
+
+	BtreePrefixNode(int level, ByteBuffer buf, int adr) {
+		super(level);
+		assert isPrefixNode(buf);
+		this.buf = buf;
+		this.adr = adr;
+		nkeys = buf.getShort(1) & 0xffff;
+		nrestarts = buf.getShort(3) & 0xffff;
+	}
+
+	static boolean isPrefixNode(ByteBuffer buf) {
+		return buf.get(0) == FORMAT;
+	}
+
+	@Override
+	int size() {
+		return nkeys;
+	}
+
+	@Override
+	public int address() {
+		return adr;
+	}
+
+	@Override
+	BtreeKey get(int i) {
+		checkElementIndex(i, nkeys);
+		Cursor c = new Cursor(i / RESTART);
+		while (c.i < i)
+			c.next();
+		c.next();
+		return c.key();
+	}
+
+	@Override
+	int childAddress(int i) {
+		checkElementIndex(i, nkeys);
+		assert isTree();
+		Cursor c = new Cursor(i / RESTART);
+		while (c.i <= i)
+			c.next();
+		return c.childAdr;
+	}
+
+	@Override
+	int lowerBound(BtreeKey key) {
+		byte[] enc = encode(key);
+		// find the first restart key >= key
+		int lo = 0;
+		int hi = nrestarts;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareRestart(mid, enc) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		if (lo == 0)
+			return 0;
+		// scan the interval before it
+		Cursor c = new Cursor(lo - 1);
+		int end = Math.min(lo * RESTART, nkeys);
+		while (c.i < end) {
+			c.next();
+			if (compare(c.bytes, c.len, enc) >= 0)
+				return c.i - 1;
+		}
+		return end;
+	}
+
+	/** compares the restart key directly from the buffer */
+	private int compareRestart(int r, byte[] enc) {
+		int pos = restartOffset(r);
+		int shared = getVarint(pos);
+		assert shared == 0;
+		pos += varintSize(shared);
+		int len = getVarint(pos);
+		pos += varintSize(len);
+		int n = Math.min(len, enc.length);
+		for (int i = 0; i < n; ++i) {
+			int cmp = (buf.get(pos + i) & 0xff) - (enc[i] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		return len - enc.length;
+	}
+
+	private static int compare(byte[] x, int xlen, byte[] y) {
+		return Arrays.compareUnsigned(x, 0, xlen, y, 0, y.length);
+	}
+
+	private int restartOffset(int r) {
+		return buf.getInt(HEADER + r * Integer.BYTES);
+	}
+
+	/** Decodes keys sequentially starting from a restart */
+	private class Cursor {
+		/** the index of the next key */
+		int i;
+		int pos;
+		byte[] bytes = new byte[64];
+		int len = 0;
+		int childAdr;
+
+		Cursor(int restart) {
+			i = restart * RESTART;
+			pos = restartOffset(restart);
+		}
+
+		void next() {
+			int shared = getVarint(pos);
+			pos += varintSize(shared);
+			int suffix = getVarint(pos);
+			pos += varintSize(suffix);
+			len = shared + suffix;
+			if (len > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(len, 2 * bytes.length));
+			buf.get(pos, bytes, shared, suffix);
+			pos += suffix;
+			if (isTree()) {
+				childAdr = buf.getInt(pos);
+				pos += Integer.BYTES;
+			}
+			++i;
+		}
+
+		/** @return the key that next() last decoded */
+		BtreeKey key() {
+			int dataAdr = getIntBE(bytes, len - Integer.BYTES);
+			Record rec = KeyEncoding.decode(bytes, len - Integer.BYTES);
+			return isLeaf()
+					? new BtreeKey(rec, dataAdr)
+					: new BtreeTreeKey(rec, dataAdr, childAdr, ref(i - 1));
+		}
+	}
+
+	/** Used by BtreeMemNode.pack */
+	@Override
+	int packSize(int i) {
+		return get(i).packSize();
+	}
+
+	/** Used by BtreeMemNode.pack */
+	@Override
+	void pack(ByteBuffer dst, int i) {
+		get(i).pack(dst);
+	}
+
+	@Override
+	String printName() {
+		return "PrefixNode @ " + address();
+	}
+
+	// encoding ----------------------------------------------------------------
+
+	/** @return The {@link KeyEncoding} of the key followed by the data address */
+	static byte[] encode(BtreeKey key) {
+		byte[] enc = KeyEncoding.encode(key.key, Integer.BYTES);
+		putIntBE(enc, enc.length - Integer.BYTES, key.adr());
+		return enc;
+	}
+
+	private static void putIntBE(byte[] b, int i, int n) {
+		b[i] = (byte) (n >>> 24);
+		b[i + 1] = (byte) (n >>> 16);
+		b[i + 2] = (byte) (n >>> 8);
+		b[i + 3] = (byte) n;
+	}
+
+	private static int getIntBE(byte[] b, int i) {
+		return ((b[i] & 0xff) << 24) | ((b[i + 1] & 0xff) << 16) |
+				((b[i + 2] & 0xff) << 8) | (b[i + 3] & 0xff);
+	}
+
+	// store -------------------------------------------------------------------
+
+	/**
+	 * Writes keys to stor in prefix compressed format.
+	 * For tree nodes the children must already be stored.
+	 * @return The address of the stored node
+	 */
+	static int store(Storage stor, int level, List<BtreeKey> keys) {
+		return store(stor, level, keys, false);
+	}
+
+	/** @param concurrent Whether to use {@link Storage#allocShared} */
+	static int store(Storage stor, int level, List<BtreeKey> keys,
+			boolean concurrent) {
+		int nkeys = keys.size();
+		assert nkeys <= 0xffff;
+		int nrestarts = (nkeys + RESTART - 1) / RESTART;
+		byte[][] encs = new byte[nkeys][];
+		int[] shared = new int[nkeys];
+		int length = HEADER + nrestarts * Integer.BYTES;
+		for (int i = 0; i < nkeys; ++i) {
+			byte[] enc = encs[i] = encode(keys.get(i));
+			if (i % RESTART != 0)
+				shared[i] = Arrays.mismatch(encs[i - 1], enc);
+			int suffix = enc.length - shared[i];
+			length += varintSize(shared[i]) + varintSize(suffix) + suffix;
+			if (level > 0)
+				length += Integer.BYTES;
+		}
+		int adr = concurrent ? stor.allocShared(length) : stor.alloc(length);
+		ByteBuffer buf = stor.buffer(adr);
+		buf.put(0, FORMAT);
+		buf.putShort(1, (short) nkeys);
+		buf.putShort(3, (short) nrestarts);
+		int pos = HEADER + nrestarts * Integer.BYTES;
+		for (int i = 0; i < nkeys; ++i) {
+			if (i % RESTART == 0)
+				buf.putInt(HEADER + (i / RESTART) * Integer.BYTES, pos);
+			byte[] enc = encs[i];
+			int suffix = enc.length - shared[i];
+			pos = putVarint(buf, pos, shared[i]);
+			pos = putVarint(buf, pos, suffix);
+			buf.put(pos, enc, shared[i], suffix);
+			pos += suffix;
+			if (level > 0) {
+				int childAdr = ((BtreeTreeKey) keys.get(i)).childAddress();
+				assert childAdr != 0;
+				buf.putInt(pos, childAdr);
+				pos += Integer.BYTES;
+			}
+		}
+		assert pos == length;
+		return adr;
+	}
+
+	// varint, using absolute positions since the buffer is shared -------------
+
+	private int getVarint(int pos) {
+		int n = 0;
+		int shift = 0;
+		byte b;
+		while (((b = buf.get(pos++)) & 0x80) != 0) {
+			n |= (b & 0x7f) << shift;
+			shift += 7;
+		}
+		return n | (b << shift);
+	}
+
+	private static int putVarint(ByteBuffer buf, int pos, int n) {
+		while ((n & ~0x7f) != 0) {
+			buf.put(pos++, (byte) ((n & 0x7f) | 0x80));
+			n >>>= 7;
+		}
+		buf.put(pos++, (byte) n);
+		return pos;
+	}
+
+	private static int varintSize(int n) {
+		int size = 1;
+		while ((n & ~0x7f) != 0) {
+			++size;
+			n >>>= 7;
+		}
+		return size;
+	}
+
+}
@@ -45,6 +45,11 @@ class BtreeTreeKey extends BtreeKey {
 		return new BtreeTreeKey(key, dataAdr, 0, child);
 	}
 
+	/** used by Btree merge, the reverse of minimize */
+	BtreeTreeKey withKey(BtreeKey key) {
+		return new BtreeTreeKey(key.key, key.adr(), childAdr, child);
+	}
+
 	@Override
 	BtreeKey minimize() {
 		return new BtreeTreeKey(Record.EMPTY, 0, childAdr, child);
@@ -7,6 +7,7 @@ package suneido.database.immudb;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import suneido.util.ThreadConfined;
 
@@ -22,6 +23,8 @@ import suneido.util.ThreadConfined;
 class BulkTransaction extends ReadWriteTransaction {
 	private boolean storeStarted = false;
 	private Persist persist = null;
+	/** indexes from indexBuilder, saved by the next saveBtrees */
+	private final TreeMap<Index,TranIndex> built = new TreeMap<>();
 
 	BulkTransaction(int num, Database db) {
 		super(num, db);
@@ -64,10 +67,27 @@ class BulkTransaction extends ReadWriteTransaction {
 		throw new UnsupportedOperationException("BulkTransaction removeRecord");
 	}
 
+	/**
+	 * Used by DbLoad createIndexes to build an index bottom-up.
+	 * The nodes are written directly to the index storage
+	 * so this must not be mixed with adding to the index.
+	 * @see #saveIndex
+	 */
+	BtreeBuilder indexBuilder() {
+		ensurePersist();
+		return new BtreeBuilder(tran.istor);
+	}
+
+	void saveIndex(Index index, BtreeInfo info) {
+		built.put(index, new Btree(tran, info));
+	}
+
 	/** called after creating each btree to persist it */
 	void saveBtrees() {
 		ensurePersist();
 		freezeBtrees();
+		indexes.putAll(built);
+		built.clear();
 		updateDbInfo(indexes);
 		dbinfo = persist.storeBtrees(dbinfo);
 		tidelta.clear();
@@ -103,6 +123,7 @@ class BulkTransaction extends ReadWriteTransaction {
 		Tran.StoreInfo info = endDataStore();
 		persist.finish(db, schema, info.cksum, info.adr);
 		trans.commit(this);
+		db.schemaChanged(); // e.g. load may add views
 	}
 
 	private Tran.StoreInfo endDataStore() {
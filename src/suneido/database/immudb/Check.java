@@ -6,6 +6,7 @@ package suneido.database.immudb;
 
 import java.nio.ByteBuffer;
 import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
 
 import com.google.common.base.MoreObjects;
 
@@ -36,6 +37,9 @@ class Check {
 	private StorageIter iIter;
 	private long dOkSize = 0;
 	private long iOkSize = 0;
+	/** set by fullcheck, see {@link ParallelChecksum} */
+	private int dVerifiedTo = 0;
+	private int iVerifiedTo = 0;
 
 	/**
 	 * Used when opening a database to quickly check it,
@@ -69,10 +73,12 @@ class Check {
 	/**
 	 * Checks entire database. Used by DbCheck and DbRebuild.
 	 * Verifies checksums and confirms that they match between data and index files.
+	 * The checksums are verified first, in parallel.
 	 * @return true if the entire database appears valid
 	 */
 	boolean fullcheck() {
 		try {
+			verifyChecksums();
 			return checkFrom(Storage.FIRST_ADR, Storage.FIRST_ADR);
 		} catch (Throwable e) {
 			Errlog.error("fullcheck", e);
@@ -80,11 +86,21 @@ class Check {
 		}
 	}
 
+	private void verifyChecksums() {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			dVerifiedTo = ParallelChecksum.verify(dstor, Storage.FIRST_ADR, dUpTo, pool);
+			iVerifiedTo = ParallelChecksum.verify(istor, Storage.FIRST_ADR, iUpTo, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	/** check the last FAST_NPERSISTS persists */
 	boolean fastcheck() {
 		try {
-			if (0 != (dstor.sizeFrom(0) % Storage.ALIGN) ||
-					0 != (istor.sizeFrom(0) % Storage.ALIGN))
+			if (0 != (dstor.sizeFrom(0) % dstor.ALIGN) ||
+					0 != (istor.sizeFrom(0) % istor.ALIGN))
 				return false;
 			int adr = findLast(FAST_NPERSISTS);
 			return (adr != CORRUPT) && ((adr == EMPTY) || checkFrom(lastadr, adr));
@@ -102,19 +118,19 @@ class Check {
 			adr = iter.prev();
 		if (adr == 0)
 			return EMPTY;
-		long size = Storage.intToSize(istor.buffer(adr).getInt());
+		long size = istor.intToSize(istor.buffer(adr).getInt());
 		lastadr = info(istor, adr, size).lastadr;
 		return adr;
 	}
 
 	static PersistInfo info(Storage istor, int adr, long size) {
-		adr = istor.advance(adr, size - Persist.ENDING_SIZE - Persist.TAIL_SIZE);
-		ByteBuffer buf = istor.buffer(adr);
+		ByteBuffer buf = istor.tailBuffer(adr, size,
+				Persist.ENDING_SIZE + Persist.TAIL_SIZE);
 		int dbinfoadr = buf.getInt();
 		int maxtblnum = buf.getInt();
 		int lastcksum = buf.getInt();
 		int lastadr = buf.getInt();
-		return new PersistInfo(dbinfoadr, maxtblnum, lastcksum, lastadr);
+		return new PersistInfo(istor, dbinfoadr, maxtblnum, lastcksum, lastadr);
 	}
 
 	@Immutable
@@ -123,8 +139,12 @@ class Check {
 		final int maxtblnum;
 		final int lastadr;
 		final int lastcksum;
+		/** only used by toString to convert addresses to offsets */
+		private final Storage stor;
 
-		public PersistInfo(int dbinfoadr, int maxtblnum, int lastcksum, int lastadr) {
+		public PersistInfo(Storage stor,
+				int dbinfoadr, int maxtblnum, int lastcksum, int lastadr) {
+			this.stor = stor;
 			this.dbinfoadr = dbinfoadr;
 			this.maxtblnum = maxtblnum;
 			this.lastcksum = lastcksum;
@@ -133,9 +153,9 @@ class Check {
 		@Override
 		public String toString() {
 			return MoreObjects.toStringHelper(this)
-					.add("dbinfoadr", Storage.adrToOffset(dbinfoadr))
+					.add("dbinfoadr", stor.adrToOffset(dbinfoadr))
 					.add("maxtblnum", maxtblnum)
-					.add("lastadr", Storage.adrToOffset(lastadr))
+					.add("lastadr", stor.adrToOffset(lastadr))
 					.add("lastcksum", Integer.toHexString(lastcksum))
 					.toString();
 		}
@@ -146,8 +166,8 @@ class Check {
 	 * @return true if no problems found (up to asof if non-null)
 	 */
 	private boolean checkFrom(int dAdr, int iAdr) {
-		dIter = new StorageIter(dstor, dAdr).upTo(dUpTo).checkType();
-		iIter = new StorageIter(istor, iAdr).upTo(iUpTo);
+		dIter = new StorageIter(dstor, dAdr, dVerifiedTo).upTo(dUpTo).checkType();
+		iIter = new StorageIter(istor, iAdr, iVerifiedTo).upTo(iUpTo);
 		PersistInfo iInfo = null;
 		while (dIter.notFinished() && iIter.notFinished()) {
 			if (iInfo == null)
@@ -4,11 +4,19 @@
 
 package suneido.database.immudb;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+
+import com.google.common.base.Throwables;
 
 /**
  * Check records and indexes with dbinfo for a single table.
  * Run in parallel by {@link DbCheck}.
+ * The indexes of the table are also checked in parallel (fork-join)
+ * but the results are reported in index order,
+ * stopping at the first problem, as if they were checked sequentially.
  */
 class CheckTable implements Callable<String> {
 	private final Database db;
@@ -47,75 +55,105 @@ class CheckTable implements Callable<String> {
 	}
 
 	private boolean checkIndexes(ReadTransaction t, Table table, TableInfo ti) {
+		List<ForkJoinTask<Object>> tasks = new ArrayList<>();
 		boolean first_index = true;
 		for (Index index : table.indexes) {
-			if (! checkIndex(t, table, ti, index, first_index))
-				return false;
+			boolean first = first_index;
+			tasks.add(checkIndexTask(t, ti, index, first));
 			first_index = false;
 		}
+		ForkJoinTask.invokeAll(tasks);
+		for (ForkJoinTask<Object> task : tasks) {
+			Object result = task.join();
+			if (result instanceof Throwable) {
+				Throwables.throwIfUnchecked((Throwable) result);
+				throw new RuntimeException((Throwable) result);
+			}
+			if (! result.equals("")) {
+				details += result;
+				return false;
+			}
+		}
 		return true;
 	}
 
-	private boolean checkIndex(ReadTransaction t, Table table,
+	private ForkJoinTask<Object> checkIndexTask(ReadTransaction t,
 			TableInfo ti, Index index, boolean first_index) {
+		TranIndex btree;
+		try {
+			// get the btree here since the transaction is not thread safe
+			btree = t.getIndex(ti.tblnum, index.colNums);
+		} catch (Throwable e) {
+			return ForkJoinTask.adapt(() -> e);
+		}
+		return ForkJoinTask.adapt(() ->
+				checkIndex(t, ti, index, btree, first_index));
+	}
+
+	/**
+	 * @return "" if ok, otherwise a description of the problem,
+	 * or the Throwable if the check threw an exception
+	 */
+	private Object checkIndex(ReadTransaction t, TableInfo ti, Index index,
+			TranIndex btree, boolean first_index) {
+		try {
+			return checkIndex2(t, ti, index, btree, first_index);
+		} catch (Throwable e) {
+			return e;
+		}
+	}
+
+	private String checkIndex2(ReadTransaction t, TableInfo ti, Index index,
+			TranIndex btree, boolean first_index) {
 		int nrecords = 0;
 		long totalsize = 0;
-		TranIndex btree = t.getIndex(table.num, index.colNums);
 		btree.check();
 		IndexIter iter = btree.iterator();
 		Record prevkey = null;
 		for (iter.next(); !iter.eof(); iter.next()) {
 			Record key = iter.curKey();
-			if (prevkey != null && isUnique(index, key) && key.equals(prevkey)) {
-				details += tableName + ": duplicate in " + index + " " + key + "\n";
-				return false;
-			}
+			if (prevkey != null && isUnique(index, key) && key.equals(prevkey))
+				return tableName + ": duplicate in " + index + " " + key + "\n";
 			prevkey = key;
 			int adr = iter.keyadr();
 			Record rec = t.input(adr);
-			if (first_index && ! checkRecord(rec))
-				return false;
-			BtreeKey reckey = IndexedData.key(rec, index.colNums, adr);
-			if (! key.equals(reckey.key)) {
-				details += tableName + ": key mismatch in " + index + "\n";
-				return false;
+			if (first_index) {
+				String err = checkRecord(rec);
+				if (! err.equals(""))
+					return err;
 			}
+			BtreeKey reckey = IndexedData.key(rec, index.colNums, adr);
+			if (! key.equals(reckey.key))
+				return tableName + ": key mismatch in " + index + "\n";
 			++nrecords;
 			totalsize += rec.bufSize();
-			if (rec.size() > ti.nextfield) {
-				details += tableName + ": nextfield mismatch: rec size "
+			if (rec.size() > ti.nextfield)
+				return tableName + ": nextfield mismatch: rec size "
 						+ rec.size() + " should not be > nextfield " + ti.nextfield + "\n";
-				return false;
-			}
 		}
-		if (nrecords != ti.nrows()) {
-			details += tableName + ": record count mismatch: " +
+		if (nrecords != ti.nrows())
+			return tableName + ": record count mismatch: " +
 					index + " " + nrecords +
 					" should = tables " + ti.nrows() + "\n";
-			return false;
-		}
-		if (totalsize != ti.totalsize()) {
-			details += tableName + ": data size mismatch: " +
+		if (totalsize != ti.totalsize())
+			return tableName + ": data size mismatch: " +
 					index + " " + totalsize +
 					" should = tables " + ti.totalsize() + "\n";
-			return false;
-		}
-		return true;
+		return "";
 	}
 
 	private static boolean isUnique(Index index, Record key) {
 		return index.isKey() || (index.unique && ! IndexedData.isEmptyKey(key));
 	}
 
-	private boolean checkRecord(Record rec) {
+	private String checkRecord(Record rec) {
 		for (int i = 0; i < rec.size(); ++i)
 			try {
 				rec.get(i);
 			} catch (Throwable e) {
-				details += tableName + ": " + e + "\n";
-				return false;
+				return tableName + ": " + e + "\n";
 			}
-		return true;
+		return "";
 	}
 
 }
@@ -47,4 +47,28 @@ class Checksum {
 		cksum.reset();
 	}
 
+	private static final int BASE = 65521; // largest prime smaller than 65536
+
+	/**
+	 * Combine the checksums of two consecutive sequences of bytes
+	 * (like zlib adler32_combine)
+	 * so that checksums can be calculated in pieces in parallel.
+	 * @param cksum1 The checksum of the first sequence
+	 * @param cksum2 The checksum of the second sequence (starting from reset)
+	 * @param len2 The length of the second sequence
+	 * @return The checksum of the combined sequence
+	 */
+	static int combine(int cksum1, int cksum2, long len2) {
+		long a1 = cksum1 & 0xffff;
+		long b1 = (cksum1 >>> 16) & 0xffff;
+		long a2 = cksum2 & 0xffff;
+		long b2 = (cksum2 >>> 16) & 0xffff;
+		long rem = len2 % BASE;
+		long sum1 = a1 + a2 + BASE - 1;
+		long sum2 = (rem * a1) % BASE + b1 + b2 + BASE - rem;
+		sum1 %= BASE;
+		sum2 %= BASE;
+		return (int) (sum1 | (sum2 << 16));
+	}
+
 }
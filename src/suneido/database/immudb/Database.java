@@ -5,8 +5,14 @@
 package suneido.database.immudb;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.base.MoreObjects;
@@ -14,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 
 import suneido.HttpServerMonitor;
 import suneido.SuException;
+import suneido.database.immudb.Bootstrap.TN;
 import suneido.database.immudb.DbHashTrie.Entry;
 import suneido.database.immudb.DbHashTrie.IntEntry;
 import suneido.database.immudb.Dbpkg.Status;
@@ -28,15 +35,30 @@ import suneido.util.ThreadSafe;
 public class Database implements AutoCloseable {
 	final Transactions trans = new Transactions();
 	final String filename;
-	final Storage dstor;
-	final Storage istor;
+	/**
+	 * The current storage, for committing and persisting.
+	 * Only changed by switchTo (online compact) while holding commitLock.
+	 * Transactions use the storage from their State.
+	 */
+	Storage dstor;
+	Storage istor;
+	/**
+	 * The files of the current storage.
+	 * After an online compact these are new files (see switchTo)
+	 * which the next open renames to filename.
+	 */
+	private String storFilename;
+	private int switches = 0;
 	private final Triggers triggers = new Triggers();
 	private final ReentrantLock commit_lock = new ReentrantLock();
+	final GroupCommit groupCommit = new GroupCommit(this);
 	/** only updated when holding commitLock */
 	volatile State state;
 	private State lastPersistState;
 	private boolean corrupt = false;
 	private enum Ck { CHECK, NOCHECK }
+	/** see {@link #schemaVersion} */
+	private final AtomicInteger schemaVersion = new AtomicInteger();
 
 	private volatile boolean closed = false;
 
@@ -61,9 +83,10 @@ public class Database implements AutoCloseable {
 	private Database(String filename, Storage dstor, Storage istor,
 			DbHashTrie dbinfo, Tables schema) {
 		this.filename = filename;
+		this.storFilename = filename;
 		this.dstor = dstor;
 		this.istor = istor;
-		state = lastPersistState = new State(0, dbinfo, schema, 0, 0);
+		state = lastPersistState = new State(dstor, istor, 0, dbinfo, schema, 0, 0);
 	}
 
 	// open
@@ -86,6 +109,7 @@ public class Database implements AutoCloseable {
 	}
 
 	static Database open(String filename, String mode, Ck ck) {
+		finishSwitch(filename);
 		// prevent empty files from being created
 		if (! new File(filename + "d").exists() ||
 				! new File(filename + "i").exists())
@@ -142,14 +166,20 @@ public class Database implements AutoCloseable {
 
 	private Database(String filename, Storage dstor, Storage istor) {
 		this.filename = filename;
+		this.storFilename = filename;
 		this.dstor = dstor;
 		this.istor = istor;
+		loadState();
+	}
+
+	private void loadState() {
 		int dbinfoadr = Persist.dbinfoadr(istor);
 		int maxTblnum = Persist.maxTblnum(istor);
 		DbHashTrie dbinfo = DbHashTrie.load(istor, dbinfoadr, new DbinfoLoader(istor));
-		state = new State(0, dbinfo, null, 0, 0); // enough to load schema
+		state = new State(dstor, istor, 0, dbinfo, null, 0, 0); // enough to load schema
 		Tables schema = SchemaLoader.load(readTransaction(), maxTblnum);
-		state = lastPersistState = new State(dbinfoadr, dbinfo, schema, 0, 0);
+		state = lastPersistState =
+				new State(dstor, istor, dbinfoadr, dbinfo, schema, 0, 0);
 	}
 
 	static class DbinfoLoader implements DbHashTrie.Translator {
@@ -170,6 +200,83 @@ public class Database implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Used by {@link DbCompact} online compact to switch to the new storage
+	 * after it has caught up. Must be called while holding the commit lock,
+	 * after Transactions.drainUpdates so no update transactions are active.
+	 * Read transactions from before the switch keep using the old storage
+	 * (from their State) so it is not closed until they have all finished.
+	 * <p>
+	 * The old files may still be mapped (and can't be renamed on Windows)
+	 * so the database carries on with newdb's files.
+	 * A marker file records them and the next open renames them
+	 * to the usual names, keeping the old files as backups.
+	 */
+	void switchTo(Database newdb) {
+		assert commit_lock.isHeldByCurrentThread();
+		persist();
+		newdb.persist();
+		if (! filename.equals("")) { // not in memory (tests)
+			writeSwitched(filename, newdb.filename);
+			storFilename = newdb.filename;
+		}
+		Storage oldd = dstor;
+		Storage oldi = istor;
+		dstor = newdb.dstor;
+		istor = newdb.istor;
+		loadState();
+		trans.whenDone(() -> {
+			oldd.close();
+			oldi.close();
+		});
+	}
+
+	/** @return The file name for the next online compact to write to */
+	String compactFilename() {
+		return filename + ".compact" + (switches + 1);
+	}
+
+	private void writeSwitched(String filename, String newFilename) {
+		try {
+			Files.write(Paths.get(filename + "s"), newFilename.getBytes());
+		} catch (IOException e) {
+			throw new SuException("compact: can't write " + filename + "s", e);
+		}
+		++switches;
+	}
+
+	/**
+	 * If an online compact switched to new files (see switchTo)
+	 * rename them to filename, keeping the old files as backups.
+	 * Also deletes any other files left from online compacts.
+	 */
+	static void finishSwitch(String filename) {
+		File marker = new File(filename + "s");
+		if (marker.exists()) {
+			String newFilename;
+			try {
+				newFilename = new String(Files.readAllBytes(marker.toPath()));
+			} catch (IOException e) {
+				throw new SuException("can't read " + marker, e);
+			}
+			for (String ext : new String[] { "d", "i" })
+				if (new File(newFilename + ext).exists())
+					FileUtils.renameWithBackup(newFilename + ext, filename + ext);
+			if (new File(newFilename + "c").exists())
+				FileUtils.renameWithBackup(newFilename + "c", filename + "c");
+			else
+				FileUtils.deleteIfExisting(filename + "c");
+			FileUtils.deleteIfExisting(filename + "s");
+		}
+		File file = new File(filename).getAbsoluteFile();
+		String prefix = file.getName() + ".compact";
+		File[] leftover = file.getParentFile().listFiles((dir, name) ->
+				name.startsWith(prefix));
+		if (leftover != null)
+			for (File f : leftover)
+				FileUtils.deleteIfExisting(f.toString());
+	}
+
 	/** reopens with same Storage */
 	public Database reopen() {
 		persist();
@@ -210,7 +317,12 @@ public class Database implements AutoCloseable {
 
 	public UpdateTransaction updateTransaction() {
 		int num = trans.nextNum(false);
-		return new UpdateTransaction(num, this);
+		trans.startUpdate();
+		try {
+			return new UpdateTransaction(num, this);
+		} finally {
+			trans.endStartUpdate();
+		}
 	}
 
 	void persist() {
@@ -226,7 +338,12 @@ public class Database implements AutoCloseable {
 
 	SchemaTransaction schemaTransaction() {
 		int num = trans.nextNum(false);
-		return new SchemaTransaction(num, this);
+		trans.startUpdate();
+		try {
+			return new SchemaTransaction(num, this);
+		} finally {
+			trans.endStartUpdate();
+		}
 	}
 
 	BulkTransaction bulkTransaction() {
@@ -286,6 +403,20 @@ public class Database implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * @return A number that changes after any schema transaction commits,
+	 * i.e. when tables or views are created, altered, or dropped.
+	 * Used by QueryCache to discard queries that may be out of date.
+	 */
+	public int schemaVersion() {
+		return schemaVersion.get();
+	}
+
+	/** Called after a schema or bulk transaction commits */
+	void schemaChanged() {
+		schemaVersion.incrementAndGet();
+	}
+
 	//--------------------------------------------------------------------------
 
 	String getView(String name) {
@@ -314,14 +445,16 @@ public class Database implements AutoCloseable {
 			return;
 		closed = true;
 		long[] size = new long[1];
+		String[] storName = new String[1];
 		withCommitLock(() -> {
 			persist();
+			storName[0] = storFilename;
 			size[0] = dstor.sizeFrom(0);
 			dstor.close();
 			istor.close();
 		});
 		if (! corrupt && ! filename.equals(""))
-			DbGood.create(filename + "c", size[0]);
+			DbGood.create(storName[0] + "c", size[0]);
 	}
 
 	public long size() {
@@ -338,6 +471,65 @@ public class Database implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * @return The average node fill (see {@link BtreeInfo#fill})
+	 * of the indexes with more than one node, keyed by "table (columns)"
+	 */
+	public Map<String, Float> indexFill() {
+		Map<String, Float> fill = new TreeMap<>();
+		ReadTransaction t = readTransaction();
+		try {
+			for (int tn = TN.VIEWS + 1; tn <= t.schema.maxTblnum; ++tn) {
+				Table table = t.getTable(tn);
+				if (table == null)
+					continue;
+				TableInfo ti = t.getTableInfo(tn);
+				for (Index index : table.indexes) {
+					IndexInfo ii = ti.getIndex(index.colNums);
+					if (ii != null && ii.nnodes > 1)
+						fill.put(table.name + " (" +
+								table.numsToNames(index.colNums) + ")",
+								ii.fill(ti.nrows()));
+				}
+			}
+		} finally {
+			t.complete();
+		}
+		return fill;
+	}
+
+	/**
+	 * Collects {@link IndexStats} for each of the table's indexes
+	 * for the query optimizer.
+	 * The statistics are persisted with the table info
+	 * and are ignored once the table size changes too much.
+	 */
+	public void analyze(String tableName) {
+		ImmutableList.Builder<IndexStats> b = ImmutableList.builder();
+		int tblnum;
+		ReadTransaction t = readTransaction();
+		try {
+			Table table = t.ck_getTable(tableName);
+			tblnum = table.num;
+			int nrows = t.tableCount(tblnum);
+			for (Index index : table.indexes)
+				b.add(IndexStats.collect(index.colNums,
+						t.getIndex(index).iterator(), nrows));
+		} finally {
+			t.complete();
+		}
+		ImmutableList<IndexStats> stats = b.build();
+		withCommitLock(() -> {
+			TableInfo ti = (TableInfo) state.dbinfo.get(tblnum);
+			if (ti == null)
+				return; // dropped
+			DbHashTrie dbinfo = state.dbinfo.with(ti.withStats(stats));
+			dbinfo.freeze();
+			state = new State(state.dstor, state.istor, state.dbinfoadr,
+					dbinfo, state.schema, state.lastcksum, state.lastadr);
+		});
+	}
+
 	public List<Integer> tranlist() {
 		if (trans.isLocked())
 			return ImmutableList.of(0);
@@ -378,11 +570,15 @@ public class Database implements AutoCloseable {
 	/** called by transaction commit and by persist */
 	void setState(int dbinfoadr, DbHashTrie dbinfo, Tables schema, int lastcksum, int lastadr) {
 		assert lastadr != 0;
-		this.state = new State(dbinfoadr, dbinfo, schema, lastcksum, lastadr);
+		this.state = new State(dstor, istor,
+				dbinfoadr, dbinfo, schema, lastcksum, lastadr);
 	}
 
 	@Immutable
 	static class State {
+		/** the storage this state refers to, changed by switchTo */
+		final Storage dstor;
+		final Storage istor;
 		final DbHashTrie dbinfo;
 		final int dbinfoadr;
 		final Tables schema;
@@ -391,9 +587,11 @@ public class Database implements AutoCloseable {
 		/** address of last data commit */
 		final int lastadr;
 
-		private State(int dbinfoadr, DbHashTrie dbinfo, Tables schema,
-				int lastcksum, int lastadr) {
+		private State(Storage dstor, Storage istor, int dbinfoadr,
+				DbHashTrie dbinfo, Tables schema, int lastcksum, int lastadr) {
 			assert dbinfo.immutable();
+			this.dstor = dstor;
+			this.istor = istor;
 			this.dbinfoadr = dbinfoadr;
 			this.dbinfo = dbinfo;
 			this.schema = schema;
@@ -411,6 +609,10 @@ public class Database implements AutoCloseable {
 		}
 	}
 
+	boolean isExclusive() {
+		return trans.isExclusive();
+	}
+
 	/** similar to try with resources */
 	void withCommitLock(Runnable fn) {
 		Throwable e0 = null;
@@ -12,7 +12,7 @@ import java.util.Date;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import suneido.Suneido;
 import suneido.database.immudb.Dbpkg.Observer;
@@ -23,7 +23,7 @@ import suneido.database.immudb.Dbpkg.Status;
  * Verifies sizes and checksums within data store and index store.
  * Verifies that index store matches data store.
  * Verifies that all fields of data records can be unpacked.
- * Uses {@link CheckTable}
+ * Uses {@link Check} and {@link CheckTable}, both multi-threaded
  */
 class DbCheck {
 	final String filename;
@@ -114,7 +114,8 @@ class DbCheck {
 
 	protected boolean check_data_and_indexes(Database db) {
 		println("indexes & data...");
-		ExecutorService executor = Executors.newFixedThreadPool(N_THREADS);
+		// fork-join so CheckTable can check indexes in parallel
+		ExecutorService executor = new ForkJoinPool(N_THREADS);
 		ExecutorCompletionService<String> ecs = new ExecutorCompletionService<>(executor);
 		try {
 			int ntables = submitTasks(ecs, db);
@@ -6,28 +6,136 @@ package suneido.database.immudb;
 
 import java.util.List;
 
+import gnu.trove.map.hash.TIntIntHashMap;
+import suneido.SuException;
 import suneido.database.query.Request;
+import suneido.util.FileUtils;
 
+/**
+ * Copies the live records of a database into a new database,
+ * rebuilding the btrees.
+ * <p>
+ * compact is used offline (see DbTools) with a read-only source.
+ * <p>
+ * compactOnline is used while the database is running.
+ * It copies from a read transaction snapshot,
+ * then applies the commits made since the snapshot to the new database
+ * (more may be made while doing this, so it may take several passes)
+ * and finally waits for active update transactions to finish
+ * (holding back new ones) and then, holding the commit lock,
+ * applies any last commits and switches the database to the new storage.
+ * Schema changes or bulk (exclusive) transactions abort an online compact.
+ */
 class DbCompact {
+	/** catch up outside the commit lock until less than this remains */
+	private static final int CATCH_UP_SIZE = 1024 * 1024;
+	private static final int MAX_CATCH_UP_PASSES = 10;
+	/** how long to wait for update transactions before switching */
+	long drainTimeoutMs =
+			(Transactions.MAX_UPDATE_TRAN_DURATION_SEC + 1) * 1000L;
 	private final Database oldDB;
 	private final Database newDB;
 	private ReadTransaction rt;
+	/** the next commit in oldDB to apply to newDB */
+	private int catchUpAdr;
+	/** old tblnum => new tblnum */
+	private final TIntIntHashMap tblnums = new TIntIntHashMap();
 
 	static int compact(Database olddb, Database newdb) {
 		return new DbCompact(olddb, newdb).compact();
 	}
 
-	private DbCompact(Database olddb, Database newdb) {
+	/**
+	 * Compacts into new files and then switches to them.
+	 * @return The number of tables compacted
+	 */
+	static int compactOnline(Database db) {
+		String filename = db.compactFilename();
+		Database newdb = Database.create(filename);
+		try {
+			return compactOnline(db, newdb);
+		} catch (Throwable e) {
+			newdb.close();
+			FileUtils.deleteIfExisting(filename + "d");
+			FileUtils.deleteIfExisting(filename + "i");
+			FileUtils.deleteIfExisting(filename + "c");
+			throw e;
+		}
+	}
+
+	static int compactOnline(Database db, Database newdb) {
+		return new DbCompact(db, newdb).compactOnline();
+	}
+
+	DbCompact(Database olddb, Database newdb) {
 		this.oldDB = olddb;
 		this.newDB = newdb;
 	}
 
 	private int compact() {
+		rt = oldDB.readTransaction();
 		return copy();
 	}
 
+	int compactOnline() {
+		int n = copyOnline();
+		finishOnline();
+		return n;
+	}
+
+	/** copy a snapshot of the database, the first step of compactOnline */
+	int copyOnline() {
+		oldDB.withCommitLock(() -> {
+			checkNotExclusive();
+			rt = oldDB.readTransaction();
+			catchUpAdr = oldDB.dstor.upTo();
+		});
+		try {
+			return copy();
+		} finally {
+			rt.complete();
+		}
+	}
+
+	/**
+	 * catch up with commits made during the copy and then switch over,
+	 * the second step of compactOnline
+	 */
+	void finishOnline() {
+		Tables schema = rt.schema;
+		for (int pass = 0; pass < MAX_CATCH_UP_PASSES; ++pass) {
+			int[] upTo = new int[1];
+			oldDB.withCommitLock(() -> {
+				checkNotExclusive();
+				upTo[0] = oldDB.dstor.upTo();
+			});
+			long remaining = oldDB.dstor.adrToOffset(upTo[0]) -
+					oldDB.dstor.adrToOffset(catchUpAdr);
+			catchUp(upTo[0], schema);
+			if (remaining < CATCH_UP_SIZE)
+				break;
+		}
+		// let update transactions finish rather than fail after the switch
+		try {
+			if (! oldDB.trans.drainUpdates(drainTimeoutMs))
+				throw new SuException(
+						"compact aborted: update transactions did not finish");
+			oldDB.withCommitLock(() -> {
+				checkNotExclusive();
+				catchUp(oldDB.dstor.upTo(), schema);
+				oldDB.switchTo(newDB);
+			});
+		} finally {
+			oldDB.trans.endDrain();
+		}
+	}
+
+	private void checkNotExclusive() {
+		if (oldDB.isExclusive())
+			throw new SuException("compact aborted: exclusive transaction");
+	}
+
 	private int copy() {
-		rt = oldDB.readTransaction();
 		copySchema();
 		return copyData() + 1; // + 1 for views
 	}
@@ -89,6 +197,92 @@ class DbCompact {
 		}
 	}
 
+	// catch up ----------------------------------------------------------------
+
+	/** apply the commits in oldDB from catchUpAdr up to (not including) upTo */
+	private void catchUp(int upTo, Tables schema) {
+		StorageIter iter = new StorageIter(oldDB.dstor, catchUpAdr).upTo(upTo);
+		for (; iter.notFinished(); iter.advance())
+			new CatchUp(iter.adr(), schema).process();
+		if (iter.status() != StorageIter.Status.OK)
+			throw new SuException("compact aborted: " + iter.status());
+		catchUpAdr = upTo;
+	}
+
+	/** Applies one commit from oldDB to newDB */
+	private class CatchUp extends CommitProcessor {
+		private final Tables schema;
+		private UpdateTransaction ut;
+		private BulkTransaction bt;
+		private int bulkTblnum = 0;
+		private int first = 0;
+		private int last = 0;
+
+		CatchUp(int adr, Tables schema) {
+			super(oldDB.dstor, adr);
+			this.schema = schema;
+		}
+
+		@Override
+		void type(char c) {
+			if (c == 's')
+				throw new SuException("compact aborted: schema changed");
+			if (c == 'u')
+				ut = new DbRebuild.RebuildTransaction(newDB);
+			else // 'b'
+				bt = newDB.bulkTransaction();
+		}
+
+		@Override
+		void add(DataRecord r) {
+			r.address(0);
+			int tblnum = tblnum(r.tblnum());
+			if (ut != null)
+				ut.addRecord(tblnum, r);
+			else {
+				bulkTblnum = tblnum;
+				last = bt.loadRecord(tblnum, r);
+				if (first == 0)
+					first = last;
+			}
+		}
+
+		@Override
+		void remove(DataRecord r) {
+			r.address(0); // so it is found by key in newDB
+			ut.removeRecord(tblnum(r.tblnum()), r);
+		}
+
+		@Override
+		void update(DataRecord from, DataRecord to) {
+			from.address(0); // so it is found by key in newDB
+			to.address(0);
+			ut.updateRecord(tblnum(from.tblnum()), from, to);
+		}
+
+		/** table numbers are not preserved by copy */
+		private int tblnum(int oldnum) {
+			int num = tblnums.get(oldnum);
+			if (num == 0) {
+				String tablename = schema.get(oldnum).name;
+				num = newDB.state.schema.get(tablename).num;
+				tblnums.put(oldnum, num);
+			}
+			return num;
+		}
+
+		@Override
+		void after() {
+			if (ut != null)
+				ut.ck_complete();
+			else if (bt != null) {
+				if (bulkTblnum != 0)
+					DbLoad.createIndexes(bt, bt.getTable(bulkTblnum), first, last);
+				bt.ck_complete();
+			}
+		}
+	}
+
 //	public static void main(String[] args) throws InterruptedException {
 //		Database dbin = (Database) dbpkg.openReadonly("/test/sample/suneido.db");
 //		Database dbout = (Database) dbpkg.create("immu.compact");
@@ -12,12 +12,26 @@ import static suneido.util.Verify.verify;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
+import suneido.database.immudb.Dbpkg.Observer;
 import suneido.database.query.Request;
 
 class DbLoad {
+	/**
+	 * Set by Dbpkg.setOption("load_threads").
+	 * More than one uses {@link DbLoadParallel}
+	 */
+	static int THREADS = 1;
 
 	static int loadDatabase(Database db, ReadableByteChannel in) {
+		return loadDatabase(db, in, Dbpkg.nullObserver);
+	}
+
+	static int loadDatabase(Database db, ReadableByteChannel in, Observer ob) {
+		if (THREADS > 1)
+			return new DbLoadParallel(db, in, null, ob).load();
 		try {
 			verifyFileHeader(in);
 			String schema;
@@ -35,6 +49,8 @@ class DbLoad {
 
 	/** used when loading a specified table */
 	static int loadTable(Database db, String tablename, ReadableByteChannel in) {
+		if (THREADS > 1)
+			return new DbLoadParallel(db, in, tablename, Dbpkg.nullObserver).load();
 		try {
 			verifyFileHeader(in);
 			String schema = readTableHeader(in);
@@ -48,7 +64,7 @@ class DbLoad {
 		}
 	}
 
-	private static void verifyFileHeader(ReadableByteChannel in)
+	static void verifyFileHeader(ReadableByteChannel in)
 			throws IOException {
 		String s = getline(in);
 		if (s == null || ! s.startsWith(DbDump.versionBase))
@@ -57,7 +73,7 @@ class DbLoad {
 			throw new RuntimeException("invalid dump version");
 	}
 
-	private static String readTableHeader(ReadableByteChannel in)
+	static String readTableHeader(ReadableByteChannel in)
 			throws IOException {
 		String schema = getline(in);
 		if (schema == null)
@@ -118,24 +134,44 @@ class DbLoad {
 			return; // no data
 		for (Index index : table.indexes) {
 			print("\t" + index.columns(table.columns));
-			createIndex(t, first, last, index);
+			List<BtreeKey> keys =
+					sortedKeys(t.storedRecordIterator(first, last), index.colNums);
+			createIndex(t, index, keys);
 		}
+		t.saveBtrees();
 	}
 
-	private static void createIndex(BulkTransaction t, int first, int last, Index index) {
-		TranIndex btree = t.getIndex(index.tblnum, index.colNums);
-		StoredRecordIterator iter = t.storedRecordIterator(first, last);
-		int i = 0;
+	/** extract the keys for an index from the stored records and sort them */
+	static List<BtreeKey> sortedKeys(StoredRecordIterator iter, int[] colNums) {
+		List<BtreeKey> keys = new ArrayList<>();
 		while (iter.hasNext()) {
+			int adr = iter.nextAdr();
+			keys.add(IndexedData.key(iter.next(), colNums, adr));
+		}
+		keys.sort(null);
+		return keys;
+	}
+
+	/**
+	 * Build the index bottom-up from the sorted keys.
+	 * If the index already has keys (e.g. bulk loading into a table
+	 * that has data) the keys are added to the existing btree.
+	 */
+	static void createIndex(BulkTransaction t, Index index, List<BtreeKey> keys) {
+		Btree btree = (Btree) t.getIndex(index.tblnum, index.colNums);
+		if (! btree.isEmpty()) {
+			for (BtreeKey key : keys)
+				btree.add(key, false);
+			return;
+		}
+		BtreeBuilder builder = t.indexBuilder();
+		int i = 0;
+		for (BtreeKey key : keys) {
 			if (i++ % 10000 == 0)
 				print(".");
-			int adr = iter.nextAdr();
-			Record rec = iter.next();
-			BtreeKey key = IndexedData.key(rec, index.colNums, adr);
-			btree.add(key, false);
+			builder.add(key);
 		}
-		print("^");
-		t.saveBtrees();
+		t.saveIndex(index, builder.finish());
 		print("\n");
 	}
 
@@ -0,0 +1,241 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static suneido.util.FileUtils.fullRead;
+import static suneido.util.FileUtils.readInt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Stopwatch;
+
+import suneido.database.immudb.Dbpkg.Observer;
+import suneido.database.query.Request;
+
+/**
+ * Pipelined version of {@link DbLoad}, used when DbLoad.THREADS > 1
+ * <p>
+ * A reader thread reads and decodes the dump into a bounded queue,
+ * the calling thread appends the records to dstor,
+ * and each index is built by its own fork-join task
+ * which extracts and sorts its keys and then writes its btree
+ * bottom-up with a {@link BtreeBuilder}.
+ * <p>
+ * The reader carries on with the following tables
+ * while the indexes for a table are built.
+ * Index builds for different tables do not overlap
+ * because each table is loaded by an exclusive {@link BulkTransaction}
+ * which must commit before the next table can be created.
+ */
+class DbLoadParallel {
+	private static final int BATCH_SIZE = 1000; // records
+	private static final int BATCH_BYTES = 1_000_000;
+	private static final int QUEUE_SIZE = 16; // batches
+	private static final Object END_TABLE = new Object();
+	private static final Object END = new Object();
+	private final Database db;
+	private final ReadableByteChannel in;
+	private final Observer ob;
+	/** null when loading a database, else the table to load into */
+	private final String tablename;
+	private final BlockingQueue<Object> queue =
+			new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private volatile Throwable readError = null;
+	private long totalRecs = 0;
+
+	DbLoadParallel(Database db, ReadableByteChannel in, String tablename,
+			Observer ob) {
+		this.db = db;
+		this.in = in;
+		this.tablename = tablename;
+		this.ob = ob;
+	}
+
+	/**
+	 * @return The number of tables loaded for a database,
+	 * or the number of records loaded for a single table
+	 */
+	int load() {
+		Stopwatch sw = Stopwatch.createStarted();
+		Thread reader = new Thread(this::read, "DbLoad reader");
+		reader.setDaemon(true);
+		reader.start();
+		ForkJoinPool pool = new ForkJoinPool(DbLoad.THREADS);
+		try {
+			int n = 0;
+			for (Object x; END != (x = take()); ++n)
+				loadTable((String) x, pool);
+			if (tablename != null && n == 0)
+				throw new RuntimeException("not a valid dump file");
+			ob.print("loaded " + totalRecs + " records" +
+					rate(totalRecs, sw) + "\n");
+			return tablename == null ? n : (int) totalRecs;
+		} finally {
+			reader.interrupt();
+			pool.shutdown();
+		}
+	}
+
+	// reader thread -----------------------------------------------------------
+
+	private void read() {
+		try {
+			DbLoad.verifyFileHeader(in);
+			ByteBuffer intbuf = ByteBuffer.allocate(4);
+			String schema;
+			while (null != (schema = DbLoad.readTableHeader(in))) {
+				put(tablename == null
+						? "create" + schema.substring(6)
+						: "create " + tablename + schema.substring(6));
+				readRecords(intbuf);
+				if (tablename != null)
+					break; // only load the first table
+			}
+		} catch (InterruptedException e) {
+			return; // main thread has given up
+		} catch (Throwable e) {
+			readError = e;
+		}
+		try {
+			put(END);
+		} catch (InterruptedException e) {
+			// main thread has given up
+		}
+	}
+
+	private void readRecords(ByteBuffer intbuf)
+			throws IOException, InterruptedException {
+		List<DataRecord> batch = new ArrayList<>(BATCH_SIZE);
+		int nbytes = 0;
+		for (int n; 0 != (n = readInt(in, intbuf)); ) {
+			ByteBuffer buf = ByteBuffer.allocate(n);
+			fullRead(in, buf, n);
+			batch.add(new DataRecord(buf));
+			nbytes += n;
+			if (batch.size() >= BATCH_SIZE || nbytes >= BATCH_BYTES) {
+				put(batch);
+				batch = new ArrayList<>(BATCH_SIZE);
+				nbytes = 0;
+			}
+		}
+		if (! batch.isEmpty())
+			put(batch);
+		put(END_TABLE);
+	}
+
+	private void put(Object x) throws InterruptedException {
+		queue.put(x);
+	}
+
+	// append and index --------------------------------------------------------
+
+	private Object take() {
+		Object x;
+		try {
+			x = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("load interrupted", e);
+		}
+		if (x == END && readError != null)
+			throw new RuntimeException("load failed", readError);
+		return x;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadTable(String schema, ForkJoinPool pool) {
+		int i = schema.indexOf(' ', 7);
+		String table = schema.substring(7, i);
+		if (tablename != null)
+			db.dropTable(table);
+		if (! "views".equals(table))
+			Request.execute(db, schema);
+		Stopwatch sw = Stopwatch.createStarted();
+		int nrecs = 0;
+		BulkTransaction t = db.bulkTransaction();
+		try {
+			int tblnum = t.getTable(table).num;
+			int first = 0;
+			int last = 0;
+			for (Object x; END_TABLE != (x = take()); ) {
+				if (x == END)
+					throw new RuntimeException("premature end of dump");
+				for (DataRecord rec : (List<DataRecord>) x) {
+					last = t.loadRecord(tblnum, rec);
+					if (first == 0)
+						first = last;
+					++nrecs;
+				}
+			}
+			createIndexes(t, t.getTable(table), first, last, pool);
+			t.ck_complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+		totalRecs += nrecs;
+		ob.print(table + ": " + nrecs + " records" + rate(nrecs, sw) + "\n");
+	}
+
+	/**
+	 * Extract and sort the keys for each of the table's indexes
+	 * and build its btree in its own task.
+	 * The tasks only read data that is already stored,
+	 * and their builders allocate index storage with allocShared.
+	 * Keys for indexes that already have data (loading into a table)
+	 * are added to the existing btree by the calling thread.
+	 */
+	static void createIndexes(BulkTransaction t, Table table,
+			int first, int last, ForkJoinPool pool) {
+		if (first == 0)
+			return; // no data
+		List<Index> built = new ArrayList<>();
+		List<ForkJoinTask<BtreeInfo>> builds = new ArrayList<>();
+		List<Btree> added = new ArrayList<>();
+		List<ForkJoinTask<List<BtreeKey>>> sorts = new ArrayList<>();
+		for (Index index : table.indexes) {
+			StoredRecordIterator iter = t.storedRecordIterator(first, last);
+			Btree btree = (Btree) t.getIndex(index.tblnum, index.colNums);
+			if (btree.isEmpty()) {
+				BtreeBuilder builder = t.indexBuilder().concurrent();
+				built.add(index);
+				builds.add(pool.submit(() ->
+						build(builder, DbLoad.sortedKeys(iter, index.colNums))));
+			} else {
+				added.add(btree);
+				sorts.add(pool.submit(() ->
+						DbLoad.sortedKeys(iter, index.colNums)));
+			}
+		}
+		// let all the builders finish before any failure aborts
+		builds.forEach(ForkJoinTask::quietlyJoin);
+		for (int i = 0; i < built.size(); ++i)
+			t.saveIndex(built.get(i), builds.get(i).join());
+		for (int i = 0; i < added.size(); ++i)
+			for (BtreeKey key : sorts.get(i).join())
+				added.get(i).add(key, false);
+		t.saveBtrees();
+	}
+
+	private static BtreeInfo build(BtreeBuilder builder, List<BtreeKey> keys) {
+		for (BtreeKey key : keys)
+			builder.add(key);
+		return builder.finish();
+	}
+
+	private static String rate(long nrecs, Stopwatch sw) {
+		long ms = Math.max(1, sw.elapsed(TimeUnit.MILLISECONDS));
+		return " in " + sw + " (" + (nrecs * 1000 / ms) + " per sec)";
+	}
+
+}
@@ -55,6 +55,8 @@ class DbRebuild {
 			Check check = new Check(dstor, istor);
 			System.out.println("checksums...");
 			if (check.fullcheck() && Suneido.cmdlineoptions.asof == null) {
+				if (migrating())
+					return fix(check);
 				if (check_data_and_indexes(dstor, istor)) {
 					new File(newFilename).delete();
 					System.out.println("OK Last good commit " +
@@ -119,16 +121,32 @@ class DbRebuild {
 		}
 	}
 
+	/**
+	 * If the new database will have a different storage format
+	 * (i.e. MmapFile CREATE_LARGE) then we can't copy the good prefix,
+	 * instead everything is reprocessed into the new database.
+	 */
+	private boolean migrating() {
+		return dstor.SHIFT != MmapFile.createShift();
+	}
+
 	/** @return null on failure, else success message */
 	protected String fix(Check check) {
-		copyGoodPrefix(check);
-		try(Database db = newdb(check.dOkSize())) {
+		boolean migrating = migrating();
+		long okSize = migrating ? 0 : check.dOkSize();
+		copyGoodPrefix(okSize, check.iOkSize());
+		try(Database db = newdb(okSize)) {
 			assert db != null;
 			Date lastOkDate = check.lastOkDate();
-			if (check.dIterNotFinished() &&
+			if (migrating) {
+				System.out.println("Converting data ...");
+				int upTo = (Suneido.cmdlineoptions.asof == null)
+						? Storage.MAX_ADR : dstor.offsetToAdr(check.dOkSize());
+				lastOkDate = reprocess(db, okSize, upTo, lastOkDate);
+			} else if (check.dIterNotFinished() &&
 					Suneido.cmdlineoptions.asof == null) {
 				System.out.println("Reprocessing data ...");
-				lastOkDate = reprocess(db, check);
+				lastOkDate = reprocess(db, okSize, Storage.MAX_ADR, lastOkDate);
 			}
 			System.out.println("Checking rebuilt database ...");
 			db.persist();
@@ -152,18 +170,18 @@ class DbRebuild {
 				: Database.openWithoutCheck(newFilename);
 	}
 
-	private void copyGoodPrefix(Check check) {
-		if (check.dOkSize() == 0)
+	private void copyGoodPrefix(long dOkSize, long iOkSize) {
+		if (dOkSize == 0)
 			return;
 		try {
 			System.out.println("Copying " +
-					fmt(check.dOkSize()) + " bytes of data file...");
+					fmt(dOkSize) + " bytes of data file...");
 			FileUtils.copy(new File(oldFilename + "d"), new File(newFilename + "d"),
-					check.dOkSize());
+					dOkSize);
 			System.out.println("Copying " +
-					fmt(check.iOkSize()) + " bytes of index file ...");
+					fmt(iOkSize) + " bytes of index file ...");
 			FileUtils.copy(new File(oldFilename + "i"), new File(newFilename + "i"),
-					check.iOkSize());
+					iOkSize);
 		} catch (IOException e) {
 			throw new RuntimeException("Rebuild copy failed", e);
 		}
@@ -173,19 +191,22 @@ class DbRebuild {
 		return String.format("%,d", n);
 	}
 
-	/** reprocess any good data after last matching persist */
+	/**
+	 * reprocess any good data after copiedSize (the last matching persist)
+	 * up to (but not including) upTo
+	 */
 	// could copy remaining good data and then process in place
 	// but simpler to not copy and to apply normally to new db
-	Date reprocess(Database db, Check check) {
-		Date lastOkDate = check.lastOkDate();
-		long lastOkSize = check.dOkSize();
+	Date reprocess(Database db, long copiedSize, int upTo, Date lastOkDate) {
+		long lastOkSize = copiedSize;
 		StorageIter dIter = new StorageIter(dstor,
-				lastOkSize == 0 ? Storage.FIRST_ADR : Storage.offsetToAdr(lastOkSize));
+				lastOkSize == 0 ? Storage.FIRST_ADR : dstor.offsetToAdr(lastOkSize))
+				.upTo(upTo);
 		while (dIter.notFinished()) {
 			try {
-				new Proc(db, check.dOkSize(), dstor, dIter.adr()).process();
+				new Proc(db, copiedSize, dstor, dIter.adr()).process();
 			} catch(Throwable e) {
-				System.err.println("offset: " + Storage.adrToOffset(dIter.adr()));
+				System.err.println("offset: " + dstor.adrToOffset(dIter.adr()));
 				System.err.println(e);
 				throw e;
 			}
@@ -343,7 +364,7 @@ class DbRebuild {
 		}
 
 		void clearAddress(DataRecord r) {
-			if (Storage.adrToOffset(r.address()) >= copiedDataSize)
+			if (dstor.adrToOffset(r.address()) >= copiedDataSize)
 				r.address(0); // may have changed
 		}
 
@@ -9,6 +9,9 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import suneido.database.query.Join;
+import suneido.database.query.QueryCache;
+import suneido.database.query.Summarize;
 import suneido.util.FileUtils;
 
 /**
@@ -66,6 +69,11 @@ public class Dbpkg {
 		return DbLoad.loadDatabase(db, in);
 	}
 
+	public static int loadDatabase(Database db, ReadableByteChannel in,
+			Observer ob) {
+		return DbLoad.loadDatabase(db, in, ob);
+	}
+
 	public static int loadTable(Database db, String tablename,
 			ReadableByteChannel in) {
 		return DbLoad.loadTable(db, tablename, in);
@@ -75,6 +83,11 @@ public class Dbpkg {
 		return DbCompact.compact(srcdb, dstdb);
 	}
 
+	/** @return The number of tables compacted */
+	public static int compactOnline(Database db) {
+		return DbCompact.compactOnline(db);
+	}
+
 	public static String rebuild(String dbFilename, String tempfilename) {
 		return DbRebuild.rebuild(dbFilename, tempfilename);
 	}
@@ -90,8 +103,13 @@ public class Dbpkg {
 			FileUtils.renameWithBackup(tempfile + "c", dbFilename + "c");
 	}
 
-	public static RecordStore recordStore() {
-		return new RecordStore();
+	public static RecordSorter recordSorter() {
+		return new RecordSorter();
+	}
+
+	/** @param memory The memory budget, instead of tempindex_memory */
+	public static RecordSorter recordSorter(long memory) {
+		return new RecordSorter(memory);
 	}
 
 	public static void setOption(String name, Object value) {
@@ -99,6 +117,26 @@ public class Dbpkg {
 			Transactions.MAX_UPDATE_TRAN_DURATION_SEC = (Integer) value;
 		if (name.equals("max_writes_per_tran"))
 			UpdateTransaction.MAX_WRITES_PER_TRANSACTION = (Integer) value;
+		if (name.equals("group_commit"))
+			GroupCommit.ENABLED = (Boolean) value;
+		if (name.equals("large_files"))
+			MmapFile.CREATE_LARGE = (Boolean) value;
+		if (name.equals("load_threads"))
+			DbLoad.THREADS = (Integer) value;
+		if (name.equals("btree_fill"))
+			BtreeBuilder.FILL = (Integer) value / 100f;
+		if (name.equals("prefix_compress"))
+			BtreePrefixNode.ENABLED = (Boolean) value;
+		if (name.equals("tempindex_memory"))
+			RecordSorter.MEMORY = (Integer) value * 1024L * 1024;
+		if (name.equals("join_memory"))
+			Join.HASH_MEMORY = (Integer) value * 1024L * 1024;
+		if (name.equals("summarize_memory"))
+			Summarize.HASH_MEMORY = (Integer) value * 1024L * 1024;
+		if (name.equals("query_threads"))
+			Summarize.PARALLEL_THREADS = (Integer) value;
+		if (name.equals("query_cache"))
+			QueryCache.setSize((Integer) value);
 	}
 
 	public static boolean dbExists(String dbFilename) {
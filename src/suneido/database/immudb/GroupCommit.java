@@ -0,0 +1,129 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Throwables;
+
+import suneido.util.Errlog;
+import suneido.util.ThreadSafe;
+
+/**
+ * Batches concurrent {@link UpdateTransaction} commits.
+ * {@link Database} has an instance.
+ * <p>
+ * A committing transaction queues itself and then waits for the commit lock.
+ * Whichever thread gets the lock (the leader) commits everything queued
+ * so far, including the transactions of the threads still waiting.
+ * When those threads get the lock they find they are already done.
+ * <p>
+ * Each transaction still does its own conflict checking
+ * (including against the earlier transactions in the same batch)
+ * and writes its own commit to the data storage
+ * so the storage format (and check and rebuild) are unchanged.
+ * But Database.state is only updated once per batch.
+ * A failed transaction does not affect the rest of the batch.
+ * <p>
+ * Enabled by the -gc command line option
+ * or Dbpkg.setOption("group_commit", true)
+ */
+@ThreadSafe
+class GroupCommit {
+	static boolean ENABLED = false;
+	private final Database db;
+	private final ConcurrentLinkedQueue<Request> queue =
+			new ConcurrentLinkedQueue<>();
+	private final AtomicLong nbatches = new AtomicLong();
+	private final AtomicLong ncommits = new AtomicLong();
+
+	GroupCommit(Database db) {
+		this.db = db;
+	}
+
+	/**
+	 * Commit the transaction, possibly as part of a batch.
+	 * Throws the same exceptions as UpdateTransaction commit would.
+	 */
+	void commit(UpdateTransaction t) {
+		Request req = new Request(t);
+		queue.add(req);
+		db.withCommitLock(() -> {
+			if (! req.done) // otherwise an earlier leader did it
+				runBatch();
+		});
+		// done and error are only accessed while holding the commit lock
+		if (req.error != null) {
+			Throwables.throwIfUnchecked(req.error);
+			throw new RuntimeException(req.error);
+		}
+	}
+
+	/** called while holding the commit lock */
+	private void runBatch() {
+		List<Request> batch = new ArrayList<>();
+		for (Request req; null != (req = queue.poll()); )
+			batch.add(req);
+		List<UpdateTransaction> stored = new ArrayList<>(batch.size());
+		DbHashTrie dbinfo = db.state.dbinfo;
+		Tran.StoreInfo info = null;
+		for (Request req : batch)
+			try {
+				info = req.t.storeGrouped(dbinfo, stored);
+				dbinfo = req.t.dbinfo;
+				stored.add(req.t);
+			} catch (Throwable e) {
+				req.error = e;
+			}
+		if (! stored.isEmpty())
+			finish(stored, dbinfo, info);
+		for (Request req : batch)
+			req.done = true;
+		nbatches.incrementAndGet();
+		ncommits.addAndGet(stored.size());
+	}
+
+	/**
+	 * This is the final step that makes the batch permanent.
+	 * Same as UpdateTransaction finish, but for the whole batch.
+	 */
+	private void finish(List<UpdateTransaction> stored, DbHashTrie dbinfo,
+			Tran.StoreInfo info) {
+		try {
+			Database.State state = db.state;
+			db.setState(state.dbinfoadr, dbinfo, state.schema,
+					info.cksum, info.adr);
+			for (UpdateTransaction t : stored)
+				t.committedGrouped();
+		} catch (Throwable e) {
+			Errlog.fatal("ERROR in GroupCommit.finish", e);
+		}
+	}
+
+	// used by tests
+	int queued() {
+		return queue.size();
+	}
+
+	/** @return The average number of transactions committed per batch */
+	double averageBatchSize() {
+		long n = nbatches.get();
+		return n == 0 ? 0 : (double) ncommits.get() / n;
+	}
+
+	private static class Request {
+		final UpdateTransaction t;
+		boolean done = false;
+		Throwable error = null;
+
+		Request(UpdateTransaction t) {
+			this.t = t;
+		}
+	}
+
+}
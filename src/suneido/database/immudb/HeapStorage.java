@@ -7,7 +7,7 @@ package suneido.database.immudb;
 import java.nio.ByteBuffer;
 
 /**
- * In-memory storage used by {@link RecordStore} and tests.
+ * In-memory storage, e.g. for test databases.
  * @see MmapFile
  */
 class HeapStorage extends Storage {
@@ -21,6 +21,11 @@ class HeapStorage extends Storage {
 		super(chunkSize);
 	}
 
+	/** used by tests */
+	HeapStorage(int chunkSize, int shift) {
+		super(chunkSize, shift);
+	}
+
 	@Override
 	protected ByteBuffer get(int chunk) {
 		return ByteBuffer.allocate(CHUNK_SIZE);
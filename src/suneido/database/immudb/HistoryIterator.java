@@ -69,7 +69,7 @@ public class HistoryIterator {
 				rewound = false;
 				adr = Storage.FIRST_ADR;
 			} else {
-				long size = Storage.intToSize(dstor.buffer(adr).getInt());
+				long size = dstor.intToSize(dstor.buffer(adr).getInt());
 				adr = dstor.advance(adr, size);
 				if (!dstor.isValidAdr(adr))
 					return false; // eof
@@ -122,7 +122,8 @@ public class HistoryIterator {
 	}
 
 	int getPrevSize(int adr) {
-		ByteBuffer buf = dstor.buffer(adr - 1);
+		// the tail is at the end of the last unit
+		ByteBuffer buf = dstor.tailBuffer(adr - 1, dstor.ALIGN, Tran.TAIL_SIZE);
 		buf.getInt(); // skip checksum
 		return buf.getInt();
 	}
@@ -0,0 +1,210 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static suneido.util.Util.commaSplitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+import suneido.util.Immutable;
+
+/**
+ * Statistics for an index, used by the query optimizer.
+ * Collected by {@link Database#analyze} and stored with the {@link TableInfo}
+ * <ul>
+ * <li>the number of rows when collected
+ * <li>the number of rows with an empty first column
+ * <li>the number of distinct values of each prefix of the columns
+ * <li>an equi-depth histogram i.e. the keys that divide the index
+ * into buckets with the same number of rows
+ * </ul>
+ * Unlike {@link Btree#rangefrac}, which assumes the keys are evenly spread
+ * through the tree, the histogram and distinct counts handle skewed data,
+ * e.g. a status column where most of the rows have the same value.
+ */
+@Immutable
+public class IndexStats {
+	static final int NBUCKETS = 32;
+	final int[] columns;
+	private final int nrows;
+	private final int nempty;
+	/** distinct[i] is the number of distinct values of the first i+1 columns */
+	private final long[] distinct;
+	/** NBUCKETS + 1 keys (fewer for small indexes), first and last inclusive */
+	private final Record[] bounds;
+
+	IndexStats(int[] columns, int nrows, int nempty, long[] distinct,
+			Record[] bounds) {
+		this.columns = columns;
+		this.nrows = nrows;
+		this.nempty = nempty;
+		this.distinct = distinct;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Reads the entire index
+	 * @param nrows The number of rows in the table, used to space the bounds
+	 */
+	static IndexStats collect(int[] columns, IndexIter iter, int nrows) {
+		int ncols = columns.length;
+		long[] distinct = new long[ncols];
+		List<Record> bounds = new ArrayList<>();
+		int nempty = 0;
+		int n = 0;
+		Record prev = null;
+		int b = 0; // the bucket number of nextBound
+		int nextBound = 0; // the position of the next bound
+		int lastBound = -1; // the position of the last bound added
+		for (iter.next(); ! iter.eof(); iter.next()) {
+			Record key = iter.curKey();
+			if (key.getRaw(0).remaining() == 0)
+				++nempty;
+			int same = (prev == null) ? 0 : samePrefix(prev, key, ncols);
+			for (int i = same; i < ncols; ++i)
+				++distinct[i];
+			if (n == nextBound) {
+				bounds.add(prefix(key, ncols));
+				lastBound = n;
+				// small indexes have less than NBUCKETS buckets
+				while (nextBound <= n && b < NBUCKETS)
+					nextBound = bound(++b, nrows);
+			}
+			prev = key;
+			++n;
+		}
+		if (n > 0 && lastBound != n - 1)
+			bounds.add(prefix(prev, ncols)); // always include the last key
+		return new IndexStats(columns, n, nempty, distinct,
+				bounds.toArray(new Record[0]));
+	}
+
+	/** @return the position of the b'th bound */
+	private static int bound(int b, int nrows) {
+		return (int) ((long) b * (nrows - 1) / NBUCKETS);
+	}
+
+	/** @return The number of leading fields that are the same */
+	private static int samePrefix(Record x, Record y, int ncols) {
+		int i = 0;
+		for (; i < ncols; ++i)
+			if (! x.getRaw(i).equals(y.getRaw(i)))
+				break;
+		return i;
+	}
+
+	private static Record prefix(Record key, int ncols) {
+		return new RecordBuilder().addPrefix(key, ncols).build();
+	}
+
+	/** @return The number of rows when the statistics were collected */
+	public int nrows() {
+		return nrows;
+	}
+
+	/** @return The fraction of rows with an empty value for the first column */
+	public double emptyFrac() {
+		return nrows == 0 ? 0 : (double) nempty / nrows;
+	}
+
+	/**
+	 * @param n The number of leading columns
+	 * @return The number of distinct values of the first n columns
+	 */
+	public long distinct(int n) {
+		return distinct[n - 1];
+	}
+
+	/**
+	 * Estimates the fraction of the rows from org to end, inclusive,
+	 * using the same arguments as {@link TranIndex#rangefrac}
+	 */
+	float rangefrac(Record org, Record end) {
+		if (nrows == 0 || bounds.length < 2)
+			return Btree.MIN_FRAC;
+		int nb = bounds.length - 1;
+		int full = 0;
+		int partial = 0;
+		for (int b = 0; b < nb; ++b) {
+			Record lo = bounds[b];
+			Record hi = bounds[b + 1];
+			if (hi.compareTo(org) < 0 || lo.compareTo(end) > 0)
+				continue;
+			if (lo.compareTo(org) >= 0 && hi.compareTo(end) <= 0)
+				++full;
+			else
+				++partial;
+		}
+		float frac = (full + partial / 2.0f) / nb;
+		int n = equalPrefix(org, end);
+		if (n > 0 && full == 0) {
+			// a value that is not common enough to span a bucket
+			if (n == 1 && org.getRaw(0).remaining() == 0)
+				frac = (float) emptyFrac();
+			else if (n <= columns.length)
+				frac = Math.min(frac, 1.0f / distinct(n));
+		}
+		return Math.max(frac, Btree.MIN_FRAC);
+	}
+
+	/**
+	 * @return The number of columns with an exact value i.e. end is org
+	 * followed by MAX_FIELD, otherwise 0
+	 */
+	private static int equalPrefix(Record org, Record end) {
+		int n = org.size();
+		if (end.size() != n + 1 ||
+				! end.getRaw(n).equals(Record.MAX_FIELD))
+			return 0;
+		for (int i = 0; i < n; ++i)
+			if (! org.getRaw(i).equals(end.getRaw(i)))
+				return 0;
+		return n;
+	}
+
+	// store -------------------------------------------------------------------
+
+	/** columns, nrows, nempty, distinct, bounds... */
+	Record toRecord() {
+		RecordBuilder rb = new RecordBuilder()
+				.add(Ints.join(",", columns))
+				.add(nrows)
+				.add(nempty)
+				.add(Longs.join(",", distinct));
+		for (Record b : bounds)
+			rb.add(b.getBuffer());
+		return rb.build();
+	}
+
+	static IndexStats fromRecord(Record rec) {
+		int[] columns = Index.stringToColNums(rec.getString(0));
+		List<Long> distinct = new ArrayList<>();
+		for (String s : commaSplitter(rec.getString(3)))
+			distinct.add(Long.parseLong(s));
+		Record[] bounds = new Record[rec.size() - 4];
+		for (int i = 0; i < bounds.length; ++i)
+			bounds[i] = Record.from(rec.getRaw(i + 4));
+		return new IndexStats(columns, rec.getInt(1), rec.getInt(2),
+				Longs.toArray(distinct), bounds);
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this)
+			.add("columns", Arrays.toString(columns))
+			.add("nrows", nrows)
+			.add("nempty", nempty)
+			.add("distinct", Arrays.toString(distinct))
+			.add("nbounds", bounds.length)
+			.toString();
+	}
+
+}
@@ -0,0 +1,73 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Converts records to flat byte strings that compare (as unsigned bytes)
+ * the same as {@link Record#compareTo}.
+ * Used by {@link BtreePrefixNode} and {@link RecordSorter}.
+ * <p>
+ * Each field is escaped (0 as 0,FF) and terminated by 0,1.
+ * The end of the record is 0,0.
+ * No encoding is a prefix of another.
+ */
+class KeyEncoding {
+	private static final byte ESC = 0, SEP = 1, END = 0, ESC_ZERO = (byte) 0xff;
+
+	/**
+	 * @param extra The number of bytes to leave at the end for the caller
+	 * @return The encoding of rec
+	 */
+	static byte[] encode(Record rec, int extra) {
+		int n = 2 + extra;
+		for (int i = 0; i < rec.size(); ++i) {
+			n += rec.fieldLength(i) + 2;
+			ByteBuffer fb = rec.fieldBuffer(i);
+			for (int j = rec.fieldOffset(i), end = j + rec.fieldLength(i); j < end; ++j)
+				if (fb.get(j) == 0)
+					++n;
+		}
+		byte[] enc = new byte[n];
+		int k = 0;
+		for (int i = 0; i < rec.size(); ++i) {
+			ByteBuffer fb = rec.fieldBuffer(i);
+			for (int j = rec.fieldOffset(i), end = j + rec.fieldLength(i); j < end; ++j) {
+				byte b = fb.get(j);
+				enc[k++] = b;
+				if (b == 0)
+					enc[k++] = ESC_ZERO;
+			}
+			enc[k++] = ESC;
+			enc[k++] = SEP;
+		}
+		enc[k++] = ESC;
+		enc[k++] = END;
+		return enc;
+	}
+
+	/** the reverse of encode, ignores anything after the end */
+	static Record decode(byte[] enc, int len) {
+		RecordBuilder rb = new RecordBuilder();
+		byte[] field = new byte[len];
+		int n = 0;
+		for (int k = 0; k < len; ++k) {
+			byte b = enc[k];
+			if (b != ESC)
+				field[n++] = b;
+			else if (enc[++k] == ESC_ZERO)
+				field[n++] = 0;
+			else if (enc[k] == SEP) {
+				rb.add(ByteBuffer.wrap(Arrays.copyOf(field, n)));
+				n = 0;
+			} else // END
+				break;
+		}
+		return rb.bufRec();
+	}
+
+}
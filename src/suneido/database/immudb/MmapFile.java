@@ -19,6 +19,12 @@ import suneido.util.Errlog;
 
 /**
  * Memory mapped file access.
+ * <p>
+ * Version 3 files use the default 8 byte alignment, limiting them to 32gb.
+ * Version 4 files store their alignment (shift) in the header
+ * and use a larger alignment to allow larger files.
+ * Newly created files are version 3 unless CREATE_LARGE is set.
+ * Existing databases are converted by compact or rebuild.
  * @see HeapStorage
  */
 class MmapFile extends Storage {
@@ -27,6 +33,11 @@ class MmapFile extends Storage {
 	static final ByteBuffer magic = ByteBuffer.allocate(4).put(MAGIC);
 	static final int VERSION = 3;
 	static final int VERSION_PREV = 2;
+	static final int VERSION_LARGE = 4;
+	static final int LARGE_SHIFT = 5; // i.e. 32 byte alignment, 128gb
+	private static final int MAX_SHIFT = 8;
+	/** set by Dbpkg.setOption("large_files") */
+	static boolean CREATE_LARGE = false;
 	private final File file;
 	private final FileChannel.MapMode mode;
 	private final RandomAccessFile fin;
@@ -43,7 +54,7 @@ class MmapFile extends Storage {
 
 	/** @param mode Must be "r" or "rw" */
 	MmapFile(File file, String mode) {
-		super(MMAP_CHUNK_SIZE);
+		super(MMAP_CHUNK_SIZE, fileShift(file));
 		this.file = file;
 		switch (mode) {
 		case "r":
@@ -85,10 +96,35 @@ class MmapFile extends Storage {
 		}
 	}
 
+	/** @return The shift for new files or from the header of version 4 files */
+	private static int fileShift(File file) {
+		if (file.length() < 2 * Integer.BYTES) // new file
+			return createShift();
+		try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+			f.skipBytes(MAGIC.length); // checked by version()
+			if (f.readInt() != VERSION_LARGE)
+				return DEFAULT_SHIFT;
+			int shift = f.readInt();
+			if (shift < DEFAULT_SHIFT || shift > MAX_SHIFT)
+				throw new SuException("invalid database file");
+			return shift;
+		} catch (IOException e) {
+			throw new SuException("can't read " + file, e);
+		}
+	}
+
+	/** @return The shift that newly created files will get */
+	static int createShift() {
+		return CREATE_LARGE ? LARGE_SHIFT : DEFAULT_SHIFT;
+	}
+
 	private void version() {
 		if (storSize == ALIGN) { // newly created file
 			ByteBuffer buf = buf(0);
-			buf.put(MAGIC).putInt(VERSION);
+			if (SHIFT == DEFAULT_SHIFT)
+				buf.put(MAGIC).putInt(VERSION);
+			else
+				buf.put(MAGIC).putInt(VERSION_LARGE).putInt(SHIFT);
 			assert buf.position() <= ALIGN;
 		} else {
 			ByteBuffer buf = buf(0);
@@ -99,9 +135,9 @@ class MmapFile extends Storage {
 			int ver = buf.getInt();
 			if (ver == VERSION_PREV)
 				buf(0).put(MAGIC).putInt(VERSION);
-			else if (ver != VERSION)
+			else if (ver != VERSION && ver != VERSION_LARGE)
 				throw new SuException("invalid database version, got " + ver +
-						", expected " + VERSION);
+						", expected " + VERSION + " or " + VERSION_LARGE);
 		}
 	}
 
@@ -0,0 +1,147 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Verifies the checksums of the commits (or persists) in a storage
+ * using multiple threads, ahead of the sequential pass by {@link Check}.
+ * <p>
+ * First the heads and tails are scanned (without checksums)
+ * to find the blocks. Blocks are divided into pieces of at most PIECE_SIZE
+ * (so large bulk commits are also split up)
+ * and the pieces are checksummed in parallel tasks of a few pieces each.
+ * The checksums of the pieces are then combined
+ * to give the checksum of each block.
+ * <p>
+ * The result is the first address that has not been verified,
+ * i.e. the first bad checksum, or where the scan stopped.
+ * {@link StorageIter} then only verifies from there,
+ * so the outcome is the same as checking sequentially.
+ */
+class ParallelChecksum {
+	private static final int PIECE_SIZE = 4 * 1024 * 1024;
+	private static final int PIECES_PER_SEGMENT = 4;
+	private static final int ZERO_TAIL_CKSUM;
+	static {
+		Checksum cs = new Checksum();
+		cs.update(new byte[Tran.TAIL_SIZE]);
+		ZERO_TAIL_CKSUM = cs.getValue();
+	}
+	private final Storage stor;
+	private final int pieceSize;
+	/** the blocks (excluding aborted ones) */
+	private final TIntArrayList adrs = new TIntArrayList();
+	private final TIntArrayList cksums = new TIntArrayList();
+	private final TIntArrayList firstPiece = new TIntArrayList();
+	/** the pieces, in order */
+	private final TLongArrayList pieceOffsets = new TLongArrayList();
+	private final TIntArrayList pieceLens = new TIntArrayList();
+	private int[] pieceCksums;
+	private int stopAdr = Storage.MAX_ADR;
+
+	/**
+	 * @return The address of the first commit/persist that could not be
+	 * verified, or Storage.MAX_ADR if all were verified.
+	 */
+	static int verify(Storage stor, int adr, int upTo, ForkJoinPool pool) {
+		return new ParallelChecksum(stor, PIECE_SIZE).verify(adr, upTo, pool);
+	}
+
+	/** pieceSize is a parameter for tests */
+	ParallelChecksum(Storage stor, int pieceSize) {
+		this.stor = stor;
+		this.pieceSize = pieceSize;
+	}
+
+	int verify(int adr, int upTo, ForkJoinPool pool) {
+		scan(adr, upTo);
+		pool.invoke(ForkJoinTask.adapt(this::checksumAll));
+		return firstBad();
+	}
+
+	private void scan(int adr, int upTo) {
+		StorageIter iter = StorageIter.withoutChecksums(stor, adr).upTo(upTo);
+		for (; iter.notFinished(); iter.advance2())
+			if (iter.date() != null) // not aborted
+				add(iter.adr(), iter.size(), iter.cksum());
+		if (iter.status() != StorageIter.Status.OK)
+			stopAdr = iter.adr();
+	}
+
+	/** the checksum covers the block except for the tail (see Tran) */
+	private void add(int adr, long size, int cksum) {
+		adrs.add(adr);
+		cksums.add(cksum);
+		firstPiece.add(pieceLens.size());
+		long offset = stor.adrToOffset(adr);
+		long remaining = size - Tran.TAIL_SIZE;
+		while (remaining > 0) {
+			int n = (int) Math.min(pieceSize, remaining);
+			pieceOffsets.add(offset);
+			pieceLens.add(n);
+			offset += n;
+			remaining -= n;
+		}
+	}
+
+	private void checksumAll() {
+		pieceCksums = new int[pieceLens.size()];
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		int from = 0;
+		long bytes = 0;
+		for (int i = 0; i < pieceLens.size(); ++i) {
+			bytes += pieceLens.get(i);
+			if (bytes >= PIECES_PER_SEGMENT * pieceSize || i == pieceLens.size() - 1) {
+				int f = from;
+				int to = i + 1;
+				tasks.add(ForkJoinTask.adapt(() -> checksumPieces(f, to)));
+				from = to;
+				bytes = 0;
+			}
+		}
+		ForkJoinTask.invokeAll(tasks);
+	}
+
+	private void checksumPieces(int from, int to) {
+		Checksum cs = new Checksum();
+		for (int i = from; i < to; ++i) {
+			cs.reset();
+			long offset = pieceOffsets.get(i);
+			int remaining = pieceLens.get(i);
+			while (remaining > 0) {
+				ByteBuffer buf = stor.buf(offset);
+				int n = Math.min(buf.remaining(), remaining);
+				cs.update(buf, n);
+				offset += n;
+				remaining -= n;
+			}
+			pieceCksums[i] = cs.getValue();
+		}
+	}
+
+	private int firstBad() {
+		for (int b = 0; b < adrs.size(); ++b) {
+			int from = firstPiece.get(b);
+			int to = (b + 1 < adrs.size()) ? firstPiece.get(b + 1) : pieceLens.size();
+			int cksum = pieceCksums[from];
+			for (int i = from + 1; i < to; ++i)
+				cksum = Checksum.combine(cksum, pieceCksums[i], pieceLens.get(i));
+			cksum = Checksum.combine(cksum, ZERO_TAIL_CKSUM, Tran.TAIL_SIZE);
+			if (cksum != cksums.get(b))
+				return adrs.get(b);
+		}
+		return stopAdr;
+	}
+
+}
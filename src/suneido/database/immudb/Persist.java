@@ -4,8 +4,6 @@
 
 package suneido.database.immudb;
 
-import static suneido.database.immudb.Storage.align;
-
 import java.nio.ByteBuffer;
 
 import com.google.common.collect.ImmutableList;
@@ -29,8 +27,7 @@ import suneido.database.immudb.DbHashTrie.Translator;
 class Persist {
 	static final int HEAD_SIZE = 2 * Integer.BYTES; // size and timestamp
 	static final int TAIL_SIZE = 2 * Integer.BYTES; // checksum and size
-	{ assert TAIL_SIZE == align(TAIL_SIZE); }
-	static final int ENDING_SIZE = align(4 * Integer.BYTES);
+	static final int ENDING_SIZE = 4 * Integer.BYTES;
 	private final Storage istor;
 	private DbHashTrie dbinfo;
 	private int head_adr = 0;
@@ -93,22 +90,26 @@ class Persist {
 	/** also called by BulkTransaction */
 	void finish(Database db, Tables schema, int lastcksum, int lastadr) {
 		dbinfoadr = storeDbinfo();
-		ending(dbinfoadr, schema.maxTblnum, lastcksum, lastadr);
+		ByteBuffer tail = ending(dbinfoadr, schema.maxTblnum, lastcksum, lastadr);
 
-		int tail_adr = istor.alloc(TAIL_SIZE);
-		int size = Storage.sizeToInt(istor.sizeFrom(head_adr));
+		int size = istor.sizeToInt(istor.sizeFrom(head_adr));
 		istor.buffer(head_adr).putInt(size).putInt(Tran.datetime());
 
 		int cksum = istor.checksum(head_adr);
-		istor.buffer(tail_adr).putInt(cksum).putInt(size);
+		tail.putInt(cksum).putInt(size);
 		istor.protect();
 
 		db.setState(dbinfoadr, dbinfo, schema, lastcksum, lastadr);
 		db.setPersistState();
 	}
 
-	private void ending(int dbinfoadr, int maxTblnum, int lastcksum, int lastadr) {
-		istor.buffer(istor.alloc(ENDING_SIZE))
+	/**
+	 * The ending and the tail are allocated together
+	 * so they are at the end of the persist (see dbinfoadr)
+	 * @return The buffer positioned at the (zero) tail
+	 */
+	private ByteBuffer ending(int dbinfoadr, int maxTblnum, int lastcksum, int lastadr) {
+		return istor.allocTail(ENDING_SIZE + TAIL_SIZE)
 				.putInt(dbinfoadr).putInt(maxTblnum)
 				.putInt(lastcksum).putInt(lastadr);
 	}
@@ -138,12 +139,11 @@ class Persist {
 
 	/** used by BulkTransaction */
 	void abort(Database.State dbstate) {
-		ending(dbstate.dbinfoadr, dbstate.schema.maxTblnum,
+		ByteBuffer tail = ending(dbstate.dbinfoadr, dbstate.schema.maxTblnum,
 				dbstate.lastcksum, dbstate.lastadr);
-		int tail_adr = istor.alloc(TAIL_SIZE);
-		int sizeInt = Storage.sizeToInt(istor.sizeFrom(head_adr));
+		int sizeInt = istor.sizeToInt(istor.sizeFrom(head_adr));
 		istor.buffer(head_adr).putInt(sizeInt).putInt(0);
-		istor.buffer(tail_adr).putInt(0).putInt(sizeInt);
+		tail.putInt(0).putInt(sizeInt);
 		istor.protect();
 	}
 
@@ -5,6 +5,7 @@
 package suneido.database.immudb;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -41,7 +42,7 @@ class ReadTransaction extends Transaction {
 		dbstate = db.state; // don't inline, read only once
 		schema = dbstate.schema;
 		dbinfo = dbstate.dbinfo;
-		tran = new Tran(db.dstor, db.istor);
+		tran = new Tran(dbstate.dstor, dbstate.istor);
 		trans = db.trans;
 		trans.addReadTran(this);
 	}
@@ -164,6 +165,11 @@ class ReadTransaction extends Transaction {
 		return Views.getView(this, name);
 	}
 
+	@Override
+	public int schemaVersion() {
+		return db.schemaVersion();
+	}
+
 	@Override
 	public boolean isReadonly() {
 		return true;
@@ -236,9 +242,28 @@ class ReadTransaction extends Transaction {
 			int n = tableCount(tblnum);
 			return n > 0 ? 1.0f / n : Btree.MIN_FRAC;
 		}
+		IndexStats stats = indexStats(index);
+		if (stats != null)
+			return stats.rangefrac(from, to);
 		return getIndex(index).rangefrac(from, to);
 	}
 
+	@Override
+	public IndexStats indexStats(int tblnum, String columns) {
+		return indexStats(index(tblnum, columns));
+	}
+
+	private IndexStats indexStats(Index index) {
+		TableInfo ti = getTableInfo(index.tblnum);
+		IndexStats stats = ti.getStats(index.colNums);
+		return (stats != null && current(stats, ti.nrows())) ? stats : null;
+	}
+
+	/** statistics are ignored once the table has grown or shrunk too much */
+	private static boolean current(IndexStats stats, int nrows) {
+		return nrows <= 2 * stats.nrows() && stats.nrows() <= 2 * nrows;
+	}
+
 	private static boolean sameKey(Record from, Record to) {
 		if (from.size() != to.size() - 1)
 			return false;
@@ -333,7 +358,7 @@ class ReadTransaction extends Transaction {
 
 	@Override
 	public HistoryIterator historyIterator(int tblnum) {
-		return new HistoryIterator(db.dstor, tblnum);
+		return new HistoryIterator(tran.dstor, tblnum);
 	}
 
 	@Override
@@ -352,6 +377,14 @@ class ReadTransaction extends Transaction {
 		return getIndex(tblnum, columns).iterator(iter);
 	}
 
+	@Override
+	public List<IndexIter> iters(int tblnum, String columns, int n) {
+		TranIndex index = getIndex(tblnum, columns);
+		return (isReadonly() && index instanceof Btree)
+				? ((Btree) index).split(n)
+				: super.iters(tblnum, columns, n);
+	}
+
 	@Override
 	public String toString() {
 		return "rt" + num;
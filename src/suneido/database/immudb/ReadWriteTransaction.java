@@ -322,7 +322,8 @@ abstract class ReadWriteTransaction extends ReadTransaction {
 			TableInfoDelta d = tidelta(tblnum);
 			assert ! info.isEmpty();
 			ti = new TableInfo(tblnum, ti.nextfield,
-					ti.nrows() + d.nrows, ti.totalsize() + d.size, toList(info));
+					ti.nrows() + d.nrows, ti.totalsize() + d.size, toList(info),
+					ti.stats);
 			dbinfo = dbinfo.with(ti);
 		} while (e != null);
 		dbinfo.freeze();
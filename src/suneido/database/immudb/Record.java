@@ -119,6 +119,19 @@ public abstract class Record
 		return len1 - len2;
 	}
 
+	/**
+	 * Unsigned compare of the packed value of field i
+	 * to the remaining bytes of value, like
+	 * {@link ByteBuffers#bufferUcompare} with getRaw(i),
+	 * but without allocating a slice.
+	 */
+	public int compareRaw(int i, ByteBuffer value) {
+		if (i >= size())
+			return -value.remaining();
+		return compare1(fieldBuffer(i), fieldOffset(i), fieldLength(i),
+				value, value.position(), value.remaining());
+	}
+
 	public Object get(int i) {
 		if (i >= size())
 			return "";
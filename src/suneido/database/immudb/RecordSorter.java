@@ -0,0 +1,629 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import suneido.util.FileUtils;
+import suneido.util.NotThreadSafe;
+
+/**
+ * Sorts key records for TempIndex within a memory budget.
+ * <p>
+ * Records are stored in large chunks in {@link KeyEncoding} form
+ * so comparisons are just unsigned byte comparisons.
+ * Chunks start small and double in size as needed.
+ * Entries are sorted by the first 8 bytes of their encoding (kept in a long[])
+ * and only compare the rest of the bytes when those are equal.
+ * So there are no per-record heap objects.
+ * <p>
+ * If the memory budget is exceeded the entries are sorted
+ * and written to a temporary file as a run, and the memory is reused.
+ * Each sorter has its own budget, but all of their chunks together
+ * are also limited to MEMORY, so concurrent sorts spill sooner.
+ * At the end the runs are merged into a single file
+ * plus a file of the offsets of the entries.
+ * These are memory mapped to allow binary search and random access,
+ * and are unmapped by close so they can be deleted.
+ * <p>
+ * Usage is: add, sort, then size, get, lowerBound, upperBound, and close.
+ */
+@NotThreadSafe
+public class RecordSorter implements AutoCloseable {
+	/**
+	 * The default budget for each sorter, and the limit for all of them.
+	 * Set by Dbpkg.setOption("tempindex_memory") in mb
+	 */
+	static long MEMORY = 64 * 1024 * 1024;
+	/** the total size of the chunks of all the sorters */
+	private static final AtomicLong allocated = new AtomicLong();
+	/** gives back the memory of sorters that are not closed */
+	private static final Cleaner cleaner = Cleaner.create();
+	private static final int MIN_CHUNK = 16 * 1024;
+	/** in memory positions are the chunk index and the offset within it */
+	private static final int CHUNK_BITS = 20;
+	private static final int MAX_CHUNK = 1 << CHUNK_BITS; // 1 mb
+	private static final long MAX_MEMORY = 1024 * 1024 * 1024;
+	/** changed by tests */
+	static int SEGMENT_SIZE = 64 * 1024 * 1024;
+	/** prefixes and positions */
+	private static final int ENTRY_OVERHEAD = Long.BYTES + Integer.BYTES;
+	private final long memory;
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+	/** the total size of chunks, charged to allocated */
+	private final Charge charge = new Charge();
+	/** the chunk and offset for the next entry */
+	private int cur = 0;
+	private int off = 0;
+	/** the size of the entries in memory */
+	private long used = 0;
+	/** the number of entries in memory */
+	private int n = 0;
+	private long[] prefixes = new long[1024];
+	private int[] positions = new int[1024];
+	private final List<TempFile> runs = new ArrayList<>();
+	private final List<Integer> runSizes = new ArrayList<>();
+	private int size = 0;
+	private boolean sorted = false;
+	/** the result of merging runs, null if it fit in memory */
+	private TempFile merged;
+	private TempFile offsets;
+
+	public RecordSorter() {
+		this(MEMORY);
+	}
+
+	RecordSorter(long memory) {
+		this.memory = Math.min(memory, MAX_MEMORY);
+		cleaner.register(this, charge);
+	}
+
+	/** Must not refer to the sorter, so it can be cleaned */
+	private static class Charge implements Runnable {
+		private final AtomicLong bytes = new AtomicLong();
+
+		void add(long n) {
+			bytes.addAndGet(n);
+		}
+
+		@Override
+		public void run() {
+			allocated.addAndGet(-bytes.getAndSet(0));
+		}
+	}
+
+	public void add(Record rec) {
+		assert ! sorted;
+		byte[] enc = KeyEncoding.encode(rec, 0);
+		int len = Integer.BYTES + enc.length;
+		if (len > MAX_CHUNK)
+			throw new RuntimeException("RecordSorter: record too large");
+		if (n > 0 && used + (long) n * ENTRY_OVERHEAD + len > memory)
+			spill();
+		room(len);
+		ByteBuffer buf = chunks.get(cur);
+		buf.putInt(off, enc.length);
+		buf.put(off + Integer.BYTES, enc);
+		if (n >= positions.length) {
+			prefixes = Arrays.copyOf(prefixes, 2 * n);
+			positions = Arrays.copyOf(positions, 2 * n);
+		}
+		prefixes[n] = prefix(enc);
+		positions[n] = (cur << CHUNK_BITS) | off;
+		++n;
+		off += len;
+		used += len;
+		++size;
+	}
+
+	/**
+	 * Make cur and off refer to room for len bytes.
+	 * Chunks are kept and reused after a spill.
+	 */
+	private void room(int len) {
+		while (cur >= chunks.size() || off + len > chunks.get(cur).capacity()) {
+			if (cur < chunks.size()) {
+				++cur; // leave the rest of this chunk unused
+				off = 0;
+			} else if (! addChunk(len, n == 0))
+				spill(); // reuse the chunks we have
+		}
+	}
+
+	/**
+	 * Chunks start at MIN_CHUNK and double up to MAX_CHUNK
+	 * so small sorts only use a small amount of memory.
+	 * @param force Whether to allocate even if all the sorters together
+	 * are over MEMORY, used when there is nothing to spill
+	 * @return false if there is no memory left
+	 */
+	private boolean addChunk(int len, boolean force) {
+		int size = chunks.isEmpty() ? MIN_CHUNK
+				: Math.min(MAX_CHUNK, 2 * chunks.get(chunks.size() - 1).capacity());
+		size = Math.max(size, len);
+		if (allocated.addAndGet(size) > MEMORY && ! force) {
+			allocated.addAndGet(-size);
+			return false;
+		}
+		assert chunks.size() < (1 << (Integer.SIZE - 1 - CHUNK_BITS));
+		chunks.add(ByteBuffer.allocate(size));
+		charge.add(size);
+		return true;
+	}
+
+	/** @return The total size of the chunks of all the sorters, for tests */
+	static long allocated() {
+		return allocated.get();
+	}
+
+	/** free the chunks and give their memory back */
+	private void releaseChunks() {
+		charge.run();
+		chunks.clear();
+	}
+
+	private ByteBuffer chunk(int p) {
+		return chunks.get(p >>> CHUNK_BITS);
+	}
+
+	private static int chunkOffset(int p) {
+		return p & (MAX_CHUNK - 1);
+	}
+
+	/** @return the first 8 bytes of the encoding, padded with zeros */
+	private static long prefix(byte[] enc) {
+		long p = 0;
+		for (int i = 0; i < Long.BYTES; ++i)
+			p = (p << 8) | (i < enc.length ? enc[i] & 0xff : 0);
+		return p;
+	}
+
+	/** sort the entries in memory and write them to a run file */
+	private void spill() {
+		sortMemory();
+		TempFile run = new TempFile();
+		for (int i = 0; i < n; ++i) {
+			ByteBuffer buf = chunk(positions[i]);
+			int off = chunkOffset(positions[i]);
+			run.append(buf, off + Integer.BYTES, buf.getInt(off));
+		}
+		run.finish();
+		runs.add(run);
+		runSizes.add(n);
+		n = 0;
+		cur = 0;
+		off = 0;
+		used = 0;
+	}
+
+	/** Must be called after adding and before accessing */
+	public void sort() {
+		assert ! sorted;
+		sorted = true;
+		if (runs.isEmpty())
+			sortMemory();
+		else {
+			if (n > 0)
+				spill();
+			merge();
+			releaseChunks();
+			prefixes = null;
+			positions = null;
+		}
+	}
+
+	// in memory sort ----------------------------------------------------------
+
+	private void sortMemory() {
+		sort(0, n - 1);
+	}
+
+	/** quick sort of the parallel prefixes and positions, hi is inclusive */
+	private void sort(int lo, int hi) {
+		while (hi - lo > 16) {
+			int p = partition(lo, hi);
+			// recurse on the smaller side to limit stack depth
+			if (p - lo < hi - p) {
+				sort(lo, p);
+				lo = p + 1;
+			} else {
+				sort(p + 1, hi);
+				hi = p;
+			}
+		}
+		for (int i = lo + 1; i <= hi; ++i) // insertion sort
+			for (int j = i; j > lo && compare(j - 1, prefixes[j], positions[j]) > 0; --j)
+				swap(j - 1, j);
+	}
+
+	/** Hoare partition around the middle element */
+	private int partition(int lo, int hi) {
+		int mid = (lo + hi) >>> 1;
+		long pivotPrefix = prefixes[mid];
+		int pivotPos = positions[mid];
+		int i = lo - 1;
+		int j = hi + 1;
+		while (true) {
+			do
+				++i;
+			while (compare(i, pivotPrefix, pivotPos) < 0);
+			do
+				--j;
+			while (compare(j, pivotPrefix, pivotPos) > 0);
+			if (i >= j)
+				return j;
+			swap(i, j);
+		}
+	}
+
+	private int compare(int i, long prefix, int p) {
+		int cmp = Long.compareUnsigned(prefixes[i], prefix);
+		if (cmp != 0)
+			return cmp;
+		// since encodings are never prefixes of each other
+		// if either is 8 bytes or less they must be equal
+		ByteBuffer xbuf = chunk(positions[i]);
+		int xoff = chunkOffset(positions[i]);
+		int xlen = xbuf.getInt(xoff);
+		ByteBuffer ybuf = chunk(p);
+		int yoff = chunkOffset(p);
+		int ylen = ybuf.getInt(yoff);
+		if (xlen <= Long.BYTES || ylen <= Long.BYTES)
+			return 0;
+		int skip = Integer.BYTES + Long.BYTES;
+		return compare(xbuf, xoff + skip, xlen - Long.BYTES,
+				ybuf, yoff + skip, ylen - Long.BYTES);
+	}
+
+	private void swap(int i, int j) {
+		long tp = prefixes[i];
+		prefixes[i] = prefixes[j];
+		prefixes[j] = tp;
+		int t = positions[i];
+		positions[i] = positions[j];
+		positions[j] = t;
+	}
+
+	/** unsigned comparison, 8 bytes at a time (buffers are big endian) */
+	private static int compare(ByteBuffer x, int xoff, int xlen,
+			ByteBuffer y, int yoff, int ylen) {
+		int n = Math.min(xlen, ylen);
+		int i = 0;
+		for (; i + Long.BYTES <= n; i += Long.BYTES) {
+			long a = x.getLong(xoff + i);
+			long b = y.getLong(yoff + i);
+			if (a != b)
+				return Long.compareUnsigned(a, b);
+		}
+		for (; i < n; ++i) {
+			int cmp = (x.get(xoff + i) & 0xff) - (y.get(yoff + i) & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		return xlen - ylen;
+	}
+
+	// merge -------------------------------------------------------------------
+
+	/** k-way merge of the runs using a binary heap */
+	private void merge() {
+		merged = new TempFile();
+		offsets = new TempFile();
+		int k = runs.size();
+		RunCursor[] cursors = new RunCursor[k];
+		int[] heap = new int[k];
+		int nheap = 0;
+		for (int r = 0; r < k; ++r) {
+			cursors[r] = new RunCursor(runs.get(r), runSizes.get(r));
+			if (cursors[r].next())
+				heap[nheap++] = r;
+		}
+		for (int i = nheap / 2 - 1; i >= 0; --i)
+			siftDown(cursors, heap, nheap, i);
+		while (nheap > 0) {
+			RunCursor c = cursors[heap[0]];
+			offsets.putLong(merged.append(c.buf, c.off, c.len));
+			if (! c.next())
+				heap[0] = heap[--nheap];
+			siftDown(cursors, heap, nheap, 0);
+		}
+		merged.finish();
+		offsets.finish();
+		for (TempFile run : runs)
+			run.close();
+		runs.clear();
+	}
+
+	private static void siftDown(RunCursor[] cursors, int[] heap, int nheap, int i) {
+		while (true) {
+			int min = i;
+			for (int child = 2 * i + 1; child <= 2 * i + 2 && child < nheap; ++child)
+				if (cursors[heap[child]].compareTo(cursors[heap[min]]) < 0)
+					min = child;
+			if (min == i)
+				return;
+			int t = heap[i];
+			heap[i] = heap[min];
+			heap[min] = t;
+			i = min;
+		}
+	}
+
+	/** Reads the entries of a run sequentially */
+	private static class RunCursor {
+		final TempFile file;
+		int remaining;
+		long next = 0;
+		/** the current entry */
+		ByteBuffer buf;
+		int off;
+		int len;
+
+		RunCursor(TempFile file, int size) {
+			this.file = file;
+			this.remaining = size;
+		}
+
+		boolean next() {
+			if (remaining == 0)
+				return false;
+			--remaining;
+			next = file.entry(next);
+			buf = file.buffer(next);
+			off = file.offset(next) + Integer.BYTES;
+			len = buf.getInt(off - Integer.BYTES);
+			next += Integer.BYTES + len;
+			return true;
+		}
+
+		int compareTo(RunCursor that) {
+			return compare(buf, off, len, that.buf, that.off, that.len);
+		}
+	}
+
+	// access ------------------------------------------------------------------
+
+	public int size() {
+		return size;
+	}
+
+	public Record get(int i) {
+		assert sorted;
+		long p = entry(i);
+		ByteBuffer buf = buffer(p);
+		int off = offset(p);
+		byte[] enc = new byte[buf.getInt(off)];
+		buf.get(off + Integer.BYTES, enc);
+		return KeyEncoding.decode(enc, enc.length);
+	}
+
+	/** @return The index of the first record >= key */
+	public int lowerBound(Record key) {
+		return bound(key, false);
+	}
+
+	/** @return The index of the first record > key */
+	public int upperBound(Record key) {
+		return bound(key, true);
+	}
+
+	private int bound(Record key, boolean upper) {
+		assert sorted;
+		ByteBuffer enc = ByteBuffer.wrap(KeyEncoding.encode(key, 0));
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			long p = entry(mid);
+			ByteBuffer buf = buffer(p);
+			int off = offset(p);
+			int cmp = compare(buf, off + Integer.BYTES, buf.getInt(off),
+					enc, 0, enc.capacity());
+			if (cmp < 0 || (upper && cmp == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** @return The position of the i'th entry in chunks or merged */
+	private long entry(int i) {
+		if (merged == null)
+			return positions[i];
+		long off = (long) i * Long.BYTES;
+		return offsets.buffer(off).getLong(offsets.offset(off));
+	}
+
+	private ByteBuffer buffer(long p) {
+		return merged == null ? chunk((int) p) : merged.buffer(p);
+	}
+
+	private int offset(long p) {
+		return merged == null ? chunkOffset((int) p) : merged.offset(p);
+	}
+
+	/** Frees the memory and deletes the temporary files, if any */
+	@Override
+	public void close() {
+		for (TempFile run : runs)
+			run.close();
+		runs.clear();
+		if (merged != null) {
+			merged.close();
+			offsets.close();
+		}
+		releaseChunks();
+	}
+
+	// temporary files ---------------------------------------------------------
+
+	/**
+	 * Written sequentially, then memory mapped in segments.
+	 * Entries are an int length followed by the bytes.
+	 * Entries do not cross segments, zero padding is skipped when reading.
+	 */
+	private static class TempFile {
+		private final File file = FileUtils.tempfile();
+		private final RandomAccessFile raf;
+		private final FileChannel fc;
+		private final ByteBuffer out = ByteBuffer.allocate(16 * 1024);
+		private long size = 0;
+		private MappedByteBuffer[] segments;
+
+		TempFile() {
+			try {
+				raf = new RandomAccessFile(file, "rw");
+				fc = raf.getChannel();
+			} catch (IOException e) {
+				throw new RuntimeException("RecordSorter can't create temp file", e);
+			}
+		}
+
+		/** @return The position of the entry */
+		long append(ByteBuffer src, int off, int len) {
+			long remaining = SEGMENT_SIZE - size % SEGMENT_SIZE;
+			if (Integer.BYTES + len > remaining)
+				for (long i = 0; i < remaining; ++i)
+					put((byte) 0);
+			long p = size;
+			putInt(len);
+			while (len > 0) {
+				if (! out.hasRemaining())
+					flush();
+				int k = Math.min(len, out.remaining());
+				out.put(out.position(), src, off, k);
+				out.position(out.position() + k);
+				off += k;
+				len -= k;
+				size += k;
+			}
+			return p;
+		}
+
+		/** @return The position of the next entry at or after p */
+		long entry(long p) {
+			long remaining = SEGMENT_SIZE - p % SEGMENT_SIZE;
+			if (remaining < Integer.BYTES || buffer(p).getInt(offset(p)) == 0)
+				p += remaining; // skip padding
+			return p;
+		}
+
+		/** Used for offsets, 8 divides the segment size so no padding */
+		void putLong(long x) {
+			if (out.remaining() < Long.BYTES)
+				flush();
+			out.putLong(x);
+			size += Long.BYTES;
+		}
+
+		private void putInt(int x) {
+			if (out.remaining() < Integer.BYTES)
+				flush();
+			out.putInt(x);
+			size += Integer.BYTES;
+		}
+
+		private void put(byte b) {
+			if (! out.hasRemaining())
+				flush();
+			out.put(b);
+			++size;
+		}
+
+		private void flush() {
+			out.flip();
+			try {
+				while (out.hasRemaining())
+					fc.write(out);
+			} catch (IOException e) {
+				throw new RuntimeException("RecordSorter write failed", e);
+			}
+			out.clear();
+		}
+
+		void finish() {
+			flush();
+			segments = new MappedByteBuffer[(int) ((size - 1) / SEGMENT_SIZE) + 1];
+		}
+
+		ByteBuffer buffer(long p) {
+			int s = (int) (p / SEGMENT_SIZE);
+			if (segments[s] == null)
+				try {
+					long start = (long) s * SEGMENT_SIZE;
+					segments[s] = fc.map(FileChannel.MapMode.READ_ONLY,
+							start, Math.min(SEGMENT_SIZE, size - start));
+				} catch (IOException e) {
+					throw new RuntimeException("RecordSorter map failed", e);
+				}
+			return segments[s];
+		}
+
+		int offset(long p) {
+			return (int) (p % SEGMENT_SIZE);
+		}
+
+		/** unmaps the segments, otherwise the delete fails on Windows */
+		void close() {
+			if (segments != null)
+				for (MappedByteBuffer seg : segments)
+					if (seg != null)
+						unmap(seg);
+			segments = null;
+			try {
+				raf.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			if (! file.delete())
+				file.deleteOnExit();
+		}
+	}
+
+	/** Unsafe.invokeCleaner, or null if it is not available */
+	private static final MethodHandle invokeCleaner = invokeCleaner();
+
+	private static MethodHandle invokeCleaner() {
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(c, "invokeCleaner",
+					MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(f.get(null));
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Mapped buffers are normally only unmapped by the garbage collector.
+	 * The buffer must not be used afterwards.
+	 */
+	private static void unmap(MappedByteBuffer buf) {
+		if (invokeCleaner != null)
+			try {
+				invokeCleaner.invokeExact((ByteBuffer) buf);
+			} catch (Throwable e) {
+				// leave it to the garbage collector
+			}
+	}
+
+}
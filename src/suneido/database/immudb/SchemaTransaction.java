@@ -65,6 +65,19 @@ class SchemaTransaction extends UpdateTransaction {
 				? new Btree(tran) : super.getLatestIndex(index);
 	}
 
+	/** Views are not part of the schema, so this covers them */
+	@Override
+	protected void commit() {
+		super.commit();
+		db.schemaChanged();
+	}
+
+	/** schema changes are rare, they always commit on their own */
+	@Override
+	protected boolean groupCommit() {
+		return false;
+	}
+
 	@Override
 	protected char tranType() {
 		return 's';
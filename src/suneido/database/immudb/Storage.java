@@ -9,6 +9,8 @@ import java.util.Arrays;
 
 import com.google.common.primitives.UnsignedInts;
 
+import suneido.SuException;
+
 // TODO eliminate +1 on addresses
 // since reserving the first unit of storage prevents a zero address
 // BUT this will change the database i.e. require a version increment
@@ -17,7 +19,7 @@ import com.google.common.primitives.UnsignedInts;
  * Chunked storage access. Abstract base class for MemStorage and MmapFile.
  * <ul>
  * <li>derived classes must set storSize
- * <li>data is aligned to multiples of ALIGN (8)
+ * <li>data is aligned to multiples of ALIGN (8 by default)
  * <li>maximum allocation is CHUNK_SIZE
  * <li>allocations can't straddle chunks and will be bumped to next chunk
  * <li>long offsets are divided by ALIGN and passed as int "addresses" (adr),
@@ -26,8 +28,15 @@ import com.google.common.primitives.UnsignedInts;
  *		WARNING: must use Integer.compareUnsigned, NOT < or >
  * 		To keep 0 as a special value, addresses start at 1.
  * 		See offsetToAdr and adrToOffset.
- * <li>therefore maximum file size is unsigned int max * ALIGN (32gb)
+ * <li>addresses must not overlap {@link IntRefs}
+ * <li>therefore maximum file size is just under 4g * ALIGN
+ * 		i.e. 32gb with the default 8 byte alignment.
+ * 		Larger alignments (see MmapFile VERSION 4) allow larger files
+ * 		at the cost of more padding.
  * <li>blocks should not start with (long) 0 since that is used to detect padding
+ * <li>the tail of a block (e.g. commit checksum and size) goes at the
+ * 		<u>end</u> of its allocation so it can be found from the end of the block
+ * 		regardless of the alignment. See allocTail and tailBuffer.
  * </ul>
  * WARNING: Operations are <b>not</b> synchronized.
  * In particular, access to the chunks array is <b>not</b> thread safe.
@@ -45,22 +54,35 @@ import com.google.common.primitives.UnsignedInts;
 abstract class Storage implements AutoCloseable {
 	protected final static int FIRST_ADR = 2;
 	protected final static int MAX_ADR = 0xffffffff;
-	protected static final int SHIFT = 3; // i.e. 8 byte alignment
-	private static final long MAX_SIZE = 0xffffffffL << SHIFT;
-	static final int ALIGN = (1 << SHIFT); // must be power of 2
-	protected static final int MASK = ALIGN - 1;
+	static final int DEFAULT_SHIFT = 3; // i.e. 8 byte alignment
+	final int SHIFT;
+	final int ALIGN; // must be power of 2
+	protected final int MASK;
+	/** addresses must stay below the IntRefs range */
+	private final long MAX_SIZE;
 	final int CHUNK_SIZE;
 	/** INIT_CHUNKS should be the max for database chunk size & align
 	 * i.e. unsigned int max * align / chunk size
 	 * so that chunks never grow, to avoid concurrency issues.
 	 * Ok to grow for temp index storage since it's not concurrent */
-	protected final int INIT_CHUNKS = 512;
-	protected ByteBuffer[] chunks = new ByteBuffer[INIT_CHUNKS];
-	protected long storSize = ALIGN; // one unit reserved
+	protected final int INIT_CHUNKS;
+	protected ByteBuffer[] chunks;
+	protected long storSize;
 	private long protect = 0;
 
 	Storage(int chunkSize) {
+		this(chunkSize, DEFAULT_SHIFT);
+	}
+
+	Storage(int chunkSize, int shift) {
+		SHIFT = shift;
+		ALIGN = 1 << SHIFT;
+		MASK = ALIGN - 1;
+		MAX_SIZE = (UnsignedInts.toLong(IntRefs.MASK) - 1) << SHIFT;
 		CHUNK_SIZE = align(chunkSize);
+		INIT_CHUNKS = 512 << (SHIFT - DEFAULT_SHIFT);
+		chunks = new ByteBuffer[INIT_CHUNKS];
+		storSize = ALIGN; // one unit reserved
 	}
 
 	/**
@@ -79,6 +101,9 @@ abstract class Storage implements AutoCloseable {
 		int remaining = CHUNK_SIZE - (int) (storSize % CHUNK_SIZE);
 		if (n > remaining)
 			storSize += remaining;
+		if (storSize + n > MAX_SIZE)
+			throw new SuException("database file size limit exceeded (" +
+					(MAX_SIZE >>> 30) + "gb)");
 		int chunk = offsetToChunk(storSize);
 		if (chunk >= chunks.length)
 			growChunks(chunk);
@@ -89,12 +114,45 @@ abstract class Storage implements AutoCloseable {
 		return offsetToAdr(offset);
 	}
 
-	static int align(int n) {
+	/**
+	 * A synchronized alloc for several threads allocating at once,
+	 * i.e. the concurrent {@link BtreeBuilder}s in {@link DbLoadParallel}.
+	 * Only safe while no other thread uses the plain alloc.
+	 * The allocating thread sees the chunk it was given
+	 * since it either mapped it or acquired this lock after it was mapped.
+	 */
+	synchronized int allocShared(int n) {
+		return alloc(n);
+	}
+
+	/**
+	 * Allocate a block whose data goes at the end of the allocation,
+	 * i.e. after any alignment padding.
+	 * Used for the tails of commits and persists.
+	 * @return A buffer positioned at the start of the n bytes
+	 * @see tailBuffer
+	 */
+	ByteBuffer allocTail(int n) {
+		ByteBuffer buf = buffer(alloc(n));
+		buf.position(align(n) - n);
+		return buf;
+	}
+
+	/**
+	 * @return A buffer for the last n bytes
+	 * of the block starting at adr with the given size
+	 * @see allocTail
+	 */
+	ByteBuffer tailBuffer(int adr, long size, int n) {
+		return buf(adrToOffset(adr) + size - n);
+	}
+
+	int align(int n) {
 		// requires ALIGN to be power of 2
 		return ((n - 1) | (ALIGN - 1)) + 1;
 	}
 
-	static long align(long n) {
+	long align(long n) {
 		// requires ALIGN to be power of 2
 		return ((n - 1) | (ALIGN - 1)) + 1;
 	}
@@ -183,13 +241,13 @@ abstract class Storage implements AutoCloseable {
 
 	protected abstract ByteBuffer get(int chunk);
 
-	static int offsetToAdr(long n) {
+	int offsetToAdr(long n) {
 		assert (n & MASK) == 0;
 		assert n <= MAX_SIZE;
 		return (int) (n >>> SHIFT) + 1; // +1 to avoid 0
 	}
 
-	static long adrToOffset(int adr) {
+	long adrToOffset(int adr) {
 		assert adr != 0;
 		return UnsignedInts.toLong(adr - 1) << SHIFT;
 	}
@@ -197,11 +255,11 @@ abstract class Storage implements AutoCloseable {
 	/**
 	 * Convert a long size up to unsigned int max.
 	 * Throw if out of range.
-	 * NOTE: this approach only handles sizes up to 4gb.
+	 * NOTE: this approach only handles sizes up to 4g * ALIGN.
 	 * This is a problem if a table or index > 4gb
 	 * because load puts entire table / index into one commit.
 	 */
-	static int sizeToInt(long size) {
+	int sizeToInt(long size) {
 		assert (size & MASK) == 0;
 		size = size >>> SHIFT;
 		assert size < 0x100000000L; // unsigned int max
@@ -209,7 +267,7 @@ abstract class Storage implements AutoCloseable {
 	}
 
 	/** convert an unsigned int to a long size */
-	static long intToSize(int size) {
+	long intToSize(int size) {
 		return UnsignedInts.toLong(size) << SHIFT;
 	}
 
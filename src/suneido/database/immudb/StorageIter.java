@@ -36,16 +36,32 @@ class StorageIter {
 	private boolean verifyChecksums = true;
 	private boolean checkType = false; // only applies to data not index file
 	private int upTo = Storage.MAX_ADR;
+	/** checksums before this address have already been verified */
+	private int verifiedTo = 0;
 
 	StorageIter(Storage stor) {
 		this(stor, Storage.FIRST_ADR);
 	}
 
 	StorageIter(Storage stor, int adr) {
+		this(stor, adr, 0);
+	}
+
+	/**
+	 * Used by {@link Check} fullcheck after {@link ParallelChecksum}
+	 * has verified the checksums before verifiedTo
+	 */
+	StorageIter(Storage stor, int adr, int verifiedTo) {
 		this.stor = stor;
+		this.verifiedTo = verifiedTo;
 		seek(adr);
 	}
 
+	/** Used by {@link ParallelChecksum}, does not verify any checksums */
+	static StorageIter withoutChecksums(Storage stor, int adr) {
+		return new StorageIter(stor, adr, Storage.MAX_ADR);
+	}
+
 	/** used by dump */
 	// NOTE: first block must have checksum to get past seek in constructor
 	StorageIter dontChecksum() {
@@ -68,31 +84,30 @@ class StorageIter {
 		if (eof())
 			return ;
 		ByteBuffer buf = stor.buffer(adr);
-		if (buf.remaining() < Storage.ALIGN) {
+		if (buf.remaining() < Tran.HEAD_SIZE) {
 			status = Status.FILE_TRUNCATED;
 			return;
 		}
-		size = Storage.intToSize(buf.getInt());
+		size = stor.intToSize(buf.getInt());
 		if (size < MIN_SIZE) {
 			status = Status.BAD_SIZE;
 			return;
 		}
 		date = buf.getInt();
-		int end = stor.advance(adr, size - Tran.TAIL_SIZE);
-		if (! stor.isValidAdr(end)) {
+		if (size > stor.sizeFrom(adr)) {
 			status = Status.BAD_SIZE;
 			return;
 		}
-		ByteBuffer endbuf = stor.buffer(end);
+		ByteBuffer endbuf = stor.tailBuffer(adr, size, Tran.TAIL_SIZE);
 		cksum = endbuf.getInt();
-		long endsize = Storage.intToSize(endbuf.getInt());
+		long endsize = stor.intToSize(endbuf.getInt());
 		if (endsize != size) {
 			status = Status.SIZE_MISMATCH;
 			return;
 		}
 		if (date == 0) // aborted commit
 			return;
-		if (verifyChecksums && ! verifyChecksum()) {
+		if (verifyChecksums && ! verified() && ! verifyChecksum()) {
 			status = Status.CHECKSUM_FAIL;
 			return;
 		}
@@ -136,7 +151,7 @@ class StorageIter {
 
 	/** size of file up to and including the current commit/persist */
 	long sizeInc() {
-		return Storage.adrToOffset(adr) + size;
+		return stor.adrToOffset(adr) + size;
 	}
 
 	/** @return null for aborted commit */
@@ -152,6 +167,10 @@ class StorageIter {
 		return cksum;
 	}
 
+	private boolean verified() {
+		return Integer.compareUnsigned(adr, verifiedTo) < 0;
+	}
+
 	// depends on buf.remaining() going to end of storage chunk
 	public boolean verifyChecksum() {
 		Checksum cs = new Checksum();
@@ -9,7 +9,7 @@ package suneido.database.immudb;
  * @see StorageIter
  */
 public class StorageIterReverse {
-	private static long MIN_SIZE;
+	private final long MIN_SIZE;
 	private final Storage stor;
 	private final long fileSize;
 	private long rpos = 0; // <= 0
@@ -17,7 +17,7 @@ public class StorageIterReverse {
 	StorageIterReverse(Storage stor) {
 		this.stor = stor;
 		fileSize = stor.sizeFrom(0);
-		MIN_SIZE = Storage.adrToOffset(Storage.FIRST_ADR) + Tran.HEAD_SIZE + Tran.TAIL_SIZE;
+		MIN_SIZE = stor.adrToOffset(Storage.FIRST_ADR) + Tran.HEAD_SIZE + Tran.TAIL_SIZE;
 	}
 
 	boolean hasPrev() {
@@ -28,7 +28,7 @@ public class StorageIterReverse {
 		// skip zero end of chunk padding
 		long size;
 		while (true) {
-			size = Storage.intToSize(stor.rbuffer(rpos - Integer.BYTES).getInt());
+			size = stor.intToSize(stor.rbuffer(rpos - Integer.BYTES).getInt());
 			if (size != 0)
 				break;
 			rpos -= Integer.BYTES;
@@ -39,7 +39,7 @@ public class StorageIterReverse {
 		return stor.rposToAdr(rpos);
 	}
 
-	private static boolean isValidSize(Storage stor, long pos, long size) {
+	private boolean isValidSize(Storage stor, long pos, long size) {
 		return MIN_SIZE <= size && stor.isValidPos(pos - size);
 	}
 
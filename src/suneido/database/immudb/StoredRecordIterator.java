@@ -40,12 +40,12 @@ class StoredRecordIterator extends UnmodifiableIterator<Record> {
 		return r;
 	}
 
-	// assumes ALIGN = long (8)
-	private static int skipPadding(ByteBuffer buf, int len) {
-		len = Storage.align(len);
+	// assumes ALIGN is a multiple of long (8)
+	private int skipPadding(ByteBuffer buf, int len) {
+		len = stor.align(len);
 		int limit = buf.limit();
 		while (len < limit && buf.getLong(len) == 0)
-			len += Storage.ALIGN;
+			len += stor.ALIGN;
 		return len;
 	}
 
@@ -363,8 +363,8 @@ public class TableBuilder {
 		}
 		int nrows = (ti == null) ? 0 : ti.nrows();
 		long totalsize = (ti == null) ? 0 : ti.totalsize();
-		t.addTableInfo(
-				new TableInfo(tblnum, nextField, nrows, totalsize, ii.build()));
+		t.addTableInfo(new TableInfo(tblnum, nextField, nrows, totalsize,
+				ii.build(), (ti == null) ? ImmutableList.of() : ti.stats));
 	}
 
 	private void verify(boolean cond, String msg) {
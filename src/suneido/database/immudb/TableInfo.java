@@ -4,6 +4,7 @@
 
 package suneido.database.immudb;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.google.common.base.MoreObjects;
@@ -25,6 +26,7 @@ import suneido.database.immudb.Bootstrap.TN;
  * <p>
  * Index info is stored one after another following the table info
  * in the same record.
+ * If there are {@link IndexStats} they are stored in one final field.
  */
 class TableInfo extends DbHashTrie.Entry {
 	private int adr;
@@ -33,15 +35,23 @@ class TableInfo extends DbHashTrie.Entry {
 	private int nrows;
 	private long totalsize;
 	final ImmutableList<IndexInfo> indexInfo;
+	/** set by {@link Database#analyze} */
+	final ImmutableList<IndexStats> stats;
 
 	TableInfo(int tblnum, int nextfield, int nrows, long totalsize,
 			ImmutableList<IndexInfo> indexInfo) {
+		this(tblnum, nextfield, nrows, totalsize, indexInfo, ImmutableList.of());
+	}
+
+	TableInfo(int tblnum, int nextfield, int nrows, long totalsize,
+			ImmutableList<IndexInfo> indexInfo, ImmutableList<IndexStats> stats) {
 		adr = 0;
 		this.tblnum = tblnum;
 		this.nextfield = nextfield;
 		this.nrows = nrows;
 		this.totalsize = totalsize;
 		this.indexInfo = indexInfo;
+		this.stats = stats;
 	}
 
 	TableInfo(Record rec, int adr) {
@@ -52,13 +62,24 @@ class TableInfo extends DbHashTrie.Entry {
 		nrows = rec.getInt(i++);
 		totalsize = rec.getLong(i++);
 		ImmutableList.Builder<IndexInfo> list = ImmutableList.builder();
-		for (; i < rec.size(); i += IndexInfo.NFIELDS)
+		for (; i + IndexInfo.NFIELDS <= rec.size(); i += IndexInfo.NFIELDS)
 			list.add(new IndexInfo(rec, i));
 		indexInfo = list.build();
+		ImmutableList.Builder<IndexStats> sl = ImmutableList.builder();
+		if (i < rec.size())
+			for (ByteBuffer buf : Record.from(rec.getRaw(i)))
+				sl.add(IndexStats.fromRecord(Record.from(buf)));
+		stats = sl.build();
 	}
 
 	TableInfo(TableInfo ti, ImmutableList<IndexInfo> indexInfo) {
-		this(ti.tblnum, ti.nextfield, ti.nrows, ti.totalsize, indexInfo);
+		this(ti.tblnum, ti.nextfield, ti.nrows, ti.totalsize, indexInfo,
+				ti.stats);
+	}
+
+	TableInfo withStats(ImmutableList<IndexStats> stats) {
+		return new TableInfo(tblnum, nextfield, nrows, totalsize, indexInfo,
+				stats);
 	}
 
 	/** When a table is dropped, its table info is replaced by an empty entry */
@@ -91,7 +112,7 @@ class TableInfo extends DbHashTrie.Entry {
 	TableInfo with(int nr, int size) {
 		if (stored())
 			return new TableInfo(tblnum,
-					nextfield, nrows + nr, totalsize + size, indexInfo);
+					nextfield, nrows + nr, totalsize + size, indexInfo, stats);
 		else {
 			nrows += nr;
 			totalsize += size;
@@ -106,6 +127,12 @@ class TableInfo extends DbHashTrie.Entry {
 			rb.add(tblnum).add(nextfield).add(nrows).add(totalsize);
 			for (IndexInfo info : indexInfo)
 				info.addToRecord(rb);
+			if (! stats.isEmpty()) {
+				RecordBuilder sb = new RecordBuilder();
+				for (IndexStats is : stats)
+					sb.add(is.toRecord().getBuffer());
+				rb.add(sb.build().getBuffer());
+			}
 			DataRecord r = rb.build();
 			r.tblnum(TN.TABLES);
 			adr = r.store(stor);
@@ -120,6 +147,13 @@ class TableInfo extends DbHashTrie.Entry {
 		return null;
 	}
 
+	IndexStats getStats(int[] indexColumns) {
+		for (IndexStats is : stats)
+			if (Arrays.equals(is.columns, indexColumns))
+				return is;
+		return null;
+	}
+
 	void check() {
 		for (IndexInfo ii : indexInfo)
 			ii.check();
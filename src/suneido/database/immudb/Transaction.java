@@ -4,6 +4,8 @@
 
 package suneido.database.immudb;
 
+import java.util.List;
+
 public abstract class Transaction {
 
 	public abstract boolean isReadonly();
@@ -29,6 +31,8 @@ public abstract class Transaction {
 	public abstract int indexSize(int tblnum, String columns);
 	public abstract int keySize(int tblnum, String columns);
 	public abstract float rangefrac(int tblnum, String columns, Record from, Record to);
+	/** @return The statistics from analyze, or null if none or out of date */
+	public abstract IndexStats indexStats(int tblnum, String columns);
 
 	public abstract void abortIfNotComplete();
 
@@ -41,6 +45,9 @@ public abstract class Transaction {
 
 	public abstract String getView(String viewname);
 
+	/** @return The database's current {@link Database#schemaVersion} */
+	public abstract int schemaVersion();
+
 	public abstract void addRecord(String table, Record r);
 
 	public enum Blocking { BLOCK, NO_BLOCK }
@@ -75,6 +82,18 @@ public abstract class Transaction {
 	public abstract IndexIter iter(int tblnum, String columns, Record org, Record end);
 	public abstract IndexIter iter(int tblnum, String columns, IndexIter iter);
 
+	/**
+	 * Splits an index into up to n ranges for parallel queries.
+	 * The iterators can be used by different threads.
+	 * The default is a single range,
+	 * overridden by {@link ReadTransaction} for read-only transactions.
+	 *
+	 * @return Iterators over consecutive ranges, in order
+	 */
+	public List<IndexIter> iters(int tblnum, String columns, int n) {
+		return List.of(iter(tblnum, columns));
+	}
+
 	public abstract boolean isAborted();
 
 	public int readCount() {
@@ -34,11 +34,19 @@ class Transactions {
 	/** committed update transactions that overlap active transactions */
 	private final TreeSet<UpdateTransaction> overlapping =
 			new TreeSet<>(UpdateTransaction.byCommit);
+	/** actions waiting for transactions to finish, see whenDone */
+	private final Map<Runnable, Set<Transaction>> waiting = new HashMap<>();
+	/** actions whose transactions have finished, run outside synchronized */
+	private final List<Runnable> ready = new ArrayList<>();
 	private static final long FUTURE = Long.MAX_VALUE;
 	private static final int MAX_ACTIVE = 200;
 	private static final int MAX_OVERLAPPING = 200;
 	static int MAX_UPDATE_TRAN_DURATION_SEC = 10;
 	private volatile boolean exclusive = false;
+	/** set by drainUpdates to hold back new update transactions */
+	private boolean draining = false;
+	/** update transactions being constructed, see startUpdate */
+	private int starting = 0;
 	private volatile boolean locked = false;
 
 	long clock() {
@@ -61,6 +69,59 @@ class Transactions {
 		assert overlapping.isEmpty() : "overlapping " + overlapping;
 	}
 
+	/**
+	 * Called by Database before constructing an update transaction,
+	 * since its state must not be read until any switch has finished.
+	 * Waits while drainUpdates is in effect.
+	 * Must be followed by endStartUpdate.
+	 */
+	synchronized void startUpdate() {
+		boolean interrupted = false;
+		while (draining)
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		++starting;
+	}
+
+	synchronized void endStartUpdate() {
+		--starting;
+		if (draining)
+			notifyAll();
+	}
+
+	/**
+	 * Used by {@link DbCompact} online compact before it switches storage.
+	 * Holds back new update transactions and waits for the active ones
+	 * to commit or abort. Must be followed by endDrain.
+	 * @return false if they did not all finish within timeoutMs
+	 */
+	synchronized boolean drainUpdates(long timeoutMs) {
+		draining = true;
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		while (starting > 0 || ! utrans.isEmpty()) {
+			long ms = deadline - System.currentTimeMillis();
+			if (ms <= 0)
+				return false;
+			try {
+				wait(ms);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	synchronized void endDrain() {
+		draining = false;
+		notifyAll();
+	}
+
 	synchronized void addReadTran(ReadTransaction t) {
 		if (trans.size() >= MAX_ACTIVE)
 			throw new SuException("too many active transactions");
@@ -69,26 +130,38 @@ class Transactions {
 
 	// addUpdateTran is called by UpdateTransaction.
 	// At this point the transaction has already been added to trans.
-	synchronized void addUpdateTran(UpdateTransaction t) {
-		if (exclusive) {
-			abortReadonly(t);
-			throw new SuException("blocked by exclusive transaction");
-		}
-		if (trans.size() >= MAX_ACTIVE) {
-			abortReadonly(t);
-			throw new SuException("too many active transactions");
+	void addUpdateTran(UpdateTransaction t) {
+		try {
+			synchronized (this) {
+				if (exclusive) {
+					abortReadonly(t);
+					throw new SuException("blocked by exclusive transaction");
+				}
+				if (trans.size() >= MAX_ACTIVE) {
+					abortReadonly(t);
+					throw new SuException("too many active transactions");
+				}
+				utrans.add(t);
+			}
+		} finally {
+			runReady();
 		}
-		utrans.add(t);
 	}
 
-	synchronized void setExclusive(Transaction t) {
-		if ((t instanceof BulkTransaction)
-				? ! utrans.isEmpty()
-				: utrans.size() != 1 || utrans.first() != t) {
-			abortReadonly(t);
-			throw new SuException("can't make transaction exclusive");
+	void setExclusive(Transaction t) {
+		try {
+			synchronized (this) {
+				if ((t instanceof BulkTransaction)
+						? ! utrans.isEmpty()
+						: utrans.size() != 1 || utrans.first() != t) {
+					abortReadonly(t);
+					throw new SuException("can't make transaction exclusive");
+				}
+				exclusive = true;
+			}
+		} finally {
+			runReady();
 		}
-		exclusive = true;
 	}
 
 	/**
@@ -111,33 +184,83 @@ class Transactions {
 		return ImmutableSet.copyOf(overlapping.tailSet(t, inclusive));
 	}
 
-	synchronized void commit(Transaction t) {
-		if (t instanceof ReadWriteTransaction)
-			exclusive = false;
-		Errlog.verify(trans.remove(t),
-				"Transactions.commit missing from trans");
-		if (t instanceof UpdateTransaction) {
-			Errlog.verify(utrans.remove(t),
-					"Transactions.commit missing from utrans");
-			cleanOverlapping();
-			if (! utrans.isEmpty())
-				overlapping.add((UpdateTransaction) t);
+	void commit(Transaction t) {
+		synchronized (this) {
+			if (t instanceof ReadWriteTransaction)
+				exclusive = false;
+			remove(t, "Transactions.commit missing from trans");
+			if (t instanceof UpdateTransaction) {
+				Errlog.verify(utrans.remove(t),
+						"Transactions.commit missing from utrans");
+				cleanOverlapping();
+				if (! utrans.isEmpty())
+					overlapping.add((UpdateTransaction) t);
+				if (draining)
+					notifyAll();
+			}
+		}
+		runReady();
+	}
+
+	void abort(Transaction t) {
+		synchronized (this) {
+			if (t instanceof ReadWriteTransaction)
+				exclusive = false;
+			abortReadonly(t);
+			if (t instanceof UpdateTransaction) {
+				Errlog.verify(utrans.remove(t),
+						"Transactions.abort missing from utrans");
+				cleanOverlapping();
+				if (draining)
+					notifyAll();
+			}
+		}
+		runReady();
+	}
+
+	private void abortReadonly(Transaction t) {
+		remove(t, "Transactions.abort missing from trans");
+	}
+
+	/** must be called while synchronized, followed by runReady */
+	private void remove(Transaction t, String msg) {
+		Errlog.verify(trans.remove(t), msg);
+		Iterator<Map.Entry<Runnable, Set<Transaction>>> iter =
+				waiting.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<Runnable, Set<Transaction>> e = iter.next();
+			if (e.getValue().remove(t) && e.getValue().isEmpty()) {
+				ready.add(e.getKey());
+				iter.remove();
+			}
 		}
 	}
 
-	synchronized void abort(Transaction t) {
-		if (t instanceof ReadWriteTransaction)
-			exclusive = false;
-		abortReadonly(t);
-		if (t instanceof UpdateTransaction) {
-			Errlog.verify(utrans.remove(t),
-					"Transactions.abort missing from utrans");
-			cleanOverlapping();
+	/**
+	 * Run action once all the currently active transactions have finished.
+	 * Used by {@link Database#switchTo} to close the old storage.
+	 */
+	void whenDone(Runnable action) {
+		synchronized (this) {
+			if (! trans.isEmpty()) {
+				waiting.put(action, new HashSet<>(trans));
+				return;
+			}
 		}
+		action.run();
 	}
 
-	void abortReadonly(Transaction t) {
-		Errlog.verify(trans.remove(t), "Transactions.abort missing from trans");
+	/** run actions from whenDone outside synchronized */
+	private void runReady() {
+		List<Runnable> actions;
+		synchronized (this) {
+			if (ready.isEmpty())
+				return;
+			actions = new ArrayList<>(ready);
+			ready.clear();
+		}
+		for (Runnable action : actions)
+			action.run();
 	}
 
 	/**
@@ -209,6 +332,10 @@ class Transactions {
 		locked = true;
 	}
 
+	boolean isExclusive() {
+		return exclusive;
+	}
+
 	synchronized boolean isLocked() {
 		return locked;
 	}
@@ -46,6 +46,8 @@ class UpdateTransaction extends ReadWriteTransaction {
 	/** needs to be ordered tree for ReadWriteTransaction updateDbInfo */
 	protected final TreeMap<Index,TranIndex> updatedIndexes = Maps.newTreeMap();
 	private final TIntArrayList actions = new TIntArrayList();
+	/** the latest dbinfo at commit, set while holding the commit lock */
+	private DbHashTrie latest;
 	private int writeCount = 0;
 	static int MAX_WRITES_PER_TRANSACTION = 10000;
 	protected static final short UPDATE = (short) 0;
@@ -222,8 +224,16 @@ class UpdateTransaction extends ReadWriteTransaction {
 		StepTimer st = new StepTimer("transaction commit", COMMIT_LIMIT);
 		buildReads();
 		st.step();
+		if (groupCommit()) {
+			db.groupCommit.commit(this);
+			st.finish();
+			return;
+		}
 		db.withCommitLock(() -> {
 			st.step();
+			latest = db.state.dbinfo;
+			if (db.state.dstor != tran.dstor)
+				throw new Conflict("database compacted");
 			if (db.state.schema != dbstate.schema)
 				throw new Conflict("schema changed");
 			checkForConflicts();
@@ -245,6 +255,50 @@ class UpdateTransaction extends ReadWriteTransaction {
 		st.finish();
 	}
 
+	/** overridden by SchemaTransaction */
+	protected boolean groupCommit() {
+		return GroupCommit.ENABLED;
+	}
+
+	/**
+	 * Used by {@link GroupCommit}, called by the thread leading the batch
+	 * while it holds the commit lock.
+	 * Like commit, except that it does not update Database.state
+	 * and it also checks for conflicts with the earlier transactions
+	 * in the same batch, since they are not yet in Transactions overlapping.
+	 * @param latest The dbinfo as updated by the earlier transactions in the batch
+	 * @return The checksum and address of this transaction's commit
+	 */
+	Tran.StoreInfo storeGrouped(DbHashTrie latest,
+			List<UpdateTransaction> batch) {
+		this.latest = latest;
+		if (db.state.dstor != tran.dstor)
+			throw new Conflict("database compacted");
+		if (db.state.schema != dbstate.schema)
+			throw new Conflict("schema changed");
+		checkForConflicts();
+		checkForConflicts(batch);
+		tran.startStore(); // everything after this must be in try block
+		try {
+			storeData();
+			updateBtrees();
+			updateDbInfo();
+			return tran.endStore();
+		} catch (Throwable e) {
+			tran.abortIncompleteStore();
+			throw e;
+		}
+	}
+
+	/**
+	 * Used by {@link GroupCommit} after Database.state has been updated
+	 * for the whole batch. Equivalent to the end of finish.
+	 */
+	void committedGrouped() {
+		commitTime = trans.clock();
+		trans.commit(this);
+	}
+
 	private void checkLimits() {
 		if (writeCount > MAX_WRITES_PER_TRANSACTION/2)
 			Errlog.warn("excessive writes (" + writeCount +
@@ -264,8 +318,11 @@ class UpdateTransaction extends ReadWriteTransaction {
 	}
 
 	protected void checkForConflicts() {
+		checkForConflicts(trans.getOverlapping(asof));
+	}
+
+	private void checkForConflicts(Collection<UpdateTransaction> overlapping) {
 		// for each overlapping transaction
-		Set<UpdateTransaction> overlapping = trans.getOverlapping(asof);
 		for (UpdateTransaction t : overlapping) {
 			assert t != this;
 			TIntIterator iter = t.deletes.iterator();
@@ -449,7 +506,7 @@ class UpdateTransaction extends ReadWriteTransaction {
 
 	/** overridden by SchemaTransaction */
 	protected Btree getLatestIndex(Index index) {
-		TableInfo ti = (TableInfo) db.state.dbinfo.get(index.tblnum);
+		TableInfo ti = (TableInfo) latest.get(index.tblnum);
 		IndexInfo ii = ti.getIndex(index.colNums);
 		return new Btree(tran, ii);
 	}
@@ -466,7 +523,7 @@ class UpdateTransaction extends ReadWriteTransaction {
 
 	/** overridden by SchemaTransaction */
 	protected void updateDbInfo() {
-		dbinfo = db.state.dbinfo; // the latest
+		dbinfo = latest;
 		updateDbInfo(updatedIndexes);
 		assert schema == db.state.schema;
 	}
@@ -4,10 +4,15 @@
 
 package suneido.database.query;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import suneido.SuException;
 import suneido.compiler.Lexer;
 import suneido.compiler.ParseExpression;
 import suneido.database.immudb.Transaction;
 import suneido.database.query.expr.Expr;
+import suneido.database.query.expr.Param;
 import suneido.database.server.ServerData;
 import suneido.database.immudb.Database;
 
@@ -43,9 +48,19 @@ public class CompileQuery {
 	}
 
 	public static Query parse(Transaction tran, ServerData serverData, String s) {
+		List<Param> params = new ArrayList<>();
+		Query q = parse(tran, serverData, s, params);
+		if (! params.isEmpty())
+			throw new SuException("query parameters (?) require a prepared query");
+		return q;
+	}
+
+	/** Used by {@link PreparedQuery}, params receives the ? parameters */
+	static Query parse(Transaction tran, ServerData serverData, String s,
+			List<Param> params) {
 		Lexer lexer = new Lexer(s);
 		lexer.ignoreCase();
-		TreeQueryGenerator generator = new TreeQueryGenerator(tran);
+		TreeQueryGenerator generator = new TreeQueryGenerator(tran, params);
 		ParseQuery<Object, QueryGenerator<Object>> pc =
 				new ParseQuery<>(lexer, generator);
 		pc.serverData(serverData);
@@ -0,0 +1,107 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import suneido.database.query.Query.Dir;
+
+/**
+ * Used by {@link Query#explain}.
+ * Runs a query and shows the estimated number of rows for each node
+ * along with the actual number of rows read from it,
+ * to see where the optimizer's estimates are wrong.
+ * <p>
+ * Each source is temporarily wrapped in a {@link Counter}.
+ * Since it reads the entire query it is only intended for diagnostics.
+ */
+class Explain {
+
+	static String explain(Query q) {
+		wrap(q);
+		Map<Query, Long> counts = new IdentityHashMap<>();
+		long n = 0;
+		try {
+			q.rewind();
+			while (q.get(Dir.NEXT) != null)
+				++n;
+			q.rewind();
+		} finally {
+			unwrap(q, counts);
+		}
+		counts.put(q, n);
+		StringBuilder sb = new StringBuilder(q.strategy()).append("\n");
+		tree(sb, q, counts, "");
+		return sb.toString();
+	}
+
+	private static void wrap(Query q) {
+		if (q instanceof Query1 q1) {
+			wrap(q1.source);
+			q1.source = new Counter(q1.source);
+		}
+		if (q instanceof Query2 q2) {
+			wrap(q2.source2);
+			q2.source2 = new Counter(q2.source2);
+		}
+	}
+
+	/** Removes the counters, saving their counts */
+	private static void unwrap(Query q, Map<Query, Long> counts) {
+		if (q instanceof Query1 q1 && q1.source instanceof Counter c) {
+			q1.source = c.source;
+			counts.put(c.source, c.n);
+			unwrap(c.source, counts);
+		}
+		if (q instanceof Query2 q2 && q2.source2 instanceof Counter c) {
+			q2.source2 = c.source;
+			counts.put(c.source, c.n);
+			unwrap(c.source, counts);
+		}
+	}
+
+	private static void tree(StringBuilder sb, Query q, Map<Query, Long> counts,
+			String indent) {
+		sb.append(indent)
+				.append(q instanceof Query1 ? q.getClass().getSimpleName() : q)
+				.append(" nrecs~ ").append(Math.round(q.nrecords()))
+				.append(" rows ").append(counts.get(q)).append("\n");
+		indent += "    ";
+		if (q instanceof Query1 q1)
+			tree(sb, q1.source, counts, indent);
+		if (q instanceof Query2 q2)
+			tree(sb, q2.source2, counts, indent);
+	}
+
+	/** Counts the rows read through it */
+	private static class Counter extends Query1 {
+		long n = 0;
+
+		Counter(Query source) {
+			super(source);
+		}
+
+		@Override
+		public Row get(Dir dir) {
+			Row row = source.get(dir);
+			if (row != null)
+				++n;
+			return row;
+		}
+
+		@Override
+		public List<String> ordering() {
+			return source.ordering();
+		}
+
+		@Override
+		public String toString() {
+			return source.toString();
+		}
+	}
+
+}
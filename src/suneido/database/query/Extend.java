@@ -18,6 +18,7 @@ import com.google.common.collect.Sets;
 import suneido.SuException;
 import suneido.database.immudb.Dbpkg;
 import suneido.database.immudb.RecordBuilder;
+import suneido.database.query.expr.CompiledExpr;
 import suneido.database.query.expr.Expr;
 
 public class Extend extends Query1 {
@@ -26,6 +27,8 @@ public class Extend extends Query1 {
 	private List<String> eflds;
 	private Header hdr = null;
 	private List<Fixed> fix;
+	private CompiledExpr[] compiled;
+	private int nrows = 0;
 
 	Extend(Query source, List<String> flds, List<Expr> exprs) {
 		super(source);
@@ -135,17 +138,28 @@ public class Extend extends Query1 {
 		Row srcrow = source.get(dir);
 		if (srcrow == null)
 			return null;
+		if (compiled == null && ++nrows > CompiledExpr.THRESHOLD)
+			compile();
 		RecordBuilder rb = new RecordBuilder();
 		for (int i = 0; i < flds.size(); ++i)
 			if (exprs.get(i) != null) {
 //				Row row = srcrow.with(rb.build(), Dbpkg.MIN_RECORD);
 				Row row = srcrow.with(Dbpkg.MIN_RECORD, rb.build());
-				rb.add(exprs.get(i).eval(hdr, row));
+				rb.add(compiled != null
+						? compiled[i].eval(row) : exprs.get(i).eval(hdr, row));
 			}
 //		return srcrow.with(rb.build(), Dbpkg.MIN_RECORD);
 		return srcrow.with(Dbpkg.MIN_RECORD, rb.build());
 	}
 
+	/** no raw comparisons because of rules, see BinOp.eval */
+	private void compile() {
+		compiled = new CompiledExpr[flds.size()];
+		for (int i = 0; i < flds.size(); ++i)
+			if (exprs.get(i) != null)
+				compiled[i] = CompiledExpr.compile(exprs.get(i), hdr, null);
+	}
+
 	@Override
 	public Header header() {
 		return new Header(source.header(),
@@ -0,0 +1,268 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import suneido.database.immudb.Dbpkg;
+import suneido.database.immudb.Record;
+import suneido.database.immudb.Transaction;
+import suneido.util.ArraysList;
+import suneido.util.FileUtils;
+
+/**
+ * Used by {@link Join} for the HASH strategy.
+ * Holds the rows of one side of the join, grouped by their join key.
+ * Rows are stored as refs (see {@link Row#getRefs})
+ * so the size mostly depends on the keys, not the records.
+ * <p>
+ * The keys are hashed into partitions.
+ * When the memory used exceeds the limit,
+ * the refs of the largest partition are written to a temp file
+ * and any more rows for it are appended to the file.
+ * A spilled partition keeps its keys in memory
+ * with the file offsets of their rows,
+ * so a probe only reads the rows it matches.
+ */
+class HashJoinTable implements AutoCloseable {
+	private static final int NPARTITIONS = 16;
+	/** rough size of the map entry and list per key */
+	private static final int KEY_OVERHEAD = 64;
+	/** rough size of a ref */
+	private static final int REF_SIZE = 16;
+	/** size of a file offset */
+	private static final int OFFSET_SIZE = 8;
+	private static final byte ADR = 1;
+	private static final byte BUF = 2;
+	private final Transaction tran;
+	private final long memory;
+	private final Partition[] partitions = new Partition[NPARTITIONS];
+	private long memoryUsed = 0;
+
+	HashJoinTable(Transaction tran, long memory) {
+		this.tran = tran;
+		this.memory = memory;
+		for (int i = 0; i < NPARTITIONS; ++i)
+			partitions[i] = new Partition();
+	}
+
+	void add(Record key, Row row) {
+		Partition p = partition(key);
+		long size = (p.file != null) ? p.write(key, row) : p.add(key, row);
+		p.memoryUsed += size;
+		memoryUsed += size;
+		if (memoryUsed > memory)
+			spill();
+	}
+
+	/** Writes the largest partition in memory to a temp file */
+	private void spill() {
+		Partition largest = null;
+		for (Partition p : partitions)
+			if (p.file == null &&
+					(largest == null || p.memoryUsed > largest.memoryUsed))
+				largest = p;
+		if (largest == null || largest.memoryUsed == 0)
+			return;
+		memoryUsed -= largest.memoryUsed;
+		largest.spill();
+		memoryUsed += largest.memoryUsed; // the offsets
+	}
+
+	/** Must be called after the last add and before get */
+	void finish() {
+		for (Partition p : partitions)
+			p.finish();
+	}
+
+	/** @return The rows with the given key, in the order they were added */
+	List<Row> get(Record key) {
+		Partition p = partition(key);
+		return (p.file != null) ? p.read(tran, key) : p.get(tran, key);
+	}
+
+	private Partition partition(Record key) {
+		// use the high bits, HashMap uses the low ones
+		return partitions[(key.hashCode() * 0x9E3779B9) >>> 28];
+	}
+
+	@Override
+	public void close() {
+		for (Partition p : partitions)
+			p.close();
+	}
+
+	private static class Partition {
+		/** the offsets of the rows in refs, until spilled */
+		Map<Record, TIntArrayList> map = new HashMap<>();
+		ArraysList<Object> refs = new ArraysList<>();
+		/** the offsets of the rows in file, once spilled */
+		Map<Record, TLongArrayList> spilled;
+		long memoryUsed = 0;
+		File file;
+		DataOutputStream out;
+		long fileSize = 0;
+		RandomAccessFile in;
+		/** reused to build each row before writing it */
+		private final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+
+		/** @return The approximate memory used */
+		long add(Record key, Row row) {
+			int offset = row.getRefs(refs);
+			long size = (refs.size() - offset) * REF_SIZE;
+			TIntArrayList offsets = map.get(key);
+			if (offsets == null) {
+				map.put(key, offsets = new TIntArrayList(1));
+				size += key.bufSize() + KEY_OVERHEAD;
+			}
+			offsets.add(offset);
+			return size;
+		}
+
+		List<Row> get(Transaction tran, Record key) {
+			TIntArrayList offsets = map.get(key);
+			if (offsets == null)
+				return Collections.emptyList();
+			List<Row> rows = new ArrayList<>(offsets.size());
+			for (int i = 0; i < offsets.size(); ++i)
+				rows.add(Row.fromRefs(tran, refs, offsets.get(i)));
+			return rows;
+		}
+
+		/** Writes the rows to a temp file, keeping the keys in memory */
+		void spill() {
+			file = FileUtils.tempfile();
+			try {
+				out = new DataOutputStream(new BufferedOutputStream(
+						new FileOutputStream(file)));
+			} catch (IOException e) {
+				throw new RuntimeException("HashJoinTable spill failed", e);
+			}
+			spilled = new HashMap<>();
+			memoryUsed = 0;
+			for (Map.Entry<Record, TIntArrayList> e : map.entrySet())
+				for (int i = 0; i < e.getValue().size(); ++i)
+					memoryUsed += write(e.getKey(), refs, e.getValue().get(i));
+			map = null;
+			refs = null;
+		}
+
+		/** @return The approximate memory used */
+		long write(Record key, Row row) {
+			List<Object> rowrefs = new ArrayList<>();
+			row.getRefs(rowrefs);
+			return write(key, rowrefs, 0);
+		}
+
+		/**
+		 * Appends length, number of refs, refs
+		 * @return The approximate memory used for the offset
+		 */
+		private long write(Record key, List<Object> refs, int offset) {
+			long size = OFFSET_SIZE;
+			TLongArrayList offsets = spilled.get(key);
+			if (offsets == null) {
+				spilled.put(key, offsets = new TLongArrayList(1));
+				size += key.bufSize() + KEY_OVERHEAD;
+			}
+			offsets.add(fileSize);
+			try {
+				entry.reset();
+				DataOutputStream e = new DataOutputStream(entry);
+				int n = Row.size(refs, offset);
+				e.writeInt(n);
+				for (int i = offset; i < offset + n; ++i) {
+					Object ref = refs.get(i);
+					if (ref instanceof Integer) {
+						e.writeByte(ADR);
+						e.writeInt((Integer) ref);
+					} else {
+						e.writeByte(BUF);
+						// just the record, the buffer may not be positioned
+						ByteBuffer buf = Dbpkg.record((ByteBuffer) ref).getBuffer();
+						byte[] b = new byte[buf.remaining()];
+						buf.get(buf.position(), b);
+						e.writeInt(b.length);
+						e.write(b);
+					}
+				}
+				out.writeInt(entry.size());
+				entry.writeTo(out);
+				fileSize += 4 + entry.size();
+			} catch (IOException e) {
+				throw new RuntimeException("HashJoinTable write failed", e);
+			}
+			return size;
+		}
+
+		void finish() {
+			if (out == null)
+				return;
+			try {
+				out.close();
+				in = new RandomAccessFile(file, "r");
+			} catch (IOException e) {
+				throw new RuntimeException("HashJoinTable write failed", e);
+			}
+			out = null;
+		}
+
+		/** Reads the rows for a key back from the file */
+		List<Row> read(Transaction tran, Record key) {
+			TLongArrayList offsets = spilled.get(key);
+			if (offsets == null)
+				return Collections.emptyList();
+			List<Row> rows = new ArrayList<>(offsets.size());
+			List<Object> rowrefs = new ArrayList<>();
+			List<Object> refs = new ArrayList<>();
+			try {
+				for (int i = 0; i < offsets.size(); ++i) {
+					in.seek(offsets.get(i));
+					byte[] b = new byte[in.readInt()];
+					in.readFully(b);
+					ByteBuffer buf = ByteBuffer.wrap(b);
+					rowrefs.clear();
+					int n = buf.getInt();
+					for (int j = 0; j < n; ++j)
+						rowrefs.add(buf.get() == ADR
+								? (Object) buf.getInt() : readBuffer(buf));
+					refs.clear();
+					rows.add(Row.fromRefs(tran, refs, Row.addRefs(refs, rowrefs)));
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("HashJoinTable read failed", e);
+			}
+			return rows;
+		}
+
+		private static ByteBuffer readBuffer(ByteBuffer buf) {
+			byte[] b = new byte[buf.getInt()];
+			buf.get(b);
+			return ByteBuffer.wrap(b);
+		}
+
+		void close() {
+			finish();
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			in = null;
+			if (file != null)
+				file.delete();
+		}
+	}
+
+}
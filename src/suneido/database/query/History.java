@@ -118,6 +118,11 @@ public class History extends Query {
 		return new Row(Dbpkg.MIN_RECORD, data[0], Dbpkg.MIN_RECORD, data[1]);
 	}
 
+	@Override
+	boolean reusable() {
+		return false; // iter is bound to its transaction
+	}
+
 	@Override
 	public void close() {
 	}
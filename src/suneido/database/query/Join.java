@@ -15,6 +15,7 @@ import com.google.common.collect.ImmutableSet;
 
 import suneido.SuException;
 import suneido.database.immudb.Record;
+import suneido.database.immudb.Transaction;
 
 public class Join extends Query2 {
 	List<String> joincols;
@@ -26,6 +27,13 @@ public class Join extends Query2 {
 	short[] cols2;
 	Row empty2;
 	protected double nrecs = -1;
+	private Strategy strategy = Strategy.LOOKUP;
+	private Transaction tran;
+	private HashJoinTable hashTable;
+	private List<Row> matches;
+	private int matchPos;
+	/** Set by Dbpkg.setOption("join_memory") in mb */
+	public static long HASH_MEMORY = 64 * 1024 * 1024;
 
 	enum Type {
 		NONE(""), ONE_ONE("1:1"), ONE_N("1:n"), N_ONE("n:1"), N_N("n:n");
@@ -35,6 +43,19 @@ public class Join extends Query2 {
 		}
 	}
 
+	/**
+	 * LOOKUP selects on source2 (by index) for each row of source1.
+	 * HASH reads all of source2 into a {@link HashJoinTable}
+	 * and then looks up each row of source1 in it.
+	 */
+	enum Strategy {
+		LOOKUP(""), HASH(" HASH");
+		public String name;
+		Strategy(String name) {
+			this.name = name;
+		}
+	}
+
 	Join(Query source1, Query source2, List<String> by) {
 		super(source1, source2);
 		joincols = intersect(source.columns(), source2.columns());
@@ -66,7 +87,7 @@ public class Join extends Query2 {
 
 	@Override
 	public String toString() {
-		return "(" + source + " " + name() + " " + type.name + " on "
+		return "(" + source + " " + name() + strategy.name + " " + type.name + " on "
 				+ listToParens(joincols)
 				+ " " + source2 + ")";
 	}
@@ -89,17 +110,33 @@ public class Join extends Query2 {
 				needs2, needs1, is_cursor, false)
 				+ OUT_OF_ORDER
 			: IMPOSSIBLE;
-		double cost = Math.min(cost1, cost2);
+		double hash1 = hashOpt(source, source2, type, index, needs1, needs2,
+				is_cursor, false);
+		double hash2 = can_swap()
+			? hashOpt(source2, source, reverse(type), index,
+				needs2, needs1, is_cursor, false)
+				+ OUT_OF_ORDER
+			: IMPOSSIBLE;
+		double lookup = Math.min(cost1, cost2);
+		double hash = Math.min(hash1, hash2);
+		double cost = Math.min(lookup, hash);
 		if (cost >= IMPOSSIBLE)
 			return IMPOSSIBLE;
 		if (freeze) {
-			if (cost2 < cost1) {
+			strategy = (hash < lookup) ? Strategy.HASH : Strategy.LOOKUP;
+			boolean swap = (strategy == Strategy.HASH)
+					? hash2 < hash1 : cost2 < cost1;
+			if (swap) {
 				assert can_swap();
 				Query t1 = source; source = source2; source2 = t1;
 				Set<String> t2 = needs1; needs1 = needs2; needs2 = t2;
 				type = reverse(type);
 			}
-			opt(source, source2, type, index, needs1, needs2, is_cursor, true);
+			if (strategy == Strategy.HASH)
+				hashOpt(source, source2, type, index, needs1, needs2,
+						is_cursor, true);
+			else
+				opt(source, source2, type, index, needs1, needs2, is_cursor, true);
 		}
 		return cost;
 	}
@@ -144,19 +181,78 @@ public class Join extends Query2 {
 		if (freeze)
 			src2.optimize(joincols, needs2, noNeeds, is_cursor2, true);
 
-		nrecs = switch (type) {
+		nrecs = estimate(type, nrecs1, nrecs2, distinct(src1, src2));
+
+		if (nrecs <= 0)
+			cost2 = 0;
+
+		return cost1 + cost2;
+	}
+
+	/**
+	 * The cost of reading all of src2 into a hash table (in any order)
+	 * and then probing it for each row of src1.
+	 * Not used for cursors since the table would have to be rebuilt
+	 * for each transaction.
+	 */
+	private double hashOpt(Query src1, Query src2, Type type, List<String> index,
+			Set<String> needs1, Set<String> needs2, boolean is_cursor,
+			boolean freeze) {
+		/** fixed overhead, so small joins stay with LOOKUP */
+		final double SETUP_COST = 10000;
+
+		if (is_cursor)
+			return IMPOSSIBLE;
+		double keysize = joincols.size() * src2.columnsize();
+
+		// always have to read all of source 1
+		double cost1 = src1.optimize(index, needs1, ImmutableSet.copyOf(joincols),
+				is_cursor, freeze);
+		if (cost1 >= IMPOSSIBLE)
+			return IMPOSSIBLE;
+		double nrecs1 = src1.nrecords();
+		// probing is much cheaper than a select
+		cost1 += nrecs1 * keysize;
+
+		// and all of source 2, including the join columns for the key
+		double cost2 = src2.optimize(noFields, setUnion(needs2, joincols),
+				noNeeds, is_cursor, freeze);
+		if (cost2 >= IMPOSSIBLE)
+			return IMPOSSIBLE;
+		double nrecs2 = src2.nrecords();
+
+		// building the table is like building a temp index
+		double size = nrecs2 * (keysize + src2.recordsize());
+		if (size > HASH_MEMORY)
+			return IMPOSSIBLE; // would spill, fall back to LOOKUP
+		cost2 += nrecs2 * keysize * WRITE_FACTOR;
+
+		nrecs = estimate(type, nrecs1, nrecs2, distinct(src1, src2));
+
+		return SETUP_COST + cost1 + cost2;
+	}
+
+	/**
+	 * @return The larger number of distinct join values of the sources,
+	 * or -1 if neither is known
+	 */
+	private double distinct(Query src1, Query src2) {
+		return Math.max(src1.distinct(joincols), src2.distinct(joincols));
+	}
+
+	private static double estimate(Type type, double nrecs1, double nrecs2,
+			double distinct) {
+		if (type == Type.N_N && distinct > 0)
+			// assuming each value has the same number of rows
+			return nrecs1 * nrecs2 / distinct;
+		double n = switch (type) {
 			case ONE_ONE -> Math.min(nrecs1, nrecs2);
 			case N_ONE -> nrecs2 <= 0 ? 0 : nrecs1;
 			case ONE_N -> nrecs1 <= 0 ? 0 : nrecs2;
 			case N_N -> nrecs1 * nrecs2;
 			default -> throw unreachable();
 		};
-		nrecs /= 2; // convert from max to guess of expected PROBABLY TOO LOW
-
-		if (nrecs <= 0)
-			cost2 = 0;
-
-		return cost1 + cost2;
+		return n / 2; // convert from max to guess of expected PROBABLY TOO LOW
 	}
 
 	private static Type reverse(Type type) {
@@ -218,10 +314,12 @@ public class Join extends Query2 {
 			hdr1 = source.header();
 			empty2 = new Row(source2.header().size());
 		}
+		if (strategy == Strategy.HASH && hashTable == null)
+			buildHashTable();
 		while (true) {
 			if (row2 == null && !next_row1(dir))
 				return null;
-			row2 = source2.get(dir);
+			row2 = (strategy == Strategy.HASH) ? nextMatch(dir) : source2.get(dir);
 			if (should_output(row2)) {
 				assert row2 == null || (row1.project(hdr1, joincols).equals(
 						row2.project(source2.header(), joincols)));
@@ -234,10 +332,30 @@ public class Join extends Query2 {
 		if (null == (row1 = source.get(dir)))
 			return false;
 		Record key = row1.project(hdr1, joincols);
-		source2.select(joincols, key);
+		if (strategy == Strategy.HASH) {
+			matches = hashTable.get(key);
+			matchPos = (dir == Dir.NEXT) ? -1 : matches.size();
+		} else
+			source2.select(joincols, key);
 		return true;
 	}
 
+	private void buildHashTable() {
+		hashTable = new HashJoinTable(tran, HASH_MEMORY);
+		Header hdr2 = source2.header();
+		source2.rewind();
+		Row row;
+		while (null != (row = source2.get(Dir.NEXT)))
+			hashTable.add(row.project(hdr2, joincols), row);
+		hashTable.finish();
+	}
+
+	private Row nextMatch(Dir dir) {
+		matchPos += (dir == Dir.NEXT) ? 1 : -1;
+		return (0 <= matchPos && matchPos < matches.size())
+				? matches.get(matchPos) : null;
+	}
+
 	protected boolean should_output(Row row) {
 		return row != null;
 	}
@@ -254,4 +372,30 @@ public class Join extends Query2 {
 		row2 = null;
 	}
 
+	@Override
+	Query addindex(Transaction t) {
+		tran = t;
+		return super.addindex(t);
+	}
+
+	@Override
+	public void setTransaction(Transaction tran) {
+		if (tran != this.tran)
+			closeHashTable(); // rebuild with the new transaction
+		this.tran = tran;
+		super.setTransaction(tran);
+	}
+
+	@Override
+	public void close() {
+		closeHashTable();
+		super.close();
+	}
+
+	private void closeHashTable() {
+		if (hashTable != null)
+			hashTable.close();
+		hashTable = null;
+	}
+
 }
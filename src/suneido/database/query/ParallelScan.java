@@ -0,0 +1,144 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.google.common.base.Throwables;
+
+import suneido.SuException;
+import suneido.database.immudb.IndexIter;
+
+/**
+ * Reads a table, optionally filtered by a select, in parallel.
+ * Used by {@link SummarizeStrategyHash}
+ * when {@link Summarize#PARALLEL_THREADS} is greater than one.
+ * <p>
+ * The table's index is split into consecutive ranges
+ * ({@link suneido.database.immudb.Transaction#iters}).
+ * Each range is read and filtered by its own task on a fork-join pool
+ * and accumulated into its own partial result.
+ * The partial results are returned in range order
+ * so that merging them in order gives the same results as a serial read.
+ * <p>
+ * Only used for read-only transactions.
+ * Select expressions must only use fields (not rules)
+ * and not call functions, since they are evaluated by other threads.
+ */
+class ParallelScan {
+	/** more ranges than threads so the work is balanced */
+	private static final int RANGES_PER_THREAD = 4;
+	private static ForkJoinPool pool;
+	private final Table tbl;
+	private final Select select; // null if no select
+
+	private ParallelScan(Table tbl, Select select) {
+		this.tbl = tbl;
+		this.select = select;
+	}
+
+	/**
+	 * Used by optimize, before the source is frozen.
+	 * @return Whether source could be read in parallel,
+	 * using the given columns, and is large enough to be worth it
+	 */
+	static boolean possible(Query source, Collection<String> cols) {
+		if (Summarize.PARALLEL_THREADS <= 1)
+			return false;
+		Table t;
+		if (source instanceof Table)
+			t = (Table) source;
+		else if (source instanceof Select && ((Select) source).parallelOk())
+			t = (Table) ((Select) source).source;
+		else
+			return false;
+		return t.parallelOk() && t.fields().containsAll(cols) &&
+				t.nrecords() >= Summarize.PARALLEL_MIN;
+	}
+
+	/**
+	 * @return A ParallelScan for source,
+	 * or null if it can't be read in parallel (after optimization)
+	 */
+	static ParallelScan of(Query source) {
+		if (source instanceof Table)
+			return new ParallelScan((Table) source, null);
+		if (source instanceof Select && ((Select) source).fullScan())
+			return new ParallelScan((Table) ((Select) source).source,
+					(Select) source);
+		return null;
+	}
+
+	/**
+	 * @return The maximum number of ranges, and therefore parts, from run.
+	 * Parts are all kept until run returns
+	 * so this is what a memory budget should be divided by.
+	 */
+	static int maxRanges() {
+		return Summarize.PARALLEL_THREADS * RANGES_PER_THREAD;
+	}
+
+	/**
+	 * Reads the rows, calling add(part, row) for each row
+	 * with a part for each range from newPart.
+	 * add is called concurrently but each part is only used by one thread.
+	 *
+	 * @return The parts in range order,
+	 * or null if the table can't be read in parallel
+	 * e.g. if the transaction is not read-only
+	 */
+	<T> List<T> run(Supplier<T> newPart, BiConsumer<T, Row> add) {
+		if (select != null && ! select.fullScan())
+			return null; // e.g. rebind changed the select
+		List<IndexIter> iters = tbl.iters(maxRanges());
+		if (iters == null)
+			return null;
+		Header hdr = tbl.header();
+		List<Callable<T>> tasks = new ArrayList<>(iters.size());
+		for (IndexIter iter : iters)
+			tasks.add(() -> scan(iter, hdr, newPart.get(), add));
+		List<T> parts = new ArrayList<>(iters.size());
+		try {
+			for (Future<T> f : pool().invokeAll(tasks))
+				parts.add(f.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SuException("parallel query interrupted");
+		} catch (ExecutionException e) {
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new SuException("parallel query", e.getCause());
+		}
+		return parts;
+	}
+
+	private <T> T scan(IndexIter iter, Header hdr, T part,
+			BiConsumer<T, Row> add) {
+		for (iter.next(); ! iter.eof(); iter.next()) {
+			Row row = tbl.row(iter);
+			if (select == null || select.parallelMatches(hdr, row))
+				add.accept(part, row);
+		}
+		return part;
+	}
+
+	/** The pool is shared, it is recreated if the number of threads changes */
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null || pool.getParallelism() != Summarize.PARALLEL_THREADS) {
+			if (pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(Summarize.PARALLEL_THREADS);
+		}
+		return pool;
+	}
+
+}
@@ -40,6 +40,8 @@ public class ParseRequest<T> extends Parse<T, RequestGenerator<T>> {
 			return sview();
 		case DROP:
 			return drop();
+		case ANALYZE:
+			return analyze();
 		default:
 			syntaxError();
 			return null;
@@ -224,4 +226,12 @@ public class ParseRequest<T> extends Parse<T, RequestGenerator<T>> {
 		verifyMatch(EOF);
 		return generator.drop(name);
 	}
+
+	private T analyze() {
+		match(ANALYZE);
+		String table = lexer.getValue();
+		match(IDENTIFIER);
+		verifyMatch(EOF);
+		return generator.analyze(table);
+	}
 }
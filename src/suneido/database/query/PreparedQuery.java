@@ -0,0 +1,105 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import suneido.SuException;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.QueryCache.Plan;
+import suneido.database.query.expr.Param;
+import suneido.database.server.ServerData;
+import suneido.util.NotThreadSafe;
+
+/**
+ * A query with ? parameters, prepared once and then executed
+ * with different argument values.
+ * Kept per connection by {@link ServerData}.
+ * <p>
+ * The query is optimized the first time it is executed, using those values.
+ * Later executions bind the new values to the same query
+ * and re-bind the selects ({@link Select#rebind})
+ * so they use the new values without parsing or optimizing again.
+ * As with {@link QueryCache} the query is compiled again
+ * if the schema or views, or the schema or size of its tables, have changed.
+ */
+@NotThreadSafe
+public class PreparedQuery {
+	private final String query;
+	private final int nparams;
+	private Plan plan; // null until executed, or if not reusable
+	private List<Param> params;
+	private boolean inUse = false;
+
+	/** Parses the query to check it and count the parameters */
+	public PreparedQuery(Transaction t, ServerData serverData, String query) {
+		this.query = query;
+		List<Param> ps = new ArrayList<>();
+		CompileQuery.parse(t, serverData, query, ps);
+		nparams = ps.size();
+	}
+
+	public String query() {
+		return query;
+	}
+
+	/**
+	 * @return A query with args bound to its parameters, ready to get from.
+	 * It should be released with {@link #release} rather than closed.
+	 */
+	public Query query(Transaction t, ServerData serverData, List<Object> args) {
+		if (args.size() != nparams)
+			throw new SuException("prepared query expected " + nparams +
+					" arguments, got " + args.size());
+		if (plan != null && ! inUse && plan.valid(t)) {
+			bind(params, args);
+			Query q = plan.query;
+			q.setTransaction(t);
+			if (rebind(q)) {
+				q.rewind();
+				inUse = true;
+				return q;
+			}
+		}
+		int version = t.schemaVersion(); // before compiling, see QueryCache
+		List<Param> ps = new ArrayList<>();
+		Query q = CompileQuery.parse(t, serverData, query, ps);
+		bind(ps, args);
+		q = q.setup(t);
+		if (! inUse && q.reusable() && ! serverData.hasSviews()) {
+			plan = new Plan(q, t, version);
+			params = ps;
+			inUse = true;
+		}
+		return q;
+	}
+
+	private static void bind(List<Param> params, List<Object> args) {
+		for (int i = 0; i < params.size(); ++i)
+			params.get(i).bind(args.get(i));
+	}
+
+	/** @return false if a select could not be re-bound */
+	private static boolean rebind(Query q) {
+		if (q instanceof Select && ! ((Select) q).rebind())
+			return false;
+		if (q instanceof Query1 && ! rebind(((Query1) q).source))
+			return false;
+		if (q instanceof Query2 && ! rebind(((Query2) q).source2))
+			return false;
+		return true;
+	}
+
+	/** Closes the query so it can be executed again */
+	public void release(Query q) {
+		q.close();
+		if (plan != null && q == plan.query) {
+			q.setTransaction(null); // don't keep it alive
+			inUse = false;
+		}
+	}
+
+}
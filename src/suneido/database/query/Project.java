@@ -22,7 +22,7 @@ public class Project extends Query1 {
 	private Header projHdr;
 	private Header srcHdr;
 	private Lookup map = null;
-	private final Keyrange sel = new Keyrange();
+	private Keyrange sel = new Keyrange();
 	private boolean rewound = true;
 	private boolean indexed;
 	// used by SEQUENTIAL
@@ -436,6 +436,20 @@ public class Project extends Query1 {
 		indexed = true;
 	}
 
+	@Override
+	public void close() {
+		map = null; // release the lookup
+		first = true;
+		rewound = true;
+		super.close();
+	}
+
+	@Override
+	void copied(Map<Query, Query> copies) {
+		super.copied(copies);
+		sel = new Keyrange(sel.org, sel.end);
+	}
+
 	@Override
 	void select(List<String> index, Record from, Record to) {
 		source.select(index, from, to);
@@ -4,6 +4,7 @@
 
 package suneido.database.query;
 
+import static suneido.SuInternalError.unreachable;
 import static suneido.Trace.trace;
 import static suneido.Trace.tracing;
 import static suneido.Trace.Type.QUERYOPT;
@@ -14,7 +15,9 @@ import static suneido.util.Verify.verify;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
@@ -27,7 +30,7 @@ import suneido.database.immudb.Transaction;
 /**
  * Base class for query operation classes.
  */
-public abstract class Query {
+public abstract class Query implements Cloneable {
 	private final Cache cache = new Cache();
 	private List<String> tempindex;
 	public enum Dir { NEXT, PREV }
@@ -94,6 +97,14 @@ public abstract class Query {
 				" cost~ " + Math.round(cost) + "]";
 	}
 
+	/**
+	 * Reads the entire query and returns the strategy plus the estimated
+	 * and actual number of rows for each node (see {@link Explain})
+	 */
+	public String explain() {
+		return Explain.explain(this);
+	}
+
 	@Override
 	public abstract String toString();
 
@@ -208,6 +219,14 @@ public abstract class Query {
 	/** @return The estimated number of records resulting from this query */
 	abstract double nrecords();
 
+	/**
+	 * @return The estimated number of distinct values of the columns,
+	 * or -1 if unknown
+	 */
+	double distinct(List<String> cols) {
+		return -1;
+	}
+
 	/** @return The estimated average size of a record in this query */
 	abstract int recordsize();
 
@@ -230,7 +249,49 @@ public abstract class Query {
 	/** Used by TempIndex to optimize sorting a single database table */
 	abstract boolean singleDbTable();
 
-	/** used for trace, e.g. slow queries in Select */
+	/**
+	 * @return Whether the query can be run again, with another transaction,
+	 * after it is closed (see {@link QueryCache})
+	 */
+	boolean reusable() { // redefined by Query1 and Query2
+		return true;
+	}
+
+	/**
+	 * @return A copy of an optimized query that has not been executed.
+	 * The copy has its own execution state
+	 * but shares the results of optimization, which are not modified after.
+	 * Used by {@link QueryCache} to give each execution its own query.
+	 */
+	final Query copy() {
+		return copy(new IdentityHashMap<>());
+	}
+
+	/** @param copies Maps the queries copied so far to their copies */
+	final Query copy(Map<Query, Query> copies) {
+		Query q;
+		try {
+			q = (Query) clone();
+		} catch (CloneNotSupportedException e) {
+			throw unreachable();
+		}
+		copies.put(this, q);
+		q.copied(copies);
+		return q;
+	}
+
+	/**
+	 * Called on a new copy to copy its sources
+	 * and any state that is modified by execution.
+	 * Redefined by Query1, Query2 and queries with such state.
+	 */
+	void copied(Map<Query, Query> copies) {
+	}
+
+	/**
+	 * Releases any per execution state, e.g. temp indexes.
+	 * Also used for trace, e.g. slow queries in Select
+	 */
 	public abstract void close();
 
 	// exclude any keys that are super-sets of another key
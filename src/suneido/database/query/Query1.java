@@ -5,6 +5,7 @@
 package suneido.database.query;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import suneido.database.immudb.Record;
@@ -46,6 +47,14 @@ public abstract class Query1 extends Query {
 		return source.nrecords();
 	}
 
+	@Override
+	double distinct(List<String> cols) {
+		if (! source.columns().containsAll(cols))
+			return -1;
+		double d = source.distinct(cols);
+		return d < 0 ? d : Math.min(d, nrecords());
+	}
+
 	@Override
 	int recordsize() {
 		return source.recordsize();
@@ -174,6 +183,16 @@ public abstract class Query1 extends Query {
 		return false;
 	}
 
+	@Override
+	boolean reusable() {
+		return source.reusable();
+	}
+
+	@Override
+	void copied(Map<Query, Query> copies) {
+		source = source.copy(copies);
+	}
+
 	@Override
 	public void close() {
 		source.close();
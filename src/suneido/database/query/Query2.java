@@ -11,6 +11,7 @@ import static suneido.util.Verify.verify;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import suneido.database.immudb.Transaction;
 
@@ -55,6 +56,11 @@ public abstract class Query2 extends Query1 {
 		return keys;
 	}
 
+	@Override
+	double distinct(List<String> cols) {
+		return -1; // override Query1 source.distinct()
+	}
+
 	@Override
 	public Header header() {
 		return new Header(source.header(), source2.header());
@@ -65,6 +71,17 @@ public abstract class Query2 extends Query1 {
 		return false;
 	}
 
+	@Override
+	boolean reusable() {
+		return super.reusable() && source2.reusable();
+	}
+
+	@Override
+	void copied(Map<Query, Query> copies) {
+		super.copied(copies);
+		source2 = source2.copy(copies);
+	}
+
 	@Override
 	public void close() {
 		super.close();
@@ -0,0 +1,161 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static suneido.compiler.Token.EOF;
+import static suneido.compiler.Token.NEWLINE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import suneido.compiler.Lexer;
+import suneido.compiler.Token;
+import suneido.database.immudb.Database;
+import suneido.database.immudb.Transaction;
+import suneido.database.server.ServerData;
+import suneido.util.ThreadSafe;
+
+/**
+ * Caches optimized queries so repeated queries
+ * can skip parsing, transform and optimize.
+ * Keyed by the query text, with whitespace and comments normalized,
+ * plus whether it is a cursor.
+ * <p>
+ * The cached query is a template that is never executed.
+ * Each execution gets its own copy (see {@link Query#copy})
+ * so concurrent users don't share execution state.
+ * <p>
+ * A cached query is discarded if the schema or views have changed
+ * since it was compiled (see {@link Database#schemaVersion}),
+ * if any of its tables' schema has changed (the immutable Table is replaced)
+ * or if their size has changed a lot since it was optimized.
+ * Queries using session views are not cached.
+ */
+@ThreadSafe
+public class QueryCache {
+	private static volatile Cache<String, Plan> cache = build(200);
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	/** Set by Dbpkg.setOption("query_cache"), 0 to disable */
+	public static void setSize(int size) {
+		cache = build(size);
+	}
+
+	private static Cache<String, Plan> build(int size) {
+		return size <= 0 ? null
+				: CacheBuilder.newBuilder().maximumSize(size).build();
+	}
+
+	/**
+	 * Like {@link CompileQuery#query} but reuses a cached query if possible.
+	 * The query should be released with {@link #release} instead of closed.
+	 */
+	public static Query query(Transaction t, ServerData serverData, String s,
+			boolean is_cursor) {
+		Cache<String, Plan> c = cache;
+		if (c == null || serverData.hasSviews())
+			return CompileQuery.query(t, serverData, s, is_cursor);
+		String key = normalize(s) + (is_cursor ? " CURSOR" : "");
+		Plan plan = c.getIfPresent(key);
+		if (plan != null && plan.valid(t)) {
+			hits.incrementAndGet();
+			Query q = plan.query.copy();
+			q.setTransaction(t);
+			return q;
+		}
+		misses.incrementAndGet();
+		// before compiling, so a concurrent schema change invalidates it
+		int version = t.schemaVersion();
+		Query q = CompileQuery.query(t, serverData, s, is_cursor);
+		if (q.reusable()) {
+			Query template = q.copy(); // before q is executed
+			template.setTransaction(null); // don't keep it alive
+			c.put(key, new Plan(template, t, version));
+		}
+		return q;
+	}
+
+	/** Closes a query from {@link #query} */
+	public static void release(Query q) {
+		q.close();
+	}
+
+	public static long hits() {
+		return hits.get();
+	}
+
+	public static long misses() {
+		return misses.get();
+	}
+
+	/** Removes comments and extra whitespace */
+	static String normalize(String s) {
+		Lexer lexer = new Lexer(s);
+		StringBuilder sb = new StringBuilder();
+		for (Token token; EOF != (token = lexer.next()); ) {
+			if (token == NEWLINE)
+				continue;
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(lexer.matched());
+		}
+		return sb.toString();
+	}
+
+	/** Also used by {@link PreparedQuery} */
+	static class Plan {
+		final Query query;
+		final List<Table> tables = new ArrayList<>();
+		final int[] nrows;
+		final int version;
+
+		/** @param version The schema version from before compiling */
+		Plan(Query query, Transaction t, int version) {
+			this.query = query;
+			this.version = version;
+			addTables(query);
+			nrows = new int[tables.size()];
+			for (int i = 0; i < nrows.length; ++i)
+				nrows[i] = t.tableCount(tables.get(i).num());
+		}
+
+		private void addTables(Query q) {
+			if (q instanceof Table tq)
+				tables.add(tq);
+			if (q instanceof Query1 q1)
+				addTables(q1.source);
+			if (q instanceof Query2 q2)
+				addTables(q2.source2);
+		}
+
+		/**
+		 * @return false if the schema or views have changed
+		 * or a table's schema or size has changed
+		 */
+		boolean valid(Transaction t) {
+			if (t.schemaVersion() != version)
+				return false;
+			for (int i = 0; i < nrows.length; ++i) {
+				Table tq = tables.get(i);
+				if (t.getTable(tq.num()) != tq.tbl)
+					return false;
+				if (changed(nrows[i], t.tableCount(tq.num())))
+					return false;
+			}
+			return true;
+		}
+
+		/** small tables are allowed to change more */
+		private static boolean changed(int before, int now) {
+			return now > 2 * before + 100 || before > 2 * now + 100;
+		}
+	}
+
+}
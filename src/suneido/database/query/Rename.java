@@ -127,6 +127,11 @@ public class Rename extends Query1 {
 		return renameFwd(source.columns());
 	}
 
+	@Override
+	double distinct(List<String> cols) {
+		return source.distinct(renameRev(cols));
+	}
+
 	@Override
 	List<List<String>> indexes() {
 		return renameIndexes(source.indexes());
@@ -120,6 +120,12 @@ public class Request implements RequestGenerator<Object> {
 		return null;
 	}
 
+	@Override
+	public Object analyze(String table) {
+		db.analyze(table);
+		return null;
+	}
+
 	@Override
 	public Object view(String name, String definition) {
 		db.addView(name, definition);
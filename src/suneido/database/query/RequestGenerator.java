@@ -10,6 +10,8 @@ public interface RequestGenerator<T> {
 
 	T rename(String from, String to);
 
+	T analyze(String table);
+
 	T view(String name, String definition);
 
 	T sview(String name, String definition);
@@ -5,6 +5,7 @@
 package suneido.database.query;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static suneido.util.ByteBuffers.bufferUcompare;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -192,6 +193,101 @@ public class Row {
 		}
 	}
 
+	/**
+	 * The positions of a column in the rows for a header,
+	 * determined once instead of searching the header for every row.
+	 * Used by {@link suneido.database.query.expr.CompiledExpr}
+	 */
+	public static class Field {
+		private final Header hdr;
+		private final String col;
+		private final int[] di;
+		private final int[] ri;
+
+		public Field(Header hdr, String col) {
+			this.hdr = hdr;
+			this.col = col;
+			int n = 0;
+			int[] dis = new int[hdr.flds.size()];
+			int[] ris = new int[hdr.flds.size()];
+			if (! "-".equals(col))
+				for (int i = 0; i < hdr.flds.size(); ++i) {
+					int j = hdr.flds.get(i).indexOf(col);
+					if (j != -1) {
+						dis[n] = i;
+						ris[n++] = j;
+					}
+				}
+			di = Arrays.copyOf(dis, n);
+			ri = Arrays.copyOf(ris, n);
+		}
+
+		/** Equivalent to {@link Row#getraw(Header, String)} */
+		public ByteBuffer getraw(Row row) {
+			int k = pos(row);
+			return (k == -1) ? row.getraw(hdr, col)
+					: row.data[di[k]].getRaw(ri[k]);
+		}
+
+		/**
+		 * Unsigned compare of {@link #getraw} to a packed value
+		 * without slicing the record.
+		 * Packed values sort the same as the values so this is equivalent
+		 * to comparing the unpacked values (with "" first)
+		 */
+		public int compareRaw(Row row, ByteBuffer value) {
+			int k = pos(row);
+			return (k == -1) ? bufferUcompare(row.getraw(hdr, col), value)
+					: row.data[di[k]].compareRaw(ri[k], value);
+		}
+
+		/** Binary search in values sorted by unsigned compare */
+		public boolean rawIn(Row row, ByteBuffer[] values) {
+			int lo = 0;
+			int hi = values.length - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int cmp = compareRaw(row, values[mid]);
+				if (cmp == 0)
+					return true;
+				if (cmp > 0)
+					lo = mid + 1;
+				else
+					hi = mid - 1;
+			}
+			return false;
+		}
+
+		/** @return Whether this field was created for hdr */
+		public boolean isFor(Header hdr) {
+			return this.hdr == hdr;
+		}
+
+		/** Equivalent to {@link Row#getval(Header, String)} */
+		public Object getval(Row row) {
+			int k = pos(row);
+			return (k == -1) ? row.getval(hdr, col)
+					: Pack.unpack(row.data[di[k]].getRaw(ri[k]));
+		}
+
+		/** Same search order as {@link Row#find} */
+		private int pos(Row row) {
+			for (int k = 0; k < di.length; ++k) {
+				if (di[k] >= row.data.length)
+					break;
+				Record r = row.data[di[k]];
+				if (r != null && ! r.isEmpty())
+					return k;
+			}
+			return -1;
+		}
+
+		@Override
+		public String toString() {
+			return col;
+		}
+	}
+
 	public static boolean equal(Header hdr1, Row r1, Header hdr2, Row r2,
 			List<String> cols) {
 		for (String col : cols)
@@ -265,7 +361,15 @@ public class Row {
 		}
 		return new Row(data);
 	}
-	private static int size(List<Object> refs, int i) {
+	/** Used by HashJoinTable to add refs read back from a temp file */
+	static int addRefs(List<Object> refs, List<Object> rowrefs) {
+		int offset = refs.size();
+		refs.addAll(rowrefs);
+		refs.add(END);
+		return offset;
+	}
+	/** @return The number of refs for the row starting at i */
+	static int size(List<Object> refs, int i) {
 		int n = 0;
 		for (; refs.get(i) != END; ++i)
 			++n;
@@ -54,6 +54,9 @@ public class Select extends Query1 {
 	private List<String> primary;
 	private List<List<String>> theindexes;
 	private Map<String, Iselect> isels;
+	private List<IselField> iselFields; // for matches, set by iterate_setup
+	private List<Expr> terms; // the exprs that were converted to isels
+	private List<Expr> paramTerms; // the terms with parameters, see rebind
 	private List<List<String>> possible;
 	private Map<String, Double> ffracs;
 	private Map<List<String>, Double> ifracs;
@@ -64,13 +67,15 @@ public class Select extends Query1 {
 	private boolean rewound = true;
 	private List<Keyrange> ranges = Collections.emptyList();
 	private int range_i = 0;
-	private final Keyrange sel = new Keyrange();
+	private Keyrange sel = new Keyrange();
 	private boolean newrange = true;
 	int n_in = 0;
 	int n_out = 0;
 	private TIntHashSet filterSet;
 	private Header hdr;
 	private Transaction tran;
+	private CompiledExpr compiled;
+	private int nevals = 0;
 
 	public Select(Transaction tran, Query source, Expr expr) {
 		super(source);
@@ -381,35 +386,29 @@ public class Select extends Query1 {
 		List<Cmp> cmps = new ArrayList<>();
 		List<String> fields = tbl.tbl.getFields();
 		List<Expr> new_exprs = new ArrayList<>();
+		terms = new ArrayList<>();
+		paramTerms = new ArrayList<>();
 		for (Expr e : expr.exprs) {
 			if (e == Constant.FALSE)
 				conflicting = true;
 
-			if (e.isTerm(fields))
-				if (e instanceof In) {
-					In in = (In) e;
-					Identifier id = (Identifier) in.expr;
-					cmps.add(new Cmp(id.ident, in.packed));
+			if (e.isTerm(fields)) {
+				if (hasParam(e))
+					paramTerms.add(e);
+				Cmp cmp = cmp(e);
+				if (cmp != null) {
+					cmps.add(cmp);
+					terms.add(e);
 					continue;
-				} else if (e instanceof BinOp) {
-					BinOp binop = (BinOp) e;
-					var op = binop.op;
-					ByteBuffer value = ((Constant) binop.right).packed;
-					if (op == ISNT && value.remaining() == 0) {
-						op = GT;
-					}
-					if (op != ISNT) {
-						String field = ((Identifier) binop.left).ident;
-						cmps.add(new Cmp(field, op, value));
-						continue;
-					}
 				}
+			}
 
 			if (e instanceof BinOp) {
 				BinOp binop = (BinOp) e;
 				if ((binop.op == Token.MATCH || binop.op == Token.MATCHNOT || binop.op == Token.ISNT)
 						&& binop.left.isField(fields)
-						&& binop.right instanceof Constant) {
+						&& (binop.right instanceof Constant
+							|| binop.right instanceof Param)) {
 					String field = ((Identifier) binop.left).ident;
 					ffracs.put(field, .5);
 				}
@@ -425,6 +424,25 @@ public class Select extends Query1 {
 		}
 		return cmps;
 	}
+
+	/** @return null if the term can't be handled by an isel */
+	private static Cmp cmp(Expr e) {
+		if (e instanceof In) {
+			In in = (In) e;
+			Identifier id = (Identifier) in.expr;
+			return new Cmp(id.ident, in.packed);
+		}
+		BinOp binop = (BinOp) e;
+		var op = binop.op;
+		ByteBuffer value = binop.packedValue();
+		if (op == ISNT && value.remaining() == 0)
+			op = GT;
+		if (op == ISNT)
+			return null;
+		String field = ((Identifier) binop.left).ident;
+		return new Cmp(field, op, value);
+	}
+
 	private void cmps_to_isels(List<Cmp> cmps) {
 		if (cmps.isEmpty())
 			return ;
@@ -653,6 +671,62 @@ public class Select extends Query1 {
 
 	// end of optimize ==============================================
 
+	/**
+	 * Used by {@link PreparedQuery} after new parameter values are bound.
+	 * Recalculates the isels (and therefore the ranges)
+	 * keeping the index chosen by optimize.
+	 * Optimize used the values bound at the time,
+	 * so if the new values change which terms can be isels
+	 * (e.g. isnt "" is an isel but isnt "x" is not)
+	 * the select must be optimized again.
+	 * @return false if the select must be optimized again
+	 */
+	boolean rebind() {
+		if (paramTerms == null || paramTerms.isEmpty())
+			return true; // isels don't depend on parameters
+		if (source_index == null)
+			return false; // optimized as conflicting, no index chosen
+		for (Expr e : paramTerms)
+			if ((cmp(e) != null) != terms.contains(e))
+				return false;
+		double nr = nrecs;
+		conflicting = expr.exprs.contains(Constant.FALSE);
+		isels = new HashMap<>();
+		iselFields = null;
+		List<Cmp> cmps = new ArrayList<>();
+		for (Expr e : terms)
+			cmps.add(cmp(e));
+		cmps_to_isels(cmps);
+		nrecs = nr; // keep the estimate from optimize
+		getFirst = true;
+		rewound = true;
+		return true;
+	}
+
+	private static boolean hasParam(Expr e) {
+		return e instanceof BinOp && ((BinOp) e).right instanceof Param;
+	}
+
+
+	/**
+	 * Execution modifies the isels (see processFilters and selects)
+	 * so a copy needs its own
+	 */
+	@Override
+	void copied(Map<Query, Query> copies) {
+		super.copied(copies);
+		if (tbl != null) {
+			tbl = (Table) copies.get(tbl);
+			assert tbl != null : "select table is not in its source";
+		}
+		if (isels != null) {
+			Map<String, Iselect> iselsCopy = new HashMap<>();
+			isels.forEach((fld, isel) -> iselsCopy.put(fld, isel.copy()));
+			isels = iselsCopy;
+		}
+		sel = new Keyrange(sel.org, sel.end);
+	}
+
 	@Override
 	double nrecords() {
 		assert (nrecs >= 0);
@@ -709,6 +783,7 @@ public class Select extends Query1 {
 		processFilters();
 		hdr = source.header();
 		ranges = selects(source_index, iselects(source_index));
+		iselFields = iselFields(hdr);
 		if (tracing(SELECT))
 			trace(SELECT, "ranges: " + ranges);
 	}
@@ -809,15 +884,22 @@ public class Select extends Query1 {
 
 		// then check against isels
 		// PERF: check keys before data (every other one)
-		for (Map.Entry<String,Iselect> e : isels.entrySet()) {
-			Iselect isel = e.getValue();
-			ByteBuffer value = row.getraw(hdr, e.getKey());
-			if (! isel.matches(value))
+		for (IselField f : iselFields)
+			if (! f.isel.matches(f.field, row))
 				return false;
-		}
 		// finally check remaining expressions
 		row.setTransaction(new DbmsTranLocal(tran));
-		return expr.eval(hdr, row) == Boolean.TRUE;
+		return eval(row) == Boolean.TRUE;
+	}
+
+	/** Compiles the expression once enough rows have been evaluated */
+	private Object eval(Row row) {
+		if (compiled != null)
+			return compiled.eval(row);
+		if (++nevals > CompiledExpr.THRESHOLD)
+			compiled = CompiledExpr.compile(expr, hdr,
+					tbl == null ? null : hdr.fields());
+		return expr.eval(hdr, row);
 	}
 
 	private boolean matches(List<String> idx, Record key) {
@@ -827,6 +909,67 @@ public class Select extends Query1 {
 		return true;
 	}
 
+	// parallel ----------------------------------------------------------------
+
+	/**
+	 * @return Whether {@link ParallelScan} can evaluate this select,
+	 * i.e. the source is a table and the expression only uses its fields
+	 * (not rules) and doesn't call any functions
+	 */
+	boolean parallelOk() {
+		if (! (source instanceof Table))
+			return false;
+		Table t = (Table) source;
+		return t.parallelOk() && ! expr.hasCalls() &&
+				t.fields().containsAll(expr.fields());
+	}
+
+	/**
+	 * @return Whether the select reads all of its source,
+	 * i.e. it doesn't use index ranges or filters.
+	 * Only valid after optimization.
+	 */
+	boolean fullScan() {
+		return ! conflicting && nil(filter) && isels != null &&
+				(nil(source_index) || iselects(source_index).isEmpty());
+	}
+
+	/**
+	 * Thread safe version of {@link #matches(Row)} for {@link ParallelScan}.
+	 * Does not handle filters or rules, see {@link #fullScan} and
+	 * {@link #parallelOk}
+	 */
+	boolean parallelMatches(Header hdr, Row row) {
+		List<IselField> fields = iselFields;
+		if (fields == null || ! fields.isEmpty() && ! fields.get(0).field.isFor(hdr))
+			iselFields = fields = iselFields(hdr);
+		for (IselField f : fields)
+			if (! f.isel.matches(f.field, row))
+				return false;
+		return expr.eval(hdr, row) == Boolean.TRUE;
+	}
+
+	/**
+	 * The isels with their field positions resolved for hdr.
+	 * Immutable so it can be shared by {@link ParallelScan} threads.
+	 */
+	private List<IselField> iselFields(Header hdr) {
+		List<IselField> fields = new ArrayList<>();
+		for (Map.Entry<String,Iselect> e : isels.entrySet())
+			fields.add(new IselField(new Row.Field(hdr, e.getKey()), e.getValue()));
+		return List.copyOf(fields);
+	}
+
+	private static class IselField {
+		final Row.Field field;
+		final Iselect isel;
+
+		IselField(Row.Field field, Iselect isel) {
+			this.field = field;
+			this.isel = isel;
+		}
+	}
+
 	// end of get ---------------------------------------------------
 
 	@Override
@@ -973,10 +1116,34 @@ public class Select extends Query1 {
 			org.x = MIN_FIELD;
 			end.x = MAX_FIELD;
 		}
+		/** Execution only replaces the fields, it doesn't modify them */
+		Iselect copy() {
+			Iselect isel = new Iselect();
+			isel.type = type;
+			isel.org = org;
+			isel.end = end;
+			isel.values = values;
+			return isel;
+		}
 		boolean matches(ByteBuffer value) {
 			return type == IselType.RANGE ? inrange(value)
 					: values.contains(value);
 		}
+		/** Same as matches(row.getraw(...)) but compares in place */
+		boolean matches(Row.Field field, Row row) {
+			if (type == IselType.VALUES) {
+				for (ByteBuffer v : values)
+					if (field.compareRaw(row, v) == 0)
+						return true;
+				return false;
+			}
+			// note: cmp is the reverse of inrange
+			int org_cmp = field.compareRaw(row, org.x);
+			if (org_cmp < 0 || (org_cmp == 0 && org.d != 0))
+				return false;
+			int end_cmp = field.compareRaw(row, end.x);
+			return end_cmp <= 0 && (end_cmp != 0 || end.d == 0);
+		}
 		boolean inrange(ByteBuffer x) {
 			org.x.rewind();
 			end.x.rewind();
@@ -1089,6 +1256,12 @@ public class Select extends Query1 {
 		return sb.toString();
 	}
 
+	@Override
+	boolean reusable() {
+		// the filter records are from the first transaction
+		return nil(filter) && super.reusable();
+	}
+
 	@Override
 	public void close() {
 		if (tracing(SLOWQUERY) && n_in > 100 && n_in > 100 * n_out)
@@ -27,15 +27,29 @@ public class Summarize extends Query1 {
 	private final List<String> cols;
 	final List<String> funcs;
 	final List<String> on;
-	private enum Strategy { NONE, SEQ, MAP, IDX }
+	private enum Strategy { NONE, SEQ, HASH, IDX }
 
 	private Strategy strategy = Strategy.NONE;
 	List<String> via;
+	/** whether HASH has to produce the results in "by" order */
+	private boolean hashOrdered;
+	/** whether HASH reads the source with {@link ParallelScan} */
+	boolean parallel;
 	private boolean first = true;
 	private boolean rewound = true;
 	private Header hdr;
 	private SummarizeStrategy strategyImp;
 	final boolean wholeRecord;
+	/** Set by Dbpkg.setOption("summarize_memory") in mb */
+	public static long HASH_MEMORY = 64 * 1024 * 1024;
+	/**
+	 * Set by Dbpkg.setOption("query_threads").
+	 * If greater than one, HASH reads large tables in parallel
+	 * in read-only transactions.
+	 */
+	public static int PARALLEL_THREADS = 0;
+	/** The minimum number of records to read in parallel */
+	static int PARALLEL_MIN = 10_000;
 
 	/**
 	 * cols, funcs, and on are parallel arrays storing multiple col = func [on]
@@ -82,7 +96,7 @@ public class Summarize extends Query1 {
 		switch (strategy) {
 		case NONE: break;
 		case SEQ: sb.append("-SEQ"); break;
-		case MAP: sb.append("-MAP"); break;
+		case HASH: sb.append(parallel ? "-HASH-PARALLEL" : "-HASH"); break;
 		case IDX: sb.append("-IDX"); break;
 		default: throw SuInternalError.unreachable();
 		}
@@ -112,17 +126,17 @@ public class Summarize extends Query1 {
 
 		double seqCost = seqCost(index, srcneeds, is_cursor, false);
 		double idxCost = idxCost(is_cursor, false);
-		double mapCost = mapCost(index, srcneeds, is_cursor, false);
+		double hashCost = hashCost(index, srcneeds, is_cursor, false);
 
 		if (!freeze)
-			return Math.min(seqCost, Math.min(idxCost, mapCost));
+			return Math.min(seqCost, Math.min(idxCost, hashCost));
 
-		if (seqCost <= idxCost && seqCost <= mapCost)
+		if (seqCost <= idxCost && seqCost <= hashCost)
 			return seqCost(index, srcneeds, is_cursor, true);
-		else if (idxCost <= mapCost)
+		else if (idxCost <= hashCost)
 			return idxCost(is_cursor, true);
 		else
-			return mapCost(index, srcneeds, is_cursor, true);
+			return hashCost(index, srcneeds, is_cursor, true);
 	}
 
 	private double seqCost(List<String> index, Set<String> srcneeds,
@@ -176,17 +190,25 @@ public class Summarize extends Query1 {
 		return cost;
 	}
 
-	private double mapCost(List<String> index, Set<String> srcneeds,
+	private double hashCost(List<String> index, Set<String> srcneeds,
 			boolean is_cursor,	boolean freeze) {
 		// can only provide 'by' as index
 		if (! startsWith(by, index))
 			return IMPOSSIBLE;
 		// using optimize1 to bypass tempindex
-		// add 50% for map overhead
-		double cost = 1.5 *
+		// add 25% for hashing, plus 25% to sort the groups if order is required
+		double factor = index.isEmpty() ? 1.25 : 1.5;
+		double cost = factor *
 				source.optimize1(noFields, srcneeds, noNeeds, is_cursor, freeze);
-		if (freeze)
-			strategy = Strategy.MAP;
+		boolean par = ! wholeRecord &&
+				ParallelScan.possible(source, union(by, without(on, null)));
+		if (par)
+			cost /= 2; // conservative, assumes at least two threads are used
+		if (freeze) {
+			strategy = Strategy.HASH;
+			hashOrdered = ! index.isEmpty();
+			parallel = par && ParallelScan.of(source) != null;
+		}
 		return cost;
 	}
 
@@ -220,10 +242,14 @@ public class Summarize extends Query1 {
 	@Override
 	double nrecords() {
 		double nr = source.nrecords();
-		return nr == 0 ? 0
-				: by.isEmpty() ? 1
-				: by_contains_key() ? nr
-				: nr / 2;					//TODO review this estimate
+		if (nr == 0)
+			return 0;
+		if (by.isEmpty())
+			return 1;
+		if (by_contains_key())
+			return nr;
+		double d = source.distinct(by); // from analyze
+		return d > 0 ? Math.min(d, nr) : nr / 2;	//TODO review this estimate
 	}
 
 	@Override
@@ -251,7 +277,8 @@ public class Summarize extends Query1 {
 		first = false;
 		hdr = source.header();
 		strategyImp =
-				(strategy == Strategy.MAP) ? new SummarizeStrategyMap(this)
+				(strategy == Strategy.HASH)
+					? new SummarizeStrategyHash(this, hashOrdered)
 				: (strategy == Strategy.IDX) ? new SummarizeStrategyIdx(this)
 				: new SummarizeStrategySeq(this);
 	}
@@ -271,6 +298,14 @@ public class Summarize extends Query1 {
 		rewound = true;
 	}
 
+	@Override
+	public void close() {
+		strategyImp = null; // release the map
+		first = true;
+		rewound = true;
+		super.close();
+	}
+
 	@Override
 	void select(List<String> index, Record from, Record to) {
 		if (first)
@@ -427,7 +462,7 @@ public class Summarize extends Query1 {
 		}
 	}
 
-	private final static int maxList = 10_000;
+	final static int maxList = 10_000;
 
 	private static class ListSum extends Summary {
 		HashSet<Object> set;
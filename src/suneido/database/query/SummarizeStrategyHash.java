@@ -0,0 +1,508 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static suneido.util.Util.startsWith;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Ascii;
+
+import suneido.SuException;
+import suneido.SuInternalError;
+import suneido.SuObject;
+import suneido.database.immudb.Dbpkg;
+import suneido.database.immudb.Record;
+import suneido.database.immudb.RecordBuilder;
+import suneido.database.immudb.RecordSorter;
+import suneido.database.query.Query.Dir;
+import suneido.runtime.Ops;
+import suneido.util.Dnum;
+import suneido.util.Sort;
+
+/**
+ * Accumulates the groups in a hash map, doesn't require any order.
+ * <p>
+ * The map only holds the group number,
+ * the results are accumulated in parallel arrays indexed by group number,
+ * so there are no per group Summary objects.
+ * Integer totals are accumulated as longs.
+ * <p>
+ * The groups are only sorted if the output order matters,
+ * i.e. if the optimizer required the "by" order or select is used.
+ * <p>
+ * If the memory used exceeds {@link Summarize#HASH_MEMORY}
+ * the partial results are written to a {@link RecordSorter}
+ * and the map is cleared.
+ * At the end the sorted partial results for each group are combined.
+ * <p>
+ * If {@link Summarize#parallel} the source is read by {@link ParallelScan}
+ * with a partial instance for each range,
+ * which are then merged in range order.
+ * Since all the partials are kept until the scan finishes
+ * each one's share of the memory is divided by the number of ranges.
+ * A partial that exceeds its share spills to its own sorter,
+ * with a sequence number first so sorting keeps the order of its groups.
+ * So the groups are in the same order as a serial read.
+ * (Totals are added per range so Dnum rounding may still differ.)
+ */
+public class SummarizeStrategyHash extends SummarizeStrategy {
+	private enum Kind { COUNT, TOTAL, AVERAGE, MIN, MAX, LIST }
+	/** rough size of the map entry, boxed group number, and arrays per group */
+	private static final int GROUP_OVERHEAD = 80;
+	private static final int VALUE_SIZE = 32;
+	private final int nby;
+	private final Kind[] kinds;
+	private boolean ordered;
+	/** true for the per range instances used by processParallel */
+	private final boolean partial;
+	/** for a partial, the number of groups spilled */
+	private int nspilled = 0;
+	private final Map<Record, Integer> groups = new HashMap<>();
+	private int ngroups = 0;
+	private Record[] keys;
+	private int[] counts;
+	/** integer totals, only valid while the corresponding objs is null */
+	private long[][] sums;
+	/** totals that are not integers, min or max values, or list sets */
+	private Object[][] objs;
+	private long memoryUsed = 0;
+	/** null unless the partial results were spilled */
+	private RecordSorter spilled;
+	/** the output order of the groups in memory */
+	private int[] order;
+	/** the range of the current group in order or spilled */
+	private int lo, hi;
+	private boolean first = true;
+	private boolean eof = false;
+
+	SummarizeStrategyHash(Summarize source, boolean ordered) {
+		this(source, ordered, false);
+	}
+
+	private SummarizeStrategyHash(Summarize source, boolean ordered,
+			boolean partial) {
+		super(source);
+		this.ordered = ordered;
+		this.partial = partial;
+		nby = q.by.size();
+		kinds = new Kind[q.funcs.size()];
+		for (int i = 0; i < kinds.length; ++i)
+			kinds[i] = kind(q.funcs.get(i));
+		sums = new long[kinds.length][];
+		objs = new Object[kinds.length][];
+		allocate(64);
+	}
+
+	private static Kind kind(String f) {
+		for (Kind k : Kind.values())
+			if (Ascii.equalsIgnoreCase(f, k.toString()))
+				return k;
+		throw SuInternalError.unreachable();
+	}
+
+	private void allocate(int n) {
+		keys = new Record[n];
+		counts = new int[n];
+		for (int i = 0; i < kinds.length; ++i) {
+			sums[i] = new long[n];
+			objs[i] = new Object[n];
+		}
+	}
+
+	private void grow() {
+		int n = 2 * keys.length;
+		keys = Arrays.copyOf(keys, n);
+		counts = Arrays.copyOf(counts, n);
+		for (int i = 0; i < kinds.length; ++i) {
+			sums[i] = Arrays.copyOf(sums[i], n);
+			objs[i] = Arrays.copyOf(objs[i], n);
+		}
+	}
+
+	@Override
+	Row get(Dir dir, boolean rewound) {
+		if (first) {
+			process();
+			first = false;
+		}
+		if (rewound || eof) {
+			eof = false;
+			if (spilled != null) {
+				lo = (dir == Dir.NEXT) ? spilled.lowerBound(sel.org) - 1
+						: spilled.upperBound(sel.end);
+				hi = lo;
+			} else if (ordered) {
+				lo = (dir == Dir.NEXT) ? lowerBound(sel.org) - 1
+						: upperBound(sel.end);
+				hi = lo;
+			} else
+				lo = hi = (dir == Dir.NEXT) ? -1 : ngroups;
+		}
+		Row row = (spilled != null) ? getSpilled(dir) : getMemory(dir);
+		if (row == null)
+			eof = true;
+		return row;
+	}
+
+	@Override
+	void select(List<String> index, Record from, Record to) {
+		assert startsWith(q.by, index);
+		if (! ordered) {
+			ordered = true;
+			if (! first && spilled == null)
+				sortGroups();
+		}
+	}
+
+	// accumulate --------------------------------------------------------------
+
+	private void process() {
+		Header hdr = q.getHdr();
+		if (! (q.parallel && processParallel(hdr))) {
+			Row row;
+			while (null != (row = source.get(Dir.NEXT)))
+				accumulate(hdr, row, Summarize.HASH_MEMORY);
+		}
+		if (spilled != null) {
+			spill();
+			spilled.sort();
+		} else {
+			order = new int[ngroups];
+			for (int g = 0; g < ngroups; ++g)
+				order[g] = g;
+			if (ordered)
+				sortGroups();
+		}
+	}
+
+	/** Spills before adding a new group if memoryUsed is over the limit */
+	private void accumulate(Header hdr, Row row, long limit) {
+		Record key = row.project(hdr, q.by);
+		Integer g = groups.get(key);
+		if (g == null) {
+			if (memoryUsed > limit)
+				spill();
+			g = newGroup(key);
+		}
+		++counts[g];
+		for (int i = 0; i < kinds.length; ++i)
+			if (kinds[i] != Kind.COUNT)
+				add(g, i, row.getval(hdr, q.on.get(i)));
+	}
+
+	/**
+	 * @return false if the source could not be read in parallel
+	 * e.g. not a read-only transaction
+	 */
+	private boolean processParallel(Header hdr) {
+		ParallelScan scan = ParallelScan.of(source);
+		if (scan == null)
+			return false;
+		long share = share();
+		List<SummarizeStrategyHash> parts = scan.run(
+				() -> new SummarizeStrategyHash(q, false, true),
+				(part, row) -> part.accumulate(hdr, row, share));
+		if (parts == null)
+			return false;
+		for (int i = 0; i < parts.size(); ++i) {
+			merge(parts.get(i));
+			parts.set(i, null); // so it can be garbage collected
+		}
+		return true;
+	}
+
+	/** @return The memory for each partial */
+	private static long share() {
+		return Summarize.HASH_MEMORY / ParallelScan.maxRanges();
+	}
+
+	/**
+	 * Combine a partial into this,
+	 * its spilled groups first, in the order they were spilled,
+	 * and then the groups still in memory
+	 */
+	private void merge(SummarizeStrategyHash part) {
+		if (part.spilled != null)
+			try (RecordSorter sorter = part.spilled) {
+				part.spill();
+				sorter.sort();
+				for (int i = 0; i < sorter.size(); ++i) {
+					Record rec = sorter.get(i);
+					RecordBuilder key = new RecordBuilder();
+					for (int f = 1; f <= nby; ++f)
+						key.add(rec.getRaw(f));
+					merge(rec, 1 + nby, group(key.build()));
+				}
+				return;
+			}
+		for (int pg = 0; pg < part.ngroups; ++pg) {
+			int g = group(part.keys[pg]);
+			counts[g] += part.counts[pg];
+			for (int i = 0; i < kinds.length; ++i)
+				switch (kinds[i]) {
+				case COUNT:
+					break;
+				case TOTAL:
+				case AVERAGE:
+					if (objs[i][g] == null && part.objs[i][pg] == null)
+						sums[i][g] += part.sums[i][pg];
+					else
+						addTotal(g, i, part.total(pg, i));
+					break;
+				case LIST:
+					for (Object x : (HashSet<?>) part.objs[i][pg])
+						add(g, i, x);
+					break;
+				default:
+					add(g, i, part.objs[i][pg]);
+				}
+		}
+	}
+
+	/** @return The group for key, spilling before adding it if necessary */
+	private int group(Record key) {
+		Integer g = groups.get(key);
+		if (g == null) {
+			if (memoryUsed > Summarize.HASH_MEMORY)
+				spill();
+			g = newGroup(key);
+		}
+		return g;
+	}
+
+	private int newGroup(Record key) {
+		if (ngroups >= keys.length)
+			grow();
+		int g = ngroups++;
+		groups.put(key, g);
+		keys[g] = key;
+		memoryUsed += key.bufSize() + GROUP_OVERHEAD + kinds.length * 16;
+		return g;
+	}
+
+	private void add(int g, int i, Object x) {
+		switch (kinds[i]) {
+		case TOTAL:
+		case AVERAGE:
+			addTotal(g, i, x);
+			break;
+		case MIN:
+			if (objs[i][g] == null || Ops.cmp(x, objs[i][g]) < 0)
+				objs[i][g] = x;
+			break;
+		case MAX:
+			if (objs[i][g] == null || Ops.cmp(x, objs[i][g]) > 0)
+				objs[i][g] = x;
+			break;
+		case LIST:
+			@SuppressWarnings("unchecked")
+			HashSet<Object> set = (HashSet<Object>) objs[i][g];
+			if (set == null)
+				objs[i][g] = set = new HashSet<>();
+			if (set.size() > Summarize.maxList)
+				throw new SuException("summarize list too large");
+			if (set.add(x))
+				memoryUsed += VALUE_SIZE;
+			break;
+		default:
+			throw SuInternalError.unreachable();
+		}
+	}
+
+	/** like Summarize Total, ignores values that can't be added */
+	private void addTotal(int g, int i, Object x) {
+		if (objs[i][g] == null && x instanceof Integer) {
+			sums[i][g] += (Integer) x; // can't overflow a long
+			return;
+		}
+		try {
+			objs[i][g] = Ops.add(total(g, i), x);
+		} catch (Exception e) {
+		}
+	}
+
+	private Object total(int g, int i) {
+		Object t = objs[i][g];
+		if (t != null)
+			return t;
+		long n = sums[i][g];
+		return (Integer.MIN_VALUE <= n && n <= Integer.MAX_VALUE)
+				? (Object) (int) n : Dnum.from(n);
+	}
+
+	private Object result(int g, int i) {
+		switch (kinds[i]) {
+		case COUNT:
+			return counts[g];
+		case TOTAL:
+			return total(g, i);
+		case AVERAGE:
+			return Ops.div(total(g, i), counts[g]);
+		case MIN:
+		case MAX:
+			return objs[i][g];
+		case LIST:
+			SuObject list = new SuObject();
+			for (Object x : (HashSet<?>) objs[i][g])
+				list.add(x);
+			if (list.size() <= 3) // to ensure consistent order for tests
+				list.sort(Boolean.FALSE);
+			return list;
+		default:
+			throw SuInternalError.unreachable();
+		}
+	}
+
+	private Row makeRow(Record key, int g) {
+		RecordBuilder rb = new RecordBuilder();
+		rb.addAll(key);
+		for (int i = 0; i < kinds.length; ++i)
+			rb.add(result(g, i));
+		return new Row(Dbpkg.MIN_RECORD, rb.build());
+	}
+
+	// in memory ---------------------------------------------------------------
+
+	private void sortGroups() {
+		Sort.sort(order, (x, y) -> keys[x].compareTo(keys[y]));
+	}
+
+	/** @return The position in order of the first key >= key */
+	private int lowerBound(Record key) {
+		int i = 0;
+		int j = ngroups;
+		while (i < j) {
+			int mid = (i + j) >>> 1;
+			if (keys[order[mid]].compareTo(key) < 0)
+				i = mid + 1;
+			else
+				j = mid;
+		}
+		return i;
+	}
+
+	/** @return The position in order of the first key > key */
+	private int upperBound(Record key) {
+		int i = 0;
+		int j = ngroups;
+		while (i < j) {
+			int mid = (i + j) >>> 1;
+			if (keys[order[mid]].compareTo(key) <= 0)
+				i = mid + 1;
+			else
+				j = mid;
+		}
+		return i;
+	}
+
+	private Row getMemory(Dir dir) {
+		do
+			lo += (dir == Dir.NEXT) ? 1 : -1;
+			while (0 <= lo && lo < ngroups && ! ordered &&
+					! sel.contains(keys[order[lo]]));
+		if (lo < 0 || lo >= ngroups || ! sel.contains(keys[order[lo]]))
+			return null;
+		int g = order[lo];
+		return makeRow(keys[g], g);
+	}
+
+	// spilled -----------------------------------------------------------------
+
+	/**
+	 * Write the partial results to the sorter and clear the groups.
+	 * Each record is the key, the count, and then the state for each func.
+	 * For a partial, the record starts with a sequence number.
+	 */
+	private void spill() {
+		if (spilled == null)
+			spilled = partial
+					? Dbpkg.recordSorter(share())
+					: Dbpkg.recordSorter();
+		for (int g = 0; g < ngroups; ++g) {
+			RecordBuilder rb = new RecordBuilder();
+			if (partial)
+				rb.add(nspilled++);
+			rb.addAll(keys[g]);
+			rb.add(counts[g]);
+			for (int i = 0; i < kinds.length; ++i)
+				switch (kinds[i]) {
+				case COUNT:
+					break;
+				case TOTAL:
+				case AVERAGE:
+					rb.add(total(g, i));
+					break;
+				case MIN:
+				case MAX:
+					rb.add(objs[i][g]);
+					break;
+				case LIST:
+					rb.add(new SuObject((HashSet<?>) objs[i][g]));
+					break;
+				default:
+					throw SuInternalError.unreachable();
+				}
+			spilled.add(rb.build());
+		}
+		clear();
+	}
+
+	private void clear() {
+		groups.clear();
+		ngroups = 0;
+		memoryUsed = 0;
+		allocate(keys.length);
+	}
+
+	/**
+	 * The partial results for a group are adjacent in the sorter.
+	 * They are combined in group 0.
+	 */
+	private Row getSpilled(Dir dir) {
+		int i = (dir == Dir.NEXT) ? hi + 1 : lo - 1;
+		if (i < 0 || i >= spilled.size())
+			return null;
+		Record key = key(spilled.get(i));
+		if (! sel.contains(key))
+			return null;
+		lo = hi = i;
+		if (dir == Dir.NEXT)
+			while (hi + 1 < spilled.size() && key(spilled.get(hi + 1)).equals(key))
+				++hi;
+		else
+			while (lo - 1 >= 0 && key(spilled.get(lo - 1)).equals(key))
+				--lo;
+		allocate(1);
+		for (int j = lo; j <= hi; ++j)
+			merge(spilled.get(j), nby, 0);
+		return makeRow(key, 0);
+	}
+
+	private Record key(Record rec) {
+		return new RecordBuilder().addAll(rec).truncate(nby).build();
+	}
+
+	/** Add a spilled record, starting at field f, to group g */
+	private void merge(Record rec, int f, int g) {
+		counts[g] += (Integer) rec.get(f++);
+		for (int i = 0; i < kinds.length; ++i)
+			switch (kinds[i]) {
+			case COUNT:
+				break;
+			case LIST:
+				for (Object x : ((SuObject) rec.get(f++)).vec)
+					add(g, i, x);
+				break;
+			default:
+				add(g, i, rec.get(f++));
+			}
+	}
+
+}
@@ -14,12 +14,14 @@ import static suneido.util.Verify.verify;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import suneido.database.immudb.IndexIter;
+import suneido.database.immudb.IndexStats;
 import suneido.database.immudb.Record;
 import suneido.database.immudb.RecordBuilder;
 import suneido.database.immudb.Transaction;
@@ -31,13 +33,13 @@ public class Table extends Query {
 	final suneido.database.immudb.Table tbl;
 	private boolean first = true;
 	private boolean rewound = true;
-	private final Keyrange sel = new Keyrange();
+	private Keyrange sel = new Keyrange();
 	private Header hdr;
 	private String icols; // null to use first index
 	private Transaction tran;
 	final boolean singleton; // i.e. key()
 	private List<String> idx = noFields;
-	private final Impl impl;
+	private Impl impl;
 	IndexIter iter;
 
 	public Table(Transaction tran, String tablename) {
@@ -45,7 +47,11 @@ public class Table extends Query {
 		table = tablename;
 		tbl = tran.ck_getTable(table);
 		singleton = tbl.singleton();
-		impl = table.equals("indexes") ? new IndexesImpl()
+		impl = impl();
+	}
+
+	private Impl impl() {
+		return table.equals("indexes") ? new IndexesImpl()
 				: table.equals("tables") ? new TablesImpl()
 				: new Impl();
 	}
@@ -169,6 +175,25 @@ public class Table extends Query {
 		return nrecs();
 	}
 
+	@Override
+	double distinct(List<String> cols) {
+		if (cols.isEmpty())
+			return -1;
+		for (List<String> key : keys())
+			if (cols.containsAll(key))
+				return nrecs();
+		// an index that starts with the columns, in any order
+		for (List<String> index : indexes())
+			if (index.size() >= cols.size() &&
+					setEquals(index.subList(0, cols.size()), cols)) {
+				IndexStats stats =
+						tran.indexStats(tbl.num(), listToCommas(index));
+				if (stats != null)
+					return stats.distinct(cols.size());
+			}
+		return -1;
+	}
+
 	int num() {
 		return tbl.num();
 	}
@@ -258,6 +283,34 @@ public class Table extends Query {
 				: tran.iter(tbl.num(), icols, sel.org, sel.end);
 	}
 
+	// parallel ----------------------------------------------------------------
+
+	/** @return Whether {@link ParallelScan} can read this table */
+	boolean parallelOk() {
+		return ! singleton && singleDbTable();
+	}
+
+	/**
+	 * @return Iterators over up to n ranges of the current index,
+	 * or null if the transaction is not read-only.
+	 * Used by {@link ParallelScan}
+	 */
+	List<IndexIter> iters(int n) {
+		if (! tran.isReadonly())
+			return null;
+		set_ix();
+		return tran.iters(tbl.num(), icols, n);
+	}
+
+	/** Thread safe, used by {@link ParallelScan} */
+	Row row(IndexIter iter) {
+		return new Row(iter.curKey(), impl.process(tran.input(iter.keyadr())));
+	}
+
+	List<String> fields() {
+		return impl.fields();
+	}
+
 	private void iterate_setup(Dir dir) {
 		hdr = header();
 		set_ix();
@@ -316,6 +369,14 @@ public class Table extends Query {
 
 	@Override
 	public void close() {
+		iter = null; // in case it's reused with another transaction
+		rewound = true;
+	}
+
+	@Override
+	void copied(Map<Query, Query> copies) {
+		sel = new Keyrange(sel.org, sel.end);
+		impl = impl(); // Impl uses our tran
 	}
 
 	private class Impl {
@@ -10,32 +10,31 @@ import static suneido.util.Util.startsWith;
 import static suneido.util.Verify.verify;
 
 import java.util.List;
+import java.util.Map;
 
 import suneido.SuException;
 import suneido.database.immudb.Dbpkg;
 import suneido.database.immudb.Record;
-import suneido.database.immudb.RecordStore;
+import suneido.database.immudb.RecordSorter;
 import suneido.database.immudb.Transaction;
 import suneido.util.ArraysList;
-import suneido.util.BlockList;
-import suneido.util.IntComparator;
 
+/**
+ * Sorts the source rows by order.
+ * The keys are sorted off heap, within a memory budget,
+ * by {@link RecordSorter}
+ */
 public class TempIndex extends Query1 {
 	private final List<String> order;
 	private final boolean unique;
 	private Transaction tran;
 	private boolean first = true;
 	private boolean rewound = true;
-	private RecordStore stor;
-	private final ArraysList<Object> refs = new ArraysList<>();
-	private final IntComparator cmp = (int xi, int yi) -> {
-		Record xkey = stor.get(xi);
-		Record ykey = stor.get(yi);
-		return xkey.compareTo(ykey);
-	};
-	private final BlockList index = new BlockList(cmp);
-	private BlockList.Iter iter;
-	private final Keyrange sel = new Keyrange();
+	private RecordSorter index;
+	/** the position of the current key in index */
+	private int cur;
+	private ArraysList<Object> refs = new ArraysList<>();
+	private Keyrange sel = new Keyrange();
 	private final boolean single;
 
 	public TempIndex(Query source, Transaction tran, List<String> order, boolean unique) {
@@ -71,15 +70,14 @@ public class TempIndex extends Query1 {
 		}
 		if (rewound) {
 			rewound = false;
-			if (dir == Dir.NEXT)
-				iter.seekFirst(stor.add(sel.org));
-			else // prev
-				iter.seekLast(stor.add(sel.end));
+			cur = (dir == Dir.NEXT)
+					? index.lowerBound(sel.org) - 1
+					: index.upperBound(sel.end);
 		}
 		Record key;
-		int cur = (dir == Dir.NEXT) ? iter.next() : iter.prev();
-		if (cur == Integer.MIN_VALUE || cur == Integer.MAX_VALUE ||
-				! sel.contains(key = stor.get(cur))) {
+		cur += (dir == Dir.NEXT) ? 1 : -1;
+		if (cur < 0 || cur >= index.size() ||
+				! sel.contains(key = index.get(cur))) {
 			rewound = true;
 			return null;
 		}
@@ -90,7 +88,7 @@ public class TempIndex extends Query1 {
 	}
 
 	private void iterate_setup(Dir dir) {
-		stor = Dbpkg.recordStore();
+		index = Dbpkg.recordSorter();
 		Header srchdr = source.header();
 		Row row;
 		while (null != (row = source.get(Dir.NEXT))) {
@@ -99,10 +97,9 @@ public class TempIndex extends Query1 {
 			Record key = row.project(srchdr, order, adr);
 			if (key.bufSize() > 4000)
 				throw new SuException("temp index entry size > 4000: " + order);
-			index.add(stor.add(key));
+			index.add(key);
 		}
 		index.sort();
-		iter = index.iter();
 	}
 
 	@Override
@@ -110,6 +107,24 @@ public class TempIndex extends Query1 {
 		rewound = true;
 	}
 
+	@Override
+	public void close() {
+		if (index != null)
+			index.close();
+		index = null;
+		refs.clear();
+		first = true;
+		rewound = true;
+		super.close();
+	}
+
+	@Override
+	void copied(Map<Query, Query> copies) {
+		super.copied(copies);
+		refs = new ArraysList<>();
+		sel = new Keyrange(sel.org, sel.end);
+	}
+
 	@Override
 	void select(List<String> index, Record from, Record to) {
 		verify(startsWith(order, index));
@@ -22,9 +22,16 @@ import suneido.runtime.Ops;
 public class TreeQueryGenerator extends QueryGenerator<Object> {
 
 	private final Transaction tran;
+	private final List<Param> params;
 
 	public TreeQueryGenerator(Transaction tran) {
+		this(tran, new ArrayList<>());
+	}
+
+	/** @param params Receives the ? parameters in the order they occur */
+	public TreeQueryGenerator(Transaction tran, List<Param> params) {
 		this.tran = tran;
+		this.params = params;
 	}
 
 	@Override
@@ -303,4 +310,11 @@ public class TreeQueryGenerator extends QueryGenerator<Object> {
 		return Constant.valueOf(value);
 	}
 
+	@Override
+	public Object parameter() {
+		Param p = new Param();
+		params.add(p);
+		return p;
+	}
+
 }
@@ -10,6 +10,7 @@ import static suneido.util.Util.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import suneido.database.immudb.Dbpkg;
@@ -334,6 +335,12 @@ public class Union extends Compatible {
 			source2.select(ki, sel.org, sel.end);
 	}
 
+	@Override
+	void copied(Map<Query, Query> copies) {
+		super.copied(copies);
+		sel = new Keyrange(sel.org, sel.end);
+	}
+
 	@Override
 	void select(List<String> index, Record from, Record to) {
 		sel.set(from, to);
@@ -10,7 +10,6 @@ import static suneido.compiler.Token.GTE;
 import static suneido.compiler.Token.LT;
 import static suneido.compiler.Token.LTE;
 import static suneido.runtime.Ops.*;
-import static suneido.util.ByteBuffers.bufferUcompare;
 import static suneido.util.Util.union;
 
 import java.nio.ByteBuffer;
@@ -27,15 +26,20 @@ public class BinOp extends Expr {
 	public Expr right;
 	private boolean isTerm = false; // valid for isTermFields
 	private List<String> isTermFields = null;
+	private Row.Field rawField = null; // for raw comparison
 
 	public BinOp(Token op, Expr left, Expr right) {
 		this.op = op;
 		this.left = left;
 		this.right = right;
-		if (left instanceof Constant && op.termop())
+		if (isValue(left) && op.termop())
 			reverse();
 	}
 
+	private static boolean isValue(Expr e) {
+		return e instanceof Constant || e instanceof Param;
+	}
+
 	private void reverse() {
 		Expr tmp = left; left = right; right = tmp;
 		op = switch (op) {
@@ -60,6 +64,11 @@ public class BinOp extends Expr {
 		return union(left.fields(), right.fields());
 	}
 
+	@Override
+	public boolean hasCalls() {
+		return left.hasCalls() || right.hasCalls();
+	}
+
 	@Override
 	public Expr fold() {
 		left = left.fold();
@@ -99,7 +108,7 @@ public class BinOp extends Expr {
 
 	// override Ops.cmp to make "" < all other values
 	// to match packed comparison
-	private static int cmp(Object x, Object y) {
+	static int cmp(Object x, Object y) {
 		if (x == y)
 			return 0;
 		if ("".equals(x))
@@ -122,7 +131,14 @@ public class BinOp extends Expr {
 	private boolean isTerm2(List<String> fields) {
 		if (! op.termop())
 			return false;
-		return left.isField(fields) && right instanceof Constant;
+		return left.isField(fields) && isValue(right);
+	}
+
+	/** @return The packed value of a term i.e. the right side */
+	public ByteBuffer packedValue() {
+		return (right instanceof Param)
+				? ((Param) right).packed()
+				: ((Constant) right).packed;
 	}
 
 	@Override
@@ -130,23 +146,32 @@ public class BinOp extends Expr {
 		// only use raw comparison if isTerm has been used (by Select)
 		// NOTE: do NOT want to use raw for Extend because of rule issues
 		if (isTerm && hdr.fields().equals(isTermFields)) {
-			Identifier id = (Identifier) left;
-			ByteBuffer field = row.getraw(hdr, id.ident);
-			Constant c = (Constant) right;
-			ByteBuffer value = c.packed;
+			int cmp = rawField(hdr).compareRaw(row, packedValue());
 			return switch (op) {
-				case IS -> field.equals(value);
-				case ISNT -> ! field.equals(value);
-				case LT -> bufferUcompare(field, value) < 0;
-				case LTE -> bufferUcompare(field, value) <= 0;
-				case GT -> bufferUcompare(field, value) > 0;
-				case GTE -> bufferUcompare(field, value) >= 0;
+				case IS -> cmp == 0;
+				case ISNT -> cmp != 0;
+				case LT -> cmp < 0;
+				case LTE -> cmp <= 0;
+				case GT -> cmp > 0;
+				case GTE -> cmp >= 0;
 				default -> throw unreachable();
 			};
 		} else
 			return eval2(left.eval(hdr, row), right.eval(hdr, row));
 	}
 
+	/**
+	 * The field positions are cached for the header.
+	 * Row.Field is immutable so this is safe for {@link
+	 * suneido.database.query.ParallelScan} without synchronization.
+	 */
+	private Row.Field rawField(Header hdr) {
+		Row.Field f = rawField;
+		if (f == null || ! f.isFor(hdr))
+			rawField = f = new Row.Field(hdr, ((Identifier) left).ident);
+		return f;
+	}
+
 	@Override
 	public Expr rename(List<String> from, List<String> to) {
 		Expr new_left = left.rename(from, to);
@@ -165,7 +190,7 @@ public class BinOp extends Expr {
 
 	@Override
 	public boolean cantBeNil(List<String> fields) {
-		if (! isTerm(fields))
+		if (! isTerm(fields) || right instanceof Param)
 			return false;
 		Constant c = (Constant) right;
 		return switch (op) {
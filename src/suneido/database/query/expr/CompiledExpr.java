@@ -0,0 +1,106 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query.expr;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import suneido.database.query.Header;
+import suneido.database.query.Row;
+import suneido.runtime.Ops;
+
+/**
+ * Base class for query expressions compiled to Java byte code
+ * by {@link ExprCompiler}.
+ * Gives the same results as {@link Expr#eval}
+ * but the tree is only walked once, when it is compiled,
+ * and the column positions are found once ({@link Row.Field}).
+ * <p>
+ * Used by Select and Extend once they have evaluated
+ * more than {@link #THRESHOLD} rows,
+ * so small queries don't pay the cost of generating a class.
+ * Generated classes are cached and shared by expressions of the same shape.
+ * <p>
+ * The public static methods are called by the generated code.
+ */
+public abstract class CompiledExpr {
+	public static final int THRESHOLD = 100;
+	/** constants, parameters, Row.Field's, and expressions that aren't compiled */
+	protected final Object[] refs;
+	protected final Header hdr;
+
+	protected CompiledExpr(Object[] refs, Header hdr) {
+		this.refs = refs;
+		this.hdr = hdr;
+	}
+
+	/**
+	 * @param rawFields If not null, comparisons of these fields to constants
+	 * are done on the packed values, as with {@link Expr#isTerm}.
+	 * Should only be used for simple sources, not e.g. Extend.
+	 */
+	public static CompiledExpr compile(Expr e, Header hdr,
+			List<String> rawFields) {
+		return new ExprCompiler(hdr, rawFields).compile(e);
+	}
+
+	/** Same as {@link Expr#eval} for the header it was compiled with */
+	public abstract Object eval(Row row);
+
+	// called by generated code ------------------------------------------------
+
+	public static Boolean lt(Object x, Object y) {
+		return BinOp.cmp(x, y) < 0;
+	}
+
+	public static Boolean lte(Object x, Object y) {
+		return BinOp.cmp(x, y) <= 0;
+	}
+
+	public static Boolean gt(Object x, Object y) {
+		return BinOp.cmp(x, y) > 0;
+	}
+
+	public static Boolean gte(Object x, Object y) {
+		return BinOp.cmp(x, y) >= 0;
+	}
+
+	public static Boolean rawIs(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) == 0;
+	}
+
+	public static Boolean rawIsnt(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) != 0;
+	}
+
+	public static Boolean rawLt(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) < 0;
+	}
+
+	public static Boolean rawLte(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) <= 0;
+	}
+
+	public static Boolean rawGt(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) > 0;
+	}
+
+	public static Boolean rawGte(Row.Field f, Row row, ByteBuffer value) {
+		return f.compareRaw(row, value) >= 0;
+	}
+
+	public static Boolean in(Object x, Set<Object> values) {
+		for (Object y : values)
+			if (Ops.is(x, y))
+				return Boolean.TRUE;
+		return Boolean.FALSE;
+	}
+
+	public static Boolean rawIn(Row.Field f, Row row, ByteBuffer[] sorted) {
+		return f.rawIn(row, sorted);
+	}
+
+}
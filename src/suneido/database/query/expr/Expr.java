@@ -16,6 +16,16 @@ public abstract class Expr {
 
 	public abstract List<String> fields();
 
+	/**
+	 * @return Whether evaluating could call functions or methods.
+	 * Overridden by {@link FunCall} and expressions with children.
+	 * Used by parallel {@link suneido.database.query.Summarize}
+	 * which can only evaluate expressions that don't run user code.
+	 */
+	public boolean hasCalls() {
+		return false;
+	}
+
 	public Expr fold() {
 		return this;
 	}
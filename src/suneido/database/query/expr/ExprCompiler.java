@@ -0,0 +1,351 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query.expr;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import suneido.SuException;
+import suneido.SuInternalError;
+import suneido.database.query.Header;
+import suneido.database.query.Row;
+import suneido.runtime.Ops;
+
+/**
+ * Generates a {@link CompiledExpr} subclass for a query expression.
+ * Wraps use of ASM.
+ * <p>
+ * Fields, constants, and/or, comparisons, and operators are compiled.
+ * Anything else (e.g. function calls)
+ * is left to {@link Expr#eval} via refs.
+ * <p>
+ * Columns, constants, and parameters are also accessed via refs,
+ * so the byte code only depends on the shape of the expression.
+ * Classes are cached by their byte code
+ * so e.g. repeated queries don't define a new class each time.
+ */
+class ExprCompiler {
+	/** the same for every class, each is defined by its own Loader */
+	private static final String NAME = "suneido/code/QueryExpr";
+	private static final Cache<ByteBuffer, Constructor<?>> cache =
+			CacheBuilder.newBuilder().maximumSize(100).build();
+	private static final String COMPILED = Type.getInternalName(CompiledExpr.class);
+	private static final String OPS = Type.getInternalName(Ops.class);
+	private static final String OBJECT = Type.getInternalName(Object.class);
+	private static final String BOOLEAN = Type.getInternalName(Boolean.class);
+	private static final String FIELD = Type.getInternalName(Row.Field.class);
+	private static final String EXPR = Type.getInternalName(Expr.class);
+	private static final String PARAM = Type.getInternalName(Param.class);
+	private static final String BUFFER = Type.getInternalName(ByteBuffer.class);
+	private static final String SORTED = Type.getInternalName(ByteBuffer[].class);
+	private static final String SET = Type.getInternalName(Set.class);
+	private static final String HEADER_DESC = Type.getDescriptor(Header.class);
+	private static final String ROW_DESC = Type.getDescriptor(Row.class);
+	private static final String OBJECT_DESC = Type.getDescriptor(Object.class);
+	private static final String BOOLEAN_DESC = Type.getDescriptor(Boolean.class);
+	private static final String BUFFER_DESC = Type.getDescriptor(ByteBuffer.class);
+	private static final String FIELD_DESC = Type.getDescriptor(Row.Field.class);
+	private static final String RAW_DESC =
+			"(" + FIELD_DESC + ROW_DESC + BUFFER_DESC + ")" + BOOLEAN_DESC;
+	private static final String CMP_DESC =
+			"(" + OBJECT_DESC + OBJECT_DESC + ")" + BOOLEAN_DESC;
+	// locals
+	private static final int THIS = 0;
+	private static final int ROW = 1;
+	private static final int REFS = 2;
+	private final Header hdr;
+	private final List<String> rawFields;
+	private final List<Object> refs = new ArrayList<>();
+	private MethodVisitor mv;
+
+	ExprCompiler(Header hdr, List<String> rawFields) {
+		this.hdr = hdr;
+		this.rawFields = rawFields;
+	}
+
+	CompiledExpr compile(Expr e) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+		cw.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, NAME, null,
+				COMPILED, null);
+		constructor(cw);
+
+		mv = cw.visitMethod(ACC_PUBLIC, "eval",
+				"(" + ROW_DESC + ")" + OBJECT_DESC, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, THIS);
+		mv.visitFieldInsn(GETFIELD, COMPILED, "refs", "[" + OBJECT_DESC);
+		mv.visitVarInsn(ASTORE, REFS);
+		expr(e);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+
+		byte[] code = cw.toByteArray();
+		try {
+			ByteBuffer key = ByteBuffer.wrap(code);
+			Constructor<?> c = cache.getIfPresent(key);
+			if (c == null) {
+				c = new Loader().defineClass(NAME.replace('/', '.'), code)
+						.getConstructor(Object[].class, Header.class);
+				cache.put(key, c);
+			}
+			return (CompiledExpr) c.newInstance(refs.toArray(), hdr);
+		} catch (InstantiationException | IllegalAccessException |
+				NoSuchMethodException | InvocationTargetException ex) {
+			throw new SuException("compile query expression error: " + ex);
+		}
+	}
+
+	private static void constructor(ClassWriter cw) {
+		String desc = "([" + OBJECT_DESC + HEADER_DESC + ")V";
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", desc, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, COMPILED, "<init>", desc, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/** generate code to leave the value of e on the stack */
+	private void expr(Expr e) {
+		if (e instanceof Constant)
+			constant(((Constant) e).value);
+		else if (e instanceof Param) {
+			ref(e, PARAM);
+			mv.visitMethodInsn(INVOKEVIRTUAL, PARAM, "value",
+					"()" + OBJECT_DESC, false);
+		} else if (e instanceof Identifier)
+			field(((Identifier) e).ident, "getval", OBJECT_DESC);
+		else if (e instanceof And)
+			andOr((And) e, true);
+		else if (e instanceof Or)
+			andOr((Or) e, false);
+		else if (e instanceof BinOp)
+			binop((BinOp) e);
+		else if (e instanceof UnOp)
+			unop((UnOp) e);
+		else if (e instanceof TriOp)
+			triop((TriOp) e);
+		else if (e instanceof In)
+			in((In) e);
+		else
+			interpret(e);
+	}
+
+	private void constant(Object x) {
+		if (x == Boolean.TRUE || x == Boolean.FALSE)
+			bool(x == Boolean.TRUE);
+		else
+			ref(x, null);
+	}
+
+	private void bool(boolean x) {
+		mv.visitFieldInsn(GETSTATIC, BOOLEAN, x ? "TRUE" : "FALSE",
+				BOOLEAN_DESC);
+	}
+
+	/** generate code to load x from refs, with a cast if type is not null */
+	private void ref(Object x, String type) {
+		mv.visitVarInsn(ALOAD, REFS);
+		iconst(refs.size());
+		mv.visitInsn(AALOAD);
+		if (type != null)
+			mv.visitTypeInsn(CHECKCAST, type);
+		refs.add(x);
+	}
+
+	private void iconst(int i) {
+		if (i <= 5)
+			mv.visitInsn(ICONST_0 + i);
+		else if (i <= Byte.MAX_VALUE)
+			mv.visitIntInsn(BIPUSH, i);
+		else if (i <= Short.MAX_VALUE)
+			mv.visitIntInsn(SIPUSH, i);
+		else
+			mv.visitLdcInsn(i);
+	}
+
+	/** push a Row.Field and the row for the raw comparisons */
+	private void rawField(String col) {
+		ref(new Row.Field(hdr, col), FIELD);
+		mv.visitVarInsn(ALOAD, ROW);
+	}
+
+	/** call getval or getraw on a Row.Field */
+	private void field(String col, String method, String returnDesc) {
+		ref(new Row.Field(hdr, col), FIELD);
+		mv.visitVarInsn(ALOAD, ROW);
+		mv.visitMethodInsn(INVOKEVIRTUAL, FIELD, method,
+				"(" + ROW_DESC + ")" + returnDesc, false);
+	}
+
+	/** like And/Or eval, short circuit */
+	private void andOr(Multi e, boolean and) {
+		Label done = new Label();
+		Label shortCircuit = new Label();
+		for (Expr x : e.exprs) {
+			expr(x);
+			toBoolean();
+			mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+		}
+		bool(and);
+		mv.visitJumpInsn(GOTO, done);
+		mv.visitLabel(shortCircuit);
+		bool(! and);
+		mv.visitLabel(done);
+	}
+
+	private void toBoolean() {
+		mv.visitMethodInsn(INVOKESTATIC, OPS, "toBoolean_",
+				"(" + OBJECT_DESC + ")Z", false);
+	}
+
+	private void binop(BinOp e) {
+		if (rawFields != null && e.isTerm(rawFields)) {
+			rawField(((Identifier) e.left).ident);
+			if (e.right instanceof Param) {
+				ref(e.right, PARAM);
+				mv.visitMethodInsn(INVOKEVIRTUAL, PARAM, "packed",
+						"()" + BUFFER_DESC, false);
+			} else
+				ref(((Constant) e.right).packed, BUFFER);
+			String method = switch (e.op) {
+				case IS -> "rawIs";
+				case ISNT -> "rawIsnt";
+				case LT -> "rawLt";
+				case LTE -> "rawLte";
+				case GT -> "rawGt";
+				case GTE -> "rawGte";
+				default -> throw SuInternalError.unreachable();
+			};
+			mv.visitMethodInsn(INVOKESTATIC, COMPILED, method, RAW_DESC, false);
+			return;
+		}
+		expr(e.left);
+		expr(e.right);
+		switch (e.op) {
+		case LT -> compare("lt");
+		case LTE -> compare("lte");
+		case GT -> compare("gt");
+		case GTE -> compare("gte");
+		case IS -> ops("is");
+		case ISNT -> ops("isnt");
+		case ADD -> ops("add");
+		case SUB -> ops("sub");
+		case CAT -> ops("cat");
+		case MUL -> ops("mul");
+		case DIV -> ops("div");
+		case MOD -> ops("mod");
+		case LSHIFT -> ops("lshift");
+		case RSHIFT -> ops("rshift");
+		case BITAND -> ops("bitand");
+		case BITOR -> ops("bitor");
+		case BITXOR -> ops("bitxor");
+		case MATCH -> ops("match");
+		case MATCHNOT -> ops("matchnot");
+		case SUBSCRIPT -> ops("get");
+		default -> throw SuInternalError.unreachable();
+		}
+	}
+
+	/** comparisons use BinOp.cmp (via CompiledExpr) rather than Ops.cmp */
+	private void compare(String method) {
+		mv.visitMethodInsn(INVOKESTATIC, COMPILED, method, CMP_DESC, false);
+	}
+
+	private void ops(String method, Class<?>... params) {
+		if (params.length == 0)
+			params = new Class<?>[] { Object.class, Object.class };
+		String desc;
+		try {
+			desc = Type.getMethodDescriptor(Ops.class.getMethod(method, params));
+		} catch (NoSuchMethodException e) {
+			throw SuInternalError.unreachable();
+		}
+		mv.visitMethodInsn(INVOKESTATIC, OPS, method, desc, false);
+	}
+
+	private void unop(UnOp e) {
+		expr(e.expr);
+		switch (e.op) {
+		case NOT -> ops("not", Object.class);
+		case ADD -> { }
+		case SUB -> ops("uminus", Object.class);
+		case BITNOT -> ops("bitnot", Object.class);
+		default -> throw SuInternalError.unreachable();
+		}
+	}
+
+	private void triop(TriOp e) {
+		Label iffalse = new Label();
+		Label done = new Label();
+		expr(e.expr);
+		toBoolean();
+		mv.visitJumpInsn(IFEQ, iffalse);
+		expr(e.iftrue);
+		mv.visitTypeInsn(CHECKCAST, OBJECT); // so the branches match
+		mv.visitJumpInsn(GOTO, done);
+		mv.visitLabel(iffalse);
+		expr(e.iffalse);
+		mv.visitTypeInsn(CHECKCAST, OBJECT);
+		mv.visitLabel(done);
+	}
+
+	private void in(In e) {
+		if (rawFields != null && e.isTerm(rawFields)) {
+			rawField(((Identifier) e.expr).ident);
+			ref(e.sorted, SORTED);
+			mv.visitMethodInsn(INVOKESTATIC, COMPILED, "rawIn",
+					"(" + FIELD_DESC + ROW_DESC +
+					Type.getDescriptor(ByteBuffer[].class) + ")" +
+					BOOLEAN_DESC, false);
+		} else {
+			expr(e.expr);
+			ref(e.values, SET);
+			mv.visitMethodInsn(INVOKESTATIC, COMPILED, "in",
+					"(" + OBJECT_DESC + Type.getDescriptor(Set.class) + ")" +
+					BOOLEAN_DESC, false);
+		}
+	}
+
+	/** fall back to Expr.eval for anything not compiled e.g. FunCall */
+	private void interpret(Expr e) {
+		ref(e, EXPR);
+		mv.visitVarInsn(ALOAD, THIS);
+		mv.visitFieldInsn(GETFIELD, COMPILED, "hdr", HEADER_DESC);
+		mv.visitVarInsn(ALOAD, ROW);
+		mv.visitMethodInsn(INVOKEVIRTUAL, EXPR, "eval",
+				"(" + HEADER_DESC + ROW_DESC + ")" + OBJECT_DESC, false);
+	}
+
+	private static class Loader extends ClassLoader {
+		Loader() {
+			super(ExprCompiler.class.getClassLoader());
+		}
+
+		Class<?> defineClass(String name, byte[] b) {
+			return defineClass(name, b, 0, b.length);
+		}
+	}
+
+}
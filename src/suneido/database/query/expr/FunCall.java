@@ -44,6 +44,11 @@ public class FunCall extends Multi {
 		return f;
 	}
 
+	@Override
+	public boolean hasCalls() {
+		return true;
+	}
+
 	@Override
 	public Expr fold() {
 		Util.updateAll(exprs, Expr::fold);
@@ -4,9 +4,11 @@
 
 package suneido.database.query.expr;
 
+import static suneido.util.ByteBuffers.bufferUcompare;
 import static suneido.util.Util.displayListToParens;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -21,8 +23,11 @@ import suneido.runtime.Ops;
 
 public class In extends Expr {
 	public Expr expr;
-	private final Set<Object> values;
+	final Set<Object> values;
 	public final Record packed;
+	/** the packed values sorted for binary search by raw comparison */
+	final ByteBuffer[] sorted;
+	private Row.Field rawField = null; // for raw comparison
 	private boolean isTerm = false; // valid for isTermFields
 	private List<String> isTermFields = null;
 
@@ -30,6 +35,7 @@ public class In extends Expr {
 		this.expr = expr;
 		this.values = toSet(values);
 		this.packed = convert(this.values);
+		this.sorted = sort(packed);
 	}
 
 	private static Set<Object> toSet(List<Object> values) {
@@ -44,10 +50,20 @@ public class In extends Expr {
 		return rb.build();
 	}
 
-	private In(Expr expr, Set<Object> values, Record packed) {
+	private static ByteBuffer[] sort(Record packed) {
+		ByteBuffer[] sorted = new ByteBuffer[packed.size()];
+		for (int i = 0; i < sorted.length; ++i)
+			sorted[i] = packed.getRaw(i);
+		Arrays.sort(sorted, (x, y) -> bufferUcompare(x, y));
+		return sorted;
+	}
+
+	private In(Expr expr, Set<Object> values, Record packed,
+			ByteBuffer[] sorted) {
 		this.expr = expr;
 		this.values = values;
 		this.packed = packed;
+		this.sorted = sorted;
 	}
 
 	@Override
@@ -60,6 +76,11 @@ public class In extends Expr {
 		return expr.fields();
 	}
 
+	@Override
+	public boolean hasCalls() {
+		return expr.hasCalls();
+	}
+
 	@Override
 	public Expr fold() {
 		if (values.isEmpty())
@@ -90,18 +111,21 @@ public class In extends Expr {
 		// only use raw comparison if isTerm has been used (by Select)
 		// NOTE: do NOT want to use raw for Extend because of rule issues
 		if (isTerm && hdr.fields().equals(isTermFields)) {
-			Identifier id = (Identifier) expr;
-			ByteBuffer value = row.getraw(hdr, id.ident);
-			for (ByteBuffer v : packed)
-				if (v.equals(value))
-					return Boolean.TRUE;
-			return Boolean.FALSE;
+			return rawField(hdr).rawIn(row, sorted);
 		} else {
 			Object x = expr.eval(hdr, row);
 			return eval2(x);
 		}
 	}
 
+	/** see BinOp rawField */
+	private Row.Field rawField(Header hdr) {
+		Row.Field f = rawField;
+		if (f == null || ! f.isFor(hdr))
+			rawField = f = new Row.Field(hdr, ((Identifier) expr).ident);
+		return f;
+	}
+
 	private Object eval2(Object x) {
 		for (Object y : values)
 			if (Ops.is(x, y))
@@ -112,13 +136,13 @@ public class In extends Expr {
 	@Override
 	public Expr rename(List<String> from, List<String> to) {
 		Expr new_expr = expr.rename(from, to);
-		return new_expr == expr ? this : new In(new_expr, values, packed);
+		return new_expr == expr ? this : new In(new_expr, values, packed, sorted);
 	}
 
 	@Override
 	public Expr replace(List<String> from, List<Expr> to) {
 		Expr new_expr = expr.replace(from, to);
-		return new_expr == expr ? this : new In(new_expr, values, packed);
+		return new_expr == expr ? this : new In(new_expr, values, packed, sorted);
 	}
 
 	@Override
@@ -47,6 +47,14 @@ public abstract class Multi extends Expr {
 		return f;
 	}
 
+	@Override
+	public boolean hasCalls() {
+		for (Expr e : exprs)
+			if (e.hasCalls())
+				return true;
+		return false;
+	}
+
 	protected List<Expr> renameExprs(List<String> from, List<String> to) {
 		ArrayList<Expr> new_exprs = new ArrayList<>();
 		boolean changed = false;
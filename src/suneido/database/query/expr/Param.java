@@ -0,0 +1,68 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query.expr;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import suneido.database.query.Header;
+import suneido.database.query.Row;
+import suneido.runtime.Pack;
+
+/**
+ * A ? placeholder in a prepared query
+ * ({@link suneido.database.query.PreparedQuery}).
+ * A new value is bound each time the query is executed.
+ * <p>
+ * Unlike {@link Constant} it is not folded,
+ * since that would only be valid for the first value.
+ * Optimization uses the value bound at the time
+ * and Select.rebind
+ * checks whether new values need the query optimized again.
+ */
+public class Param extends Expr {
+	private Object value = "";
+	private ByteBuffer packed = Pack.pack("");
+
+	public void bind(Object value) {
+		this.value = value;
+		packed = Pack.pack(value);
+	}
+
+	public Object value() {
+		return value;
+	}
+
+	public ByteBuffer packed() {
+		return packed;
+	}
+
+	@Override
+	public String toString() {
+		return "?";
+	}
+
+	@Override
+	public List<String> fields() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Object eval(Header hdr, Row row) {
+		return value;
+	}
+
+	@Override
+	public Expr rename(List<String> from, List<String> to) {
+		return this;
+	}
+
+	@Override
+	public Expr replace(List<String> from, List<Expr> to) {
+		return this;
+	}
+
+}
@@ -13,9 +13,9 @@ import suneido.database.query.Row;
 import suneido.runtime.Ops;
 
 public class TriOp extends Expr {
-	private Expr expr;
-	private Expr iftrue;
-	private Expr iffalse;
+	Expr expr;
+	Expr iftrue;
+	Expr iffalse;
 
 	public TriOp(Expr expr, Expr iftrue, Expr iffalse) {
 		this.expr = expr;
@@ -33,6 +33,11 @@ public class TriOp extends Expr {
 		return union(expr.fields(), union(iftrue.fields(), iffalse.fields()));
 	}
 
+	@Override
+	public boolean hasCalls() {
+		return expr.hasCalls() || iftrue.hasCalls() || iffalse.hasCalls();
+	}
+
 	@Override
 	public Expr fold() {
 		expr = expr.fold();
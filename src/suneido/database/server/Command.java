@@ -7,6 +7,7 @@ package suneido.database.server;
 import static suneido.database.server.Dbms.isTran;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import suneido.SuException;
@@ -20,6 +21,7 @@ import suneido.database.query.Query.Dir;
 import suneido.database.query.Row;
 import suneido.database.server.Dbms.HeaderAndRow;
 import suneido.database.server.Dbms.LibGet;
+import suneido.util.Errlog;
 
 /**
  * Server side of the client-server protocol.
@@ -591,12 +593,209 @@ public enum Command {
 			int result = t.writeCount();
 			io.put(true).put(result);
 		}
+	},
+	/**
+	 * Prepare a query with ? parameters for EXECUTE. ({@link Dbms#prepare})
+	 * The prepared query is kept for the connection.
+	 * <p>
+	 * query string &rarr; prepared query int
+	 */
+	PREPARE {
+		@Override
+		public void execute(SuChannel io) {
+			String query = io.getString();
+			int pn = dbms().prepare(query);
+			io.put(true).put(pn);
+		}
+	},
+	/**
+	 * Get the first, last, or only record for a prepared query
+	 * with the given parameter values.
+	 * ({@link Dbms#get(Dir, int, List, boolean)},
+	 * {@link DbmsTran#get(Dir, int, List, boolean)})
+	 * <p>
+	 * '+' or '-' or '1', 0 or transaction int, prepared query int,
+	 * args SuObject packed
+	 * &rarr; false or (true, recadr int, header string list, record buffer)
+	 */
+	EXECUTE {
+		@Override
+		public void execute(SuChannel io) {
+			char d = (char) io.getByte();
+			Dir dir = d == '-' ? Dir.PREV : Dir.NEXT;
+			boolean one = (d == '1');
+			int tn = io.getInt();
+			int pn = io.getInt();
+			List<Object> args = ((SuObject) io.getPacked()).vec;
+			HeaderAndRow hr = isTran(tn)
+					? tran(tn, "EXECUTE").get(dir, pn, args, one)
+					: dbms().get(dir, pn, args, one);
+			if (hr == null)
+				io.put(true).put(false);
+			else
+				rowResult(hr.row, hr.header, true, io);
+		}
+	},
+	/**
+	 * Discard a prepared query, sent (deferred) by the client
+	 * to keep within {@link ServerData#MAX_PREPARED}
+	 * <p>
+	 * prepared query int &rarr; true
+	 */
+	UNPREPARE {
+		@Override
+		public void execute(SuChannel io) {
+			ServerData.forThread().unprepare(io.getInt());
+			io.put(true);
+		}
+	},
+	/**
+	 * Get a batch of records in a query or cursor, like repeated GET.
+	 * Used by the client to read ahead.
+	 * First skips (gets and discards) the given number of records,
+	 * which the client uses to reposition after it discards
+	 * records it read ahead but did not use.
+	 * Stops after the maximum number of records or bytes,
+	 * but always returns at least one record if there is one.
+	 * If a record is too large after some records have been gathered,
+	 * those records are returned followed by the error,
+	 * which the client throws when it gets to it.
+	 * ({@link DbmsQuery#get})
+	 * <p>
+	 * '+' or '-', 0 or transaction int, cursor or query int,
+	 * skip int, max records int, max bytes int
+	 * &rarr; n int, n &times; (recadr int, record buffer), eof bool,
+	 * error string ("" if none)
+	 */
+	GETMANY {
+		@Override
+		public void execute(SuChannel io) {
+			Dir dir = (io.getByte() == '-') ? Dir.PREV : Dir.NEXT;
+			DbmsQuery q = q_or_tc(io);
+			int skip = io.getInt();
+			int maxRows = io.getInt();
+			int maxBytes = io.getInt();
+			for (int i = 0; i < skip; ++i)
+				q.get(dir);
+			Header hdr = q.header();
+			List<Row> rows = new ArrayList<>();
+			List<ByteBuffer> bufs = new ArrayList<>();
+			int nbytes = 0;
+			boolean eof = false;
+			String err = "";
+			while (rows.size() < maxRows && nbytes < maxBytes) {
+				Row row = q.get(dir);
+				if (row == null) {
+					eof = true;
+					break;
+				}
+				var buf = rowToRecord(row, hdr).getBuffer();
+				if (buf.remaining() > maxRec) {
+					if (rows.isEmpty()) {
+						io.put(false).put("result too large");
+						return;
+					}
+					// the row has been read, so the error must follow the rows
+					err = "result too large";
+					break;
+				}
+				rows.add(row);
+				bufs.add(buf);
+				nbytes += buf.remaining();
+			}
+			io.put(true).put(rows.size());
+			for (int i = 0; i < rows.size(); ++i)
+				io.put(rows.get(i).address()).put(bufs.get(i));
+			io.put(eof).put(err);
+		}
+	},
+	/**
+	 * Execute a sequence of commands sent together
+	 * without waiting for each response.
+	 * Each command's response is written as soon as it finishes.
+	 * Each command is preceded by its length
+	 * so that if it fails part way through reading its arguments
+	 * the rest of it can be skipped.
+	 * A failed command doesn't stop the following ones,
+	 * since they may be unrelated (e.g. a COMMIT after a deferred CLOSE).
+	 * Except that if an OUTPUT fails, a following COMMIT aborts instead
+	 * and responds with the OUTPUT's error.
+	 * (The client only sends a COMMIT in a PIPELINE
+	 * with OUTPUTs from the same transaction.)
+	 * <p>
+	 * length (four bytes), (length (four bytes), command)...
+	 * &rarr; the responses to the commands
+	 */
+	PIPELINE {
+		@Override
+		public void execute(SuChannel io) {
+			int n = io.need(4).getInt();
+			long end = io.consumed() + n;
+			String outputError = null;
+			while (io.consumed() < end) {
+				int len = io.need(4).getInt();
+				long next = io.consumed() + len;
+				Command cmd = commands[io.getByte()];
+				if (cmd == COMMIT && outputError != null)
+					abortCommit(io, outputError);
+				else {
+					String err = runCommand(io, cmd);
+					if (cmd == OUTPUT && outputError == null)
+						outputError = err;
+				}
+				long rest = next - io.consumed();
+				if (rest < 0)
+					throw new SuException("PIPELINE: command overran its length");
+				if (rest > 0)
+					io.getBuffer((int) rest); // skip the rest of a failed command
+				io.write();
+			}
+		}
+
+		private void abortCommit(SuChannel io, String err) {
+			try {
+				int tn = io.getInt();
+				DbmsTran t = tran(tn, "COMMIT");
+				ServerData.forThread().endTransaction(tn);
+				t.abort();
+			} catch (Throwable e) {
+				Errlog.error("PIPELINE abort", e);
+			}
+			io.put(false).put(err);
+		}
 	};
 
 	//--------------------------------------------------------------------------
 
 	public abstract void execute(SuChannel io);
 
+	// avoid calling values every time since it clones
+	private static final Command[] commands = values();
+
+	/**
+	 * Read a command from io and execute it.
+	 * If it throws, the response is replaced by the error.
+	 */
+	static void run(SuChannel io) {
+		runCommand(io, commands[io.getByte()]);
+	}
+
+	/** @return The error if the command failed, otherwise null */
+	private static String runCommand(SuChannel io, Command cmd) {
+		try {
+			cmd.execute(io);
+			return null;
+		} catch (Throwable e) {
+			Class<? extends Throwable> c = e.getClass();
+			if (c != RuntimeException.class && c != SuException.class)
+				Errlog.error("DbmsServerBySelect.run", e);
+			io.clear();
+			String err = e.toString();
+			io.put(false).put(err);
+			return err;
+		}
+	}
+
 	//--------------------------------------------------------------------------
 
 	protected DbmsQuery q_or_tc(SuChannel io) {
@@ -616,7 +815,7 @@ public enum Command {
 				: ServerData.forThread().getCursor(n);
 	}
 
-	private final static int maxRec = 1024 * 1024;
+	static int maxRec = 1024 * 1024; // not final so tests can reduce it
 
 	protected void rowResult(Row row, Header hdr, boolean sendHeader, SuChannel io) {
 		var buf = rowToRecord(row, hdr).getBuffer();
@@ -36,6 +36,7 @@ public abstract class Dbms {
 	public abstract List<Integer> transactions();
 	protected abstract SuDate timestamp(); // see also tstamp below
 	public abstract String check();
+	public abstract int compact();
 	public abstract String dump(String filename);
 	public abstract int load(String filename);
 	public abstract Object run(String s);
@@ -74,6 +75,36 @@ public abstract class Dbms {
 		}
 	}
 
+	/**
+	 * @return Whether {@link #prepare} is supported,
+	 * false for a client connected to an older server
+	 */
+	public boolean canPrepare() {
+		return true;
+	}
+
+	/**
+	 * Prepare a query with ? parameters
+	 * for {@link #get(Dir, int, List, boolean)}
+	 * @return The number of the prepared query for this connection
+	 */
+	public abstract int prepare(String query);
+
+	/**
+	 * Like {@link #get(Dir, String, boolean)} but for a prepared query
+	 * and the values for its parameters
+	 * @return null on eof
+	 */
+	// overridden by DbmsClient so transaction is only on server
+	public HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one) {
+		DbmsTran tran = transaction(false);
+		try {
+			return tran.get(dir, pn, args, one);
+		} finally {
+			tran.complete();
+		}
+	}
+
 	public static class LibGet {
 		public String library;
 		public ByteBuffer text;
@@ -11,7 +11,11 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Ascii;
 import com.google.common.collect.ImmutableList;
@@ -22,6 +26,8 @@ import suneido.database.immudb.Record;
 import suneido.database.query.Header;
 import suneido.database.query.Query.Dir;
 import suneido.database.query.Row;
+import suneido.runtime.Ops;
+import suneido.util.Errlog;
 
 /**
  * Client side of the client-server protocol.
@@ -33,6 +39,37 @@ public class DbmsClient extends Dbms {
 	public volatile long idleSince = 0; // used by TheDbms.closeIfIdle
 	private String sessionid = null;
 	private SuChannel io;
+	/** limits for GETMANY read ahead, see DbmsClientQuery */
+	private static final int MAX_BATCH = 1000;
+	private static final int BATCH_BYTES = 256 * 1024;
+	/** access ordered, see prepare */
+	private final Map<String, Integer> prepared =
+			new LinkedHashMap<>(16, .75f, true);
+	/**
+	 * CLOSE, UNPREPARE and OUTPUT requests don't need their response
+	 * right away so they are deferred and sent together with the next request
+	 * as a PIPELINE, see {@link #putDeferred}
+	 */
+	private final List<Command> deferred = new ArrayList<>();
+	private ByteBuffer pipelineLen; // where to store the length when sent
+	private int pipelineLenPos;
+	private int pipelineStart;
+	private ByteBuffer cmdLen; // where to store the length of the last command
+	private int cmdLenPos;
+	private int cmdStart;
+	/**
+	 * The transaction of the deferred OUTPUTs, or NO_TRAN if there are none.
+	 * Only its COMMIT (or ABORT) is sent in the same PIPELINE,
+	 * any other request first sends the pipeline and throws the first error.
+	 */
+	private int outputTran = NO_TRAN;
+	/**
+	 * Whether the server supports prepared queries, GETMANY and PIPELINE.
+	 * With an older server requests are sent one at a time.
+	 */
+	private final boolean extended;
+	/** limits how much the server has to buffer before we read responses */
+	private static final int MAX_DEFERRED = 100;
 
 	public DbmsClient(String ip, int port) {
 		this(open(ip, port));
@@ -51,6 +88,7 @@ public class DbmsClient extends Dbms {
 		String msg = bufferToString(io.getBuffer(DbmsServer.helloSize));
 		if (! msg.startsWith("Suneido ") || msg.startsWith("Suneido Database Server"))
 			throw new SuException("invalid connect response: " + msg);
+		extended = msg.contains(DbmsServer.EXTENDED);
 		sessionid = sessionid("");
 	}
 
@@ -60,10 +98,95 @@ public class DbmsClient extends Dbms {
 	}
 
 	private void doRequest() {
-		io.write();
+		String err = write();
+		assert err == null : "deferred OUTPUT not flushed";
 		getResponse();
 	}
 
+	/**
+	 * Start a pipeline if there isn't one already
+	 * and then put the command, preceded by its length.
+	 * The pipeline is sent with the next request (or when it gets too long).
+	 * The responses to deferred requests are read by {@link #write}.
+	 * Failed CLOSE and UNPREPARE requests are just logged.
+	 * The first failed OUTPUT is thrown by the next request,
+	 * which is normally its transaction's COMMIT.
+	 * Must be followed by {@link #endDeferred}
+	 */
+	private Serializer putDeferred(Command cmd) {
+		deferred.add(cmd);
+		return putPipelined(cmd);
+	}
+
+	private Serializer putPipelined(Command cmd) {
+		if (pipelineLen == null) {
+			putRaw(PIPELINE);
+			pipelineLen = io.allow(4);
+			pipelineLenPos = pipelineLen.position();
+			pipelineLen.putInt(0);
+			pipelineStart = io.putSize();
+		}
+		return putLength(cmd);
+	}
+
+	/** Put the command preceded by its length, see {@link #endPipelined} */
+	private Serializer putLength(Command cmd) {
+		cmdLen = io.allow(4);
+		cmdLenPos = cmdLen.position();
+		cmdLen.putInt(0);
+		cmdStart = io.putSize();
+		return putRaw(cmd);
+	}
+
+	private void endPipelined() {
+		cmdLen.putInt(cmdLenPos, io.putSize() - cmdStart);
+		cmdLen = null;
+	}
+
+	private void endDeferred() {
+		endPipelined();
+		if (deferred.size() >= MAX_DEFERRED)
+			flush();
+	}
+
+	/**
+	 * Send the pipeline by itself,
+	 * throwing the error from the first failed OUTPUT, if any
+	 */
+	private void flush() {
+		outputTran = NO_TRAN;
+		String err = write();
+		if (err != null)
+			throw new SuException(err + " (from server)");
+	}
+
+	/**
+	 * Write the request(s) and read the responses to any deferred requests.
+	 * Failed CLOSE and UNPREPARE requests are logged rather than thrown,
+	 * since they are unrelated to the request being sent.
+	 * @return The error from the first failed OUTPUT, or null
+	 */
+	private String write() {
+		if (cmdLen != null)
+			endPipelined();
+		if (pipelineLen != null) {
+			pipelineLen.putInt(pipelineLenPos, io.putSize() - pipelineStart);
+			pipelineLen = null;
+		}
+		io.write();
+		String outputErr = null;
+		for (Command cmd : deferred)
+			if (! io.getBool()) {
+				String err = io.getString();
+				if (cmd != OUTPUT)
+					Errlog.error("deferred request failed: " + err);
+				else if (outputErr == null)
+					outputErr = err;
+			}
+		deferred.clear();
+		return outputErr;
+	}
+
 	private void getResponse() {
 		if (! io.getBool()) {
 			String err = io.getString();
@@ -73,7 +196,17 @@ public class DbmsClient extends Dbms {
 
 	// requests ----------------------------------------------------------------
 
+	/**
+	 * Sends any deferred OUTPUTs first, see {@link #outputTran}.
+	 * If there is a pipeline the request is its last command.
+	 */
 	private Serializer putCmd(Command cmd) {
+		if (outputTran != NO_TRAN)
+			flush();
+		return (pipelineLen == null) ? putRaw(cmd) : putLength(cmd);
+	}
+
+	private Serializer putRaw(Command cmd) {
 		return io.putByte((byte) cmd.ordinal());
 	}
 
@@ -127,6 +260,63 @@ public class DbmsClient extends Dbms {
 		doRequest();
 	}
 
+	private void send(Command cmd, char c, int tn, int qn,
+			int skip, int max, int maxBytes) {
+		putCmd(cmd).putByte((byte) c).put(tn).put(qn)
+				.put(skip).put(max).put(maxBytes);
+		doRequest();
+	}
+
+	private void send(Command cmd, char c, int tn, int pn, List<Object> args) {
+		putCmd(cmd).putByte((byte) c).put(tn).put(pn)
+				.putPacked(new SuObject(args));
+		doRequest();
+	}
+
+	private void defer(Command cmd, int n, char q_or_c) {
+		if (! extended) {
+			send(cmd, n, q_or_c);
+			return;
+		}
+		putDeferred(cmd).put(n).putByte((byte) q_or_c);
+		endDeferred();
+	}
+
+	private void defer(Command cmd, int n) {
+		putDeferred(cmd).put(n);
+		endDeferred();
+	}
+
+	/**
+	 * Pipeline an OUTPUT.
+	 * Deferred OUTPUTs from another transaction are sent first.
+	 */
+	private void deferOutput(int tn, int qn, Record rec) {
+		if (! extended) {
+			send(OUTPUT, qn, rec.getBuffer());
+			return;
+		}
+		if (outputTran != NO_TRAN && outputTran != tn)
+			flush();
+		putDeferred(OUTPUT).put(qn).put(rec.getBuffer());
+		outputTran = tn;
+		endDeferred();
+	}
+
+	/**
+	 * Send a COMMIT or ABORT in the same PIPELINE as the transaction's
+	 * deferred OUTPUTs, so output then commit is a single round trip.
+	 * If an OUTPUT failed the server aborts instead of committing.
+	 * @return The error from the first failed OUTPUT, or null
+	 */
+	private String sendWithOutputs(Command cmd, int tn) {
+		assert outputTran == tn;
+		outputTran = NO_TRAN;
+		putPipelined(cmd).put(tn);
+		endPipelined();
+		return write();
+	}
+
 	public void send(Command cmd, int qn, ByteBuffer buffer) {
 		putCmd(cmd).put(qn).put(buffer);
 		doRequest();
@@ -225,6 +415,12 @@ public class DbmsClient extends Dbms {
 		return io.getString();
 	}
 
+	/** there is no protocol command for compact so run it on the server */
+	@Override
+	public int compact() {
+		return Ops.toInt(run("Database.Compact()"));
+	}
+
 	@Override
 	public SuObject connections() {
 		send(CONNECTIONS);
@@ -268,6 +464,38 @@ public class DbmsClient extends Dbms {
 		return rowResult(true);
 	}
 
+	@Override
+	public HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one) {
+		send(EXECUTE, one ? '1' : (dir == Dir.PREV ? '-' : '+'), NO_TRAN, pn, args);
+		return rowResult(true);
+	}
+
+	@Override
+	public boolean canPrepare() {
+		return extended;
+	}
+
+	/**
+	 * Prepared queries are kept per connection so we only send them once.
+	 * At the limit, the least recently used is unprepared first
+	 * so the server doesn't have to discard one that we still use.
+	 */
+	@Override
+	public int prepare(String query) {
+		Integer pn = prepared.get(query);
+		if (pn == null) {
+			if (prepared.size() >= ServerData.MAX_PREPARED) {
+				Iterator<Integer> iter = prepared.values().iterator();
+				defer(UNPREPARE, iter.next());
+				iter.remove();
+			}
+			send(PREPARE, query);
+			pn = io.getInt();
+			prepared.put(query, pn);
+		}
+		return pn;
+	}
+
 	@Override
 	public SuObject info() {
 		send(INFO);
@@ -391,12 +619,32 @@ public class DbmsClient extends Dbms {
 
 		@Override
 		public void abort() {
+			if (outputTran == tn) {
+				isEnded = true;
+				sendWithOutputs(ABORT, tn); // output errors don't matter
+				getResponse();
+				return;
+			}
+			if (outputTran != NO_TRAN)
+				flush(); // before ending this transaction
 			isEnded = true;
 			send(ABORT, tn);
 		}
 
 		@Override
 		public String complete() {
+			if (outputTran == tn) {
+				isEnded = true;
+				String err = sendWithOutputs(COMMIT, tn);
+				if (! io.getBool()) {
+					String commitErr = io.getString();
+					throw new SuException(
+							(err != null ? err : commitErr) + " (from server)");
+				}
+				return io.getBool() ? null : io.getString();
+			}
+			if (outputTran != NO_TRAN)
+				flush(); // before ending this transaction
 			isEnded = true;
 			send(COMMIT, tn);
 			return io.getBool() ? null : io.getString();
@@ -415,10 +663,23 @@ public class DbmsClient extends Dbms {
 			return rowResult(true);
 		}
 
+		@Override
+		public int prepare(String query) {
+			return DbmsClient.this.prepare(query);
+		}
+
+		@Override
+		public HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one) {
+			if (isEnded)
+				throw new SuException("can't use ended Transaction");
+			send(EXECUTE, one ? '1' : (dir == Dir.PREV ? '-' : '+'), tn, pn, args);
+			return rowResult(true);
+		}
+
 		@Override
 		public DbmsQuery query(String s) {
 			send(QUERY, tn, s);
-			return new DbmsClientQuery(io.getInt());
+			return new DbmsClientQuery(io.getInt(), readonly && extended, tn);
 		}
 
 		@Override
@@ -458,13 +719,32 @@ public class DbmsClient extends Dbms {
 
 	//--------------------------------------------------------------------------
 
+	/**
+	 * Queries in read-only transactions read ahead with GETMANY
+	 * so they don't need a round trip per record.
+	 * The batch size starts at one record and doubles,
+	 * so queries that only read a few records don't read many extra.
+	 * Cursors and queries in update transactions get one record at a time
+	 * since read ahead records could be stale.
+	 */
 	private class DbmsClientQuery implements DbmsQuery {
 		protected final int qn;
 		private List<List<String>> keys; // cache
 		private Header header; // cache
-
-		DbmsClientQuery(int qn) {
+		private final boolean readAhead;
+		private List<Row> rows = List.of(); // read ahead
+		private int pos = 0; // the next row to return
+		private boolean eof = false; // rows are followed by eof
+		private String error = null; // rows are followed by an error
+		private Dir rowsDir = null; // the direction rows were read in
+		private int batch = 1;
+		/** the transaction for outputs, NO_TRAN for cursors */
+		private final int tran;
+
+		DbmsClientQuery(int qn, boolean readAhead, int tran) {
 			this.qn = qn;
+			this.readAhead = readAhead;
+			this.tran = tran;
 		}
 
 		@Override
@@ -493,19 +773,67 @@ public class DbmsClient extends Dbms {
 
 		@Override
 		public Row get(Dir dir) {
-			send(GET, (dir == Dir.NEXT ? '+' : '-'), getTran(), qn);
-			HeaderAndRow hr = rowResult(false);
-			return hr == null ? null : hr.row;
+			if (! readAhead) {
+				send(GET, (dir == Dir.NEXT ? '+' : '-'), getTran(), qn);
+				HeaderAndRow hr = rowResult(false);
+				return hr == null ? null : hr.row;
+			}
+			int skip = 0;
+			if (dir != rowsDir) {
+				// the server is past the rows we haven't used
+				skip = (rows.size() - pos) + (eof || error != null ? 1 : 0);
+				discard();
+				rowsDir = dir;
+			}
+			if (pos >= rows.size() && error != null) {
+				String err = error;
+				error = null; // like GET, the server is past the record
+				throw new SuException(err + " (from server)");
+			}
+			if (pos >= rows.size() && ! eof)
+				getMany(dir, skip);
+			if (pos < rows.size())
+				return rows.get(pos++);
+			eof = false; // like the server, eof rewinds
+			return null;
+		}
+
+		private void getMany(Dir dir, int skip) {
+			send(GETMANY, (dir == Dir.NEXT ? '+' : '-'), getTran(), qn,
+					skip, batch, BATCH_BYTES);
+			int n = io.getInt();
+			List<Row> list = new ArrayList<>(n);
+			for (int i = 0; i < n; ++i) {
+				int recadr = io.getInt();
+				list.add(new Row(Dbpkg.record(recadr, io.getOwnedBuffer())));
+			}
+			eof = io.getBool();
+			String err = io.getString();
+			error = err.isEmpty() ? null : err;
+			rows = list;
+			pos = 0;
+			batch = Math.min(2 * batch, MAX_BATCH);
+		}
+
+		/** Drop any read ahead rows and start the batch size over */
+		private void discard() {
+			rows = List.of();
+			pos = 0;
+			eof = false;
+			error = null;
+			rowsDir = null;
+			batch = 1;
 		}
 
 		@Override
 		public void rewind() {
+			discard();
 			send(REWIND, qn, c_or_q());
 		}
 
 		@Override
 		public void output(Record rec) {
-			send(OUTPUT, qn, rec.getBuffer());
+			deferOutput(tran, qn, rec);
 		}
 
 		@Override
@@ -526,9 +854,15 @@ public class DbmsClient extends Dbms {
 			return io.getString();
 		}
 
+		@Override
+		public String explain() {
+			throw new SuException("Explain is not supported by the client");
+		}
+
 		@Override
 		public void close() {
-			send(CLOSE, qn, c_or_q());
+			discard();
+			defer(CLOSE, qn, c_or_q());
 		}
 
 		protected char c_or_q() {
@@ -544,7 +878,7 @@ public class DbmsClient extends Dbms {
 		protected int tn = NO_TRAN;
 
 		DbmsClientCursor(int qn) {
-			super(qn);
+			super(qn, false, NO_TRAN);
 		}
 
 		@Override
@@ -18,12 +18,13 @@ import com.google.common.base.CharMatcher;
 import suneido.*;
 import suneido.compiler.Compiler;
 import suneido.database.immudb.Database;
+import suneido.database.immudb.Dbpkg;
 import suneido.database.immudb.Record;
 import suneido.database.immudb.RecordBuilder;
 import suneido.database.immudb.Table;
 import suneido.database.immudb.Transaction;
-import suneido.database.query.CompileQuery;
 import suneido.database.query.Query.Dir;
+import suneido.database.query.QueryCache;
 import suneido.database.query.Request;
 import suneido.runtime.Pack;
 import suneido.runtime.builtin.ServerEval;
@@ -58,7 +59,17 @@ public class DbmsLocal extends Dbms {
 		Transaction t = db.readTransaction();
 		try {
 			return new DbmsQueryLocal(
-					CompileQuery.query(t, ServerData.forThread(), s, true));
+					QueryCache.query(t, ServerData.forThread(), s, true), true);
+		} finally {
+			t.complete();
+		}
+	}
+
+	@Override
+	public int prepare(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			return ServerData.forThread().prepare(t, query);
 		} finally {
 			t.complete();
 		}
@@ -97,6 +108,11 @@ public class DbmsLocal extends Dbms {
 		return db.check();
 	}
 
+	@Override
+	public int compact() {
+		return Dbpkg.compactOnline(db);
+	}
+
 	@Override
 	public int finalSize() {
 		return db.finalSize();
@@ -184,6 +200,13 @@ public class DbmsLocal extends Dbms {
 		info.put("maxUpdateTranSec", Suneido.cmdlineoptions.max_update_tran_sec);
 		info.put("maxWritesPerTran", Suneido.cmdlineoptions.max_writes_per_tran);
 		info.put("currentSize", size());
+		SuObject fill = new SuObject();
+		db.indexFill().forEach((index, f) -> fill.put(index, Math.round(100 * f)));
+		info.put("indexFillPercent", fill);
+		info.put("queryCacheHits", QueryCache.hits());
+		info.put("queryCacheMisses", QueryCache.misses());
+		if (Suneido.server != null)
+			info.put("requests", Suneido.server.requestExecutor().info());
 		return info;
 	}
 
@@ -37,6 +37,9 @@ public interface DbmsQuery {
 
 	String strategy();
 
+	/** Reads the entire query, see {@link suneido.database.query.Query#explain} */
+	String explain();
+
 	void close();
 
 }
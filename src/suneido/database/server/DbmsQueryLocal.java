@@ -6,72 +6,98 @@ package suneido.database.server;
 
 import java.util.List;
 
+import suneido.SuException;
 import suneido.database.immudb.Record;
 import suneido.database.query.Header;
 import suneido.database.query.Query;
 import suneido.database.query.Query.Dir;
+import suneido.database.query.QueryCache;
 import suneido.database.query.Row;
 
 public class DbmsQueryLocal implements DbmsQuery {
-	private final Query q;
+	/** null once a cached query is released */
+	private Query q;
+	/** whether q is from {@link QueryCache} */
+	private final boolean cached;
 
 	public DbmsQueryLocal(Query q) {
+		this(q, false);
+	}
+
+	public DbmsQueryLocal(Query q, boolean cached) {
 		this.q = q;
+		this.cached = cached;
 	}
 
 	@Override
 	public Row get(Dir dir) {
-		return q.get(dir);
+		return q().get(dir);
 	}
 
 	@Override
 	public Header header() {
-		return q.header();
+		return q().header();
 	}
 
 	@Override
 	public List<List<String>> keys() {
-		return q.keys();
+		return q().keys();
 	}
 
 	@Override
 	public List<String> ordering() {
-		return q.ordering();
+		return q().ordering();
 	}
 
 	@Override
 	public void output(Record rec) {
-		q.output(rec);
+		q().output(rec);
 	}
 
 	@Override
 	public void rewind() {
-		q.rewind();
+		q().rewind();
 	}
 
 	@Override
 	public void setTransaction(DbmsTran tran) {
-		q.setTransaction(tran == null ? null : ((DbmsTranLocal) tran).t);
+		q().setTransaction(tran == null ? null : ((DbmsTranLocal) tran).t);
 	}
 
 	@Override
 	public boolean updateable() {
-		return q.updateable();
+		return q().updateable();
 	}
 
 	@Override
 	public String strategy() {
-		return q.strategy();
+		return q().strategy();
+	}
+
+	@Override
+	public String explain() {
+		return q().explain();
 	}
 
 	@Override
 	public String toString() {
-		return q.strategy();
+		return q().strategy();
 	}
 
 	@Override
 	public void close() {
-		q.close();
+		if (! cached)
+			q.close();
+		else if (q != null) {
+			QueryCache.release(q);
+			q = null; // so it can't be used after it's released
+		}
+	}
+
+	private Query q() {
+		if (q == null)
+			throw new SuException("can't use a closed query");
+		return q;
 	}
 
 }
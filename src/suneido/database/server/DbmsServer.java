@@ -13,17 +13,13 @@ import java.nio.channels.Channel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.function.BiConsumer;
 
 import com.google.common.base.Strings;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-import suneido.SuException;
 import suneido.Suneido;
-import suneido.util.Errlog;
 import suneido.util.NotThreadSafe;
 import suneido.util.ServerBySelect;
 import suneido.util.ServerBySelect.Handler;
@@ -38,11 +34,24 @@ import suneido.util.ThreadSafe;
 public class DbmsServer {
 	public final ServerDataSet serverDataSet = new ServerDataSet();
 	private final ServerBySelect server;
+	private final RequestExecutor requestExecutor;
 	public static final int helloSize = 50; // must match cSuneido
+	/**
+	 * Added to the hello to tell clients that this server supports
+	 * PREPARE, EXECUTE, UNPREPARE, GETMANY and PIPELINE.
+	 * Older clients ignore it.
+	 */
+	public static final String EXTENDED = "+pipeline";
 
 	public DbmsServer(int idleTimeoutMin) {
+		this(idleTimeoutMin, RequestExecutor.perConnection(0));
+	}
+
+	public DbmsServer(int idleTimeoutMin, RequestExecutor requestExecutor) {
+		this.requestExecutor = requestExecutor;
 		server = new ServerBySelect(
-				(SocketChannel c) -> new DbmsServerHandler(c, serverDataSet),
+				(SocketChannel c) ->
+					new DbmsServerHandler(c, serverDataSet, requestExecutor),
 				idleTimeoutMin);
 	}
 
@@ -62,16 +71,18 @@ public class DbmsServer {
 	 * The request method is called each time the channel becomes readable.
 	 * The request method reads the request, executes it, writes the response
 	 * and then reregisters the channel with the selector.
+	 * Requests are run by {@link RequestExecutor}
 	 */
 	@NotThreadSafe
 	static class DbmsServerHandler implements Handler {
-		private final ThreadFactory threadFactory =
-				new ThreadFactoryBuilder().setNameFormat("DbmsServer-thread-%d").build();
-		private final Executor executor = Executors.newCachedThreadPool(threadFactory);
-		private static final ThreadLocal<ByteBuffer> tlbuf =
-				ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(SuChannel.BUFSIZE));
-		// avoid calling values every time since it clones
-		private static final Command[] commands = Command.values();
+		private final RequestExecutor requestExecutor;
+		private final Executor executor;
+		/**
+		 * Buffers for SuChannel, shared by all the connections.
+		 * Not thread local because virtual threads are not reused.
+		 */
+		private static final Queue<ByteBuffer> buffers =
+				new ConcurrentLinkedQueue<>();
 		private final ServerDataSet serverDataSet;
 		private final ServerData serverData;
 		private static class InitOnce {
@@ -79,7 +90,14 @@ public class DbmsServer {
 		}
 
 		DbmsServerHandler(Channel channel, ServerDataSet serverDataSet) {
+			this(channel, serverDataSet, RequestExecutor.perConnection(0));
+		}
+
+		DbmsServerHandler(Channel channel, ServerDataSet serverDataSet,
+				RequestExecutor requestExecutor) {
 			sendHello(channel);
+			this.requestExecutor = requestExecutor;
+			executor = requestExecutor.forConnection();
 			this.serverDataSet = serverDataSet;
 			serverData = new ServerData(channel);
 			if (channel instanceof SocketChannel) {
@@ -100,7 +118,7 @@ public class DbmsServer {
 		}
 
 		private static ByteBuffer hello() {
-			String hello = "Suneido " + Suneido.built + "\r\n";
+			String hello = "Suneido " + Suneido.built + " " + EXTENDED + "\r\n";
 			assert hello.length() < helloSize;
 			return stringToBuffer(Strings.padEnd(hello, helloSize, '\000'));
 		}
@@ -108,26 +126,19 @@ public class DbmsServer {
 		@Override
 		public void request(Channel channel,
 				BiConsumer<Channel, Handler> reregister) {
-			executor.execute(() -> handleRequest(channel, reregister));
+			requestExecutor.execute(executor,
+					() -> handleRequest(channel, reregister));
 		}
 
 		void handleRequest(Channel channel,
 				BiConsumer<Channel, Handler> reregister) {
+			ByteBuffer inbuf = takeBuffer();
+			ByteBuffer outbuf = takeBuffer();
 			try {
 				// create a new SuChannel for each request
-				SuChannel io = new SuChannel(channel, tlbuf.get());
-				int icmd = io.getByte();
-				Command cmd = commands[icmd];
+				SuChannel io = new SuChannel(channel, inbuf, outbuf);
 				ServerData.threadLocal.set(serverData);
-				try {
-					cmd.execute(io);
-				} catch (Throwable e) {
-					Class<? extends Throwable> c = e.getClass();
-					if (c != RuntimeException.class && c != SuException.class)
-						Errlog.error("DbmsServerBySelect.run", e);
-					io.clear();
-					io.put(false).put(e.toString());
-				}
+				Command.run(io);
 				io.write();
 				reregister.accept(channel, this);
 			} catch (Throwable e) {
@@ -136,9 +147,17 @@ public class DbmsServer {
 					close();
 				} catch (IOException e1) {
 				}
+			} finally {
+				buffers.add(inbuf);
+				buffers.add(outbuf);
 			}
 		}
 
+		private static ByteBuffer takeBuffer() {
+			ByteBuffer buf = buffers.poll();
+			return buf != null ? buf : ByteBuffer.allocateDirect(SuChannel.BUFSIZE);
+		}
+
 		@Override
 		public void close() {
 			serverData.end();
@@ -200,4 +219,8 @@ public class DbmsServer {
 		return serverDataSet.killConnections(sessionId);
 	}
 
+	public RequestExecutor requestExecutor() {
+		return requestExecutor;
+	}
+
 }
@@ -4,6 +4,8 @@
 
 package suneido.database.server;
 
+import java.util.List;
+
 import suneido.database.immudb.Record;
 import suneido.database.query.Query.Dir;
 import suneido.database.server.Dbms.HeaderAndRow;
@@ -29,6 +31,15 @@ public interface DbmsTran {
 	/** @return null on eof */
 	HeaderAndRow get(Dir dir, String query, boolean one);
 
+	/** Prepare a query on this transaction's connection, see {@link Dbms#prepare} */
+	int prepare(String query);
+
+	/**
+	 * Get from a prepared query ({@link #prepare})
+	 * @return null on eof
+	 */
+	HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one);
+
 	boolean isReadonly();
 
 	boolean isEnded();
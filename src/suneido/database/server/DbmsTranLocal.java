@@ -8,13 +8,17 @@ import static suneido.Trace.trace;
 import static suneido.Trace.tracing;
 import static suneido.Trace.Type.QUERY;
 
+import java.util.List;
+
 import suneido.SuException;
 import suneido.database.immudb.Record;
 import suneido.database.immudb.Transaction;
 import suneido.database.query.CompileQuery;
+import suneido.database.query.PreparedQuery;
 import suneido.database.query.Query;
 import suneido.database.query.Query.Dir;
 import suneido.database.query.QueryAction;
+import suneido.database.query.QueryCache;
 import suneido.database.query.Row;
 import suneido.database.server.Dbms.HeaderAndRow;
 
@@ -47,26 +51,51 @@ public class DbmsTranLocal implements DbmsTran {
 	public DbmsQuery query(String s) {
 		if (tracing(QUERY))
 			trace(QUERY, t + " " + s);
-		return new DbmsQueryLocal(CompileQuery.query(t, ServerData.forThread(), s));
+		return new DbmsQueryLocal(
+				QueryCache.query(t, ServerData.forThread(), s, false), true);
 	}
 
 	@Override
 	public HeaderAndRow get(Dir dir, String query, boolean one) {
 		if (tracing(QUERY))
 			trace(QUERY, t + " " + query);
-		Query q = CompileQuery.query(t, ServerData.forThread(), query);
+		Query q = QueryCache.query(t, ServerData.forThread(), query, false);
 		try {
-			Row row = q.get(dir);
-			if (row == null)
-				return null;
-			if (one && q.get(dir) != null)
-				throw new SuException("Query1 not unique: " + query);
-			return new HeaderAndRow(q.header(), row);
+			return get(q, dir, one, query);
 		} finally {
-			q.close();
+			QueryCache.release(q);
 		}
 	}
 
+	@Override
+	public int prepare(String query) {
+		return ServerData.forThread().prepare(t, query);
+	}
+
+	@Override
+	public HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one) {
+		ServerData serverData = ServerData.forThread();
+		PreparedQuery pq = serverData.getPrepared(pn);
+		if (tracing(QUERY))
+			trace(QUERY, t + " " + pq.query() + " " + args);
+		Query q = pq.query(t, serverData, args);
+		try {
+			return get(q, dir, one, pq.query());
+		} finally {
+			pq.release(q);
+		}
+	}
+
+	private static HeaderAndRow get(Query q, Dir dir, boolean one,
+			String query) {
+		Row row = q.get(dir);
+		if (row == null)
+			return null;
+		if (one && q.get(dir) != null)
+			throw new SuException("Query1 not unique: " + query);
+		return new HeaderAndRow(q.header(), row);
+	}
+
 	@Override
 	public void erase(int recadr) {
 		t.removeRecord(recadr);
@@ -39,6 +39,11 @@ public class DbmsUnauth extends Dbms {
 		throw notauth;
 	}
 
+	@Override
+	public int compact() {
+		throw notauth;
+	}
+
 	@Override
 	public SuObject connections() {
 		throw notauth;
@@ -84,6 +89,21 @@ public class DbmsUnauth extends Dbms {
 		throw notauth;
 	}
 
+	@Override
+	public HeaderAndRow get(Dir dir, int pn, List<Object> args, boolean one) {
+		throw notauth;
+	}
+
+	@Override
+	public boolean canPrepare() {
+		return dbms.canPrepare();
+	}
+
+	@Override
+	public int prepare(String query) {
+		throw notauth;
+	}
+
 	@Override
 	public SuObject info() {
 		throw notauth;
@@ -0,0 +1,156 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import suneido.SuObject;
+import suneido.util.ThreadSafe;
+
+/**
+ * Runs the requests for {@link DbmsServer}.
+ * <p>
+ * By default each connection has its own cached thread pool
+ * so there is a platform thread for each active connection.
+ * Alternatively requests can run on virtual threads,
+ * or on a fixed size pool of platform threads shared by all the connections.
+ * <p>
+ * If there is a limit, it applies to the requests that have been accepted
+ * but not finished, i.e. both running and queued.
+ * When the limit is reached, the selector thread waits for a request to finish
+ * before it accepts another one.
+ * Meanwhile new requests stay in the socket buffers
+ * so overload slows down the clients rather than using more memory.
+ * <p>
+ * The counts are shown by {@link suneido.HttpServerMonitor}
+ * and Database.Info()
+ */
+@ThreadSafe
+public class RequestExecutor {
+	public enum Mode { CONNECTION, VIRTUAL, POOL }
+	private final Mode mode;
+	private final ExecutorService shared; // null for CONNECTION
+	private final int limit; // 0 means no limit
+	private final Semaphore admit;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder waited = new LongAdder();
+
+	private RequestExecutor(Mode mode, ExecutorService shared, int limit) {
+		this.mode = mode;
+		this.shared = shared;
+		this.limit = limit;
+		admit = limit > 0 ? new Semaphore(limit) : null;
+	}
+
+	/** The original behavior, a cached thread pool per connection */
+	public static RequestExecutor perConnection(int limit) {
+		return new RequestExecutor(Mode.CONNECTION, null, limit);
+	}
+
+	/** A new virtual thread for each request */
+	public static RequestExecutor virtual(int limit) {
+		return new RequestExecutor(Mode.VIRTUAL,
+				Executors.newThreadPerTaskExecutor(
+						Thread.ofVirtual().name("DbmsServer-virtual-", 0).factory()),
+				limit);
+	}
+
+	/** A fixed number of platform threads shared by all the connections */
+	public static RequestExecutor pool(int nthreads, int limit) {
+		ThreadFactory threadFactory = new ThreadFactoryBuilder()
+				.setNameFormat("DbmsServer-pool-%d").setDaemon(true).build();
+		return new RequestExecutor(Mode.POOL,
+				Executors.newFixedThreadPool(nthreads, threadFactory), limit);
+	}
+
+	/** @return The executor to use for a new connection */
+	Executor forConnection() {
+		if (mode != Mode.CONNECTION)
+			return shared;
+		ThreadFactory threadFactory = new ThreadFactoryBuilder()
+				.setNameFormat("DbmsServer-thread-%d").build();
+		return Executors.newCachedThreadPool(threadFactory);
+	}
+
+	/**
+	 * Run a request using the connection's executor.
+	 * Blocks if the limit has been reached.
+	 */
+	void execute(Executor executor, Runnable request) {
+		if (admit != null && ! admit.tryAcquire()) {
+			waited.increment();
+			admit.acquireUninterruptibly();
+		}
+		queued.incrementAndGet();
+		try {
+			executor.execute(() -> run(request));
+		} catch (Throwable e) {
+			queued.decrementAndGet();
+			if (admit != null)
+				admit.release();
+			throw e;
+		}
+	}
+
+	private void run(Runnable request) {
+		queued.decrementAndGet();
+		running.incrementAndGet();
+		try {
+			request.run();
+		} finally {
+			running.decrementAndGet();
+			completed.increment();
+			if (admit != null)
+				admit.release();
+		}
+	}
+
+	public int queued() {
+		return queued.get();
+	}
+
+	public int running() {
+		return running.get();
+	}
+
+	public long completed() {
+		return completed.sum();
+	}
+
+	/** @return The number of times a request had to wait for the limit */
+	public long waited() {
+		return waited.sum();
+	}
+
+	public SuObject info() {
+		SuObject info = new SuObject();
+		info.put("mode", mode.toString().toLowerCase());
+		info.put("limit", limit);
+		info.put("running", running());
+		info.put("queued", queued());
+		info.put("completed", completed());
+		info.put("waited", waited());
+		return info;
+	}
+
+	@Override
+	public String toString() {
+		return mode.toString().toLowerCase() +
+				" running " + running() + ", queued " + queued() +
+				(limit > 0 ? " (limit " + limit + ")" : "") +
+				", completed " + completed() + ", waited " + waited();
+	}
+
+}
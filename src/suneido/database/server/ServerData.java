@@ -9,6 +9,9 @@ import static suneido.util.Verify.verify;
 import java.io.Closeable;
 import java.util.*;
 
+import suneido.SuException;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.PreparedQuery;
 import suneido.util.Errlog;
 import suneido.util.NotThreadSafe;
 
@@ -23,6 +26,22 @@ public class ServerData {
 	private final Map<Integer, DbmsQuery> queries = new HashMap<>();
 	private final Map<Integer, DbmsQuery> cursors = new HashMap<>();
 	private final Map<String, String> sviews = new HashMap<>();
+	/** the maximum number of prepared queries kept per connection */
+	public static final int MAX_PREPARED = 200;
+	private int nextPrepared = 0;
+	/** access ordered so the least recently used is discarded */
+	private final LinkedHashMap<Integer, PreparedQuery> prepared =
+			new LinkedHashMap<Integer, PreparedQuery>(16, .75f, true) {
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Integer, PreparedQuery> eldest) {
+					if (size() <= MAX_PREPARED)
+						return false;
+					preparedNums.remove(eldest.getValue().query());
+					return true;
+				}
+			};
+	private final Map<String, Integer> preparedNums = new HashMap<>();
 	private final Stack<String> viewnest = new Stack<>();
 	private String sessionId = "127.0.0.1";
 	public final Closeable connection; // for kill
@@ -109,6 +128,41 @@ public class ServerData {
 		return cursors.get(cn);
 	}
 
+	/**
+	 * Used by {@link Dbms#prepare}.
+	 * A query that is already prepared on this connection is not re-parsed.
+	 * At most MAX_PREPARED are kept, the least recently used is discarded.
+	 * DbmsClient unprepares before it reaches the limit
+	 * so its numbers stay valid.
+	 * @return The number of the prepared query, numbers are not reused
+	 */
+	public int prepare(Transaction t, String query) {
+		Integer pn = preparedNums.get(query);
+		if (pn != null)
+			prepared.get(pn); // to update access order
+		else {
+			PreparedQuery pq = new PreparedQuery(t, this, query);
+			pn = nextPrepared++;
+			preparedNums.put(query, pn);
+			prepared.put(pn, pq);
+		}
+		return pn;
+	}
+
+	public PreparedQuery getPrepared(int pn) {
+		PreparedQuery pq = prepared.get(pn);
+		if (pq == null)
+			throw new SuException("invalid prepared query");
+		return pq;
+	}
+
+	/** Used by {@link Command#UNPREPARE} */
+	public void unprepare(int pn) {
+		PreparedQuery pq = prepared.remove(pn);
+		if (pq != null)
+			preparedNums.remove(pq.query());
+	}
+
 	public boolean isEmpty() {
 		return trans.isEmpty();
 	}
@@ -123,6 +177,10 @@ public class ServerData {
 		sviews.remove(name);
 	}
 
+	public boolean hasSviews() {
+		return ! sviews.isEmpty();
+	}
+
 	public void enterView(String name) {
 		viewnest.push(name);
 	}
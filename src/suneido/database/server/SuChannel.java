@@ -21,10 +21,12 @@ import com.google.common.collect.Lists;
  * uses {@link Serializer} for serialization.
  * Usage is to call put methods followed by write.
  * <p>
- * Assumes strict request/response.
- * Reading and writing can't overlap since a single buffer is used for both.
- * i.e. Must finish receiving request before starting to send response.
- * Does NOT handle pipelining or multiplexing.
+ * Reading and writing use separate buffers
+ * so a response can be written while there is still unread input,
+ * as happens with pipelined requests (see {@link Command#PIPELINE}).
+ * Buffers returned by get methods are only valid
+ * until the next read after a write.
+ * Does NOT handle multiplexing.
  */
 public class SuChannel extends Serializer {
 	private final Channel channel;
@@ -32,19 +34,25 @@ public class SuChannel extends Serializer {
 	private ByteBuffer buf;
 	private ArrayList<ByteBuffer> bufs = Lists.newArrayList();
 	private static final ByteBuffer[] empty = new ByteBuffer[0];
+	private final ByteBuffer inbuf; // the initial input buffer
+	private ByteBuffer in; // position to limit is unread
+	private long nread = 0; // total bytes read from the channel
 	enum Mode { READ, WRITE }
 
 	private Mode mode = Mode.WRITE;
 
 	public SuChannel(Channel channel) {
-		this.channel = channel;
-		this.buf = ByteBuffer.allocate/*Direct*/(BUFSIZE);
-		bufs.add(buf);
+		this(channel, ByteBuffer.allocate/*Direct*/(BUFSIZE),
+				ByteBuffer.allocate/*Direct*/(BUFSIZE));
 	}
 
-	public SuChannel(Channel channel, ByteBuffer buf) {
+	public SuChannel(Channel channel, ByteBuffer inbuf, ByteBuffer outbuf) {
 		this.channel = channel;
-		this.buf = buf;
+		this.inbuf = inbuf;
+		in = inbuf;
+		in.clear().limit(0);
+		this.buf = outbuf;
+		buf.clear();
 		bufs.add(buf);
 	}
 
@@ -58,8 +66,7 @@ public class SuChannel extends Serializer {
 
 	@Override
 	protected ByteBuffer allow(int nBytes) {
-		if (mode == Mode.READ)
-			flip();
+		mode = Mode.WRITE;
 		if (nBytes > buf.remaining()) {
 			buf = ByteBuffer.allocateDirect((nBytes < BUFSIZE / 2) ? BUFSIZE : nBytes);
 			bufs.add(buf);
@@ -74,6 +81,7 @@ public class SuChannel extends Serializer {
 	 */
 	@Override
 	protected void putBuffer(ByteBuffer src) {
+		mode = Mode.WRITE;
 		int n = src.remaining();
 		if (n < 1024 && // small
 				n < buf.remaining()) { // and fits in the current buffer
@@ -91,6 +99,14 @@ public class SuChannel extends Serializer {
 		}
 	}
 
+	/** @return The number of bytes put since the last write or clear */
+	int putSize() {
+		int n = 0;
+		for (ByteBuffer b : bufs)
+			n += b.position();
+		return n;
+	}
+
 	/**
 	 * Write the buffered data to the channel
 	 * and resets the buffers.
@@ -118,18 +134,29 @@ public class SuChannel extends Serializer {
 		mode = Mode.WRITE;
 	}
 
+	/** @return The total number of bytes that have been fetched */
+	long consumed() {
+		return nread - in.remaining();
+	}
+
 	/**
-	 * Checks that all the data has been retrieved
-	 * and resets the buffers ready for writing.
+	 * Called when reading starts after writing.
+	 * Moves any unread data (pipelined requests or responses)
+	 * to the start of the initial input buffer.
+	 * This invalidates buffers returned by previous gets.
 	 */
-	private void flip() {
-		assert mode == Mode.READ;
-		if (buf.remaining() != 0)
-			throw new RuntimeException("unread data (" + buf.remaining() + " bytes)");
-		assert bufs.size() == 1;
-		buf = bufs.get(0); // in case we allocated a temporary larger one
-		buf.clear();
-		mode = Mode.WRITE;
+	private void startReading() {
+		mode = Mode.READ;
+		int n = in.remaining();
+		if (n > inbuf.capacity()) {
+			in = ByteBuffer.allocateDirect(n).put(in).flip();
+		} else if (in == inbuf) {
+			in.compact().flip();
+		} else {
+			inbuf.clear();
+			inbuf.put(in).flip();
+			in = inbuf;
+		}
 	}
 
 	/**
@@ -139,55 +166,56 @@ public class SuChannel extends Serializer {
 	 @Override
 	protected ByteBuffer need(int n) {
 		assert n >= 0;
-		if (mode == Mode.WRITE) {
-			mode = Mode.READ;
-			buf.position(0);
-			buf.limit(0);
-		}
+		if (mode == Mode.WRITE)
+			startReading();
 		// we have data between 0 and limit
 		// 0 to position has already been fetched,
 		// position to limit is available to fetch,
 		// limit to capacity can be used to read more
-		if (n <= buf.remaining())
-			return buf;
+		if (n <= in.remaining())
+			return in;
 		int prevPos;
-		if (n <= buf.capacity() - buf.limit()) {
+		if (n <= in.capacity() - in.position()) {
 			// sufficient space in current buffer
-			prevPos = buf.position();
-			buf.position(buf.limit());
-			buf.limit(buf.capacity());
+			prevPos = in.position();
+			in.position(in.limit());
+			in.limit(in.capacity());
 		} else {
 			// insufficient space, allocate a bigger buffer
 			newBuffer(n);
 			prevPos = 0;
 		}
 		try {
-			while (buf.position() - prevPos < n) {
-				if (0 >= ((ReadableByteChannel) channel).read(buf))
+			while (in.position() - prevPos < n) {
+				int nr = ((ReadableByteChannel) channel).read(in);
+				if (nr <= 0)
 					throw new RuntimeException("read failed in SuChannel");
+				nread += nr;
 			}
 		} catch (IOException e) {
 			throw new RuntimeException("read error in SuChannel", e);
 		}
-		buf.limit(buf.position());
-		buf.position(prevPos);
-		assert buf.remaining() >= n;
-		return buf;
+		in.limit(in.position());
+		in.position(prevPos);
+		assert in.remaining() >= n;
+		return in;
 	}
 
 	@Override
 	void forceNewBuffer(int n) {
 		assert n >= 0;
+		if (mode == Mode.WRITE)
+			startReading();
 		newBuffer(n);
-		buf.limit(buf.position());
-		buf.position(0);
+		in.limit(in.position());
+		in.position(0);
 	}
 
 	private void newBuffer(int n) {
 		assert n >= 0;
-		ByteBuffer oldbuf = buf;
-		buf = ByteBuffer.allocateDirect(oldbuf.remaining() + n);
-		buf.put(oldbuf); // copy unread data to new buffer
+		ByteBuffer oldbuf = in;
+		in = ByteBuffer.allocateDirect(oldbuf.remaining() + n);
+		in.put(oldbuf); // copy unread data to new buffer
 	}
 
 }
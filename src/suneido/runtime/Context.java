@@ -8,6 +8,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.lang.invoke.SwitchPoint;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import suneido.util.ThreadSafe;
 
@@ -26,11 +29,20 @@ import suneido.SuException;
 @ThreadSafe
 public abstract class Context {
 	private final Contexts contexts;
-	private final Map<String, Integer> nameToSlot = new HashMap<>();
+	private final Map<String, Integer> nameToSlot = new ConcurrentHashMap<>();
 	private final List<String> names = new ArrayList<>(1000);
-	private final List<Object> values = new ArrayList<>(1000);
+	/**
+	 * The cached values, read without locking.
+	 * Only written while synchronized.
+	 * Replaced by a larger copy when slots are added.
+	 */
+	private volatile AtomicReferenceArray<Object> values =
+			new AtomicReferenceArray<>(1000);
 	private final Map<String, String> override = new HashMap<>();
+	private volatile SwitchPoint switchPoint = new SwitchPoint();
 	private static final Object nonExistent = new Object();
+	/** in the slot while it is being fetched */
+	private static final Object fetching = new Object();
 
 	// protected so we can derive a trivial context for testing purposes
 	protected Context(Contexts contexts) {
@@ -38,29 +50,41 @@ public abstract class Context {
 		contexts.addContext(this);
 		// don't use slot 0
 		names.add(null);
-		values.add(null);
 	}
 
 	/**
 	 * Called by compile.
 	 * @return The slot for a name, assigning a new slot for a new name.
 	 */
-	public final synchronized int slotForName(String name) {
+	public final int slotForName(String name) {
+		Integer slot = nameToSlot.get(name);
+		return (slot != null) ? slot : newSlot(name);
+	}
+
+	private synchronized int newSlot(String name) {
 		return nameToSlot.computeIfAbsent(name, key -> {
-			assert names.size() == values.size();
 			int slot = names.size();
 			names.add(name);
-			values.add(null);
+			if (slot >= values.length()) {
+				var vals = values;
+				var bigger = new AtomicReferenceArray<>(2 * vals.length());
+				for (int i = 0; i < vals.length(); ++i)
+					bigger.set(i, vals.get(i));
+				values = bigger;
+			}
 			return slot;
 			});
 	}
 
-	public final synchronized Object get(String name) {
+	public final Object get(String name) {
 		return get(slotForName(name));
 	}
 
-	/** Called by compiled code to get the value of a global */
-	public final synchronized Object get(int slot) {
+	/**
+	 * Called by compiled code to get the value of a global.
+	 * Does not lock unless the value has to be fetched.
+	 */
+	public final Object get(int slot) {
 		Object value = tryget(slot);
 		if (value == null)
 			throw new SuException("can't find " + nameForSlot(slot));
@@ -68,19 +92,38 @@ public abstract class Context {
 	}
 
 	/** Called for rules and triggers and UserDefined */
-	public synchronized final Object tryget(String name) {
+	public final Object tryget(String name) {
 		return tryget(slotForName(name));
 	}
 
-	private synchronized final Object tryget(int slot) {
+	private Object tryget(int slot) {
+		Object value = values.get(slot);
+		if (value == null || value == fetching)
+			return fetchSlot(slot);
+		return value == nonExistent ? null : value;
+	}
+
+	/**
+	 * Fetches are serialized (as compiling is not thread safe)
+	 * so other threads wait for a value that is being fetched.
+	 * A fetch may recursively get its own slot e.g. for overloading.
+	 */
+	private synchronized Object fetchSlot(int slot) {
 		Object value = values.get(slot);
 		if (value == null) {
-			values.set(slot, nonExistent); // in case fetch fails
-			String name = nameForSlot(slot);
-			value = name.contains("@") ? contexts.fetchExplicit(name) : fetch(name);
+			values.set(slot, fetching);
+			try {
+				String name = nameForSlot(slot);
+				value = name.contains("@")
+						? contexts.fetchExplicit(name) : fetch(name);
+			} finally {
+				// in case fetch fails
+				values.compareAndSet(slot, fetching, nonExistent);
+			}
 			values.set(slot, value == null ? nonExistent : value);
 			// nonExistent is used to avoid repeating failing fetches
-		}
+		} else if (value == fetching)
+			value = null; // recursive get while fetching
 		return value == nonExistent ? null : value;
 	}
 
@@ -93,13 +136,35 @@ public abstract class Context {
 
 	/** Remove the cached value for a slot. Called by Unload */
 	public synchronized final void clear(String name) {
-		values.set(slotForName(name), null);
+		replaced(values.getAndSet(slotForName(name), null));
 	}
 
 	/** Remove the cached values for all slots. Called by Use & Unuse */
 	public synchronized final void clearAll() {
-		for (int i = 0; i < values.size(); ++i)
-			values.set(i, null);
+		var vals = values;
+		for (int i = 0; i < vals.length(); ++i)
+			vals.set(i, null);
+		changed();
+	}
+
+	/**
+	 * Invalidated when a value that may have been used is removed or replaced.
+	 * Used by {@link MethodCallSite} and {@link SuClass} to discard
+	 * cached method lookups.
+	 */
+	public final SwitchPoint switchPoint() {
+		return switchPoint;
+	}
+
+	private void replaced(Object old) {
+		if (old != null && old != fetching && old != nonExistent)
+			changed();
+	}
+
+	private void changed() {
+		SwitchPoint old = switchPoint;
+		switchPoint = new SwitchPoint();
+		SwitchPoint.invalidateAll(new SwitchPoint[] { old });
 	}
 
 	/** Add or remove an override of specific record. Called by LibraryOverride */
@@ -131,7 +196,7 @@ public abstract class Context {
 	 * Also used by tests which is why it is public.
 	 */
 	public synchronized final void set(String name, Object value) {
-		values.set(slotForName(name), value);
+		replaced(values.getAndSet(slotForName(name), value));
 	}
 
 }
@@ -0,0 +1,205 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.runtime;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+
+import suneido.SuDate;
+import suneido.SuInternalError;
+import suneido.SuObject;
+import suneido.SuRecord;
+import suneido.SuValue;
+import suneido.Suneido;
+
+/**
+ * invokedynamic call site for method calls with a constant name
+ * and direct arguments e.g. x.Name(a, b). Generated by ClassGen.
+ * <p>
+ * Caches the result of lookup for up to {@link #MAX_ENTRIES} receiver types
+ * (a polymorphic inline cache) as a chain of guarded method handles,
+ * so a hit calls the method directly without {@link Ops#target}
+ * or the lookup (e.g. SuClass members and base classes).
+ * After that the site is megamorphic and calls {@link Ops} invoke.
+ * Receivers that can't be cached call Ops invoke directly
+ * and count towards the limit, so sites that mostly see them
+ * soon become megamorphic instead of missing on every call.
+ * <p>
+ * Only receivers whose lookup depends on nothing but the key are cached:
+ * <ul>
+ * <li>non-SuValue's (e.g. String, Integer) and some SuValue's
+ * by Java class (exact, subclasses may override lookup)
+ * <li>SuInstance by its SuClass
+ * <li>SuClass by identity
+ * </ul>
+ * Class members can't change, but lookup also depends on globals
+ * (base classes and user defined methods e.g. Objects)
+ * so the caches are discarded when the context
+ * {@link Context#switchPoint} is invalidated (e.g. by Unload or Use).
+ */
+public class MethodCallSite extends MutableCallSite {
+	static final int MAX_ENTRIES = 4;
+	private final String method;
+	private final int nargs;
+	private final MethodHandle fallback;
+	/** Ops invoke with the method name bound */
+	private final MethodHandle invoke;
+	/** invoke taking the receiver and arguments as an array */
+	private final MethodHandle invokeSpread;
+	/** cached entries plus misses for receivers that can't be cached */
+	private int nentries = 0;
+	private MethodHandle chain;
+	private SwitchPoint switchPoint;
+
+	private MethodCallSite(MethodType type, String method) {
+		super(type);
+		this.method = method;
+		this.nargs = type.parameterCount() - 1;
+		fallback = FALLBACK.bindTo(this)
+				.asCollector(Object[].class, type.parameterCount())
+				.asType(type);
+		invoke = MethodHandles.insertArguments(INVOKE[nargs], 1, method);
+		invokeSpread = invoke.asSpreader(Object[].class, nargs + 1);
+		reset();
+	}
+
+	/**
+	 * The bootstrap method referenced by generated code.
+	 * @param method The method name, passed as a constant
+	 * since it may not be a valid JVM name.
+	 */
+	public static CallSite bootstrap(MethodHandles.Lookup lookup,
+			String name, MethodType type, String method) {
+		return new MethodCallSite(type, method.intern());
+	}
+
+	private void reset() {
+		nentries = 0;
+		chain = fallback;
+		switchPoint = Suneido.context.switchPoint();
+		setTarget(fallback);
+	}
+
+	/** Called on a cache miss, looks up the method and adds it to the cache */
+	@SuppressWarnings("unused")
+	private Object fallback(Object[] args) throws Throwable {
+		Object x = args[0];
+		MethodHandle guard = guard(x);
+		if (guard == null) {
+			uncacheable();
+			return (Object) invokeSpread.invokeExact(args);
+		}
+		SwitchPoint sp = Suneido.context.switchPoint(); // before lookup
+		SuValue f = Ops.target(x).lookup(method);
+		if (f instanceof SuValue.NotFound)
+			uncacheable();
+		else
+			synchronized (this) {
+				if (switchPoint.hasBeenInvalidated())
+					reset();
+				if (sp == switchPoint) // else globals changed during lookup
+					cache(guard, f);
+			}
+		return (Object) EVAL_SPREAD[nargs].invokeExact(f, args);
+	}
+
+	/** caller must synchronize */
+	private void cache(MethodHandle guard, SuValue f) {
+		if (nentries >= MAX_ENTRIES) {
+			setTarget(invoke);
+			return;
+		}
+		guard = MethodHandles.dropArguments(guard, 1,
+				type().parameterList().subList(1, nargs + 1));
+		chain = MethodHandles.guardWithTest(guard, EVAL[nargs].bindTo(f), chain);
+		++nentries;
+		setTarget(switchPoint.guardWithTest(chain, fallback));
+	}
+
+	/** counts towards the limit, after that the site is megamorphic */
+	private synchronized void uncacheable() {
+		if (switchPoint.hasBeenInvalidated())
+			reset();
+		if (nentries >= MAX_ENTRIES)
+			setTarget(invoke);
+		else
+			++nentries;
+	}
+
+	/** @return A test for receivers with the same lookup as x, or null */
+	private static MethodHandle guard(Object x) {
+		if (x == null)
+			return null;
+		Class<?> c = x.getClass();
+		if (c == SuInstance.class)
+			return INSTANCE_OF.bindTo(((SuInstance) x).myclass);
+		if (c == SuClass.class)
+			return SAME.bindTo(x);
+		if (! (x instanceof SuValue) || c == SuObject.class ||
+				c == SuRecord.class || c == SuDate.class)
+			return CLASS_IS.bindTo(c);
+		return null;
+	}
+
+	// guards ------------------------------------------------------------------
+
+	@SuppressWarnings("unused")
+	private static boolean classIs(Class<?> c, Object x) {
+		return x != null && x.getClass() == c;
+	}
+
+	@SuppressWarnings("unused")
+	private static boolean instanceOf(SuClass c, Object x) {
+		return x != null && x.getClass() == SuInstance.class &&
+				((SuInstance) x).myclass == c;
+	}
+
+	@SuppressWarnings("unused")
+	private static boolean same(Object y, Object x) {
+		return x == y;
+	}
+
+	// method handles ----------------------------------------------------------
+
+	private static final MethodHandle FALLBACK;
+	private static final MethodHandle CLASS_IS;
+	private static final MethodHandle INSTANCE_OF;
+	private static final MethodHandle SAME;
+	/** SuValue evalN by number of arguments */
+	private static final MethodHandle[] EVAL = new MethodHandle[5];
+	/** EVAL taking self and the arguments as an array */
+	private static final MethodHandle[] EVAL_SPREAD = new MethodHandle[5];
+	/** Ops invokeN by number of arguments */
+	private static final MethodHandle[] INVOKE = new MethodHandle[5];
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			FALLBACK = lookup.findVirtual(MethodCallSite.class, "fallback",
+					methodType(Object.class, Object[].class));
+			CLASS_IS = lookup.findStatic(MethodCallSite.class, "classIs",
+					methodType(boolean.class, Class.class, Object.class));
+			INSTANCE_OF = lookup.findStatic(MethodCallSite.class, "instanceOf",
+					methodType(boolean.class, SuClass.class, Object.class));
+			SAME = lookup.findStatic(MethodCallSite.class, "same",
+					methodType(boolean.class, Object.class, Object.class));
+			for (int n = 0; n < EVAL.length; ++n) {
+				MethodType args = MethodType.genericMethodType(n + 1);
+				EVAL[n] = lookup.findVirtual(SuValue.class, "eval" + n, args);
+				EVAL_SPREAD[n] = EVAL[n].asSpreader(Object[].class, n + 1);
+				INVOKE[n] = lookup.findStatic(Ops.class, "invoke" + n,
+						args.insertParameterTypes(1, String.class));
+			}
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new SuInternalError("MethodCallSite", e);
+		}
+	}
+
+}
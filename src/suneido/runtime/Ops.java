@@ -65,15 +65,73 @@ public final class Ops {
 		return !is_(x, y);
 	}
 	public static boolean lt_(Object x, Object y) {
+		if (x instanceof Integer && y instanceof Integer)
+			return (int) x < (int) y;
 		return cmp(x, y) < 0;
 	}
 	public static boolean lte_(Object x, Object y) {
+		if (x instanceof Integer && y instanceof Integer)
+			return (int) x <= (int) y;
 		return cmp(x, y) <= 0;
 	}
 	public static boolean gt_(Object x, Object y) {
+		if (x instanceof Integer && y instanceof Integer)
+			return (int) x > (int) y;
 		return cmp(x, y) > 0;
 	}
 	public static boolean gte_(Object x, Object y) {
+		if (x instanceof Integer && y instanceof Integer)
+			return (int) x >= (int) y;
+		return cmp(x, y) >= 0;
+	}
+
+	// int constant right hand side, used by AstCompile e.g. i < 10
+
+	public static Boolean isInt(Object x, int y) {
+		return isInt_(x, y);
+	}
+	public static Boolean isntInt(Object x, int y) {
+		return !isInt_(x, y);
+	}
+	public static Boolean ltInt(Object x, int y) {
+		return ltInt_(x, y);
+	}
+	public static Boolean lteInt(Object x, int y) {
+		return lteInt_(x, y);
+	}
+	public static Boolean gtInt(Object x, int y) {
+		return gtInt_(x, y);
+	}
+	public static Boolean gteInt(Object x, int y) {
+		return gteInt_(x, y);
+	}
+
+	public static boolean isInt_(Object x, int y) {
+		if (x instanceof Integer)
+			return (int) x == y;
+		return is_(x, (Object) y);
+	}
+	public static boolean isntInt_(Object x, int y) {
+		return !isInt_(x, y);
+	}
+	public static boolean ltInt_(Object x, int y) {
+		if (x instanceof Integer)
+			return (int) x < y;
+		return cmp(x, y) < 0;
+	}
+	public static boolean lteInt_(Object x, int y) {
+		if (x instanceof Integer)
+			return (int) x <= y;
+		return cmp(x, y) <= 0;
+	}
+	public static boolean gtInt_(Object x, int y) {
+		if (x instanceof Integer)
+			return (int) x > y;
+		return cmp(x, y) > 0;
+	}
+	public static boolean gteInt_(Object x, int y) {
+		if (x instanceof Integer)
+			return (int) x >= y;
 		return cmp(x, y) >= 0;
 	}
 
@@ -232,13 +290,45 @@ public final class Ops {
 		return Dnum.sub(toDnum(x), toDnum(y));
 	}
 
-	private static final Integer one = 1;
+	// int constant right hand side, used by AstCompile e.g. i + 1
+	// overflow is checked with long arithmetic rather than exceptions
+
+	public static Number addInt(Object x, int y) {
+		if (x instanceof Integer) {
+			long r = (long) (int) x + y;
+			if (r == (int) r)
+				return (int) r;
+		}
+		return Dnum.add(toDnum(x), Dnum.from(y));
+	}
+
+	public static Number subInt(Object x, int y) {
+		if (x instanceof Integer) {
+			long r = (long) (int) x - y;
+			if (r == (int) r)
+				return (int) r;
+		}
+		return Dnum.sub(toDnum(x), Dnum.from(y));
+	}
+
+	public static Number mulInt(Object x, int y) {
+		if (x instanceof Integer) {
+			long r = (long) (int) x * y;
+			if (r == (int) r)
+				return (int) r;
+		}
+		return Dnum.mul(toDnum(x), Dnum.from(y));
+	}
 
 	public static Number add1(Object x) {
-		return add(x, one);
+		if (x instanceof Integer && (int) x != Integer.MAX_VALUE)
+			return (int) x + 1;
+		return addInt(x, 1);
 	}
 	public static Number sub1(Object x) {
-		return sub(x, one);
+		if (x instanceof Integer && (int) x != Integer.MIN_VALUE)
+			return (int) x - 1;
+		return subInt(x, 1);
 	}
 
 	public static Number mul(Object x, Object y) {
@@ -6,9 +6,12 @@ package suneido.runtime;
 
 import static suneido.SuException.methodNotFound;
 
+import java.lang.invoke.SwitchPoint;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import suneido.SuException;
 import suneido.SuObject;
@@ -29,6 +32,7 @@ public class SuClass extends SuValue implements Showable {
 	private final String baseGlobal; // TODO could be int slot
 	private final Map<String, Object> members; // must be synchronized
 	private boolean hasGet_ = true; // till we know different
+	private volatile Inherited inherited;
 	private static final Map<String, SuCallable> basicMethods =
 			BuiltinMethods.methods("class", SuClass.class);
 	private static final BuiltinMethods userGeneralMethods = new BuiltinMethods(
@@ -87,9 +91,48 @@ public class SuClass extends SuValue implements Showable {
 		Object value = members.get(member);
 		return (value != null || baseGlobal == null)
 			? value
-			: base().get2(member);
+			: inherited(member);
+	}
+
+	/**
+	 * Members from base classes are cached
+	 * so deep hierarchies don't have to be walked each time.
+	 * Ones that aren't found are only cached for string names
+	 * and up to MAX_NOT_FOUND, since any value can be looked up.
+	 * The cache is dropped when the context switchPoint is invalidated
+	 * i.e. when a global, possibly one of the base classes, is reloaded.
+	 */
+	private Object inherited(Object member) {
+		Inherited inh = inherited;
+		if (inh == null || inh.switchPoint.hasBeenInvalidated())
+			inherited = inh = new Inherited(context.switchPoint());
+		Object value = inh.members.get(member);
+		if (value == null) {
+			value = base().get2(member);
+			if (value != null)
+				inh.members.put(member, value);
+			else if (member instanceof String &&
+					inh.notFound.get() < MAX_NOT_FOUND &&
+					inh.members.putIfAbsent(member, NONE) == null)
+				inh.notFound.incrementAndGet();
+		}
+		return value == NONE ? null : value;
+	}
+
+	private static class Inherited {
+		/** obtained before resolving, so a concurrent change drops the cache */
+		final SwitchPoint switchPoint;
+		final Map<Object, Object> members = new ConcurrentHashMap<>();
+		final AtomicInteger notFound = new AtomicInteger();
+
+		Inherited(SwitchPoint switchPoint) {
+			this.switchPoint = switchPoint;
+		}
 	}
 
+	private static final Object NONE = new Object();
+	private static final int MAX_NOT_FOUND = 1000;
+
 	@Override
 	public SuValue lookup(String method) {
 		if ("<new>".equals(method))
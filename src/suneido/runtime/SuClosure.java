@@ -4,6 +4,8 @@
 
 package suneido.runtime;
 
+import suneido.SuObject;
+
 /**
  * <p>
  * A block in which some of the local variables are "upvalues" that belong to
@@ -16,6 +18,7 @@ public class SuClosure extends SuWrappingCallable {
 	protected final BlockSpec bspec;
 	protected final Object self;
 	protected final Object[] locals;
+	private volatile boolean concurrent = false;
 
 	public SuClosure(Object block, Object self, Object[] locals) {
 		super((SuCallable)block);
@@ -25,6 +28,21 @@ public class SuClosure extends SuWrappingCallable {
 		this.locals = locals;
 	}
 
+	/**
+	 * Used by Thread to make objects shared through self or upvalues concurrent.
+	 * Upvalues assigned after this are not covered
+	 * since they are stored directly by the generated code.
+	 * @see SuObject#setConcurrent()
+	 */
+	public void setConcurrent() {
+		if (concurrent)
+			return;
+		concurrent = true;
+		SuObject.makeConcurrent(self);
+		for (Object x : locals)
+			SuObject.makeConcurrent(x);
+	}
+
 	@Override
 	public Object call(Object... args) {
 		return eval(self, args);
@@ -23,6 +23,8 @@ import suneido.util.PairStack;
 public class SuInstance extends SuValue {
 	final SuClass myclass;
 	private final Map<String, Object> ivars;
+	/** set by setConcurrent, members put after that are made concurrent */
+	private volatile boolean concurrent = false;
 	private static final Map<String, SuCallable> methods =
 			BuiltinMethods.methods("object", SuInstance.class);
 
@@ -189,9 +191,25 @@ public class SuInstance extends SuValue {
 		if (! Ops.isString(member))
 			throw new SuException("non-string member name: "
 					+ Ops.typeName(member));
+		if (concurrent)
+			SuObject.makeConcurrent(value);
 		ivars.put(member.toString(), value);
 	}
 
+	/**
+	 * Makes the member values concurrent, for instances shared between threads.
+	 * Values put after this are also made concurrent.
+	 * The instance members themselves are not locked.
+	 * @see SuObject#setConcurrent()
+	 */
+	public void setConcurrent() {
+		if (concurrent)
+			return;
+		concurrent = true;
+		for (Object x : ivars.values())
+			SuObject.makeConcurrent(x);
+	}
+
 	public Object classGet(Object member) {
 		return myclass.get2(member);
 	}
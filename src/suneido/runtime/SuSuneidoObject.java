@@ -10,7 +10,7 @@ import suneido.runtime.builtin.ObjectMethods;
 
 public class SuSuneidoObject extends SuValue
 		implements Iterable<Object> {
-	private final SuObject ob = new SuObject();
+	private final SuObject ob = new SuObject().setConcurrent();
 
 
 	@Override
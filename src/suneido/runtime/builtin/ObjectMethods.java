@@ -278,6 +278,11 @@ public final class ObjectMethods {
 		return c;
 	}
 
+	public static Object Set_concurrent(Object self) {
+		toObject(self).setConcurrent();
+		return self;
+	}
+
 	public static Object Set_readonly(Object self) {
 		SuObject c = toObject(self);
 		c.setReadonly();
@@ -179,6 +179,7 @@ public class SocketServer extends SuClass {
 		Master(SuClass serverClass, Object[] args) {
 			super(serverClass);
 			super.lookup("New").eval(this, args);
+			setConcurrent(); // members are shared by the connection instances
 		}
 		Instance dup(Socket socket, int nconn) {
 			try {
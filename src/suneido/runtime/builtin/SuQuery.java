@@ -74,6 +74,13 @@ public class SuQuery extends SuValue {
 		return ((SuQuery) self).q.strategy();
 	}
 
+	public static Object Explain(Object self) {
+		SuQuery query = (SuQuery) self;
+		String s = query.q.explain();
+		query.eof = null; // explain rewinds
+		return s;
+	}
+
 	public static Object Keys(Object self) {
 		SuObject c = new SuObject();
 		for (List<String> key : ((SuQuery) self).q.keys())
@@ -36,6 +36,7 @@ public class SuThread extends BuiltinClass {
 	@Override
 	public Object call(Object... args) {
 		args = Args.massage(callableFS, args);
+		SuObject.makeConcurrent(args[0]); // shared with this thread
 		Thread thread = new Thread(Suneido.threadGroup,
 				new Callable(args[0], SuThread.subSuneido.get()));
 		thread.setDaemon(true); // so it won't stop Suneido exiting
@@ -113,7 +114,7 @@ public class SuThread extends BuiltinClass {
 	}
 
 	public static Object NewSuneidoGlobal(Object self) {
-		subSuneido.set(new SuObject());
+		subSuneido.set(new SuObject().setConcurrent());
 		return null;
 	}
 
@@ -10,11 +10,14 @@ import static suneido.Trace.Type.QUERY;
 import static suneido.runtime.FunctionSpec.NA;
 import static suneido.util.Util.array;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import suneido.*;
 import suneido.database.query.CompileQuery;
 import suneido.database.query.Query.Dir;
+import suneido.database.server.Dbms;
 import suneido.database.server.Dbms.HeaderAndRow;
 import suneido.database.server.DbmsTran;
 import suneido.runtime.*;
@@ -128,10 +131,33 @@ public class SuTransaction extends SuValue {
 			boolean single) {
 		if (ti != null)
 			ti.checkNotEnded("query");
-		String where = queryWhere(args);
+		// an older server doesn't support prepared queries
+		List<Object> values = TheDbms.dbms().canPrepare() ? new ArrayList<>() : null;
+		String where = queryWhere(args, values);
 		args = Args.massage(queryOneFS, args);
 		String query = Ops.toStr(args[0]) + where; //TODO insert where before sort
-		return queryOne(ti, query, dir, single);
+		if (values == null || values.isEmpty())
+			return queryOne(ti, query, dir, single);
+		return queryOne(ti, query, values, dir, single);
+	}
+
+	/**
+	 * Uses a prepared query so the query text is the same
+	 * for different values of the named arguments
+	 */
+	private static Object queryOne(SuTransaction ti, String query,
+			List<Object> values, Dir dir, boolean single) {
+		if (tracing(QUERY))
+			trace(QUERY, (ti == null ? "" : ti + " ") +
+					(single ? "ONE" : dir == Dir.NEXT ? "FIRST" : "LAST") +
+					" " + query + " " + values);
+		HeaderAndRow hr;
+		if (ti == null) {
+			Dbms dbms = TheDbms.dbms();
+			hr = dbms.get(dir, dbms.prepare(query), values, single);
+		} else
+			hr = ti.t.get(dir, ti.t.prepare(query), values, single);
+		return hr == null ? false : new SuRecord(hr.row, hr.header, ti);
 	}
 
 	public static Object queryOne(SuTransaction ti, String query, Dir dir,
@@ -146,8 +172,16 @@ public class SuTransaction extends SuValue {
 		return hr == null ? false : new SuRecord(hr.row, hr.header, ti);
 	}
 
-	@SuppressWarnings("unchecked")
 	private static String queryWhere(Object[] args) {
+		return queryWhere(args, null);
+	}
+
+	/**
+	 * @param values If not null, the where uses ? parameters
+	 * and the values are added to this list
+	 */
+	@SuppressWarnings("unchecked")
+	private static String queryWhere(Object[] args, List<Object> values) {
 		ArgsIterator iter = new ArgsIterator(args);
 		StringBuilder where = new StringBuilder();
 		while (iter.hasNext()) {
@@ -161,8 +195,13 @@ public class SuTransaction extends SuValue {
 				continue;
 			if (key.equals("block") && SuValue.isCallable(value))
 				continue;
-			where.append(" where ")
-					.append(key).append(" = ").append(Ops.display(value));
+			where.append(" where ").append(key).append(" = ");
+			if (values == null)
+				where.append(Ops.display(value));
+			else {
+				where.append("?");
+				values.add(value);
+			}
 		}
 		return where.toString();
 	}
@@ -28,6 +28,14 @@ public class Jvm {
 			args.add("-asof");
 			args.add(Suneido.cmdlineoptions.asof);
 		}
+		if (Suneido.cmdlineoptions.large_files)
+			args.add("-large");
+		if (Suneido.cmdlineoptions.load_threads > 0) {
+			args.add("-lt");
+			args.add(String.valueOf(Suneido.cmdlineoptions.load_threads));
+		}
+		if (Suneido.cmdlineoptions.prefix_compress)
+			args.add("-pc");
 		ProcessBuilder builder = new ProcessBuilder(args);
 		try {
 			builder.redirectErrorStream(true); // merge stderr into stdout
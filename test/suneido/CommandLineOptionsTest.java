@@ -80,4 +80,14 @@ public class CommandLineOptionsTest {
 				is("REPL timeout=1234"));
 	}
 
+	@Test
+	public void request_threads() {
+		assertThat(CommandLineOptions.parse("-s", "-vt", "-rl", "500").toString(),
+				is("SERVER virtual_threads request_limit=500"));
+		assertThat(CommandLineOptions.parse("-s", "-rt", "32").toString(),
+				is("SERVER request_threads=32"));
+		assertThat(CommandLineOptions.parse("-s", "-vt", "-rt", "32").toString(),
+				is("ERROR can't have both -vt and -rt"));
+	}
+
 }
@@ -11,6 +11,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static suneido.runtime.Pack.pack;
 import static suneido.runtime.Pack.unpack;
+import static suneido.util.testing.Benchmark.benchmark;
 
 import org.junit.After;
 import org.junit.Before;
@@ -207,4 +208,82 @@ public class SuContainerTest {
 				"back\\slash", true, "double\"s", true, "single's", true, "plain", true);
 	}
 
+	@Test
+	public void concurrent() {
+		SuObject c = new SuObject();
+		SuObject nested = new SuObject();
+		c.add(nested);
+		c.put("self", c);
+		assertFalse(c.isConcurrent());
+		c.setConcurrent();
+		assertTrue(c.isConcurrent());
+		assertTrue(nested.isConcurrent());
+		// objects put into concurrent objects are shared too
+		SuObject x = new SuObject();
+		SuObject y = new SuObject();
+		SuObject z = new SuObject();
+		c.add(x);
+		c.put("y", y);
+		c.setDefault(z);
+		assertTrue(x.isConcurrent());
+		assertTrue(y.isConcurrent());
+		assertTrue(z.isConcurrent());
+		// readonly objects stay concurrent
+		nested.setReadonly();
+		assertTrue(nested.isConcurrent());
+	}
+
+	@Test
+	public void concurrent_threads() throws InterruptedException {
+		SuObject c = new SuObject().setConcurrent();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; ++t) {
+			int base = t * 1000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 1000; ++i) {
+					c.add(i);
+					c.put("m" + (base + i), i);
+				}
+			});
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		assertEquals(8000, c.vecSize());
+		assertEquals(8000, c.mapSize());
+	}
+
+	/** object heavy code, unlocked (the default) versus concurrent (locked) */
+	@Test
+	public void benchmark_objects() {
+		benchmark("object ops (confined)", 1000,
+				(long nreps) -> objectOps(nreps, false));
+		benchmark("object ops (concurrent)", 1000,
+				(long nreps) -> objectOps(nreps, true));
+		SuObject ro = new SuObject();
+		for (int i = 0; i < 100; ++i)
+			ro.put("m" + i, i);
+		ro.setConcurrent().setReadonly();
+		benchmark("readonly gets (concurrent)", 1000, (long nreps) -> {
+			while (nreps-- > 0)
+				for (int i = 0; i < 1000; ++i)
+					ro.get("m" + (i % 100));
+		});
+	}
+
+	private static void objectOps(long nreps, boolean concurrent) {
+		while (nreps-- > 0) {
+			SuObject c = new SuObject();
+			if (concurrent)
+				c.setConcurrent();
+			for (int i = 0; i < 500; ++i)
+				c.add(i);
+			int sum = 0;
+			for (int i = 0; i < 500; ++i)
+				sum += (int) c.get(i);
+			assert sum == 124750;
+		}
+	}
+
 }
@@ -304,6 +304,28 @@ public class ClassTest {
 		test("x = C(); x.X = 999; x.GetDefault('X', 456)", "999");
 	}
 
+	@Test
+	public void inherited_cache() {
+		def("A", "class { F() { 'A.F' } X: 1 }");
+		def("B", "A { G() { 'B.G' } }");
+		def("C", "B { }");
+		def("D", "C { }");
+		for (int i = 0; i < 2; ++i) {
+			test("D.F()", "'A.F'");
+			test("D().G()", "'B.G'");
+			test("D.X", "1");
+			notFound("D.H");
+			notFound("D[123]"); // not found for non-strings isn't cached
+		}
+		// reloading a base class drops the cached members
+		def("A", "class { F() { 'A2.F' } X: 2 }");
+		test("D.F()", "'A2.F'");
+		test("D().X", "2");
+		def("B", "A { G() { 'B2.G' } H: 3 }");
+		test("D().G()", "'B2.G'");
+		test("D.H", "3");
+	}
+
 	private static void notFound(String expr) {
 		try {
 			eval(expr);
@@ -8,6 +8,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static suneido.compiler.Compiler.compile;
 import static suneido.compiler.Compiler.eval;
+import static suneido.util.testing.Benchmark.benchmark;
 import static suneido.util.testing.Throwing.assertThrew;
 
 import java.util.Arrays;
@@ -353,6 +354,60 @@ public class ExecuteTest {
 				"Object().Eval(@args)", "true");
 	}
 
+	@Test
+	public void test_int_constant_operands() {
+		test("a = 2147483647; a + 1", "2147483648");
+		test("a = -2147483648; a - 1", "-2147483649");
+		test("a = 2147483647; ++a", "2147483648");
+		test("a = -2147483648; --a", "-2147483649");
+		test("a = 65536; a * 65536", "4294967296");
+		test("a = 65536; a *= 65536; a", "4294967296");
+		test("a = 1.5; a + 1", "2.5");
+		test("a = 1.5; a * 2", "3");
+		test("a = 1.0; a is 1", "true");
+		test("a = '1'; a is 1", "false");
+		test("a = 1.5; a < 2", "true");
+		test("a = 2.5; a < 2", "false");
+		test("a = 'x'; a > 99", "true");
+		test("a = false; a < 0", "true");
+		test("n = 0; for (i = 0; i < 10; ++i) n += i; n", "45");
+		test("n = 0; for (i = 10; i >= 0; i -= 2) ++n; n", "6");
+	}
+
+	/** loops that mostly do small integer arithmetic and comparison */
+	@Test
+	public void benchmark_int_loops() {
+		def("Count", "function (n) { i = 0; while (i < n) ++i; i }");
+		def("SumTo", "function (n) { s = 0; for (i = 1; i <= n; ++i) s += i; s }");
+		def("Nested", "function (n) { c = 0; for (i = 0; i < n; i += 10) " +
+				"for (j = 0; j < 10; ++j) if (i + j > 5) c = c + 1; c }");
+		def("Fib", "function (n) { n < 2 ? n : Fib(n - 1) + Fib(n - 2) }");
+		Object count = Suneido.context.get("Count");
+		Object sumTo = Suneido.context.get("SumTo");
+		Object nested = Suneido.context.get("Nested");
+		Object fib = Suneido.context.get("Fib");
+		assertEquals(1000, Ops.call(count, 1000));
+		assertEquals(500500, Ops.call(sumTo, 1000));
+		assertEquals(994, Ops.call(nested, 1000));
+		assertEquals(610, Ops.call(fib, 15));
+		benchmark("int loop count", 1000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(count, 1000);
+		});
+		benchmark("int loop sum", 1000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(sumTo, 1000);
+		});
+		benchmark("int loop nested", 1000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(nested, 1000);
+		});
+		benchmark("int recursive fib(15)", (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(fib, 15);
+		});
+	}
+
 	private static void needsThis(String expr) {
 		assertThrew(() -> eval(expr), SuException.class,
 				"string call requires 'this' argument");
@@ -0,0 +1,126 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BtreeBuilderTest {
+	private final Storage stor = new HeapStorage();
+	private final Tran tran = new Tran(stor, stor);
+
+	@Test
+	public void empty() {
+		Btree btree = build(new ArrayList<>(), 1.0f);
+		assertTrue(btree.isEmpty());
+		btree.check();
+	}
+
+	@Test
+	public void one_node() {
+		List<BtreeKey> keys = sortedKeys(Btree.MAX_NODE_SIZE);
+		Btree btree = build(keys, 1.0f);
+		assertEquals(0, btree.treeLevels());
+		assertEquals(1, btree.nnodes);
+		check(btree, keys);
+	}
+
+	@Test
+	public void same_as_add() {
+		for (int n : new int[] { 21, 400, 401, 5000 }) {
+			List<BtreeKey> keys = sortedKeys(n);
+			Btree built = build(keys, 1.0f);
+			check(built, keys);
+
+			Btree added = new Btree(tran);
+			for (BtreeKey key : keys)
+				added.add(key);
+			assertEquals(added.treeLevels(), built.treeLevels());
+			assertEquals(added.nnodes, built.nnodes);
+			assertEquals(added.totalSize(), built.totalSize());
+		}
+	}
+
+	@Test
+	public void fill() {
+		List<BtreeKey> keys = sortedKeys(1000);
+		Btree full = build(keys, 1.0f);
+		Btree half = build(keys, 0.5f);
+		check(half, keys);
+		assertThat(half.nnodes, greaterThan(full.nnodes));
+	}
+
+	@Test
+	public void duplicates() {
+		// like BtreeTest testGetBug
+		List<BtreeKey> keys = new ArrayList<>();
+		for (int i = 0; i < 21; i++)
+			keys.add(i < 16 ? key("1", i + 1) : key("2", i + 1));
+		Btree btree = build(keys, 1.0f);
+		check(btree, keys);
+		for (int i = 16; i < 21; i++)
+			btree.update(key("2", i + 1), key("2", 100 + i), false);
+		assertTrue(btree.get(new RecordBuilder().add("2").build()) != 0);
+		btree.check();
+	}
+
+	@Test
+	public void update_after_build() {
+		List<BtreeKey> keys = sortedKeys(1000);
+		Btree btree = build(keys, 1.0f);
+		Random rand = new Random(7890);
+		for (int i = 0; i < 300; ++i) {
+			BtreeKey key = keys.remove(rand.nextInt(keys.size()));
+			assertTrue(btree.remove(key));
+		}
+		for (int i = 0; i < 300; ++i) {
+			BtreeKey key = BtreeTest.randomKey(rand);
+			btree.add(key);
+			keys.add(key);
+		}
+		Collections.sort(keys);
+		check(btree, keys);
+	}
+
+	private Btree build(List<BtreeKey> keys, float fill) {
+		BtreeBuilder builder = new BtreeBuilder(stor, fill);
+		for (BtreeKey key : keys)
+			builder.add(key);
+		return new Btree(tran, builder.finish());
+	}
+
+	private static void check(Btree btree, List<BtreeKey> keys) {
+		btree.check();
+		Btree.Iter iter = btree.iterator();
+		for (BtreeKey key : keys) {
+			iter.next();
+			assertEquals(key, iter.cur());
+		}
+		iter.next();
+		assertTrue(iter.eof());
+		for (BtreeKey key : keys)
+			assertEquals(key.adr(), btree.get(key));
+	}
+
+	private static List<BtreeKey> sortedKeys(int n) {
+		List<BtreeKey> keys = BtreeTest.randomKeys(new Random(123456), n);
+		Collections.sort(keys);
+		return keys;
+	}
+
+	private static BtreeKey key(String s, int adr) {
+		return new RecordBuilder().add(s).btreeKey(adr);
+	}
+
+}
@@ -0,0 +1,221 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BtreePrefixNodeTest {
+	private final Storage stor = new HeapStorage();
+	private final Tran tran = new Tran(stor, stor);
+	private final Random rand = new Random(98765);
+
+	@After
+	public void restore() {
+		BtreePrefixNode.ENABLED = false;
+	}
+
+	@Test
+	public void encode_order() {
+		List<BtreeKey> keys = randomKeys(500);
+		for (int i = 1; i < keys.size(); ++i) {
+			BtreeKey x = keys.get(i - 1);
+			BtreeKey y = keys.get(i);
+			assertEquals(x + " vs " + y, Integer.signum(x.compareTo(y)),
+					Integer.signum(Arrays.compareUnsigned(
+							BtreePrefixNode.encode(x), BtreePrefixNode.encode(y))));
+		}
+	}
+
+	@Test
+	public void encode_decode() {
+		for (BtreeKey key : randomKeys(200)) {
+			byte[] enc = BtreePrefixNode.encode(key);
+			assertEquals(key.key, KeyEncoding.decode(enc, enc.length - 4));
+		}
+	}
+
+	@Test
+	public void leaf() {
+		for (int n : new int[] { 0, 1, 3, 4, 5, 17, 20 }) {
+			List<BtreeKey> keys = randomKeys(n);
+			Collections.sort(keys);
+			int adr = BtreePrefixNode.store(stor, 0, keys);
+			BtreeNode node = Btree.nodeAt(stor, 0, adr);
+			assertTrue(node instanceof BtreePrefixNode);
+			check(node, keys);
+		}
+	}
+
+	@Test
+	public void tree() {
+		List<BtreeKey> keys = new ArrayList<>();
+		List<BtreeKey> leafKeys = randomKeys(13);
+		Collections.sort(leafKeys);
+		for (BtreeKey key : leafKeys)
+			keys.add(new BtreeTreeKey(key.key, key.adr(), 1000 + keys.size()));
+		keys.set(0, keys.get(0).minimize());
+		int adr = BtreePrefixNode.store(stor, 1, keys);
+		BtreeNode node = Btree.nodeAt(stor, 1, adr);
+		check(node, keys);
+		for (int i = 0; i < keys.size(); ++i)
+			assertEquals(1000 + i, ((BtreeTreeKey) node.get(i)).childAddress());
+	}
+
+	/** get and lowerBound should match the plain node */
+	private void check(BtreeNode node, List<BtreeKey> keys) {
+		BtreeNode plain = BtreeMemNode.from(node.level, keys.toArray(new BtreeKey[0]));
+		assertEquals(keys.size(), node.size());
+		for (int i = 0; i < keys.size(); ++i)
+			assertEquals(keys.get(i), node.get(i));
+		for (BtreeKey key : keys)
+			assertEquals(plain.lowerBound(key), node.lowerBound(key));
+		for (BtreeKey key : randomKeys(100))
+			assertEquals(plain.lowerBound(key), node.lowerBound(key));
+	}
+
+	@Test
+	public void update_stored_node() {
+		BtreePrefixNode.ENABLED = true;
+		List<BtreeKey> keys = randomKeys(10);
+		Collections.sort(keys);
+		BtreeNode node = Btree.nodeAt(stor, 0,
+				BtreePrefixNode.store(stor, 0, keys));
+		node = node.with(randomKeys(1).get(0)).without(3);
+		BtreeDbNode stored = node.store(stor);
+		check(stored, toList(node));
+		// and back to the plain format
+		BtreePrefixNode.ENABLED = false;
+		BtreeDbNode plain = node.with(randomKeys(1).get(0)).store(stor);
+		assertTrue(! (plain instanceof BtreePrefixNode));
+	}
+
+	private static List<BtreeKey> toList(BtreeNode node) {
+		List<BtreeKey> list = new ArrayList<>();
+		for (int i = 0; i < node.size(); ++i)
+			list.add(node.get(i));
+		return list;
+	}
+
+	@Test
+	public void btree() {
+		BtreePrefixNode.ENABLED = true;
+		Btree btree = new Btree(tran);
+		List<BtreeKey> keys = uniqueKeys(2000);
+		for (BtreeKey key : keys)
+			btree.add(key);
+		btree = store(btree);
+		for (int i = 0; i < 500; ++i)
+			assertTrue(btree.remove(keys.remove(rand.nextInt(keys.size()))));
+		btree = store(btree);
+		btree.check();
+		Collections.sort(keys);
+		Btree.Iter iter = btree.iterator();
+		for (BtreeKey key : keys) {
+			iter.next();
+			assertEquals(key, iter.cur());
+		}
+		for (BtreeKey key : keys)
+			assertEquals(key.adr(), btree.get(key.key));
+	}
+
+	@Test
+	public void builder() {
+		BtreePrefixNode.ENABLED = true;
+		List<BtreeKey> keys = uniqueKeys(3000);
+		Collections.sort(keys);
+		BtreeBuilder builder = new BtreeBuilder(stor, 1.0f);
+		for (BtreeKey key : keys)
+			builder.add(key);
+		Btree btree = new Btree(tran, builder.finish());
+		btree.check();
+		for (BtreeKey key : keys)
+			assertEquals(key.adr(), btree.get(key.key));
+	}
+
+	private Btree store(Btree btree) {
+		btree.freeze();
+		BtreeDbNode root = btree.info().rootNode.store(stor);
+		BtreeInfo info = btree.info();
+		return new Btree(tran, new BtreeInfo(root.address(), root,
+				info.treeLevels, info.nnodes, info.totalSize));
+	}
+
+	@Test
+	public void separator() {
+		sep(rec("apple"), rec("banana"), rec("b"));
+		sep(rec("abc"), rec("abcdef"), rec("abcd"));
+		sep(rec("x", "apple"), rec("x", "banana", 5), rec("x", "b"));
+		sep(rec("x"), rec("x", "y", "z"), rec("x", "y"));
+		sep(rec(1, "a"), rec(2, "a"), rec(2));
+		// no shorter separator than hi, so lo
+		sep(rec("abc"), rec("abd"), rec("abc"));
+		sep(rec("x"), rec("x", "y"), rec("x"));
+		sep(rec(1), rec(2), rec(1));
+		sep(rec(""), rec("a"), rec(""));
+	}
+
+	private static void sep(Record lo, Record hi, Record expected) {
+		Record sep = Btree.separator(lo, hi);
+		assertEquals(expected, sep);
+		assertTrue(lo.compareTo(sep) <= 0 && sep.compareTo(hi) < 0);
+	}
+
+	private static Record rec(Object... data) {
+		return BtreeTest.rec(data);
+	}
+
+	/** multi-field keys with shared prefixes, empty fields and zero bytes */
+	private List<BtreeKey> randomKeys(int n) {
+		List<BtreeKey> keys = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			RecordBuilder rb = new RecordBuilder();
+			int nfields = rand.nextInt(4);
+			for (int f = 0; f < nfields; ++f)
+				switch (rand.nextInt(4)) {
+				case 0:
+					rb.add("");
+					break;
+				case 1:
+					rb.add(rand.nextInt(100));
+					break;
+				default:
+					rb.add(randomString());
+				}
+			keys.add(rb.btreeKey(1 + rand.nextInt(Integer.MAX_VALUE - 1)));
+		}
+		return keys;
+	}
+
+	/** keys with unique records */
+	private List<BtreeKey> uniqueKeys(int n) {
+		Set<Record> recs = new TreeSet<>();
+		List<BtreeKey> keys = new ArrayList<>();
+		for (BtreeKey key : randomKeys(n))
+			if (recs.add(key.key))
+				keys.add(key);
+		return keys;
+	}
+
+	private String randomString() {
+		StringBuilder sb = new StringBuilder("prefix");
+		int n = rand.nextInt(6);
+		for (int i = 0; i < n; ++i)
+			sb.append((char) (rand.nextInt(5) == 0 ? 0 : 'a' + rand.nextInt(4)));
+		return sb.toString();
+	}
+
+}
@@ -7,6 +7,7 @@ package suneido.database.immudb;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -290,6 +291,47 @@ public class BtreeTest {
 		assertTrue(btree.isEmpty());
 	}
 
+	@Test
+	public void remove_merges() {
+		btree = new Btree(tran); // normal node size
+		add(2000);
+		btree.freeze();
+		int nnodes = btree.nnodes;
+		int levels = btree.treeLevels();
+		Collections.shuffle(keys, rand);
+		while (keys.size() > 50) {
+			assertTrue(btree.remove(keys.remove(keys.size() - 1)));
+			if (keys.size() % 50 == 0)
+				btree.freeze();
+		}
+		check();
+		assertThat(btree.nnodes, lessThan(nnodes / 10));
+		assertThat(btree.treeLevels(), lessThan(levels));
+		assertThat(btree.info().fill(keys.size()), greaterThan(.25f));
+	}
+
+	@Test
+	public void churn() {
+		add(200);
+		for (int i = 0; i < 2000; ++i) {
+			BtreeKey key = keys.remove(rand.nextInt(keys.size()));
+			assertTrue(btree.remove(key));
+			add(1);
+			if (i % 100 == 0)
+				btree.check();
+		}
+		check();
+	}
+
+	@Test
+	public void fill() {
+		btree = new Btree(tran); // normal node size
+		assertEquals(0f, btree.info().fill(0), 0f);
+		for (int i = 0; i < Btree.MAX_NODE_SIZE; ++i)
+			btree.add(key(i));
+		assertEquals(1f, btree.info().fill(Btree.MAX_NODE_SIZE), 0f);
+	}
+
 	private void add(int n) {
 		for (int i = 0; i < n; ++i) {
 			BtreeKey key = randomKey(rand);
@@ -363,6 +405,30 @@ public class BtreeTest {
 		return iter;
 	}
 
+	@Test
+	public void split() {
+		assertEquals(1, btree.split(4).size());
+		rand = new Random(8763);
+		add(NKEYS);
+		for (int i = 1; i <= 30; ++i) { // duplicate keys
+			BtreeKey key = key("dup", i);
+			btree.add(key, false);
+			keys.add(key);
+		}
+		Collections.sort(keys);
+		for (int n : new int[] { 1, 3, 8, 1000 }) {
+			List<IndexIter> iters = btree.split(n);
+			assertTrue(iters.size() <= n);
+			if (n > 1)
+				assertTrue(iters.size() > 1);
+			List<BtreeKey> list = new ArrayList<>();
+			for (IndexIter iter : iters)
+				for (iter.next(); ! iter.eof(); iter.next())
+					list.add(new BtreeKey(iter.curKey(), iter.keyadr()));
+			assertEquals(keys, list);
+		}
+	}
+
 	@Test
 	public void iterate_delete_behind() {
 		rand = new Random(546453);
@@ -353,6 +353,21 @@ public class DatabaseTest extends TestBase {
 		t.ck_complete();
 	}
 
+	@Test
+	public void index_fill() {
+		makeTable(1000);
+		assertEquals("[test (a), test (b,a)]", db.indexFill().keySet().toString());
+		float before = db.indexFill().get("test (a)");
+		for (int i = 0; i < 900; i += 100) {
+			Transaction t = db.updateTransaction();
+			for (int j = i; j < i + 100; ++j)
+				remove(t, j);
+			t.ck_complete();
+		}
+		db.persist();
+		assertThat(db.indexFill().get("test (a)") > before / 2, equalTo(true));
+	}
+
 	private void make_test2(int fkmode) {
 		db.createTable("test2")
 			.addColumn("a")
@@ -5,9 +5,17 @@
 package suneido.database.immudb;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static suneido.util.testing.Throwing.assertThrew;
+
+import java.io.File;
 
 import org.junit.Test;
 
+import suneido.SuException;
+import suneido.util.FileUtils;
+
 public class DbCompactTest extends TestBase {
 
 	@Test
@@ -21,8 +29,131 @@ public class DbCompactTest extends TestBase {
 		compact();
 	}
 
+	@Test
+	public void to_large() {
+		makeTable(99);
+		Database dstdb = Database.create("",
+				new HeapStorage(1024, 5), new HeapStorage(1024, 5));
+		compact(dstdb);
+		ReadTransaction t = dstdb.readTransaction();
+		assertEquals(99, t.tableCount(t.getTable("test").num));
+	}
+
+	@Test
+	public void online() {
+		ClosedStorage dstor = new ClosedStorage();
+		ClosedStorage istor = new ClosedStorage();
+		db = Database.create("", dstor, istor);
+		makeTable("zzz", 10); // so table numbers change
+		makeTable(5);
+		remove(4);
+		Transaction rt = db.readTransaction();
+		Transaction ut = db.updateTransaction();
+		Thread compact = new Thread(() ->
+				DbCompact.compactOnline(db, Dbpkg.testdb()));
+		compact.start();
+		// update transactions from before the switch are allowed to finish
+		ut.addRecord("test", record(9));
+		ut.ck_complete();
+		join(compact);
+		// read transactions from before the switch still use the old storage
+		assertEquals(4, get(rt).size());
+		assertFalse(dstor.closed || istor.closed);
+		rt.complete();
+		assertTrue(dstor.closed && istor.closed);
+		assertEquals("", db.check());
+		check(0, 1, 2, 3, 9);
+		assertEquals(10, count("zzz"));
+		addRecords("test", 7, 8);
+		check(0, 1, 2, 3, 7, 8, 9);
+	}
+
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void online_update_timeout() {
+		makeTable(5);
+		Transaction ut = db.updateTransaction();
+		DbCompact dbc = new DbCompact(db, Dbpkg.testdb());
+		dbc.drainTimeoutMs = 10;
+		dbc.copyOnline();
+		assertThrew(dbc::finishOnline, SuException.class,
+				"update transactions did not finish");
+		ut.addRecord("test", record(9));
+		ut.ck_complete();
+		addRecords("test", 7, 7);
+		check(0, 1, 2, 3, 4, 7, 9);
+	}
+
+	@Test
+	public void online_files() {
+		String filename = FileUtils.tempfile().toString();
+		db = Dbpkg.create(filename);
+		try {
+			makeTable(5);
+			DbCompact.compactOnline(db);
+			// carries on with the new files until the next open
+			assertTrue(new File(filename + "s").exists());
+			addRecords("test", 7, 7);
+			db.close();
+			db = Dbpkg.open(filename);
+			assertFalse(new File(filename + "s").exists());
+			assertFalse(new File(filename + ".compact1d").exists());
+			assertTrue(new File(filename + "d.bak").exists());
+			check(0, 1, 2, 3, 4, 7);
+			db.close();
+		} finally {
+			for (String ext : new String[] { "d", "i", "c", "d.bak", "i.bak", "c.bak" })
+				new File(filename + ext).delete();
+		}
+	}
+
+	private static class ClosedStorage extends HeapStorage {
+		boolean closed = false;
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	@Test
+	public void online_catch_up() {
+		makeTable("zzz", 10);
+		makeTable(5);
+		DbCompact dbc = new DbCompact(db, Dbpkg.testdb());
+		dbc.copyOnline();
+		remove(1);
+		update(2, record(22));
+		addRecords("test", 9, 9);
+		Transaction t = db.bulkTransaction();
+		t.abort(); // aborted commits are skipped
+		dbc.finishOnline();
+		assertEquals("", db.check());
+		check(0, 3, 4, 9, 22);
+		assertEquals(10, count("zzz"));
+	}
+
+	@Test(expected = SuException.class)
+	public void online_schema_change() {
+		makeTable(5);
+		DbCompact dbc = new DbCompact(db, Dbpkg.testdb());
+		dbc.copyOnline();
+		makeTable("zzz");
+		dbc.finishOnline();
+	}
+
 	private void compact() {
-		Database dstdb = Dbpkg.testdb();
+		compact(Dbpkg.testdb());
+	}
+
+	private void compact(Database dstdb) {
 		Dbpkg.compact(db, dstdb);
 		assertEquals("", dstdb.check());
 	}
@@ -0,0 +1,62 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import suneido.util.BufferByteChannel;
+
+public class DbLoadParallelTest extends TestBase {
+
+	@Before
+	public void setThreads() {
+		DbLoad.THREADS = 4;
+	}
+
+	@After
+	public void restoreThreads() {
+		DbLoad.THREADS = 1;
+	}
+
+	@Test
+	public void load_database() {
+		makeTable("one", 5000);
+		makeTable("two", 0);
+		makeTable("three", 2345);
+		BufferByteChannel b = new BufferByteChannel(1_000_000);
+		Dbpkg.dumpDatabase(db, b);
+		db.close();
+
+		b.flip();
+		db = Dbpkg.testdb();
+		Dbpkg.StringObserver ob = new Dbpkg.StringObserver();
+		assertEquals(4, Dbpkg.loadDatabase(db, b, ob)); // + views
+		assertTrue(ob.toString().contains("one: 5000 records"));
+		assertEquals("", db.check());
+		assertEquals(5000, getNrecords("one"));
+		assertEquals(0, getNrecords("two"));
+		assertEquals(2345, getNrecords("three"));
+		assertEquals("(a,b) key(a) index(b,a)", db.getSchema("three"));
+		assertEquals(2345, get("three").size());
+	}
+
+	@Test
+	public void load_table() {
+		makeTable(777);
+		BufferByteChannel b = new BufferByteChannel(1_000_000);
+		Dbpkg.dumpTable(db, "test", b);
+
+		b.flip();
+		assertEquals(777, Dbpkg.loadTable(db, "test", b));
+		assertEquals("", db.check());
+		assertEquals(777, getNrecords("test"));
+	}
+
+}
@@ -0,0 +1,99 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupCommitTest extends TestBase {
+
+	@Before
+	public void enable() {
+		GroupCommit.ENABLED = true;
+	}
+
+	@After
+	public void disable() {
+		GroupCommit.ENABLED = false;
+		db.checkTransEmpty();
+	}
+
+	@Test
+	public void sequential() {
+		makeTable(5);
+		remove(2);
+		update(3, record(33));
+		check(0, 1, 4, 33);
+	}
+
+	@Test
+	public void concurrent() throws InterruptedException {
+		makeTable();
+		final int NTHREADS = 8;
+		final int N = 50;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < NTHREADS; ++i) {
+			int base = i * N;
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < N; ++j) {
+					Transaction t = db.updateTransaction();
+					t.addRecord("test", record(base + j));
+					t.ck_complete();
+				}
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(NTHREADS * N, count());
+		assertEquals(NTHREADS * N, getNrecords("test"));
+		assertEquals("", db.check());
+	}
+
+	@Test
+	public void conflict_within_batch() throws InterruptedException {
+		makeTable(3);
+		Transaction t1 = db.updateTransaction();
+		remove(t1, 1);
+		Transaction t2 = db.updateTransaction();
+		remove(t2, 1);
+		Transaction t3 = db.updateTransaction();
+		t3.addRecord("test", record(9));
+		String[] results = new String[3];
+		Thread[] threads = new Thread[3];
+		// hold the commit lock so all three end up in one batch
+		db.withCommitLock(() -> {
+			threads[0] = new Thread(() -> results[0] = t1.complete());
+			threads[1] = new Thread(() -> results[1] = t2.complete());
+			threads[2] = new Thread(() -> results[2] = t3.complete());
+			for (Thread thread : threads)
+				thread.start();
+			while (db.groupCommit.queued() < 3)
+				Thread.yield();
+		});
+		for (Thread thread : threads)
+			thread.join();
+		// exactly one of the deletes succeeds
+		assertTrue((results[0] == null) != (results[1] == null));
+		String conflict = results[0] == null ? results[1] : results[0];
+		assertThat(conflict, containsString("conflict"));
+		// the unrelated add isn't affected
+		assertNull(results[2]);
+		check(0, 2, 9);
+		assertEquals("", db.check());
+	}
+
+}
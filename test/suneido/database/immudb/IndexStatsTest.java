@@ -0,0 +1,122 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import suneido.database.query.Request;
+
+public class IndexStatsTest extends TestBase {
+
+	@Test
+	public void distinct() {
+		makeSkewed(1000);
+		db.analyze("skewed");
+		IndexStats stats = stats("a");
+		assertEquals(1000, stats.nrows());
+		assertEquals(1000, stats.distinct(1));
+		stats = stats("b,a");
+		assertEquals(100, stats.distinct(1));
+		assertEquals(1000, stats.distinct(2));
+		assertEquals(0, stats.emptyFrac(), .001);
+	}
+
+	@Test
+	public void skewed_rangefrac() {
+		makeSkewed(1000);
+		db.analyze("skewed");
+		assertEquals(.9, rangefrac(0), .05);
+		assertTrue(rangefrac(950) < .02);
+		// 5 rows, within one bucket
+		float frac = rangefrac(bkey(900).build(), bkey(949).addMax());
+		assertEquals(.005, frac, .02);
+	}
+
+	@Test
+	public void empty_table() {
+		makeSkewed(0);
+		db.analyze("skewed");
+		assertEquals(0, stats("a").nrows());
+		assertEquals(Btree.MIN_FRAC, rangefrac(5), .001);
+	}
+
+	@Test
+	public void persisted() {
+		makeSkewed(500);
+		Request.execute(db, "analyze skewed");
+		db = db.reopen();
+		IndexStats stats = stats("b,a");
+		assertEquals(500, stats.nrows());
+		assertEquals(50, stats.distinct(1));
+		assertEquals(.9, rangefrac(0), .05);
+	}
+
+	@Test
+	public void kept_by_updates() {
+		makeSkewed(500);
+		db.analyze("skewed");
+		add(500, 10);
+		assertNotNull(stats("b,a"));
+	}
+
+	@Test
+	public void out_of_date() {
+		makeSkewed(100);
+		db.analyze("skewed");
+		add(100, 300);
+		assertNull(stats("b,a"));
+	}
+
+	/** 90% of the rows have b = 0, the rest have b = a */
+	private void makeSkewed(int n) {
+		db.createTable("skewed")
+			.addColumn("a")
+			.addColumn("b")
+			.addIndex("a", true, false, "", "", 0)
+			.addIndex("b,a", false, false, "", "", 0)
+			.finish();
+		add(0, n);
+	}
+
+	private void add(int from, int n) {
+		Transaction t = db.updateTransaction();
+		for (int i = from; i < from + n; ++i)
+			t.addRecord("skewed", rec(i, i % 10 == 0 ? i : 0));
+		t.ck_complete();
+	}
+
+	private IndexStats stats(String index) {
+		Transaction t = db.readTransaction();
+		try {
+			return t.indexStats(t.getTable("skewed").num(), index);
+		} finally {
+			t.complete();
+		}
+	}
+
+	private float rangefrac(int b) {
+		return rangefrac(bkey(b).build(), bkey(b).addMax());
+	}
+
+	private float rangefrac(Record from, RecordBuilder to) {
+		Transaction t = db.readTransaction();
+		try {
+			return t.rangefrac(t.getTable("skewed").num(), "b,a",
+					from, to.build());
+		} finally {
+			t.complete();
+		}
+	}
+
+	private static RecordBuilder bkey(int b) {
+		return new RecordBuilder().add(b);
+	}
+
+}
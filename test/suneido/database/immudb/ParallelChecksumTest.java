@@ -0,0 +1,127 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelChecksumTest {
+	private final Storage stor = new HeapStorage(64);
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void combine() {
+		Random rand = new Random(1234);
+		byte[] data = new byte[10000];
+		rand.nextBytes(data);
+		for (int i = 0; i < 100; ++i) {
+			int split = rand.nextInt(data.length);
+			assertEquals(cksum(data, 0, data.length),
+					Checksum.combine(cksum(data, 0, split),
+						cksum(data, split, data.length), data.length - split));
+		}
+	}
+
+	private static int cksum(byte[] data, int from, int to) {
+		Checksum cs = new Checksum();
+		cs.update(ByteBuffer.wrap(data, from, to - from));
+		return cs.getValue();
+	}
+
+	@Test
+	public void empty() {
+		assertEquals(Storage.MAX_ADR, verify());
+	}
+
+	@Test
+	public void ok() {
+		for (int n : new int[] { 56, 32, 24, 16, 40 })
+			add(n);
+		assertEquals(Storage.MAX_ADR, verify());
+	}
+
+	@Test
+	public void bad_checksum() {
+		add(56);
+		add(32);
+		int bad = add(24);
+		add(24);
+		ByteBuffer buf = stor.buffer(bad);
+		buf.put(12, (byte) (buf.get(12) + 1));
+		assertEquals(bad, verify());
+		assertEquals(StorageIter.Status.CHECKSUM_FAIL, sequential(bad));
+	}
+
+	@Test
+	public void bad_size() {
+		add(56);
+		int bad = add(32);
+		add(24);
+		stor.buffer(bad).putInt(0, stor.sizeToInt(1000));
+		assertEquals(bad, verify());
+		assertEquals(StorageIter.Status.BAD_SIZE, sequential(bad));
+	}
+
+	@Test
+	public void small_pieces() {
+		for (int n : new int[] { 56, 32, 24, 16, 40 })
+			add(n);
+		assertEquals(Storage.MAX_ADR, verify(8));
+		ByteBuffer buf = stor.buffer(Storage.FIRST_ADR);
+		buf.put(33, (byte) (buf.get(33) + 1));
+		assertEquals(Storage.FIRST_ADR, verify(8));
+	}
+
+	private int verify() {
+		return ParallelChecksum.verify(stor, Storage.FIRST_ADR, Storage.MAX_ADR, pool);
+	}
+
+	private int verify(int pieceSize) {
+		return new ParallelChecksum(stor, pieceSize)
+				.verify(Storage.FIRST_ADR, Storage.MAX_ADR, pool);
+	}
+
+	/** @return the status where the sequential check stops */
+	private StorageIter.Status sequential(int expectedAdr) {
+		StorageIter iter = new StorageIter(stor);
+		while (iter.notFinished())
+			iter.advance();
+		assertEquals(expectedAdr, iter.adr());
+		return iter.status();
+	}
+
+	/** like StorageIterTest but with a non-zero body */
+	private int add(final int N) {
+		int adr = stor.alloc(8); // header
+		int start = adr;
+		ByteBuffer buf = stor.buffer(adr);
+		buf.putInt(0, stor.sizeToInt(N)); // leading size
+		buf.putInt(4, 1234); // dummy timestamp (0 is aborted and skipped)
+
+		if (N > 16)
+			stor.alloc(N - 16); // body
+		for (int i = 8; i < N - 8; ++i)
+			stor.buffer(stor.offsetToAdr(stor.adrToOffset(start) + i - i % 8))
+					.put(i % 8, (byte) i);
+
+		adr = stor.alloc(8); // trailer
+		buf = stor.buffer(adr);
+		buf.putInt(0, stor.checksum(start));
+		buf.putInt(4, stor.sizeToInt(N)); // trailing size
+		return start;
+	}
+
+}
@@ -0,0 +1,145 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RecordSorterTest {
+	private final Random rand = new Random(24680);
+	private final int segmentSize = RecordSorter.SEGMENT_SIZE;
+	private final long memory = RecordSorter.MEMORY;
+
+	@After
+	public void restore() {
+		RecordSorter.SEGMENT_SIZE = segmentSize;
+		RecordSorter.MEMORY = memory;
+	}
+
+	@Test
+	public void empty() {
+		try (RecordSorter rs = new RecordSorter()) {
+			rs.sort();
+			assertEquals(0, rs.size());
+			assertEquals(0, rs.lowerBound(rec("a")));
+			assertEquals(0, rs.upperBound(rec("a")));
+		}
+	}
+
+	@Test
+	public void in_memory() {
+		check(new RecordSorter(), randomRecs(5000));
+	}
+
+	@Test
+	public void spill() {
+		check(new RecordSorter(64 * 1024), randomRecs(20000));
+	}
+
+	@Test
+	public void spill_small_segments() {
+		RecordSorter.SEGMENT_SIZE = 256; // so entries are padded
+		check(new RecordSorter(16 * 1024), randomRecs(3000));
+	}
+
+	@Test
+	public void duplicates() {
+		List<Record> recs = new ArrayList<>();
+		for (int i = 0; i < 2000; ++i)
+			recs.add(rec("dup" + rand.nextInt(10)));
+		check(new RecordSorter(32 * 1024), recs);
+		try (RecordSorter rs = new RecordSorter()) {
+			for (Record r : recs)
+				rs.add(r);
+			rs.sort();
+			int lo = rs.lowerBound(rec("dup5"));
+			int hi = rs.upperBound(rec("dup5"));
+			assertEquals(Collections.frequency(recs, rec("dup5")), hi - lo);
+			assertEquals(rec("dup5"), rs.get(lo));
+		}
+	}
+
+	@Test
+	public void small_sorts_use_little_memory() {
+		try (RecordSorter rs = new RecordSorter()) {
+			for (Record r : randomRecs(10))
+				rs.add(r);
+			rs.sort();
+			assertEquals(16 * 1024, RecordSorter.allocated());
+		}
+		assertEquals(0, RecordSorter.allocated());
+	}
+
+	@Test
+	public void shared_budget() {
+		RecordSorter.MEMORY = 64 * 1024;
+		List<Record> recs = randomRecs(5000);
+		try (RecordSorter other = new RecordSorter()) {
+			for (Record r : recs)
+				other.add(r);
+			// other has used the shared budget so this one has to spill
+			check(new RecordSorter(1024 * 1024), new ArrayList<>(recs));
+			assertTrue(RecordSorter.allocated() <= RecordSorter.MEMORY);
+		}
+		assertEquals(0, RecordSorter.allocated());
+	}
+
+	private void check(RecordSorter rs, List<Record> recs) {
+		try {
+			for (Record r : recs)
+				rs.add(r);
+			rs.sort();
+			Collections.sort(recs);
+			assertEquals(recs.size(), rs.size());
+			for (int i = 0; i < recs.size(); ++i)
+				assertEquals(recs.get(i), rs.get(i));
+			for (int i = 0; i < 100; ++i) {
+				Record key = randomRec();
+				assertEquals(lowerBound(recs, key), rs.lowerBound(key));
+			}
+		} finally {
+			rs.close();
+		}
+	}
+
+	private static int lowerBound(List<Record> recs, Record key) {
+		int i = 0;
+		while (i < recs.size() && recs.get(i).compareTo(key) < 0)
+			++i;
+		return i;
+	}
+
+	private List<Record> randomRecs(int n) {
+		List<Record> recs = new ArrayList<>();
+		for (int i = 0; i < n; ++i)
+			recs.add(randomRec());
+		return recs;
+	}
+
+	/** like TempIndex keys, fields plus a data address */
+	private Record randomRec() {
+		RecordBuilder rb = new RecordBuilder();
+		int nfields = rand.nextInt(3);
+		for (int i = 0; i < nfields; ++i)
+			if (rand.nextBoolean())
+				rb.add("name" + (char) rand.nextInt(3) + rand.nextInt(1000));
+			else
+				rb.add(rand.nextInt(100));
+		return rb.add(rand.nextInt(Integer.MAX_VALUE)).build();
+	}
+
+	private static Record rec(String s) {
+		return new RecordBuilder().add(s).build();
+	}
+
+}
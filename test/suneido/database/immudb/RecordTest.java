@@ -9,10 +9,15 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static suneido.util.ByteBuffers.bufferToHex;
+import static suneido.util.ByteBuffers.bufferUcompare;
 import static suneido.util.ByteBuffers.stringToBuffer;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
+import suneido.runtime.Pack;
+
 public class RecordTest {
 
 	@Test
@@ -98,6 +103,18 @@ public class RecordTest {
 		assertThat(rb.size(), equalTo(2));
 	}
 
+	@Test
+	public void compareRaw() {
+		Record rec = new RecordBuilder().add("").add(123).add("hello").build();
+		Object[] values = { "", 0, 123, 124, -5, "hell", "hello", "help" };
+		for (int i = 0; i < 4; ++i) // including past the end
+			for (Object x : values) {
+				ByteBuffer value = Pack.pack(x);
+				assertEquals(Integer.signum(bufferUcompare(rec.getRaw(i), value)),
+						Integer.signum(rec.compareRaw(i, value)));
+			}
+	}
+
 	public static BufRecord record(Object... data) {
 		RecordBuilder rb = new RecordBuilder();
 		for (Object d : data)
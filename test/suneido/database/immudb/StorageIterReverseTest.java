@@ -28,8 +28,8 @@ public class StorageIterReverseTest {
 
 	private void add(final int N) {
 		ByteBuffer buf = stor.buffer(stor.alloc(N));
-		buf.putInt(0, Storage.sizeToInt(N)); // leading size
-		buf.putInt(N - Integer.BYTES, Storage.sizeToInt(N)); // trailing size
+		buf.putInt(0, stor.sizeToInt(N)); // leading size
+		buf.putInt(N - Integer.BYTES, stor.sizeToInt(N)); // trailing size
 	}
 
 }
@@ -8,8 +8,8 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static suneido.database.immudb.Storage.MAX_ADR;
-import static suneido.database.immudb.Storage.adrToOffset;
-import static suneido.database.immudb.Storage.offsetToAdr;
+
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -36,22 +36,41 @@ public class StorageTest {
 
 	@Test
 	public void test_convert() {
+		test_convert(stor, 20);
+		// larger alignment allows larger files
+		test_convert(new HeapStorage(64, 5), 100);
+	}
+
+	private static void test_convert(Storage stor, int maxgb) {
 		long gb = 1024L * 1024 * 1024;
 		long gb10 = 10L * gb;
-		long gb20 = 20L * gb;
+		long big = maxgb * gb;
 
-		assertThat(adrToOffset(offsetToAdr(gb10)), equalTo(gb10));
-		assertThat(adrToOffset(offsetToAdr(gb20)), equalTo(gb20));
+		assertThat(stor.adrToOffset(stor.offsetToAdr(gb10)), equalTo(gb10));
+		assertThat(stor.adrToOffset(stor.offsetToAdr(big)), equalTo(big));
 
-		assert Integer.compareUnsigned(offsetToAdr(0), offsetToAdr(gb10)) < 0;
-		assert Integer.compareUnsigned(offsetToAdr(0), offsetToAdr(gb20)) < 0;
-		assert Integer.compareUnsigned(offsetToAdr(0), MAX_ADR) < 0;
-		assert Integer.compareUnsigned(offsetToAdr(gb10), offsetToAdr(gb20)) < 0;
-		assert Integer.compareUnsigned(offsetToAdr(gb10), MAX_ADR) < 0;
-		assert Integer.compareUnsigned(offsetToAdr(gb20), MAX_ADR) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(0), stor.offsetToAdr(gb10)) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(0), stor.offsetToAdr(big)) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(0), MAX_ADR) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(gb10), stor.offsetToAdr(big)) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(gb10), MAX_ADR) < 0;
+		assert Integer.compareUnsigned(stor.offsetToAdr(big), MAX_ADR) < 0;
+		assert ! IntRefs.isIntRef(stor.offsetToAdr(big));
 
-		assert adrToOffset(offsetToAdr(gb10) - 1) < gb10;
-		assert adrToOffset(offsetToAdr(gb20) - 1) < gb20;
+		assert stor.adrToOffset(stor.offsetToAdr(gb10) - 1) < gb10;
+		assert stor.adrToOffset(stor.offsetToAdr(big) - 1) < big;
+	}
+
+	@Test
+	public void test_tail() {
+		Storage stor = new HeapStorage(64, 5);
+		int adr = stor.alloc(8);
+		ByteBuffer buf = stor.allocTail(8);
+		assertEquals(24, buf.position());
+		buf.putInt(123).putInt(456);
+		ByteBuffer tail = stor.tailBuffer(adr, stor.sizeFrom(adr), 8);
+		assertEquals(123, tail.getInt());
+		assertEquals(456, tail.getInt());
 	}
 
 }
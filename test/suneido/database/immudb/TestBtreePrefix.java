@@ -0,0 +1,85 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of index size and lookup time
+ * for the plain and the prefix compressed ({@link BtreePrefixNode}) formats.
+ * Uses typical composite keys with long shared prefixes
+ * and single field keys with few shared prefixes.
+ */
+public class TestBtreePrefix {
+	static final int NKEYS = 1_000_000;
+	static final int NLOOKUPS = 1_000_000;
+	static final int REPS = 5;
+
+	public static void main(String[] args) {
+		run("composite", compositeKeys());
+		run("random", randomKeys());
+		BtreePrefixNode.ENABLED = false;
+	}
+
+	private static void run(String name, List<BtreeKey> keys) {
+		System.out.println(name + " keys");
+		System.out.println("format       index bytes  nodes  lookup ns");
+		for (boolean prefix : new boolean[] { false, true }) {
+			BtreePrefixNode.ENABLED = prefix;
+			Storage stor = new HeapStorage();
+			BtreeBuilder builder = new BtreeBuilder(stor);
+			for (BtreeKey key : keys)
+				builder.add(key);
+			BtreeInfo info = builder.finish();
+			Btree btree = new Btree(new Tran(stor, stor), info);
+			long ns = Long.MAX_VALUE;
+			for (int rep = 0; rep < REPS; ++rep)
+				ns = Math.min(ns, lookups(btree, keys));
+			System.out.println(String.format("%-11s  %11d  %5d  %9d",
+					prefix ? "prefix" : "plain", stor.sizeFrom(0), info.nnodes,
+					ns / NLOOKUPS));
+		}
+	}
+
+	/** @return elapsed nanoseconds */
+	private static long lookups(Btree btree, List<BtreeKey> keys) {
+		Random rand = new Random(1234);
+		long t = System.nanoTime();
+		for (int i = 0; i < NLOOKUPS; ++i) {
+			BtreeKey key = keys.get(rand.nextInt(keys.size()));
+			if (btree.get(key.key) != key.adr())
+				throw new RuntimeException("lookup failed");
+		}
+		return System.nanoTime() - t;
+	}
+
+	/** e.g. customer, date, invoice number */
+	private static List<BtreeKey> compositeKeys() {
+		Random rand = new Random(5678);
+		List<BtreeKey> keys = new ArrayList<>();
+		for (int i = 0; i < NKEYS; ++i)
+			keys.add(new RecordBuilder()
+					.add("customer " + (1000 + rand.nextInt(500)))
+					.add(String.format("2026%02d%02d",
+							1 + rand.nextInt(12), 1 + rand.nextInt(28)))
+					.add("INV" + i)
+					.btreeKey(i + 1));
+		Collections.sort(keys);
+		return keys;
+	}
+
+	private static List<BtreeKey> randomKeys() {
+		Random rand = new Random(5678);
+		List<BtreeKey> keys = new ArrayList<>();
+		for (int i = 0; i < NKEYS; ++i)
+			keys.add(new RecordBuilder().add(rand.nextLong()).btreeKey(i + 1));
+		Collections.sort(keys);
+		return keys;
+	}
+
+}
@@ -0,0 +1,62 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.immudb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import suneido.database.query.Request;
+
+/**
+ * Benchmark of commits per second versus number of concurrent writers,
+ * with and without {@link GroupCommit}
+ */
+public class TestGroupCommit {
+	static final long DURATION_MS = TimeUnit.SECONDS.toMillis(3);
+	static final int[] WRITERS = { 1, 2, 4, 8, 16, 32, 64, 128, 192 };
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("writers  normal/sec  group/sec  avg batch");
+		for (int nwriters : WRITERS) {
+			GroupCommit.ENABLED = false;
+			long normal = run(Dbpkg.testdb(), nwriters);
+			GroupCommit.ENABLED = true;
+			Database db = Dbpkg.testdb();
+			long group = run(db, nwriters);
+			System.out.println(String.format("%7d  %10d  %9d  %9.2f",
+					nwriters, normal, group, db.groupCommit.averageBatchSize()));
+		}
+		GroupCommit.ENABLED = false;
+	}
+
+	/** @return commits per second */
+	private static long run(Database db, int nwriters)
+			throws InterruptedException {
+		Request.execute(db, "create tmp (a,b) key(a)");
+		AtomicInteger next = new AtomicInteger();
+		AtomicLong ncommits = new AtomicLong();
+		long end = System.currentTimeMillis() + DURATION_MS;
+		Thread[] threads = new Thread[nwriters];
+		for (int i = 0; i < nwriters; ++i) {
+			threads[i] = new Thread(() -> {
+				while (System.currentTimeMillis() < end) {
+					Transaction t = db.updateTransaction();
+					t.addRecord("tmp", new RecordBuilder()
+							.add(next.incrementAndGet()).add("hello world").build());
+					if (t.complete() == null)
+						ncommits.incrementAndGet();
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		db.checkTransEmpty();
+		db.close();
+		return ncommits.get() * 1000 / DURATION_MS;
+	}
+
+}
@@ -0,0 +1,223 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static suneido.util.testing.Benchmark.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import suneido.database.immudb.RecordBuilder;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+import suneido.database.query.expr.CompiledExpr;
+import suneido.database.query.expr.Expr;
+import suneido.runtime.Ops;
+import suneido.util.Dnum;
+
+public class CompiledExprTest extends TestBase {
+	private static final int NROWS = 3000;
+	private Header hdr;
+	private final List<Row> rows = new ArrayList<>();
+
+	@Test
+	public void same_as_eval() {
+		makeOrders();
+		readRows("ord");
+		same("amt");
+		same("123");
+		same("'abc'");
+		same("amt is 5");
+		same("amt isnt 5");
+		same("amt < 50");
+		same("amt <= 50");
+		same("amt > 1.5");
+		same("50 >= amt");
+		same("name is 'n12'");
+		same("name > 'n2'");
+		same("name < ''");
+		same("amt in (1, 1.5, 99)");
+		same("name in ('n1', 'n200', 'x')");
+		same("amt in (99, '', 1.5, 'x', 0, -1)");
+		same("nonexistent in ('', 1)");
+		same("amt + 1 in (2, 3)");
+		same("amt > 10 and flag is true");
+		same("amt > 90 or flag");
+		same("amt > 10 and (flag or amt < 20)");
+		same("not flag");
+		same("-amt");
+		same("~onum");
+		same("amt + cnum * 2 - 1");
+		same("amt / 3");
+		same("onum % 7");
+		same("name $ '!'");
+		same("onum & 3 | 4");
+		same("onum << 2 >> 1 ^ 5");
+		same("name =~ '1$'");
+		same("name !~ '^n1'");
+		same("flag ? amt : name");
+		same("amt > 50 ? 'big' : 'small'");
+		same("name[1]");
+		same("name.Size() > 3");
+		same("nonexistent is ''");
+	}
+
+	@Test
+	public void classes_are_reused() {
+		makeOrders();
+		readRows("ord");
+		CompiledExpr a = CompiledExpr.compile(CompileQuery.expr("amt > 50"),
+				hdr, null);
+		// same shape, different column and constant
+		CompiledExpr b = CompiledExpr.compile(CompileQuery.expr("name > 'n2'"),
+				hdr, null);
+		CompiledExpr c = CompiledExpr.compile(CompileQuery.expr("amt < 50"),
+				hdr, null);
+		assertEquals(a.getClass(), b.getClass());
+		assertNotEquals(a.getClass(), c.getClass());
+		same("amt > 50");
+		same("name > 'n2'");
+	}
+
+	/** compares compiled and raw evaluation to evaluating the values */
+	private void same(String src) {
+		Expr e = CompileQuery.expr(src);
+		Expr r = CompileQuery.expr(src);
+		r.isTerm(hdr.fields()); // enables raw evaluation
+		CompiledExpr raw = CompiledExpr.compile(r, hdr, hdr.fields());
+		CompiledExpr vals = CompiledExpr.compile(e, hdr, null);
+		for (Row row : rows) {
+			Object expected = e.eval(hdr, row);
+			assertTrue(src, Ops.is(expected, r.eval(hdr, row)));
+			assertTrue(src, Ops.is(expected, raw.eval(row)));
+			assertTrue(src, Ops.is(expected, vals.eval(row)));
+		}
+	}
+
+	@Test
+	public void where() {
+		makeOrders();
+		int n = 0, n37 = 0;
+		for (int i = 0; i < NROWS; ++i) {
+			if (Ops.cmp(amt(i), 50) > 0 && flag(i))
+				++n;
+			if (Ops.is(amt(i), 37))
+				++n37;
+		}
+		assertEquals(n, count("ord where amt > 50 and flag is true"));
+		assertEquals(NROWS / 2, count("ord where flag"));
+		assertEquals(n37, count("ord where amt is 37"));
+	}
+
+	@Test
+	public void extend() {
+		makeOrders();
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData,
+					"ord extend x = amt * 2, y = flag ? 'yes' : 'no' sort onum");
+			Header h = q.header();
+			Row row;
+			int i = 0;
+			while (null != (row = q.get(Dir.NEXT))) {
+				assertTrue(Ops.is(Ops.mul(amt(i), 2), row.getval(h, "x")));
+				assertEquals(flag(i) ? "yes" : "no", row.getval(h, "y"));
+				++i;
+			}
+			assertEquals(NROWS, i);
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	@Test
+	public void benchmark_selective_scan() {
+		makeOrders();
+		readRows("ord");
+		String src = "amt is 37 or (amt > 95 and name < 'n2')";
+		Expr e = CompileQuery.expr(src);
+		CompiledExpr raw = CompiledExpr.compile(e, hdr, hdr.fields());
+		CompiledExpr vals = CompiledExpr.compile(e, hdr, null);
+		benchmark("interpreted", rows.size(), (long nreps) -> {
+			while (nreps-- > 0)
+				for (Row row : rows)
+					e.eval(hdr, row);
+		});
+		Expr r = CompileQuery.expr(src);
+		r.isTerm(hdr.fields()); // as Select does
+		benchmark("interpreted raw", rows.size(), (long nreps) -> {
+			while (nreps-- > 0)
+				for (Row row : rows)
+					r.eval(hdr, row);
+		});
+		benchmark("compiled", rows.size(), (long nreps) -> {
+			while (nreps-- > 0)
+				for (Row row : rows)
+					vals.eval(row);
+		});
+		benchmark("compiled raw", rows.size(), (long nreps) -> {
+			while (nreps-- > 0)
+				for (Row row : rows)
+					raw.eval(row);
+		});
+		benchmark("where query", NROWS, (long nreps) -> {
+			while (nreps-- > 0)
+				count("ord where " + src);
+		});
+	}
+
+	private int count(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData, query);
+			int n = 0;
+			while (null != q.get(Dir.NEXT))
+				++n;
+			t.complete();
+			return n;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private void readRows(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData, query);
+			hdr = q.header();
+			Row row;
+			while (null != (row = q.get(Dir.NEXT)))
+				rows.add(row);
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** mostly integers, some decimal */
+	private static Object amt(int i) {
+		return i % 13 == 0 ? Dnum.parse("1.5") : (Object) (i % 100);
+	}
+
+	private static boolean flag(int i) {
+		return i % 2 == 0;
+	}
+
+	private void makeOrders() {
+		adm("create ord (onum, cnum, amt, name, flag) key(onum)");
+		Transaction t = db.updateTransaction();
+		for (int i = 0; i < NROWS; ++i)
+			t.addRecord("ord", new RecordBuilder().add(i).add(i % 350)
+					.add(amt(i)).add("n" + i).add(flag(i)).build());
+		t.ck_complete();
+	}
+
+}
@@ -0,0 +1,115 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import suneido.database.immudb.RecordBuilder;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+
+public class ExplainTest extends TestBase {
+
+	@Test
+	public void explain() {
+		makeSkewed();
+		String s = explain("skewed where b = 0");
+		String[] lines = s.split("\n");
+		assertEquals(s, 3, lines.length);
+		assertTrue(s, lines[1].matches("Select nrecs~ \\d+ rows 901"));
+		assertTrue(s, lines[2].matches("    skewed\\^\\(b\\) nrecs~ 1000 rows 901"));
+	}
+
+	@Test
+	public void explain_join() {
+		makeSkewed();
+		adm("create other (b, c) key(b)");
+		req("insert { b: 0, c: 1 } into other");
+		req("insert { b: 10, c: 2 } into other");
+		req("insert { b: 20, c: 3 } into other");
+		String s = explain("skewed join by(b) other");
+		String[] lines = s.split("\n");
+		assertEquals(s, 4, lines.length);
+		assertTrue(s, lines[1].matches("Join nrecs~ \\d+ rows 903"));
+	}
+
+	@Test
+	public void explain_rewinds() {
+		makeSkewed();
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData, "skewed");
+			q.get(Dir.NEXT);
+			assertTrue(q.explain().endsWith("rows 1000\n"));
+			int n = 0;
+			while (q.get(Dir.NEXT) != null)
+				++n;
+			assertEquals(1000, n);
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	@Test
+	public void select_estimate() {
+		makeSkewed();
+		adm("analyze skewed");
+		assertEquals(900, nrecords("skewed where b = 0"), 50);
+		assertTrue(nrecords("skewed where b = 500") < 20);
+	}
+
+	@Test
+	public void summarize_estimate() {
+		makeSkewed();
+		assertEquals(500, nrecords("skewed summarize b, count"), 1);
+		adm("analyze skewed");
+		assertEquals(100, nrecords("skewed summarize b, count"), 1);
+	}
+
+	@Test
+	public void join_estimate() {
+		makeSkewed();
+		adm("analyze skewed");
+		assertEquals(10000, nrecords("skewed join by(b) (skewed rename a to a2)"),
+				1);
+	}
+
+	private double nrecords(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			double n = CompileQuery.query(t, serverData, query).nrecords();
+			t.complete();
+			return n;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private String explain(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			String s = CompileQuery.query(t, serverData, query).explain();
+			t.complete();
+			return s;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** 90% of the rows have b = 0, the rest have b = a */
+	private void makeSkewed() {
+		adm("create skewed (a, b) key(a) index(b)");
+		Transaction t = db.updateTransaction();
+		for (int i = 0; i < 1000; ++i)
+			t.addRecord("skewed", new RecordBuilder()
+					.add(i).add(i % 10 == 0 ? i : 0).build());
+		t.ck_complete();
+	}
+
+}
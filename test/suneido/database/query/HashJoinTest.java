@@ -0,0 +1,130 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import suneido.database.immudb.RecordBuilder;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+
+public class HashJoinTest extends TestBase {
+	private static final long MEMORY = Join.HASH_MEMORY;
+
+	@After
+	public void restore() {
+		Join.HASH_MEMORY = MEMORY;
+	}
+
+	@Test
+	public void join() {
+		makeTables();
+		check("ord join cus2", "JOIN HASH n:1");
+	}
+
+	@Test
+	public void leftjoin() {
+		makeTables();
+		check("ord leftjoin cus2", "LEFTJOIN HASH n:1");
+	}
+
+	@Test
+	public void in_memory_rows() {
+		makeTables();
+		check("ord join (cus2 extend x = cnum $ name)", "JOIN HASH n:1");
+	}
+
+	@Test
+	public void cursor_uses_lookup() {
+		makeTables();
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData, "ord join cus2", true);
+			assertTrue(q.toString(), ! q.toString().contains("HASH"));
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** compares hash, hash with some or all spilled, and lookup */
+	private void check(String query, String strategy) {
+		List<String> hash = execute(query, strategy, MEMORY, MEMORY);
+		List<String> spill = execute(query, strategy, MEMORY, 1000);
+		// every partition spilled
+		List<String> spillAll = execute(query, strategy, MEMORY, 1);
+		// no memory makes hash impossible
+		List<String> lookup = execute(query, "JOIN", 0, 0);
+		assertTrue(hash.size() > 500);
+		assertEquals(lookup, hash);
+		assertEquals(lookup, spill);
+		assertEquals(lookup, spillAll);
+	}
+
+	/** @return The rows, sorted, after checking NEXT and PREV match */
+	private List<String> execute(String query, String strategy,
+			long optimizeMemory, long buildMemory) {
+		List<String> next = execute(query, strategy, optimizeMemory,
+				buildMemory, Dir.NEXT);
+		List<String> prev = execute(query, strategy, optimizeMemory,
+				buildMemory, Dir.PREV);
+		Collections.reverse(prev);
+		assertEquals(next, prev);
+		Collections.sort(next);
+		return next;
+	}
+
+	private List<String> execute(String query, String strategy,
+			long optimizeMemory, long buildMemory, Dir dir) {
+		Transaction t = db.readTransaction();
+		try {
+			Join.HASH_MEMORY = optimizeMemory;
+			Query q = CompileQuery.query(t, serverData, query);
+			assertTrue(q.toString(), q.toString().contains(strategy));
+			Join.HASH_MEMORY = buildMemory;
+			Header hdr = q.header();
+			// the column order depends on the strategy
+			List<String> cols = new ArrayList<>(hdr.columns());
+			Collections.sort(cols);
+			List<String> rows = new ArrayList<>();
+			Row row;
+			while (null != (row = q.get(dir))) {
+				StringBuilder sb = new StringBuilder();
+				for (String col : cols)
+					sb.append(col).append(": ").append(row.getval(hdr, col))
+							.append(" ");
+				rows.add(sb.toString());
+			}
+			q.close();
+			t.complete();
+			return rows;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** some orders have no customer and some customers have no orders */
+	private void makeTables() {
+		adm("create ord (onum, cnum, amt) key(onum)");
+		adm("create cus2 (cnum, name) key(cnum)");
+		Transaction t = db.updateTransaction();
+		for (int i = 0; i < 2000; ++i)
+			t.addRecord("ord", new RecordBuilder()
+					.add(i).add((i * 7) % 350).add(i % 100).build());
+		for (int i = 0; i < 400; i += 2)
+			t.addRecord("cus2", new RecordBuilder()
+					.add(i).add("customer " + i).build());
+		t.ck_complete();
+	}
+
+}
@@ -310,7 +310,7 @@ public class OptimizeTest extends TestBase {
 			"trans^(item) SUMMARIZE-SEQ ^(item) (item) total_cost = total cost");
 
 		test1("trans summarize id, total cost",
-			"trans^(item) SUMMARIZE-MAP (id) total_cost = total cost");
+			"trans^(item) SUMMARIZE-HASH (id) total_cost = total cost");
 
 		test1("supplier summarize max supplier", // key
 				"supplier^(supplier) SUMMARIZE-IDX ^(supplier) max_supplier = max supplier");
@@ -62,6 +62,8 @@ public class ParseQueryTest {
 						"x extend a = 1, b = '$'" },
 				{ "x where a = 1 and b = '$'",
 						"x where a 1 IS b '$' IS AND" },
+				{ "x where a = ? and b > ?",
+						"x where a ? IS b ? GT AND" },
 				{ "a summarize count", null },
 				{ "a summarize b, c, total d, max e", null },
 		};
@@ -21,6 +21,7 @@ public class ParseRequestTest {
 		test("Drop mytable", "drop(mytable)");
 		test("rename one to two", "rename(one, two)");
 		test("RENAME one TO two", "rename(one, two)");
+		test("analyze mytable", "analyze(mytable)");
 		test("view myview = one join two", "view(myview, 'one join two')");
 		test("sview myview = three", "sview(myview, 'three')");
 		test("create a (b,c,d) key(b) index(c,d)");
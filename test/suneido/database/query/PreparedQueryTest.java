@@ -0,0 +1,185 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static suneido.util.testing.Throwing.assertThrew;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import suneido.SuException;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+import suneido.database.server.ServerData;
+
+public class PreparedQueryTest extends TestBase {
+
+	@Test
+	public void rebind() {
+		makeDB();
+		PreparedQuery pq = prepare("hist where date = ?");
+		Query q = execute(pq, 970101);
+		assertEquals(2, count(pq, q));
+		String strategy = q.toString();
+		assertSame(q, execute(pq, 970102));
+		assertEquals(1, count(pq, q));
+		assertEquals(strategy, q.toString());
+		assertEquals(0, count(pq, execute(pq, 123)));
+	}
+
+	@Test
+	public void range() {
+		makeDB();
+		PreparedQuery pq = prepare("hist where date > ? and date < ?");
+		assertEquals(2, count(pq, execute(pq, 970100, 970102)));
+		assertEquals(2, count(pq, execute(pq, 970101, 970104)));
+		// conflicting
+		assertEquals(0, count(pq, execute(pq, 970103, 970101)));
+		assertEquals(4, count(pq, execute(pq, 0, 999999)));
+	}
+
+	@Test
+	public void conflicting_first() {
+		makeDB();
+		PreparedQuery pq = prepare("hist where date > ? and date < ?");
+		assertEquals(0, count(pq, execute(pq, 970103, 970101)));
+		assertEquals(4, count(pq, execute(pq, 0, 999999)));
+	}
+
+	@Test
+	public void isnt() {
+		makeDB();
+		PreparedQuery pq = prepare("customer where city isnt ?");
+		assertEquals(4, count(pq, execute(pq, "")));
+		assertEquals(2, count(pq, execute(pq, "saskatoon")));
+		assertEquals(4, count(pq, execute(pq, "")));
+	}
+
+	@Test
+	public void isnt_empty_uses_index() {
+		makeDB();
+		PreparedQuery pq = prepare("customer where id isnt ?");
+		Query q = execute(pq, "");
+		assertEquals(4, count(pq, q));
+		// isnt "" was an isel, isnt "a" isn't so it is optimized again
+		Query q2 = execute(pq, "a");
+		assertNotSame(q, q2);
+		assertEquals(3, count(pq, q2));
+	}
+
+	@Test
+	public void join() {
+		makeDB();
+		PreparedQuery pq = prepare("customer join hist where id = ? and cost > ?");
+		assertEquals(1, count(pq, execute(pq, "e", 250)));
+		assertEquals(2, count(pq, execute(pq, "e", 0)));
+		assertEquals(1, count(pq, execute(pq, "a", 0)));
+	}
+
+	@Test
+	public void in_use() {
+		makeDB();
+		PreparedQuery pq = prepare("customer where id = ?");
+		Query q = execute(pq, "a");
+		Query q2 = execute(pq, "c");
+		assertNotSame(q, q2);
+		assertEquals(1, count(pq, q2));
+		assertEquals(1, count(pq, q));
+		assertSame(q, execute(pq, "e"));
+	}
+
+	@Test(expected = SuException.class)
+	public void wrong_number_of_args() {
+		makeDB();
+		execute(prepare("customer where id = ?"), "a", "b");
+	}
+
+	@Test(expected = SuException.class)
+	public void not_prepared() {
+		makeDB();
+		CompileQuery.query(db, serverData, "customer where id = ?");
+	}
+
+	@Test
+	public void prepared_per_connection() {
+		makeDB();
+		Transaction t = db.readTransaction();
+		try {
+			int pn = serverData.prepare(t, "customer where id = ?");
+			assertEquals(pn, serverData.prepare(t, "customer where id = ?"));
+			assertEquals(pn + 1, serverData.prepare(t, "customer where city = ?"));
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	@Test
+	public void prepared_limit() {
+		makeDB();
+		Transaction t = db.readTransaction();
+		try {
+			int first = serverData.prepare(t, "customer where id = ?");
+			int pn = first;
+			for (int i = 0; i < ServerData.MAX_PREPARED; ++i)
+				pn = serverData.prepare(t, "customer where id = ? and name > " + i);
+			assertEquals(first + ServerData.MAX_PREPARED, pn);
+			// least recently used is discarded
+			assertThrew(() -> serverData.getPrepared(first));
+			serverData.getPrepared(first + 1);
+			// numbers are not reused
+			assertEquals(pn + 1, serverData.prepare(t, "customer where id = ?"));
+			int last = pn;
+			serverData.unprepare(last);
+			assertThrew(() -> serverData.getPrepared(last));
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private PreparedQuery prepare(String query) {
+		Transaction t = db.readTransaction();
+		try {
+			PreparedQuery pq = new PreparedQuery(t, serverData, query);
+			t.complete();
+			return pq;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private Query execute(PreparedQuery pq, Object... args) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = pq.query(t, serverData, List.of(args));
+			t.complete();
+			return q;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** reads all the rows and then releases the query */
+	private int count(PreparedQuery pq, Query q) {
+		Transaction t = db.readTransaction();
+		try {
+			q.setTransaction(t);
+			int n = 0;
+			while (q.get(Dir.NEXT) != null)
+				++n;
+			t.complete();
+			return n;
+		} finally {
+			t.abortIfNotComplete();
+			pq.release(q);
+		}
+	}
+
+}
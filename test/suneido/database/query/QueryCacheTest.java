@@ -0,0 +1,174 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.Test;
+
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+
+public class QueryCacheTest extends TestBase {
+
+	@Test
+	public void normalize() {
+		assertEquals("tables where table = 1 sort tablename",
+				QueryCache.normalize("tables\n  where table = 1 /* comment */\n"
+						+ "\tsort tablename"));
+		assertEquals("tables where tablename = \"a  b\"",
+				QueryCache.normalize("tables where tablename = \"a  b\""));
+	}
+
+	@Test
+	public void reuse() {
+		makeDB();
+		Query q = query("customer sort id");
+		QueryCache.release(q);
+		long hits = QueryCache.hits();
+		Query q2 = query("customer  sort\nid");
+		assertEquals(hits + 1, QueryCache.hits());
+		// each execution gets its own copy
+		assertNotSame(q, q2);
+		assertEquals(q.toString(), q2.toString());
+		Query q3 = query("customer sort id");
+		assertEquals(hits + 2, QueryCache.hits());
+		QueryCache.release(q3);
+		QueryCache.release(q2);
+		// different for cursors
+		long misses = QueryCache.misses();
+		QueryCache.release(query("customer sort id", true));
+		assertEquals(misses + 1, QueryCache.misses());
+	}
+
+	@Test
+	public void copies_are_independent() {
+		makeDB();
+		String query = "customer where city isnt \"calgary\" sort name";
+		QueryCache.release(query(query));
+		Transaction t = db.readTransaction();
+		try {
+			Query q1 = QueryCache.query(t, serverData, query, false);
+			Query q2 = QueryCache.query(t, serverData, query, false);
+			assertEquals("axon", q1.get(Dir.NEXT).getval(q1.header(), "name"));
+			assertEquals(3, count(q2));
+			assertEquals("emerald", q1.get(Dir.NEXT).getval(q1.header(), "name"));
+			QueryCache.release(q1);
+			QueryCache.release(q2);
+			t.complete();
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	@Test
+	public void reused_results() {
+		makeDB();
+		String query = "customer sort city";
+		Query q = query(query);
+		assertEquals(4, count(q));
+		QueryCache.release(q);
+		req("insert{id: \"z\", name: \"zed\", city: \"ajax\"} into customer");
+		q = query(query);
+		assertEquals(5, count(q));
+		QueryCache.release(q);
+		assertEquals("ajax", first(query, "city"));
+	}
+
+	@Test
+	public void schema_change() {
+		makeDB();
+		QueryCache.release(query("customer"));
+		long misses = QueryCache.misses();
+		db.alterTable("customer").addColumn("phone").finish();
+		QueryCache.release(query("customer"));
+		assertEquals(misses + 1, QueryCache.misses());
+	}
+
+	@Test
+	public void size_change() {
+		makeDB();
+		QueryCache.release(query("customer"));
+		long misses = QueryCache.misses();
+		for (int i = 0; i < 200; ++i)
+			req("insert{id: " + i + "} into customer");
+		QueryCache.release(query("customer"));
+		assertEquals(misses + 1, QueryCache.misses());
+	}
+
+	@Test
+	public void view_change() {
+		makeDB();
+		adm("view cv = customer where city = 'calgary'");
+		Query q = query("cv");
+		assertEquals(1, count(q));
+		QueryCache.release(q);
+		adm("drop cv");
+		adm("view cv = customer");
+		q = query("cv");
+		assertEquals(4, count(q));
+		QueryCache.release(q);
+	}
+
+	@Test
+	public void sviews_not_cached() {
+		makeDB();
+		serverData.addSview("cust", "customer");
+		QueryCache.release(query("cust"));
+		long hits = QueryCache.hits();
+		long misses = QueryCache.misses();
+		QueryCache.release(query("cust"));
+		// compiled without using the cache
+		assertEquals(hits, QueryCache.hits());
+		assertEquals(misses, QueryCache.misses());
+	}
+
+	private Query query(String query) {
+		return query(query, false);
+	}
+
+	private Query query(String query, boolean is_cursor) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = QueryCache.query(t, serverData, query, is_cursor);
+			t.complete();
+			return q;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private int count(Query q) {
+		Transaction t = db.readTransaction();
+		try {
+			q.setTransaction(t);
+			int n = 0;
+			while (q.get(Dir.NEXT) != null)
+				++n;
+			t.complete();
+			return n;
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+	private String first(String query, String col) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = QueryCache.query(t, serverData, query, false);
+			try {
+				Row row = q.get(Dir.NEXT);
+				t.complete();
+				return (String) row.getval(q.header(), col);
+			} finally {
+				QueryCache.release(q);
+			}
+		} finally {
+			t.abortIfNotComplete();
+		}
+	}
+
+}
@@ -7,13 +7,17 @@ package suneido.database.query;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.junit.Test;
 
 import suneido.database.immudb.Record;
 import suneido.database.immudb.RecordBuilder;
+import suneido.runtime.Pack;
 
 public class RowTest {
 
@@ -44,4 +48,31 @@ public class RowTest {
 		assertFalse(iter.hasNext());
 	}
 
+	@Test
+	public void field() {
+		Header hdr = HeaderTest.makeHeader();
+		Record key = new RecordBuilder().add(5).build();
+		Record rec = new RecordBuilder().add(5).add("hello").build();
+		Record empty = new RecordBuilder().build();
+		Row row = new Row(key, rec, empty, empty);
+		Row.Field a = new Row.Field(hdr, "a");
+		Row.Field b = new Row.Field(hdr, "b");
+		Row.Field y = new Row.Field(hdr, "y");
+		assertEquals(row.getraw(hdr, "a"), a.getraw(row));
+		assertEquals("hello", b.getval(row));
+		assertEquals("", y.getval(row));
+		assertEquals(0, a.compareRaw(row, Pack.pack(5)));
+		assertTrue(a.compareRaw(row, Pack.pack(6)) < 0);
+		assertTrue(b.compareRaw(row, Pack.pack("help")) < 0);
+		assertTrue(b.compareRaw(row, Pack.pack("")) > 0);
+		assertEquals(0, y.compareRaw(row, Pack.pack("")));
+		ByteBuffer[] sorted = { Pack.pack(""), Pack.pack(1), Pack.pack(5),
+				Pack.pack("a"), Pack.pack("hello") };
+		assertTrue(a.rawIn(row, sorted));
+		assertTrue(b.rawIn(row, sorted));
+		assertTrue(y.rawIn(row, sorted));
+		assertFalse(b.rawIn(row, Arrays.copyOf(sorted, 4)));
+		assertFalse(y.rawIn(row, new ByteBuffer[0]));
+	}
+
 }
@@ -373,4 +373,9 @@ public class StringGenerator extends QueryGenerator<String> {
 		return Showable.show(value);
 	}
 
+	@Override
+	public String parameter() {
+		return "?";
+	}
+
 }
@@ -18,6 +18,11 @@ public class StringRequestGenerator implements RequestGenerator<String> {
 		return "rename(" + from + ", " + to + ")";
 	}
 
+	@Override
+	public String analyze(String table) {
+		return "analyze(" + table + ")";
+	}
+
 	@Override
 	public String view(String name, String definition) {
 		return "view(" + name + ", '" + definition + "')";
@@ -0,0 +1,179 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import suneido.database.immudb.RecordBuilder;
+import suneido.database.immudb.Transaction;
+import suneido.database.query.Query.Dir;
+import suneido.runtime.Ops;
+import suneido.util.Dnum;
+
+public class SummarizeHashTest extends TestBase {
+	private static final long MEMORY = Summarize.HASH_MEMORY;
+	private static final String SUMMARIZE = "ord summarize cnum, count, " +
+			"total amt, average amt, min amt, max amt, list flag";
+
+	@After
+	public void restore() {
+		Summarize.HASH_MEMORY = MEMORY;
+		Summarize.PARALLEL_THREADS = 0;
+		Summarize.PARALLEL_MIN = 10_000;
+	}
+
+	@Test
+	public void unordered() {
+		makeOrders();
+		List<String> rows = execute(SUMMARIZE, MEMORY, Dir.NEXT);
+		List<String> expected = expected();
+		Collections.sort(rows);
+		Collections.sort(expected);
+		assertEquals(expected, rows);
+	}
+
+	@Test
+	public void ordered() {
+		makeOrders();
+		check(SUMMARIZE + " sort cnum", MEMORY);
+	}
+
+	@Test
+	public void spilled() {
+		makeOrders();
+		check(SUMMARIZE + " sort cnum", 1000);
+		List<String> rows = execute(SUMMARIZE, 1000, Dir.NEXT);
+		assertEquals(expected(), rows); // spilled is always in order
+	}
+
+	@Test
+	public void parallel() {
+		makeOrders();
+		String where = "ord where amt > 10 and flag is true summarize cnum, " +
+				"count, total amt, min amt, max amt, list onum";
+		String total = "ord summarize count, total amt, average amt";
+		List<String> serial = execute(SUMMARIZE, MEMORY, Dir.NEXT);
+		List<String> serialWhere = execute(where, MEMORY, Dir.NEXT);
+		List<String> serialTotal = read(total, MEMORY, Dir.NEXT, "SUMMARIZE-SEQ");
+		// enough memory to not spill, but the partials will
+		String byAmt = "ord summarize amt, count, total onum";
+		List<String> serialAmt = execute(byAmt, 16_000, Dir.NEXT);
+		List<String> sorted = new ArrayList<>(serialAmt);
+		Collections.sort(sorted);
+		assertTrue(! serialAmt.equals(sorted)); // i.e. not spilled
+		Summarize.PARALLEL_THREADS = 4;
+		Summarize.PARALLEL_MIN = 100;
+		// identical, including the order of the groups
+		assertEquals(serial, execute(SUMMARIZE, MEMORY, Dir.NEXT));
+		assertEquals(serialWhere, execute(where, MEMORY, Dir.NEXT));
+		assertEquals(serialTotal, execute(total, MEMORY, Dir.NEXT));
+		check(SUMMARIZE + " sort cnum", MEMORY);
+		// partials over their share of the memory spill
+		// but are still merged in order
+		assertEquals(serialAmt, execute(byAmt, 16_000, Dir.NEXT));
+		check(SUMMARIZE + " sort cnum", 20_000);
+		assertTrue(strategy(SUMMARIZE).contains("SUMMARIZE-HASH-PARALLEL"));
+		assertTrue(strategy(where).contains("SUMMARIZE-HASH-PARALLEL"));
+		// can't evaluate function calls in parallel
+		assertTrue(! strategy("ord where Number?(amt) summarize cnum, count")
+				.contains("PARALLEL"));
+	}
+
+	private String strategy(String query) {
+		return CompileQuery.query(db, serverData, query).toString();
+	}
+
+	/** checks NEXT and PREV give the expected rows in order */
+	private void check(String query, long memory) {
+		assertEquals(expected(), execute(query, memory, Dir.NEXT));
+		List<String> prev = execute(query, memory, Dir.PREV);
+		Collections.reverse(prev);
+		assertEquals(expected(), prev);
+	}
+
+	private List<String> execute(String query, long memory, Dir dir) {
+		return read(query, memory, dir, "SUMMARIZE-HASH");
+	}
+
+	private List<String> read(String query, long memory, Dir dir,
+			String strategy) {
+		Transaction t = db.readTransaction();
+		try {
+			Query q = CompileQuery.query(t, serverData, query);
+			assertTrue(q.toString(), q.toString().contains(strategy));
+			Summarize.HASH_MEMORY = memory;
+			Header hdr = q.header();
+			List<String> rows = new ArrayList<>();
+			Row row;
+			while (null != (row = q.get(dir)))
+				rows.add(row.toString(hdr));
+			q.close();
+			t.complete();
+			return rows;
+		} finally {
+			Summarize.HASH_MEMORY = MEMORY;
+			t.abortIfNotComplete();
+		}
+	}
+
+	/** @return The expected rows in cnum order */
+	private static List<String> expected() {
+		Map<Integer, List<Object>> groups = new TreeMap<>();
+		for (int i = 0; i < NROWS; ++i)
+			groups.computeIfAbsent(cnum(i), k -> new ArrayList<>()).add(amt(i));
+		List<String> rows = new ArrayList<>();
+		for (var e : groups.entrySet()) {
+			List<Object> amts = e.getValue();
+			Object total = 0;
+			Object min = null;
+			Object max = null;
+			for (Object x : amts) {
+				total = Ops.add(total, x);
+				if (min == null || Ops.cmp(x, min) < 0)
+					min = x;
+				if (max == null || Ops.cmp(x, max) > 0)
+					max = x;
+			}
+			String list = e.getKey() % 2 == 0 ? "#(true)" : "#(false)";
+			rows.add("Row{cnum: " + e.getKey() + ", count: " + amts.size() +
+					", total_amt: " + total +
+					", average_amt: " + Ops.div(total, amts.size()) +
+					", min_amt: " + min + ", max_amt: " + max +
+					", list_flag: " + list + "}");
+		}
+		return rows;
+	}
+
+	private static final int NROWS = 3000;
+
+	private static int cnum(int i) {
+		return (i * 7) % 350;
+	}
+
+	/** mostly integers, some decimal to test switching from long totals */
+	private static Object amt(int i) {
+		return i % 13 == 0 ? Dnum.parse("1.5") : (Object) (i % 100);
+	}
+
+	private void makeOrders() {
+		adm("create ord (onum, cnum, amt, flag) key(onum)");
+		Transaction t = db.updateTransaction();
+		for (int i = 0; i < NROWS; ++i)
+			t.addRecord("ord", new RecordBuilder()
+					.add(i).add(cnum(i)).add(amt(i)).add(cnum(i) % 2 == 0).build());
+		t.ck_complete();
+	}
+
+}
@@ -6,10 +6,17 @@ package suneido.database.server;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
+import suneido.SuException;
 import suneido.SuObject;
 import suneido.TheDbms;
 import suneido.database.immudb.Dbpkg;
@@ -33,7 +40,9 @@ public class ClientServerTest {
 		TheDbms.set(Dbpkg.testdb()); // local dbms for server, used by Command
 
 		channel = new TestChannel(this::serverHandler);
-		handler = new DbmsServer.DbmsServerHandler(channel, new ServerDataSet());
+		// the handler writes the initial greeting
+		channel.asServer(() ->
+			handler = new DbmsServer.DbmsServerHandler(channel, new ServerDataSet()));
 
 		DbmsClient dbmsClient = new DbmsClient(channel);
 
@@ -92,6 +101,29 @@ public class ClientServerTest {
 		assertThat(t.readCount(), equalTo(1));
 		t.abort();
 
+		// PREPARE, EXECUTE
+		int pn = dbmsClient.prepare("tables where tablename = ?");
+		assertThat(dbmsClient.prepare("tables where tablename = ?"), equalTo(pn));
+		hr = dbmsClient.get(Dir.NEXT, pn, List.of("tmp"), true);
+		assertThat(hr.row.toString(), startsWith("[5,\"tmp\""));
+		t = dbmsClient.transaction(false);
+		hr = t.get(Dir.NEXT, t.prepare("tables where tablename = ?"),
+				List.of("tables"), true);
+		assertThat(hr.row.toString(), startsWith("[1,\"tables\""));
+		hr = t.get(Dir.NEXT, pn, List.of("nonexistent"), true);
+		assertThat(hr, equalTo(null));
+		t.abort();
+		// UNPREPARE when the client reaches the limit
+		int last = 0;
+		for (int i = 0; i < ServerData.MAX_PREPARED + 10; ++i)
+			last = dbmsClient.prepare("tables where tablename = ? and nrows > " + i);
+		hr = dbmsClient.get(Dir.NEXT, last, List.of("tmp"), true);
+		assertThat(hr, equalTo(null));
+		int pn2 = dbmsClient.prepare("tables where tablename = ?");
+		assertThat(pn2, not(equalTo(pn)));
+		hr = dbmsClient.get(Dir.NEXT, pn2, List.of("tmp"), true);
+		assertThat(hr.row.toString(), startsWith("[5,\"tmp\""));
+
 		// GET, HEADER, QUERY
 		t = dbmsClient.transaction(false);
 		q = t.query("tables");
@@ -99,6 +131,20 @@ public class ClientServerTest {
 		assertThat(q.get(Dir.PREV).toString(), startsWith("[5,\"tmp\""));
 		t.abort();
 
+		// GETMANY, compared to GET in an update transaction
+		String dirs = "++++-+--------+++++++++-+-";
+		t = dbmsClient.transaction(true);
+		List<String> expected = gets(t.query("tables"), dirs);
+		t.abort();
+		t = dbmsClient.transaction(false);
+		assertThat(gets(t.query("tables"), dirs), equalTo(expected));
+		q = t.query("tables");
+		q.get(Dir.NEXT);
+		q.get(Dir.NEXT);
+		q.rewind();
+		assertThat(q.get(Dir.NEXT).toString(), startsWith("[1,\"tables\""));
+		t.abort();
+
 		// GET, REWIND
 		q = dbmsClient.cursor("tables");
 		assertThat(q.header().toString(), equalTo(tables_header));
@@ -172,12 +218,123 @@ public class ClientServerTest {
 		assertThat(t.complete(), equalTo(null));
 		hr = dbmsClient.get(Dir.NEXT, "tmp", false);
 		assertThat(hr.row.toString(), startsWith("[456,\"up\"]"));
+
+		// PIPELINE, deferred CLOSE sent with COMMIT
+		t = dbmsClient.transaction(true);
+		q = t.query("tmp");
+		for (int i = 1; i <= 3; ++i)
+			q.output(new RecordBuilder().add(i).add("pipe").build());
+		q.close();
+		assertThat(t.complete(), equalTo(null));
+		assertThat(rows(dbmsClient), equalTo(List.of(
+				"[1,\"pipe\"]", "[2,\"pipe\"]", "[3,\"pipe\"]", "[456,\"up\"]")));
+
+		// PIPELINE, a failed OUTPUT is thrown by COMMIT which aborts instead
+		t = dbmsClient.transaction(true);
+		q = t.query("tmp");
+		q.output(new RecordBuilder().add(7).add("pipe").build());
+		q.output(new RecordBuilder().add(1).add("dup").build());
+		q.close();
+		try {
+			t.complete();
+			fail();
+		} catch (SuException e) {
+			assertThat(e.toString(), containsString("duplicate key"));
+		}
+		assertThat(t.isEnded(), equalTo(true));
+		assertThat(rows(dbmsClient).size(), equalTo(4));
+
+		// PIPELINE, a failed OUTPUT is thrown by the next other request
+		t = dbmsClient.transaction(true);
+		q = t.query("tmp");
+		q.output(new RecordBuilder().add(1).add("dup").build());
+		try {
+			q.header();
+			fail();
+		} catch (SuException e) {
+			assertThat(e.toString(), containsString("duplicate key"));
+		}
+		q.close();
+		t.abort();
+		assertThat(rows(dbmsClient).size(), equalTo(4));
+
+		// PIPELINE, deferred CLOSEs then more requests in the same transaction
+		t = dbmsClient.transaction(true);
+		q = t.query("tmp");
+		q.close();
+		q.close(); // a second close is ignored by the server
+		q = t.query("tmp");
+		q.output(new RecordBuilder().add(8).add("pipe").build());
+		q.close();
+		assertThat(t.complete(), equalTo(null));
+		assertThat(rows(dbmsClient).size(), equalTo(5));
+
+		// PIPELINE, more deferred requests than are sent at once
+		t = dbmsClient.transaction(false);
+		for (int i = 0; i < 250; ++i)
+			t.query("tmp").close();
+		assertThat(t.complete(), equalTo(null));
+		assertThat(rows(dbmsClient).size(), equalTo(5));
+
+		// GETMANY, a record that is too large is thrown when it is reached
+		t = dbmsClient.transaction(true);
+		q = t.query("tmp");
+		q.output(new RecordBuilder().add(9).add("x".repeat(100)).build());
+		q.close();
+		assertThat(t.complete(), equalTo(null));
+		int prevMaxRec = Command.maxRec;
+		Command.maxRec = 50;
+		try {
+			for (boolean update : List.of(true, false)) {
+				t = dbmsClient.transaction(update);
+				assertThat(getsOrErrors(t.query("tmp"), "+++++++"), equalTo(List.of(
+						"[1,\"pipe\"]", "[2,\"pipe\"]", "[3,\"pipe\"]",
+						"[8,\"pipe\"]", "result too large", "[456,\"up\"]", "null")));
+				t.abort();
+			}
+		} finally {
+			Command.maxRec = prevMaxRec;
+		}
+	}
+
+	private static List<String> getsOrErrors(DbmsQuery q, String dirs) {
+		List<String> list = new ArrayList<>();
+		for (char c : dirs.toCharArray())
+			try {
+				Row row = q.get(c == '+' ? Dir.NEXT : Dir.PREV);
+				list.add(String.valueOf(row).replaceAll("@\\d+", ""));
+			} catch (SuException e) {
+				list.add(e.getMessage().replace(" (from server)", ""));
+			}
+		return list;
+	}
+
+	private static List<String> rows(Dbms dbms) {
+		DbmsTran t = dbms.transaction(false);
+		try {
+			DbmsQuery q = t.query("tmp");
+			List<String> list = new ArrayList<>();
+			for (Row row; null != (row = q.get(Dir.NEXT)); )
+				list.add(row.toString().replaceAll("@\\d+", "")); // no address
+			q.close();
+			return list;
+		} finally {
+			t.abort();
+		}
+	}
+
+	private static List<String> gets(DbmsQuery q, String dirs) {
+		List<String> list = new ArrayList<>();
+		for (char c : dirs.toCharArray()) {
+			Row row = q.get(c == '+' ? Dir.NEXT : Dir.PREV);
+			list.add(String.valueOf(row));
+		}
+		return list;
 	}
 
 	private void serverHandler() {
 		// not request because we don't want threads
-		if (handler != null) // needed to handle initial greeting
-			handler.handleRequest(channel, (channel, handler) -> { });
+		handler.handleRequest(channel, (channel, handler) -> { });
 	}
 
 }
@@ -0,0 +1,71 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.database.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+public class RequestExecutorTest {
+
+	@Test
+	public void virtual() throws InterruptedException {
+		RequestExecutor re = RequestExecutor.virtual(0);
+		CountDownLatch done = new CountDownLatch(100);
+		Executor ex = re.forConnection();
+		for (int i = 0; i < 100; ++i)
+			re.execute(ex, () -> {
+				assertTrue(Thread.currentThread().isVirtual());
+				done.countDown();
+			});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		waitUntil(() -> re.completed() == 100);
+		assertEquals(0, re.running());
+		assertEquals(0, re.queued());
+	}
+
+	@Test
+	public void limit() throws InterruptedException {
+		RequestExecutor re = RequestExecutor.pool(1, 2);
+		Executor ex = re.forConnection();
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable blocked = () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+			}
+		};
+		re.execute(ex, blocked);
+		re.execute(ex, blocked);
+		waitUntil(() -> re.running() == 1);
+		assertEquals(1, re.running());
+		assertEquals(1, re.queued());
+
+		// the third request waits until one of the first two finishes
+		Thread t = new Thread(() -> re.execute(ex, () -> { }));
+		t.start();
+		t.join(100);
+		assertTrue(t.isAlive());
+		release.countDown();
+		t.join(10_000);
+		assertEquals(1, re.waited());
+		waitUntil(() -> re.completed() == 3);
+		assertEquals(0, re.running());
+		assertEquals(0, re.queued());
+	}
+
+	private static void waitUntil(BooleanSupplier cond)
+			throws InterruptedException {
+		for (int i = 0; i < 1000 && ! cond.getAsBoolean(); ++i)
+			Thread.sleep(10);
+	}
+
+}
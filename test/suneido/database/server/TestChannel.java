@@ -12,38 +12,65 @@ import java.util.Random;
 /**
  * Takes the place of a SocketChannel for connecting
  * {@link DbmsClient} to {@link DbmsServer}
+ * <p>
+ * Each direction has its own buffer
+ * since the server may write more than once per request
+ * (e.g. {@link Command#PIPELINE})
  */
 public class TestChannel implements ReadableByteChannel, GatheringByteChannel {
 	Runnable server;
 	static final int BUFSIZE = 8 * 1024;
-	ByteBuffer buf = ByteBuffer.allocate(BUFSIZE);
+	// position to limit is unread
+	ByteBuffer toServer = ByteBuffer.allocate(BUFSIZE).limit(0);
+	ByteBuffer toClient = ByteBuffer.allocate(BUFSIZE).limit(0);
 	boolean inServer = false;
 
 	TestChannel(Runnable server) {
 		this.server = server;
 	}
 
+	/** Run code that writes as the server e.g. the initial greeting */
+	void asServer(Runnable r) {
+		inServer = true;
+		try {
+			r.run();
+		} finally {
+			inServer = false;
+		}
+	}
+
 	@Override
 	public long write(ByteBuffer[] bufs) {
-		buf.clear();
+		long n = 0;
 		for (ByteBuffer b : bufs)
-			buf.put(b);
-		buf.flip();
-		if (! inServer) {
-			inServer = true;
-			try {
-				server.run();
-			} finally {
-				inServer = false;
-			}
+			n += b.remaining();
+		if (inServer)
+			toClient = append(toClient, bufs);
+		else {
+			toServer = append(toServer, bufs);
+			asServer(server);
 		}
-		return buf.limit();
+		return n;
+	}
+
+	private static ByteBuffer append(ByteBuffer dst, ByteBuffer[] bufs) {
+		int n = dst.remaining();
+		for (ByteBuffer b : bufs)
+			n += b.remaining();
+		if (n > dst.capacity())
+			dst = ByteBuffer.allocate(n).put(dst);
+		else
+			dst.compact();
+		for (ByteBuffer b : bufs)
+			dst.put(b);
+		return dst.flip();
 	}
 
 	private static final Random rand = new Random();
 
 	@Override
 	public int read(ByteBuffer dst) {
+		ByteBuffer buf = inServer ? toServer : toClient;
 		int n = 1 + rand.nextInt(Math.min(buf.remaining(), dst.remaining()));
 		for (int i = 0; i < n; ++i)
 			dst.put(buf.get());
@@ -0,0 +1,183 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static suneido.util.testing.Benchmark.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import suneido.SuException;
+
+public class ContextTest {
+	private final TestContext context = new TestContext();
+
+	@Test
+	public void cached() {
+		assertEquals("Foo!", context.get("Foo"));
+		assertEquals("Foo!", context.get(context.slotForName("Foo")));
+		assertEquals("Foo!", context.tryget("Foo"));
+		assertEquals(1, context.fetches("Foo"));
+	}
+
+	@Test
+	public void nonexistent() {
+		assertNull(context.tryget("Missing"));
+		try {
+			context.get("Missing");
+			fail();
+		} catch (SuException e) {
+			assertTrue(e.toString().contains("can't find Missing"));
+		}
+		assertEquals(1, context.fetches("Missing")); // not repeated
+	}
+
+	@Test
+	public void fetch_fails() {
+		try {
+			context.get("Error");
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals("error loading Error", e.getMessage());
+		}
+		assertNull(context.tryget("Error"));
+		assertEquals(1, context.fetches("Error"));
+	}
+
+	@Test
+	public void clear() {
+		context.get("Foo");
+		context.get("Bar");
+		context.clear("Foo");
+		context.get("Foo");
+		context.get("Bar");
+		assertEquals(2, context.fetches("Foo"));
+		assertEquals(1, context.fetches("Bar"));
+		context.clearAll();
+		context.get("Foo");
+		context.get("Bar");
+		assertEquals(3, context.fetches("Foo"));
+		assertEquals(2, context.fetches("Bar"));
+	}
+
+	@Test
+	public void set() {
+		context.set("Foo", "set");
+		assertEquals("set", context.get("Foo"));
+		assertEquals(0, context.fetches("Foo"));
+	}
+
+	@Test
+	public void recursive() {
+		// a fetch that gets its own name sees it as nonexistent
+		assertEquals("Self!null", context.get("Self"));
+	}
+
+	@Test
+	public void many_slots() {
+		for (int i = 0; i < 5000; ++i)
+			context.slotForName("N" + i);
+		for (int i = 4999; i >= 0; --i)
+			assertEquals("N" + i + "!", context.get("N" + i));
+	}
+
+	@Test
+	public void threads() throws InterruptedException {
+		int nthreads = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger errors = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < nthreads; ++t) {
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					for (int i = 0; i < 2000; ++i) {
+						if (! ("N" + (i % 50) + "!").equals(context.get("N" + (i % 50))))
+							errors.incrementAndGet();
+						if (i % 500 == 0)
+							context.clear("N0");
+					}
+				} catch (Throwable e) {
+					errors.incrementAndGet();
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		start.countDown();
+		for (Thread t : threads)
+			t.join();
+		assertEquals(0, errors.get());
+		for (int i = 1; i < 50; ++i)
+			assertEquals(1, context.fetches("N" + i));
+	}
+
+	@Test
+	public void benchmark_get() throws InterruptedException {
+		int[] slots = new int[100];
+		for (int i = 0; i < slots.length; ++i) {
+			slots[i] = context.slotForName("N" + i);
+			context.get(slots[i]);
+		}
+		int nthreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		benchmark("global get " + nthreads + " threads",
+				nthreads * slots.length, (long nreps) -> {
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < nthreads; ++t)
+				threads.add(new Thread(() -> {
+					for (long n = nreps; n > 0; --n)
+						for (int slot : slots)
+							context.get(slot);
+				}));
+			threads.forEach(Thread::start);
+			try {
+				for (Thread t : threads)
+					t.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
+	private static class TestContext extends Context {
+		private final Map<String, AtomicInteger> fetches =
+				new ConcurrentHashMap<>();
+
+		TestContext() {
+			super(new Contexts());
+		}
+
+		int fetches(String name) {
+			AtomicInteger n = fetches.get(name);
+			return n == null ? 0 : n.get();
+		}
+
+		@Override
+		protected Object fetch(String name) {
+			fetches.computeIfAbsent(name, k -> new AtomicInteger())
+					.incrementAndGet();
+			switch (name) {
+			case "Missing":
+				return null;
+			case "Error":
+				throw new RuntimeException("error loading Error");
+			case "Self":
+				return "Self!" + tryget("Self");
+			default:
+				return name + "!";
+			}
+		}
+	}
+
+}
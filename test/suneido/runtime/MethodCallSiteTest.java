@@ -0,0 +1,160 @@
+/* Copyright 2026 (c) Suneido Software Corp. All rights reserved.
+ * Licensed under GPLv2.
+ */
+
+package suneido.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static suneido.compiler.Compiler.eval;
+import static suneido.util.testing.Benchmark.benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import suneido.SuException;
+import suneido.Suneido;
+import suneido.compiler.Compiler;
+
+public class MethodCallSiteTest {
+
+	@Before
+	public void setQuoting() {
+		Ops.default_single_quotes = true;
+	}
+
+	@After
+	public void restoreQuoting() {
+		Ops.default_single_quotes = false;
+	}
+
+	@Test
+	public void polymorphic() {
+		def("CallM", "function (x) { x.M() }");
+		def("A", "class { M() { 'A' } }");
+		def("B", "A { }");
+		def("C", "class { M() { 'C' } }");
+		Object f = global("CallM");
+		for (int i = 0; i < 3; ++i) {
+			assertEquals("A", Ops.call(f, eval("A()")));
+			assertEquals("A", Ops.call(f, eval("B()")));
+			assertEquals("A", Ops.call(f, global("A")));
+			assertEquals("C", Ops.call(f, eval("C()")));
+		}
+	}
+
+	@Test
+	public void megamorphic() {
+		def("CallSize", "function (x) { x.Size() }");
+		def("S", "class { Size() { 99 } }");
+		Object f = global("CallSize");
+		Object[] xs = { "abc", eval("#(1, 2)"), eval("[a: 1]"),
+				eval("S()"), global("S"), "" };
+		for (int i = 0; i < 3; ++i)
+			for (Object x : xs)
+				assertEquals(Ops.invoke0(x, "Size"), Ops.call(f, x));
+	}
+
+	@Test
+	public void base_changed() {
+		def("CallM", "function (x) { x.M() }");
+		def("A", "class { M() { 'A' } }");
+		def("B", "A { }");
+		Object f = global("CallM");
+		Object b = eval("B()");
+		assertEquals("A", Ops.call(f, b));
+		assertEquals("A", Ops.call(f, b));
+		def("A", "class { M() { 'A2' } }");
+		assertEquals("A2", Ops.call(f, b));
+	}
+
+	@Test
+	public void user_defined_methods() {
+		def("CallM", "function (x) { x.M() }");
+		Object f = global("CallM");
+		try {
+			Ops.call(f, "abc");
+			fail();
+		} catch (SuException e) {
+			assertEquals("method not found: String.M", e.getMessage());
+		}
+		def("Strings", "class { M() { 'strings ' $ this } }");
+		assertEquals("strings abc", Ops.call(f, "abc"));
+		def("Strings", "class { M() { 'strings2 ' $ this } }");
+		assertEquals("strings2 abc", Ops.call(f, "abc"));
+		Suneido.context.clear("Strings");
+	}
+
+	@Test
+	public void null_receiver() {
+		def("CallSize", "function (x) { x.Size() }");
+		Object f = global("CallSize");
+		assertEquals(3, Ops.call(f, "abc"));
+		try {
+			Ops.call(f, (Object) null);
+			fail();
+		} catch (SuException e) {
+		}
+	}
+
+	/** compares x.Name() to x[name]() which uses Ops invoke */
+	@Test
+	public void benchmark_calls() {
+		def("Counter", "class { New() { .n = 0 } " +
+				"Inc() { .n = .Add(.n, 1) } Add(x, y) { x + y } Get() { .n } }");
+		def("Direct", "function (n) { c = Counter(); " +
+				"for (i = 0; i < n; ++i) c.Inc(); c.Get() }");
+		def("Dynamic", "function (n) { c = Counter(); inc = 'Inc'; get = 'Get'; " +
+				"for (i = 0; i < n; ++i) c[inc](); c[get]() }");
+		Object direct = global("Direct");
+		Object dynamic = global("Dynamic");
+		assertEquals(1000, Ops.call(direct, 1000));
+		assertEquals(1000, Ops.call(dynamic, 1000));
+		for (int i = 0; i < 300; ++i) { // warm up, Benchmark's isn't enough
+			Ops.call(direct, 1000);
+			Ops.call(dynamic, 1000);
+		}
+		benchmark("method calls (Ops.invoke)", 2000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(dynamic, 1000);
+		});
+		benchmark("method calls (invokedynamic)", 2000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(direct, 1000);
+		});
+	}
+
+	/** receivers that can't be cached e.g. Suneido, x.Size() versus x[name]() */
+	@Test
+	public void benchmark_uncacheable() {
+		def("DirectSize", "function (n) { s = Suneido; " +
+				"for (i = 0; i < n; ++i) s.Size(); s.Size() }");
+		def("DynamicSize", "function (n) { s = Suneido; size = 'Size'; " +
+				"for (i = 0; i < n; ++i) s[size](); s[size]() }");
+		Object direct = global("DirectSize");
+		Object dynamic = global("DynamicSize");
+		assertEquals(Ops.call(dynamic, 1), Ops.call(direct, 1));
+		for (int i = 0; i < 300; ++i) { // warm up, Benchmark's isn't enough
+			Ops.call(direct, 1000);
+			Ops.call(dynamic, 1000);
+		}
+		benchmark("uncacheable calls (Ops.invoke)", 2000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(dynamic, 1000);
+		});
+		benchmark("uncacheable calls (invokedynamic)", 2000, (long nreps) -> {
+			while (nreps-- > 0)
+				Ops.call(direct, 1000);
+		});
+	}
+
+	private static void def(String name, String source) {
+		Suneido.context.set(name, Compiler.compile(name, source));
+	}
+
+	private static Object global(String name) {
+		return Suneido.context.get(name);
+	}
+
+}
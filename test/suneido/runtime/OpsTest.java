@@ -242,6 +242,22 @@ public class OpsTest {
 		assertEquals(Dnum.from(Integer.MAX_VALUE * 10L), mul(Integer.MAX_VALUE, 10));
 	}
 
+	@Test
+	public void test_int_constant() {
+		assertEquals(5, addInt(2, 3));
+		assertEquals(Dnum.from(Integer.MAX_VALUE + 1L), addInt(Integer.MAX_VALUE, 1));
+		assertEquals(Dnum.from(Integer.MIN_VALUE - 1L), subInt(Integer.MIN_VALUE, 1));
+		assertEquals(Dnum.from(Integer.MAX_VALUE * 10L), mulInt(Integer.MAX_VALUE, 10));
+		assertEquals(Dnum.parse("2.5"), addInt(Dnum.parse("1.5"), 1));
+		assertEquals(Dnum.from(Integer.MAX_VALUE + 1L), add1(Integer.MAX_VALUE));
+		assertEquals(Dnum.from(Integer.MIN_VALUE - 1L), sub1(Integer.MIN_VALUE));
+		assertTrue(isInt_(Dnum.from(1), 1));
+		assertFalse(isInt_("1", 1));
+		assertTrue(ltInt_(Dnum.parse("1.5"), 2));
+		assertTrue(gtInt_("x", 99));
+		assertTrue(ltInt_(false, 0));
+	}
+
 	private static final Object p1 = Dnum.from(1);
 	private static final Object m1 = Dnum.from(-1);
 
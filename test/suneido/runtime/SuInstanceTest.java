@@ -5,9 +5,13 @@
 package suneido.runtime;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import suneido.SuObject;
+
 /**
  * Test for {@link SuInstance}.
  *
@@ -29,4 +33,25 @@ public class SuInstanceTest {
 		assertEquals(a1, a2);
 		assertEquals(a1.hashCode(), a2.hashCode());
 	}
+
+	@Test
+	public void concurrent() {
+		SuClass c = TestClass.instance();
+		SuInstance x = new SuInstance(c);
+		SuObject before = new SuObject();
+		x.put("before", before);
+		x.put("self", x); // self-reference
+		// e.g. Thread(x.Size)
+		SuObject.makeConcurrent(new SuBoundMethod(x, (SuCallable) c.lookup("Size")));
+		assertTrue(before.isConcurrent());
+		// members put after are shared too
+		SuObject after = new SuObject();
+		x.put("after", after);
+		assertTrue(after.isConcurrent());
+		// but not members of an unshared instance
+		SuInstance y = new SuInstance(c);
+		SuObject other = new SuObject();
+		y.put("other", other);
+		assertFalse(other.isConcurrent());
+	}
 }
@@ -24,6 +24,14 @@ public class Benchmark {
 	}
 
 	public static void benchmark(String name, Bench f) {
+		benchmark(name, 0, f);
+	}
+
+	/**
+	 * @param nitems If not zero, the number of items (e.g. rows)
+	 * processed by each repetition, also prints items per second
+	 */
+	public static void benchmark(String name, long nitems, Bench f) {
 		// set nobenchmarks in infinitest.args
 		org.junit.Assume.assumeTrue(
 				System.getProperty("nobenchmarks") == null);
@@ -31,6 +39,7 @@ public class Benchmark {
 		long t1 = System.nanoTime();
 		f.run(nreps);
 		long dur = System.nanoTime() - t1;
+		var rate = nitems * nreps * 1_000_000_000L / Math.max(dur, 1);
 		var each = dur / nreps;
 		var units = "ns";
 		if (each > 10_000_000) {
@@ -40,7 +49,8 @@ public class Benchmark {
 			units = "us";
 			each = (each + 500) / 1000;
 		}
-		System.out.println(name + ": " + each + " " + units);
+		System.out.println(name + ": " + each + " " + units +
+				(nitems == 0 ? "" : " (" + rate + " per sec)"));
 	}
 
 	// estimate how many repetitions per second